@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the int to enum conversions done for every input event.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GLEnumBenchmark {
+
+    @Param({"0", "1", "5", "15"})
+    public int mods;
+
+    public int action = GLFW.GLFW_REPEAT;
+    public int button = GLFW.GLFW_PRESS;
+
+    @Benchmark
+    public Set<GLKeyModifier> parseModifiers() {
+        return GLKeyModifier.parseModifiers(this.mods);
+    }
+
+    @Benchmark
+    public GLKeyModifier keyModifierValueOf() {
+        return GLKeyModifier.valueOf(this.mods);
+    }
+
+    @Benchmark
+    public GLKeyAction keyActionValueOf() {
+        return GLKeyAction.valueOf(this.action);
+    }
+
+    @Benchmark
+    public GLMouseButtonAction mouseButtonActionValueOf() {
+        return GLMouseButtonAction.valueOf(this.button);
+    }
+
+    @Benchmark
+    public GLMouseEnteredStatus mouseEnteredStatusValueOf() {
+        return GLMouseEnteredStatus.valueOf(this.button);
+    }
+
+    @Benchmark
+    public GLGamepadState gamepadStateValueOf() {
+        return GLGamepadState.valueOf(this.button);
+    }
+}
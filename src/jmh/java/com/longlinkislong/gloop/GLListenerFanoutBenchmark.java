@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks delivering a single event from the GLFW callback entry point
+ * through GLMouse or GLKeyboard to a number of registered listeners.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GLListenerFanoutBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int listenerCount;
+
+    private GLWindow window;
+    private GLMouse mouse;
+    private GLKeyboard keyboard;
+    private long hwnd;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException {
+        this.window = HeadlessWindows.open("fanout");
+        this.hwnd = this.window.window;
+        this.mouse = this.window.getMouse();
+        this.keyboard = this.window.getKeyboard();
+
+        for (int i = 0; i < this.listenerCount; i++) {
+            this.mouse.addPositionListener((w, x, y) -> blackhole.consume(x));
+            this.mouse.addButtonListener((w, button, action, mods) -> blackhole.consume(action));
+            this.keyboard.addKeyListener((w, key, scancode, action, mods) -> blackhole.consume(mods));
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        HeadlessWindows.close(this.window);
+    }
+
+    @Benchmark
+    public void cursorPosition() {
+        this.mouse.glfwCursorPosCallback(this.hwnd, 100.0, 200.0);
+    }
+
+    @Benchmark
+    public void mouseButton() {
+        this.mouse.glfwMouseButtonCallback(this.hwnd, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, GLFW.GLFW_MOD_SHIFT);
+    }
+
+    @Benchmark
+    public void key() {
+        this.keyboard.glfwCallback(this.hwnd, GLFW.GLFW_KEY_A, 30, GLFW.GLFW_PRESS, GLFW.GLFW_MOD_CONTROL);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks resolving a window handle to its GLWindow, which every listener
+ * callback does.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GLWindowLookupBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int windowCount;
+
+    private GLWindow[] windows;
+    private long[] handles;
+    private int next;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        this.windows = new GLWindow[this.windowCount];
+        this.handles = new long[this.windowCount];
+
+        for (int i = 0; i < this.windowCount; i++) {
+            this.windows[i] = HeadlessWindows.open("lookup-" + i);
+            this.handles[i] = this.windows[i].window;
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        for (GLWindow window : this.windows) {
+            HeadlessWindows.close(window);
+        }
+    }
+
+    @Benchmark
+    public GLWindow lookup() {
+        final int i = this.next;
+
+        this.next = (i + 1) % this.handles.length;
+
+        return GLWindowRegistry.get(this.handles[i]);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public GLWindow lookupMapView() {
+        final int i = this.next;
+
+        this.next = (i + 1) % this.handles.length;
+
+        return GLWindow.WINDOWS.get(this.handles[i]);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+/**
+ * Opens and closes GLWindows on the headless backend for benchmarks.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class HeadlessWindows {
+
+    private HeadlessWindows() {
+    }
+
+    static GLHeadlessBackend backend() {
+        if (!(GLFWBootstrap.getBackend() instanceof GLHeadlessBackend)) {
+            GLFWBootstrap.setBackend(new GLHeadlessBackend());
+        }
+
+        return (GLHeadlessBackend) GLFWBootstrap.getBackend();
+    }
+
+    static GLWindow open(final String title) throws InterruptedException {
+        backend();
+
+        final GLWindow window = new GLWindow(640, 480, title);
+
+        while (!window.isValid()) {
+            Thread.sleep(1);
+        }
+
+        return window;
+    }
+
+    static void close(final GLWindow window) {
+        if (window.isValid()) {
+            window.close();
+            window.update();
+        }
+    }
+}
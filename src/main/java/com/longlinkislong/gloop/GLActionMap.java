@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Maps keys, mouse buttons, scrolling and gamepad inputs to logical actions.
+ * Each call to {@link #update()} resolves every binding once and stores the
+ * results in dense arrays indexed by action id:
+ * <ul>
+ * <li>digital: true while any binding of the action is active.</li>
+ * <li>analog: the sum of the values of the active bindings.</li>
+ * <li>pressed and released: true for the single update in which the digital
+ * state changed.</li>
+ * </ul>
+ * Resolving and reading do not allocate. Bindings are usually set up once;
+ * they may be changed between updates.
+ *
+ * <p>
+ * Keys and mouse buttons are polled, but presses are also latched from the
+ * input events: a tap that is released again before the next update still
+ * makes its actions active for that update. Scrolling is accumulated from
+ * the events in the same way.
+ *
+ * <p>
+ * {@link #update()} should run on the thread that polls the window's events,
+ * for example from a {@link GLFrameLoop} post-swap hook. Other threads may
+ * read the results after reading {@link #getFrame()}.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLActionMap {
+
+    private static final int KEY = 0;
+    private static final int MOUSE_BUTTON = 1;
+    private static final int SCROLL_X = 2;
+    private static final int SCROLL_Y = 3;
+    private static final int GAMEPAD_BUTTON = 4;
+    private static final int GAMEPAD_AXIS = 5;
+
+    // press latches; one bit per key followed by one bit per mouse button
+    private static final int BUTTON_BIT = (GLFW.GLFW_KEY_LAST + 32) & ~31;
+    private static final int LATCH_WORDS = (BUTTON_BIT + GLFW.GLFW_MOUSE_BUTTON_LAST + 32) >>> 5;
+
+    private final GLWindow window;
+    private final int actionCount;
+
+    private final boolean[] digital;
+    private final float[] analog;
+    private final boolean[] pressed;
+    private final boolean[] released;
+    private volatile long frame = 0L;
+
+    // bindings as parallel arrays
+    private int bindingCount = 0;
+    private int[] bindingAction = new int[8];
+    private int[] bindingType = new int[8];
+    private int[] bindingCode = new int[8];
+    private float[] bindingScale = new float[8];
+    private float[] bindingDeadZone = new float[8];
+    private GLGamepad[] bindingPad = new GLGamepad[8];
+
+    // gamepads polled once per update
+    private GLGamepad[] pads = new GLGamepad[0];
+
+    // input events arrive on the polling thread and are taken by update(), which may run elsewhere
+    private final GLMouseScrollListener scrollListener = (w, xOffset, yOffset) -> this.scrolled(xOffset, yOffset);
+    private final GLKeyListener keyListener = (w, key, scancode, action, mods) -> {
+        if (action == GLKeyAction.KEY_PRESSED && key >= 0 && key <= GLFW.GLFW_KEY_LAST) {
+            latch(this.pressEvents, key);
+        }
+    };
+    private final GLMouseButtonListener buttonListener = (w, button, action, mods) -> {
+        if (action == GLMouseButtonAction.PRESSED && button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST) {
+            latch(this.pressEvents, BUTTON_BIT + button);
+        }
+    };
+    private boolean isScrollListenerAdded = false;
+    private boolean isKeyListenerAdded = false;
+    private boolean isButtonListenerAdded = false;
+    // scroll offsets as raw double bits so that events and updates never lose a delta
+    private final AtomicLong scrollXBits = new AtomicLong();
+    private final AtomicLong scrollYBits = new AtomicLong();
+    private final AtomicIntegerArray pressEvents = new AtomicIntegerArray(LATCH_WORDS);
+
+    // the events taken by the current update
+    private double scrollX = 0.0;
+    private double scrollY = 0.0;
+    private final int[] presses = new int[LATCH_WORDS];
+
+    /**
+     * Constructs a new action map.
+     *
+     * @param window the window that receives keyboard, mouse and scroll
+     * input.
+     * @param actionCount the number of actions. Action ids range from 0 to
+     * actionCount - 1.
+     * @throws IllegalArgumentException if actionCount is negative.
+     * @since 26.10.18
+     */
+    public GLActionMap(final GLWindow window, final int actionCount) throws IllegalArgumentException {
+        if (actionCount < 0) {
+            throw new IllegalArgumentException("Action count cannot be negative!");
+        }
+
+        this.window = Objects.requireNonNull(window);
+        this.actionCount = actionCount;
+        this.digital = new boolean[actionCount];
+        this.analog = new float[actionCount];
+        this.pressed = new boolean[actionCount];
+        this.released = new boolean[actionCount];
+    }
+
+    private void scrolled(final double xOffset, final double yOffset) {
+        accumulate(this.scrollXBits, xOffset);
+        accumulate(this.scrollYBits, yOffset);
+    }
+
+    private static void accumulate(final AtomicLong bits, final double delta) {
+        long prev;
+
+        do {
+            prev = bits.get();
+        } while (!bits.compareAndSet(prev, Double.doubleToRawLongBits(Double.longBitsToDouble(prev) + delta)));
+    }
+
+    private static double take(final AtomicLong bits) {
+        return Double.longBitsToDouble(bits.getAndSet(0L));
+    }
+
+    private static void latch(final AtomicIntegerArray words, final int bit) {
+        final int index = bit >>> 5;
+        final int mask = 1 << (bit & 31);
+        int prev;
+
+        do {
+            prev = words.get(index);
+
+            if ((prev & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(index, prev, prev | mask));
+    }
+
+    private boolean wasLatched(final int bit) {
+        return (this.presses[bit >>> 5] & (1 << (bit & 31))) != 0;
+    }
+
+    private synchronized void bind(
+            final int action, final int type, final int code,
+            final float scale, final float deadZone, final GLGamepad pad) {
+
+        if (action < 0 || action >= this.actionCount) {
+            throw new IndexOutOfBoundsException("Invalid action id: " + action);
+        }
+
+        final int index = this.bindingCount;
+
+        if (index == this.bindingAction.length) {
+            final int newSize = index * 2;
+
+            this.bindingAction = Arrays.copyOf(this.bindingAction, newSize);
+            this.bindingType = Arrays.copyOf(this.bindingType, newSize);
+            this.bindingCode = Arrays.copyOf(this.bindingCode, newSize);
+            this.bindingScale = Arrays.copyOf(this.bindingScale, newSize);
+            this.bindingDeadZone = Arrays.copyOf(this.bindingDeadZone, newSize);
+            this.bindingPad = Arrays.copyOf(this.bindingPad, newSize);
+        }
+
+        this.bindingAction[index] = action;
+        this.bindingType[index] = type;
+        this.bindingCode[index] = code;
+        this.bindingScale[index] = scale;
+        this.bindingDeadZone[index] = deadZone;
+        this.bindingPad[index] = pad;
+        this.bindingCount = index + 1;
+
+        if (pad != null && !Arrays.asList(this.pads).contains(pad)) {
+            this.pads = Arrays.copyOf(this.pads, this.pads.length + 1);
+            this.pads[this.pads.length - 1] = pad;
+        }
+
+        if ((type == SCROLL_X || type == SCROLL_Y) && !this.isScrollListenerAdded) {
+            this.window.getMouse().addScrollListener(this.scrollListener);
+            this.isScrollListenerAdded = true;
+        } else if (type == KEY && !this.isKeyListenerAdded) {
+            // first so that a consuming listener cannot hide the press
+            this.window.getKeyboard().addKeyListener(this.keyListener, Integer.MAX_VALUE);
+            this.isKeyListenerAdded = true;
+        } else if (type == MOUSE_BUTTON && !this.isButtonListenerAdded) {
+            this.window.getMouse().addButtonListener(this.buttonListener, Integer.MAX_VALUE);
+            this.isButtonListenerAdded = true;
+        }
+    }
+
+    /**
+     * Binds a key to an action with an analog value of 1.
+     *
+     * @param action the action id.
+     * @param key the GLFW key code.
+     * @since 26.10.18
+     */
+    public void bindKey(final int action, final int key) {
+        this.bindKey(action, key, 1F);
+    }
+
+    /**
+     * Binds a key to an action. A pair of keys bound with 1 and -1 forms an
+     * axis.
+     *
+     * @param action the action id.
+     * @param key the GLFW key code.
+     * @param value the analog value while the key is down.
+     * @since 26.10.18
+     */
+    public void bindKey(final int action, final int key, final float value) {
+        this.bind(action, KEY, key, value, 0F, null);
+    }
+
+    /**
+     * Binds a mouse button to an action.
+     *
+     * @param action the action id.
+     * @param button the GLFW mouse button.
+     * @param value the analog value while the button is down.
+     * @since 26.10.18
+     */
+    public void bindMouseButton(final int action, final int button, final float value) {
+        this.bind(action, MOUSE_BUTTON, button, value, 0F, null);
+    }
+
+    /**
+     * Binds scrolling to an action. The analog value is the scroll offset
+     * accumulated since the previous update multiplied by the scale; the
+     * action is active for any update with scrolling in that direction.
+     *
+     * @param action the action id.
+     * @param vertical true for vertical scrolling, false for horizontal.
+     * @param scale the multiplier for the scroll offset.
+     * @since 26.10.18
+     */
+    public void bindScroll(final int action, final boolean vertical, final float scale) {
+        this.bind(action, vertical ? SCROLL_Y : SCROLL_X, 0, scale, 0F, null);
+    }
+
+    /**
+     * Binds a gamepad button to an action.
+     *
+     * @param action the action id.
+     * @param gamepad the gamepad.
+     * @param button the button index.
+     * @param value the analog value while the button is down.
+     * @since 26.10.18
+     */
+    public void bindGamepadButton(final int action, final GLGamepad gamepad, final int button, final float value) {
+        this.bind(action, GAMEPAD_BUTTON, button, value, 0F, Objects.requireNonNull(gamepad));
+    }
+
+    /**
+     * Binds a gamepad axis to an action. Axis values inside the dead zone are
+     * ignored and the rest of the range is rescaled to start at 0.
+     *
+     * @param action the action id.
+     * @param gamepad the gamepad.
+     * @param axis the axis index.
+     * @param scale the multiplier for the axis value; -1 inverts the axis.
+     * @param deadZone the magnitude below which the axis reads as 0.
+     * @throws IllegalArgumentException if the dead zone is not in [0, 1).
+     * @since 26.10.18
+     */
+    public void bindGamepadAxis(
+            final int action, final GLGamepad gamepad, final int axis,
+            final float scale, final float deadZone) throws IllegalArgumentException {
+
+        if (!(deadZone >= 0F && deadZone < 1F)) {
+            throw new IllegalArgumentException("Dead zone must be in [0, 1): " + deadZone);
+        }
+
+        this.bind(action, GAMEPAD_AXIS, axis, scale, deadZone, Objects.requireNonNull(gamepad));
+    }
+
+    /**
+     * Removes every binding of an action.
+     *
+     * @param action the action id.
+     * @since 26.10.18
+     */
+    public synchronized void unbind(final int action) {
+        int kept = 0;
+
+        for (int i = 0; i < this.bindingCount; i++) {
+            if (this.bindingAction[i] != action) {
+                this.bindingAction[kept] = this.bindingAction[i];
+                this.bindingType[kept] = this.bindingType[i];
+                this.bindingCode[kept] = this.bindingCode[i];
+                this.bindingScale[kept] = this.bindingScale[i];
+                this.bindingDeadZone[kept] = this.bindingDeadZone[i];
+                this.bindingPad[kept] = this.bindingPad[i];
+                kept++;
+            }
+        }
+
+        Arrays.fill(this.bindingPad, kept, this.bindingCount, null);
+        this.bindingCount = kept;
+    }
+
+    /**
+     * Removes every binding.
+     *
+     * @since 26.10.18
+     */
+    public synchronized void clearBindings() {
+        Arrays.fill(this.bindingPad, null);
+        this.bindingCount = 0;
+        this.pads = new GLGamepad[0];
+
+        if (this.isScrollListenerAdded) {
+            this.window.getMouse().removeScrollListener(this.scrollListener);
+            this.isScrollListenerAdded = false;
+        }
+
+        if (this.isKeyListenerAdded) {
+            this.window.getKeyboard().removeKeyListener(this.keyListener);
+            this.isKeyListenerAdded = false;
+        }
+
+        if (this.isButtonListenerAdded) {
+            this.window.getMouse().removeButtonListener(this.buttonListener);
+            this.isButtonListenerAdded = false;
+        }
+    }
+
+    private float evaluate(final int binding) {
+        final int code = this.bindingCode[binding];
+        final float scale = this.bindingScale[binding];
+
+        switch (this.bindingType[binding]) {
+            case KEY:
+                return this.window.backend.getKey(this.window.window, code) != GLFW.GLFW_RELEASE
+                        || (code >= 0 && code <= GLFW.GLFW_KEY_LAST && this.wasLatched(code)) ? scale : 0F;
+            case MOUSE_BUTTON:
+                return this.window.backend.getMouseButton(this.window.window, code) != GLFW.GLFW_RELEASE
+                        || (code >= 0 && code <= GLFW.GLFW_MOUSE_BUTTON_LAST && this.wasLatched(BUTTON_BIT + code)) ? scale : 0F;
+            case SCROLL_X:
+                return (float) this.scrollX * scale;
+            case SCROLL_Y:
+                return (float) this.scrollY * scale;
+            case GAMEPAD_BUTTON:
+                return this.bindingPad[binding].getButtonState(code) == GLGamepadState.PRESSED ? scale : 0F;
+            case GAMEPAD_AXIS: {
+                final float value = this.bindingPad[binding].getAxesState(code);
+                final float magnitude = Math.abs(value);
+                final float deadZone = this.bindingDeadZone[binding];
+
+                if (magnitude <= deadZone) {
+                    return 0F;
+                }
+
+                return Math.copySign((magnitude - deadZone) / (1F - deadZone), value) * scale;
+            }
+            default:
+                throw new IllegalStateException("Unknown binding type!");
+        }
+    }
+
+    /**
+     * Polls the bound gamepads and resolves every binding. Call once per
+     * frame after the window's events were polled.
+     *
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public synchronized void update() throws GLFWException {
+        if (!this.window.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        for (GLGamepad pad : this.pads) {
+            pad.update();
+        }
+
+        this.scrollX = take(this.scrollXBits);
+        this.scrollY = take(this.scrollYBits);
+
+        for (int i = 0; i < LATCH_WORDS; i++) {
+            this.presses[i] = this.pressEvents.getAndSet(i, 0);
+        }
+
+        final boolean[] wasActive = this.released;
+
+        // released doubles as scratch for the previous digital state
+        System.arraycopy(this.digital, 0, wasActive, 0, this.actionCount);
+        Arrays.fill(this.digital, false);
+        Arrays.fill(this.analog, 0F);
+
+        for (int i = 0; i < this.bindingCount; i++) {
+            final float value = this.evaluate(i);
+
+            if (value != 0F) {
+                final int action = this.bindingAction[i];
+
+                this.digital[action] = true;
+                this.analog[action] += value;
+            }
+        }
+
+        for (int i = 0; i < this.actionCount; i++) {
+            final boolean before = wasActive[i];
+
+            this.pressed[i] = this.digital[i] && !before;
+            this.released[i] = before && !this.digital[i];
+        }
+
+        this.frame++;
+    }
+
+    /**
+     * Retrieves the number of updates so far. Reading this before the
+     * results makes the results of that update visible to other threads.
+     *
+     * @return the update count.
+     * @since 26.10.18
+     */
+    public long getFrame() {
+        return this.frame;
+    }
+
+    /**
+     * Retrieves the number of actions.
+     *
+     * @return the action count.
+     * @since 26.10.18
+     */
+    public int getActionCount() {
+        return this.actionCount;
+    }
+
+    /**
+     * Checks if any binding of an action is active.
+     *
+     * @param action the action id.
+     * @return the digital state.
+     * @since 26.10.18
+     */
+    public boolean isActive(final int action) {
+        return this.digital[action];
+    }
+
+    /**
+     * Retrieves the sum of the values of the active bindings of an action.
+     *
+     * @param action the action id.
+     * @return the analog value.
+     * @since 26.10.18
+     */
+    public float getValue(final int action) {
+        return this.analog[action];
+    }
+
+    /**
+     * Checks if an action became active in the last update.
+     *
+     * @param action the action id.
+     * @return true on the rising edge.
+     * @since 26.10.18
+     */
+    public boolean wasPressed(final int action) {
+        return this.pressed[action];
+    }
+
+    /**
+     * Checks if an action became inactive in the last update.
+     *
+     * @param action the action id.
+     * @return true on the falling edge.
+     * @since 26.10.18
+     */
+    public boolean wasReleased(final int action) {
+        return this.released[action];
+    }
+
+    /**
+     * Retrieves the digital states of all actions. The array is owned by the
+     * action map and is overwritten by every update.
+     *
+     * @return the digital states indexed by action id.
+     * @since 26.10.18
+     */
+    public boolean[] getDigitalStates() {
+        return this.digital;
+    }
+
+    /**
+     * Retrieves the analog values of all actions. The array is owned by the
+     * action map and is overwritten by every update.
+     *
+     * @return the analog values indexed by action id.
+     * @since 26.10.18
+     */
+    public float[] getAnalogValues() {
+        return this.analog;
+    }
+
+    /**
+     * Retrieves the rising edges of all actions. The array is owned by the
+     * action map and is overwritten by every update.
+     *
+     * @return the pressed flags indexed by action id.
+     * @since 26.10.18
+     */
+    public boolean[] getPressedStates() {
+        return this.pressed;
+    }
+
+    /**
+     * Retrieves the falling edges of all actions. The array is owned by the
+     * action map and is overwritten by every update.
+     *
+     * @return the released flags indexed by action id.
+     * @since 26.10.18
+     */
+    public boolean[] getReleasedStates() {
+        return this.released;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency primitives that differ between Java versions. The library is
+ * built as a multi-release JAR; the JVM selects the newest implementation of
+ * this class that it supports.
+ *
+ * This is the Java 8 implementation. Spin waits are plain busy loops,
+ * listener executors use daemon platform threads and buffer stores are
+ * ordered by the full fence of sun.misc.Unsafe.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLConcurrency {
+
+    // sun.misc.Unsafe.fullFence, or null if Unsafe is not accessible
+    private static final MethodHandle FULL_FENCE = findFullFence();
+    private static volatile int fallbackFence;
+
+    private GLConcurrency() {
+    }
+
+    private static MethodHandle findFullFence() {
+        try {
+            final Class<?> type = Class.forName("sun.misc.Unsafe");
+            final Field field = type.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+
+            return MethodHandles.lookup()
+                    .unreflect(type.getMethod("fullFence"))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static void fullFence() {
+        if (FULL_FENCE != null) {
+            try {
+                FULL_FENCE.invokeExact();
+                return;
+            } catch (Throwable ex) {
+                // fall through to the volatile fence
+            }
+        }
+
+        // a volatile store followed by a volatile load is a full fence on HotSpot
+        fallbackFence = fallbackFence + 1;
+    }
+
+    /**
+     * Stores a long into a buffer after every earlier store, so a reader that
+     * loads the long with acquire semantics also sees the earlier stores.
+     *
+     * @param buffer the buffer. Its byte order is used.
+     * @param index the byte index; a multiple of 8 from the buffer address.
+     * @param value the value.
+     */
+    static void putLongRelease(final ByteBuffer buffer, final int index, final long value) {
+        fullFence();
+        buffer.putLong(index, value);
+    }
+
+    /**
+     * Orders every earlier store before every later store.
+     */
+    static void storeStoreFence() {
+        fullFence();
+    }
+
+    /**
+     * Retrieves the Java version this implementation was compiled for.
+     *
+     * @return 8, 17 or 21.
+     * @since 26.10.18
+     */
+    public static int getImplementationVersion() {
+        return 8;
+    }
+
+    /**
+     * Hints that the caller is busy waiting.
+     *
+     * @since 26.10.18
+     */
+    public static void onSpinWait() {
+        // Thread.onSpinWait is not available before Java 9
+    }
+
+    /**
+     * Creates an ExecutorService suitable for listeners registered with an
+     * Executor. Each listener registration still receives its events in
+     * order.
+     *
+     * @param name the prefix for the thread names.
+     * @return the new ExecutorService.
+     * @since 26.10.18
+     */
+    public static ExecutorService newListenerExecutor(final String name) {
+        final AtomicInteger id = new AtomicInteger();
+
+        return Executors.newCachedThreadPool(task -> {
+            final Thread thread = new Thread(task, name + "-" + id.getAndIncrement());
+
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
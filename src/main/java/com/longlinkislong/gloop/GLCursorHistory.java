@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+/**
+ * A fixed size ring of timestamped cursor positions with a One-Euro filter
+ * that is updated with every sample. Positions are extrapolated without
+ * allocating. Samples are added by the polling thread; predictions may be
+ * made from any thread.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class GLCursorHistory {
+
+    static final int CAPACITY = 64;
+
+    // velocity is averaged over the samples in this window ending at the newest sample
+    private static final long VELOCITY_WINDOW_NANOS = 40_000_000L;
+    // extrapolating further than this overshoots more than it helps
+    private static final long MAX_HORIZON_NANOS = 50_000_000L;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final long[] times = new long[CAPACITY];
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+    private int head = 0;
+    private int count = 0;
+
+    private GLCursorPrediction mode = GLCursorPrediction.VELOCITY;
+    private double minCutoff = 1.0;
+    private double beta = 0.007;
+    private double derivativeCutoff = 1.0;
+
+    // One-Euro state per axis
+    private double filteredX;
+    private double filteredY;
+    private double filteredDX;
+    private double filteredDY;
+
+    private static double alpha(final double cutoff, final double dt) {
+        final double tau = 1.0 / (2.0 * Math.PI * cutoff);
+
+        return 1.0 / (1.0 + tau / dt);
+    }
+
+    synchronized void add(final long nanoTime, final double x, final double y) {
+        final int newest = Math.floorMod(this.head - 1, CAPACITY);
+
+        if (this.count == 0) {
+            this.filteredX = x;
+            this.filteredY = y;
+            this.filteredDX = 0.0;
+            this.filteredDY = 0.0;
+        } else {
+            final double dt = (nanoTime - this.times[newest]) / NANOS_PER_SECOND;
+
+            if (dt > 0.0) {
+                final double aD = alpha(this.derivativeCutoff, dt);
+
+                // differentiate the raw samples; the filtered position lags and would inflate the velocity
+                this.filteredDX += aD * ((x - this.xs[newest]) / dt - this.filteredDX);
+                this.filteredDY += aD * ((y - this.ys[newest]) / dt - this.filteredDY);
+
+                final double speed = Math.sqrt(this.filteredDX * this.filteredDX + this.filteredDY * this.filteredDY);
+                final double a = alpha(this.minCutoff + this.beta * speed, dt);
+
+                this.filteredX += a * (x - this.filteredX);
+                this.filteredY += a * (y - this.filteredY);
+            }
+        }
+
+        this.times[this.head] = nanoTime;
+        this.xs[this.head] = x;
+        this.ys[this.head] = y;
+        this.head = (this.head + 1) % CAPACITY;
+        this.count = Math.min(this.count + 1, CAPACITY);
+    }
+
+    synchronized void clear() {
+        this.count = 0;
+    }
+
+    synchronized int size() {
+        return this.count;
+    }
+
+    synchronized void setMode(final GLCursorPrediction mode) {
+        this.mode = mode;
+    }
+
+    synchronized GLCursorPrediction getMode() {
+        return this.mode;
+    }
+
+    synchronized void setOneEuroParameters(final double minCutoff, final double beta, final double derivativeCutoff) {
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    /**
+     * Copies the samples from oldest to newest.
+     *
+     * @return the number of samples copied.
+     */
+    synchronized int copy(final long[] nanoTimes, final double[] positions) {
+        final int n = Math.min(this.count, Math.min(nanoTimes.length, positions.length / 2));
+        final int oldest = Math.floorMod(this.head - this.count, CAPACITY);
+        final int skip = this.count - n;
+
+        for (int i = 0; i < n; i++) {
+            final int index = (oldest + skip + i) % CAPACITY;
+
+            nanoTimes[i] = this.times[index];
+            positions[2 * i] = this.xs[index];
+            positions[2 * i + 1] = this.ys[index];
+        }
+
+        return n;
+    }
+
+    /**
+     * Extrapolates the cursor position.
+     *
+     * @param nanoTime the time to predict for in the System.nanoTime time
+     * base.
+     * @param out output of length 2 receiving x and y.
+     * @return false if there are no samples.
+     */
+    synchronized boolean predict(final long nanoTime, final double[] out) {
+        if (this.count == 0) {
+            return false;
+        }
+
+        final int newest = Math.floorMod(this.head - 1, CAPACITY);
+        final long newestTime = this.times[newest];
+
+        if (nanoTime - newestTime > MAX_HORIZON_NANOS) {
+            // the cursor has not moved for a while; it is where it stopped
+            out[0] = this.xs[newest];
+            out[1] = this.ys[newest];
+            return true;
+        }
+
+        final double horizon = Math.max(0L, Math.min(nanoTime - newestTime, MAX_HORIZON_NANOS)) / NANOS_PER_SECOND;
+
+        if (this.mode == GLCursorPrediction.ONE_EURO) {
+            out[0] = this.filteredX + this.filteredDX * horizon;
+            out[1] = this.filteredY + this.filteredDY * horizon;
+            return true;
+        }
+
+        int oldest = newest;
+
+        for (int i = 1; i < this.count; i++) {
+            final int index = Math.floorMod(newest - i, CAPACITY);
+
+            if (newestTime - this.times[index] > VELOCITY_WINDOW_NANOS) {
+                break;
+            }
+
+            oldest = index;
+        }
+
+        final double dt = (newestTime - this.times[oldest]) / NANOS_PER_SECOND;
+
+        out[0] = this.xs[newest];
+        out[1] = this.ys[newest];
+
+        if (dt > 0.0) {
+            out[0] += (this.xs[newest] - this.xs[oldest]) / dt * horizon;
+            out[1] += (this.ys[newest] - this.ys[oldest]) / dt * horizon;
+        }
+
+        return true;
+    }
+}
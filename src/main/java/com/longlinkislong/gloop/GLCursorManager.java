@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Creates, caches and frees the cursors of a GLWindow. Standard cursors are
+ * cached by shape and image cursors by a caller supplied key. Images are
+ * decoded and converted to RGBA off the GLThread; only the final cursor
+ * creation runs on it. Every cursor is destroyed when the window is cleaned
+ * up.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLCursorManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLCursorManager");
+    private static final Marker GLFW_MARKER = MarkerFactory.getMarker("GLFW");
+
+    private final GLWindow window;
+    private final Map<GLStandardCursor, Long> standardCursors = new EnumMap<>(GLStandardCursor.class);
+    private final Map<String, CompletableFuture<Long>> imageCursors = new ConcurrentHashMap<>();
+    private volatile boolean isDestroyed = false;
+
+    GLCursorManager(final GLWindow window) {
+        this.window = Objects.requireNonNull(window);
+    }
+
+    /**
+     * Retrieves the handle of a standard cursor, creating it on first use.
+     *
+     * @param shape the cursor shape.
+     * @return the native cursor handle.
+     * @throws GLFWException if the cursors were already destroyed.
+     * @since 26.10.18
+     */
+    public long getStandardCursor(final GLStandardCursor shape) throws GLFWException {
+        Objects.requireNonNull(shape, "Cursor shape cannot be null!");
+
+        synchronized (this.standardCursors) {
+            final Long cached = this.standardCursors.get(shape);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        return this.window.glCall(new GLQuery<Long>() {
+            @Override
+            public Long call() throws Exception {
+                GLCursorManager.this.checkDestroyed();
+
+                synchronized (GLCursorManager.this.standardCursors) {
+                    return GLCursorManager.this.standardCursors.computeIfAbsent(shape, s -> {
+                        LOGGER.trace(GLFW_MARKER, "glfwCreateStandardCursor({})", s);
+                        return GLCursorManager.this.window.backend.createStandardCursor(s.value);
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the window's cursor to a standard cursor.
+     *
+     * @param shape the cursor shape.
+     * @since 26.10.18
+     */
+    public void setStandardCursor(final GLStandardCursor shape) {
+        this.window.setCursor(this.getStandardCursor(shape));
+    }
+
+    /**
+     * Loads an image cursor and caches it under a key. The stream is read and
+     * decoded with ImageIO on the common ForkJoinPool. Repeated calls with the
+     * same key return the same future without reading the stream again. A
+     * cursor that fails to load is removed from the cache, so a later call
+     * with the same key tries again.
+     *
+     * @param key the cache key.
+     * @param source supplies the encoded image.
+     * @param xHot the x coordinate of the cursor hotspot in pixels.
+     * @param yHot the y coordinate of the cursor hotspot in pixels.
+     * @return a future that completes with the native cursor handle.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Long> loadImageCursor(
+            final String key, final Supplier<? extends InputStream> source,
+            final int xHot, final int yHot) {
+
+        Objects.requireNonNull(source, "Image source cannot be null!");
+
+        return this.createImageCursor(key, () -> {
+            try (InputStream in = source.get()) {
+                final BufferedImage image = ImageIO.read(in);
+
+                if (image == null) {
+                    throw new IOException("Unsupported image format for cursor: " + key);
+                }
+
+                return image;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, xHot, yHot);
+    }
+
+    /**
+     * Creates an image cursor from an already decoded image and caches it
+     * under a key. The pixel conversion happens on the common ForkJoinPool.
+     *
+     * @param key the cache key.
+     * @param image the cursor image.
+     * @param xHot the x coordinate of the cursor hotspot in pixels.
+     * @param yHot the y coordinate of the cursor hotspot in pixels.
+     * @return a future that completes with the native cursor handle.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Long> createImageCursor(
+            final String key, final BufferedImage image,
+            final int xHot, final int yHot) {
+
+        Objects.requireNonNull(image, "Image cannot be null!");
+
+        return this.createImageCursor(key, () -> image, xHot, yHot);
+    }
+
+    private CompletableFuture<Long> createImageCursor(
+            final String key, final Supplier<BufferedImage> image,
+            final int xHot, final int yHot) {
+
+        Objects.requireNonNull(key, "Cursor key cannot be null!");
+        this.checkDestroyed();
+
+        final CompletableFuture<Long> cached = this.imageCursors.get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final CompletableFuture<Long> cursor = new CompletableFuture<>();
+        final CompletableFuture<Long> existing = this.imageCursors.putIfAbsent(key, cursor);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture
+                .supplyAsync(() -> new Pixels(image.get()))
+                .thenCompose(pixels -> {
+                    final CompletableFuture<Long> out = new CompletableFuture<>();
+
+                    this.window.getGLThreadExecutor().execute(() -> {
+                        try {
+                            this.checkDestroyed();
+                            LOGGER.trace(GLFW_MARKER, "glfwCreateCursor({}, {}x{})", key, pixels.width, pixels.height);
+                            out.complete(this.window.backend.createCursor(pixels.width, pixels.height, pixels.rgba, xHot, yHot));
+                        } catch (Throwable ex) {
+                            out.completeExceptionally(ex);
+                        }
+                    });
+
+                    return out;
+                })
+                .whenComplete((handle, ex) -> {
+                    if (ex == null) {
+                        cursor.complete(handle);
+                    } else {
+                        // evicted first so that a retry after the failure loads the cursor again
+                        this.imageCursors.remove(key, cursor);
+                        cursor.completeExceptionally(ex);
+                    }
+                });
+
+        return cursor;
+    }
+
+    /**
+     * Retrieves a cached image cursor.
+     *
+     * @param key the cache key.
+     * @return the future returned when the cursor was loaded, or null if no
+     * cursor was loaded under the key or loading it failed.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Long> getImageCursor(final String key) {
+        return this.imageCursors.get(key);
+    }
+
+    /**
+     * Sets the window's cursor to a cached image cursor once it has been
+     * created.
+     *
+     * @param key the cache key.
+     * @return a future that completes once the cursor was set.
+     * @throws GLFWException if no cursor was loaded under the key.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Void> setImageCursor(final String key) throws GLFWException {
+        final CompletableFuture<Long> cursor = this.imageCursors.get(key);
+
+        if (cursor == null) {
+            throw new GLFWException("No cursor loaded for key: " + key);
+        }
+
+        return cursor.thenAccept(this.window::setCursor);
+    }
+
+    /**
+     * Retrieves the number of cursors created by this manager.
+     *
+     * @return the cached cursor count.
+     * @since 26.10.18
+     */
+    public int getCursorCount() {
+        synchronized (this.standardCursors) {
+            return this.standardCursors.size() + (int) this.imageCursors.values().stream()
+                    .filter(f -> f.isDone() && !f.isCompletedExceptionally())
+                    .count();
+        }
+    }
+
+    private void checkDestroyed() throws GLFWException {
+        if (this.isDestroyed) {
+            throw new GLFWException("GLCursorManager has been destroyed!");
+        }
+    }
+
+    /**
+     * Destroys every cached cursor. Called on the GLThread while the window
+     * is cleaned up.
+     */
+    void destroy() {
+        this.isDestroyed = true;
+
+        synchronized (this.standardCursors) {
+            this.standardCursors.values().forEach(this.window.backend::destroyCursor);
+            this.standardCursors.clear();
+        }
+
+        this.imageCursors.values().forEach(future -> {
+            // creation runs on this thread, so a pending future can no longer create a cursor
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                this.window.backend.destroyCursor(future.join());
+            }
+        });
+
+        this.imageCursors.clear();
+        LOGGER.trace(GLFW_MARKER, "Destroyed cursors of GLWindow[{}]", this.window);
+    }
+
+    /**
+     * An image converted to tightly packed, non-premultiplied RGBA.
+     */
+    private static final class Pixels {
+
+        final int width;
+        final int height;
+        final ByteBuffer rgba;
+
+        Pixels(final BufferedImage image) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+
+            final int[] argb = image.getRGB(0, 0, this.width, this.height, null, 0, this.width);
+
+            this.rgba = ByteBuffer.allocateDirect(argb.length * 4);
+
+            for (int pixel : argb) {
+                this.rgba.put((byte) (pixel >>> 16))
+                        .put((byte) (pixel >>> 8))
+                        .put((byte) pixel)
+                        .put((byte) (pixel >>> 24));
+            }
+
+            this.rgba.flip();
+        }
+    }
+}
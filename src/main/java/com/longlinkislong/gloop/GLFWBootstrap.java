@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.lwjgl.glfw.GLFW;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Lazily initialized GLFW startup. Each stage runs at most once and only when
+ * something first needs it. The time spent in each stage is recorded so that
+ * cold start cost can be inspected with {@link #getStartupReport()}.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLFWBootstrap {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLFWBootstrap");
+    private static final Marker GLFW_MARKER = MarkerFactory.getMarker("GLFW");
+
+    /**
+     * The measured startup stages.
+     *
+     * @since 26.10.18
+     */
+    public enum Stage {
+        /**
+         * Loading the LWJGL and GLFW native libraries.
+         */
+        NATIVE_LOAD,
+        /**
+         * Backend initialization; glfwInit and the error callback for GLFW.
+         */
+        GLFW_INIT,
+        /**
+         * Probing all joystick slots for gamepads.
+         */
+        GAMEPAD_SCAN,
+        /**
+         * Applying window hints and calling glfwCreateWindow. Hidden worker
+         * windows are not counted.
+         */
+        WINDOW_CREATION,
+        /**
+         * GL.createCapabilities or GLES.createCapabilities. Hidden worker
+         * windows are not counted.
+         */
+        CREATE_CAPABILITIES
+    }
+
+    private static final int STAGE_COUNT = Stage.values().length;
+    private static final AtomicLongArray STAGE_NANOS = new AtomicLongArray(STAGE_COUNT);
+    private static final AtomicLongArray STAGE_COUNTS = new AtomicLongArray(STAGE_COUNT);
+
+    private static final AtomicBoolean STARTUP_REPORTED = new AtomicBoolean(false);
+
+    private static volatile GLWindowBackend backend = null;
+    private static volatile boolean nativesLoaded = false;
+    private static volatile boolean glfwInitialized = false;
+    private static volatile List<GLGamepad> gamepads = null;
+
+    private GLFWBootstrap() {
+    }
+
+    /**
+     * Retrieves the platform backend. Unless one was set with
+     * {@link #setBackend(GLWindowBackend)}, the backend is chosen by the
+     * system property com.longlinkislong.gloop.window.backend. Accepted values
+     * are "glfw" (default), "headless" or the name of a class implementing
+     * GLWindowBackend with a public no-argument constructor.
+     *
+     * @return the backend.
+     * @since 26.10.18
+     */
+    public static GLWindowBackend getBackend() {
+        GLWindowBackend out = backend;
+
+        if (out == null) {
+            synchronized (GLFWBootstrap.class) {
+                if ((out = backend) == null) {
+                    backend = out = newBackend(System.getProperty("com.longlinkislong.gloop.window.backend", "glfw"));
+                    LOGGER.trace(GLFW_MARKER, "Selected GLWindowBackend: {}", out.getClass().getSimpleName());
+                }
+            }
+        }
+
+        return out;
+    }
+
+    private static GLWindowBackend newBackend(final String name) {
+        switch (name.toLowerCase()) {
+            case "glfw":
+                return new GLFWWindowBackend();
+            case "headless":
+                return new GLHeadlessBackend();
+            default:
+                try {
+                    return Class.forName(name)
+                            .asSubclass(GLWindowBackend.class)
+                            .newInstance();
+                } catch (ReflectiveOperationException | ClassCastException ex) {
+                    throw new GLFWException("Unable to construct GLWindowBackend: " + name, ex);
+                }
+        }
+    }
+
+    /**
+     * Replaces the platform backend. This must be called before the first
+     * window is created or any other GLFW function is used.
+     *
+     * @param newBackend the backend to use.
+     * @throws GLFWException if the current backend was already initialized.
+     * @since 26.10.18
+     */
+    public static void setBackend(final GLWindowBackend newBackend) throws GLFWException {
+        synchronized (GLFWBootstrap.class) {
+            if (nativesLoaded || glfwInitialized) {
+                throw new GLFWException("GLWindowBackend cannot be changed after initialization!");
+            }
+
+            backend = Objects.requireNonNull(newBackend);
+        }
+    }
+
+    /**
+     * Loads the native libraries used by the backend. This is a no-op after
+     * the first call.
+     *
+     * @since 26.10.18
+     */
+    static void loadNatives() {
+        if (nativesLoaded) {
+            return;
+        }
+
+        synchronized (GLFWBootstrap.class) {
+            if (!nativesLoaded) {
+                final long start = System.nanoTime();
+
+                getBackend().loadNatives();
+                record(Stage.NATIVE_LOAD, System.nanoTime() - start);
+                nativesLoaded = true;
+            }
+        }
+    }
+
+    /**
+     * Initializes the backend; for GLFW this calls glfwInit and installs the
+     * error callback. This is a no-op after the first successful call.
+     *
+     * @throws GLFWException if GLFW could not be initialized.
+     * @since 26.10.18
+     */
+    static void initGLFW() throws GLFWException {
+        if (glfwInitialized) {
+            return;
+        }
+
+        loadNatives();
+
+        synchronized (GLFWBootstrap.class) {
+            if (!glfwInitialized) {
+                final long start = System.nanoTime();
+
+                getBackend().initialize();
+                record(Stage.GLFW_INIT, System.nanoTime() - start);
+                glfwInitialized = true;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the gamepads that were present when they were first
+     * requested. The joystick slots are only probed on the first call.
+     *
+     * @return the unmodifiable list of gamepads.
+     * @since 26.10.18
+     */
+    static List<GLGamepad> gamepads() {
+        List<GLGamepad> out = gamepads;
+
+        if (out == null) {
+            initGLFW();
+
+            synchronized (GLFWBootstrap.class) {
+                if ((out = gamepads) == null) {
+                    final long start = System.nanoTime();
+                    final GLWindowBackend platform = getBackend();
+                    final List<GLGamepad> found = new ArrayList<>(0);
+
+                    for (int i = 0; i < GLFW.GLFW_JOYSTICK_LAST; i++) {
+                        if (platform.joystickPresent(i)) {
+                            final GLGamepad gamepad = new GLGamepad(i);
+
+                            found.add(gamepad);
+                            LOGGER.trace(GLFW_MARKER, "Registered gamepad: {}!", gamepad.getName());
+                        }
+                    }
+
+                    record(Stage.GAMEPAD_SCAN, System.nanoTime() - start);
+                    gamepads = out = Collections.unmodifiableList(found);
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Adds the time spent in a stage to the startup report.
+     *
+     * @param stage the stage.
+     * @param nanos the time spent in nanoseconds.
+     * @since 26.10.18
+     */
+    static void record(final Stage stage, final long nanos) {
+        STAGE_NANOS.addAndGet(stage.ordinal(), nanos);
+        STAGE_COUNTS.incrementAndGet(stage.ordinal());
+    }
+
+    /**
+     * Claims the startup report, which is logged once after the first window
+     * was created.
+     *
+     * @return true for the first caller only.
+     */
+    static boolean claimStartupReport() {
+        return STARTUP_REPORTED.compareAndSet(false, true);
+    }
+
+    /**
+     * Retrieves the total time spent in a stage. Stages that run per window
+     * accumulate the time of every window.
+     *
+     * @param stage the stage.
+     * @return the total time in nanoseconds. 0 if the stage has not run.
+     * @since 26.10.18
+     */
+    public static long getStageTime(final Stage stage) {
+        return STAGE_NANOS.get(stage.ordinal());
+    }
+
+    /**
+     * Retrieves how many times a stage has run.
+     *
+     * @param stage the stage.
+     * @return the number of times the stage ran.
+     * @since 26.10.18
+     */
+    public static long getStageCount(final Stage stage) {
+        return STAGE_COUNTS.get(stage.ordinal());
+    }
+
+    /**
+     * Builds a human readable breakdown of the time spent in each startup
+     * stage.
+     *
+     * @return the startup report.
+     * @since 26.10.18
+     */
+    public static String getStartupReport() {
+        final StringBuilder out = new StringBuilder(256).append("GLFW startup:");
+        long total = 0L;
+
+        for (Stage stage : Stage.values()) {
+            final long nanos = getStageTime(stage);
+            final long count = getStageCount(stage);
+
+            total += nanos;
+            out.append(String.format("%n  %-20s %10.3f ms (x%d)", stage, nanos / 1e6, count));
+        }
+
+        return out.append(String.format("%n  %-20s %10.3f ms", "TOTAL", total / 1e6)).toString();
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWCharCallback;
+import org.lwjgl.glfw.GLFWCursorEnterCallback;
+import org.lwjgl.glfw.GLFWCursorPosCallback;
+import org.lwjgl.glfw.GLFWDropCallback;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
+import org.lwjgl.glfw.GLFWImage;
+import org.lwjgl.glfw.GLFWKeyCallback;
+import org.lwjgl.glfw.GLFWMouseButtonCallback;
+import org.lwjgl.glfw.GLFWScrollCallback;
+import org.lwjgl.glfw.GLFWVidMode;
+import org.lwjgl.glfw.GLFWWindowCloseCallback;
+import org.lwjgl.glfw.GLFWWindowIconifyCallback;
+import org.lwjgl.glfw.GLFWWindowRefreshCallback;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengles.GLES;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * The default GLWindowBackend. Every call is forwarded to GLFW through LWJGL.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLFWWindowBackend implements GLWindowBackend {
+
+    private static final Logger GLFW_LOGGER = LoggerFactory.getLogger("GLFW");
+    private static final Marker GLFW_MARKER = MarkerFactory.getMarker("GLFW");
+
+    private final Map<Long, CallbackSet> callbacks = new ConcurrentHashMap<>();
+    private GLFWErrorCallback errorCallback = null;
+
+    private static final class CallbackSet {
+
+        final GLFWKeyCallback key;
+        final GLFWCharCallback character;
+        final GLFWMouseButtonCallback mouseButton;
+        final GLFWCursorPosCallback cursorPos;
+        final GLFWCursorEnterCallback cursorEnter;
+        final GLFWScrollCallback scroll;
+        final GLFWFramebufferSizeCallback framebufferSize;
+        final GLFWWindowCloseCallback windowClose;
+        final GLFWWindowIconifyCallback windowIconify;
+        final GLFWDropCallback drop;
+        final GLFWWindowRefreshCallback windowRefresh;
+
+        CallbackSet(final Callbacks target) {
+            this.key = GLFWKeyCallback.create(target::keyCallback);
+            this.character = GLFWCharCallback.create(target::charCallback);
+            this.mouseButton = GLFWMouseButtonCallback.create(target::mouseButtonCallback);
+            this.cursorPos = GLFWCursorPosCallback.create(target::cursorPosCallback);
+            this.cursorEnter = GLFWCursorEnterCallback.create(target::cursorEnterCallback);
+            this.scroll = GLFWScrollCallback.create(target::scrollCallback);
+            this.framebufferSize = GLFWFramebufferSizeCallback.create(target::framebufferSizeCallback);
+            this.windowClose = GLFWWindowCloseCallback.create(target::windowCloseCallback);
+            this.windowIconify = GLFWWindowIconifyCallback.create(target::windowIconifyCallback);
+            this.windowRefresh = GLFWWindowRefreshCallback.create(target::windowRefreshCallback);
+            this.drop = GLFWDropCallback.create((hwnd, count, names) -> {
+                final String[] paths = new String[count];
+
+                for (int i = 0; i < count; i++) {
+                    paths[i] = GLFWDropCallback.getName(names, i);
+                }
+
+                target.dropCallback(hwnd, paths);
+            });
+        }
+
+        void install(final long hwnd) {
+            GLFW.glfwSetKeyCallback(hwnd, this.key);
+            GLFW.glfwSetCharCallback(hwnd, this.character);
+            GLFW.glfwSetMouseButtonCallback(hwnd, this.mouseButton);
+            GLFW.glfwSetCursorPosCallback(hwnd, this.cursorPos);
+            GLFW.glfwSetCursorEnterCallback(hwnd, this.cursorEnter);
+            GLFW.glfwSetScrollCallback(hwnd, this.scroll);
+            GLFW.glfwSetFramebufferSizeCallback(hwnd, this.framebufferSize);
+            GLFW.glfwSetWindowCloseCallback(hwnd, this.windowClose);
+            GLFW.glfwSetWindowIconifyCallback(hwnd, this.windowIconify);
+            GLFW.glfwSetDropCallback(hwnd, this.drop);
+            GLFW.glfwSetWindowRefreshCallback(hwnd, this.windowRefresh);
+        }
+
+        void free() {
+            this.key.free();
+            this.character.free();
+            this.mouseButton.free();
+            this.cursorPos.free();
+            this.cursorEnter.free();
+            this.scroll.free();
+            this.framebufferSize.free();
+            this.windowClose.free();
+            this.windowIconify.free();
+            this.drop.free();
+            this.windowRefresh.free();
+        }
+    }
+
+    @Override
+    public void loadNatives() {
+        GLFW.getLibrary();
+    }
+
+    @Override
+    public void initialize() throws GLFWException {
+        if (GLFW.glfwInit()) {
+            GLFW_LOGGER.trace(GLFW_MARKER, "GLFW successfully initialized!");
+        } else {
+            throw new GLFWException("Could not initialize GLFW!");
+        }
+
+        this.errorCallback = GLFWErrorCallback.create((error, desc) -> {
+            final String msg = GLFWErrorCallback.getDescription(desc);
+
+            GLFW_LOGGER.error(GLFW_MARKER, "GLFW Error #{}: {}", error, msg);
+        });
+
+        GLFW.glfwSetErrorCallback(this.errorCallback);
+    }
+
+    @Override
+    public boolean hasGLContext() {
+        return true;
+    }
+
+    @Override
+    public double getTime() {
+        return GLFW.glfwGetTime();
+    }
+
+    @Override
+    public long getTimerValue() {
+        return GLFW.glfwGetTimerValue();
+    }
+
+    @Override
+    public long getTimerFrequency() {
+        return GLFW.glfwGetTimerFrequency();
+    }
+
+    @Override
+    public void windowHint(final int hint, final int value) {
+        GLFW.glfwWindowHint(hint, value);
+    }
+
+    @Override
+    public long createWindow(
+            final int width, final int height,
+            final CharSequence title,
+            final long monitor, final long share) {
+
+        return GLFW.glfwCreateWindow(width, height, title, monitor, share);
+    }
+
+    @Override
+    public void destroyWindow(final long hwnd) {
+        GLFW.glfwDestroyWindow(hwnd);
+    }
+
+    @Override
+    public void setCallbacks(final long hwnd, final Callbacks target) {
+        final CallbackSet set = new CallbackSet(target);
+
+        set.install(hwnd);
+
+        final CallbackSet old = this.callbacks.put(hwnd, set);
+
+        if (old != null) {
+            old.free();
+        }
+    }
+
+    @Override
+    public void freeCallbacks(final long hwnd) {
+        final CallbackSet set = this.callbacks.remove(hwnd);
+
+        if (set != null) {
+            set.free();
+        }
+    }
+
+    @Override
+    public void makeContextCurrent(final long hwnd) {
+        GLFW.glfwMakeContextCurrent(hwnd);
+    }
+
+    @Override
+    public void createCapabilities(final GLWindow.ClientAPI api) {
+        switch (api) {
+            case OPENGL:
+                GL.createCapabilities();
+                break;
+            case OPENGLES:
+                GLES.createCapabilities();
+                break;
+        }
+    }
+
+    @Override
+    public void swapInterval(final int interval) {
+        GLFW.glfwSwapInterval(interval);
+    }
+
+    @Override
+    public void swapBuffers(final long hwnd) {
+        GLFW.glfwSwapBuffers(hwnd);
+    }
+
+    @Override
+    public void pollEvents() {
+        GLFW.glfwPollEvents();
+    }
+
+    @Override
+    public void waitEventsTimeout(final double timeout) {
+        GLFW.glfwWaitEventsTimeout(timeout);
+    }
+
+    @Override
+    public void postEmptyEvent() {
+        GLFW.glfwPostEmptyEvent();
+    }
+
+    @Override
+    public boolean windowShouldClose(final long hwnd) {
+        return GLFW.glfwWindowShouldClose(hwnd);
+    }
+
+    @Override
+    public void setWindowShouldClose(final long hwnd, final boolean shouldClose) {
+        GLFW.glfwSetWindowShouldClose(hwnd, shouldClose);
+    }
+
+    @Override
+    public void showWindow(final long hwnd) {
+        GLFW.glfwShowWindow(hwnd);
+    }
+
+    @Override
+    public void hideWindow(final long hwnd) {
+        GLFW.glfwHideWindow(hwnd);
+    }
+
+    @Override
+    public void setWindowSize(final long hwnd, final int width, final int height) {
+        GLFW.glfwSetWindowSize(hwnd, width, height);
+    }
+
+    @Override
+    public void setWindowPos(final long hwnd, final int x, final int y) {
+        GLFW.glfwSetWindowPos(hwnd, x, y);
+    }
+
+    @Override
+    public void setWindowMonitor(
+            final long hwnd, final long monitor,
+            final int x, final int y,
+            final int width, final int height,
+            final int refreshRate) {
+
+        GLFW.glfwSetWindowMonitor(hwnd, monitor, x, y, width, height, refreshRate);
+    }
+
+    @Override
+    public void getWindowSize(final long hwnd, final int[] size) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(4, 2 * 4);
+
+            GLFW.nglfwGetWindowSize(hwnd, address, address + 4);
+
+            size[0] = MemoryUtil.memGetInt(address);
+            size[1] = MemoryUtil.memGetInt(address + 4);
+        }
+    }
+
+    @Override
+    public void getWindowPos(final long hwnd, final int[] pos) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(4, 2 * 4);
+
+            GLFW.nglfwGetWindowPos(hwnd, address, address + 4);
+
+            pos[0] = MemoryUtil.memGetInt(address);
+            pos[1] = MemoryUtil.memGetInt(address + 4);
+        }
+    }
+
+    @Override
+    public void getFramebufferSize(final long hwnd, final int[] size) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(4, 2 * 4);
+
+            GLFW.nglfwGetFramebufferSize(hwnd, address, address + 4);
+
+            size[0] = MemoryUtil.memGetInt(address);
+            size[1] = MemoryUtil.memGetInt(address + 4);
+        }
+    }
+
+    @Override
+    public void getWindowFrameSize(final long hwnd, final int[] edges) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(4, 4 * 4);
+
+            GLFW.nglfwGetWindowFrameSize(hwnd, address, address + 4, address + 8, address + 12);
+
+            edges[0] = MemoryUtil.memGetInt(address);
+            edges[1] = MemoryUtil.memGetInt(address + 4);
+            edges[2] = MemoryUtil.memGetInt(address + 8);
+            edges[3] = MemoryUtil.memGetInt(address + 12);
+        }
+    }
+
+    @Override
+    public long getPrimaryMonitor() {
+        return GLFW.glfwGetPrimaryMonitor();
+    }
+
+    @Override
+    public long getWindowMonitor(final long hwnd) {
+        return GLFW.glfwGetWindowMonitor(hwnd);
+    }
+
+    @Override
+    public void getVideoMode(final long monitor, final int[] mode) {
+        // read the GLFW owned struct in place instead of wrapping it in a GLFWVidMode
+        final long vidMode = GLFW.nglfwGetVideoMode(monitor);
+
+        if (vidMode == MemoryUtil.NULL) {
+            throw new GLFWException("Unable to retrieve the video mode of monitor: " + monitor);
+        }
+
+        mode[VIDMODE_WIDTH] = GLFWVidMode.nwidth(vidMode);
+        mode[VIDMODE_HEIGHT] = GLFWVidMode.nheight(vidMode);
+        mode[VIDMODE_RED_BITS] = GLFWVidMode.nredBits(vidMode);
+        mode[VIDMODE_GREEN_BITS] = GLFWVidMode.ngreenBits(vidMode);
+        mode[VIDMODE_BLUE_BITS] = GLFWVidMode.nblueBits(vidMode);
+        mode[VIDMODE_REFRESH_RATE] = GLFWVidMode.nrefreshRate(vidMode);
+    }
+
+    @Override
+    public void getMonitorPhysicalSize(final long monitor, final int[] sizeMM) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(4, 2 * 4);
+
+            GLFW.nglfwGetMonitorPhysicalSize(monitor, address, address + 4);
+
+            sizeMM[0] = MemoryUtil.memGetInt(address);
+            sizeMM[1] = MemoryUtil.memGetInt(address + 4);
+        }
+    }
+
+    @Override
+    public int getKey(final long hwnd, final int key) {
+        return GLFW.glfwGetKey(hwnd, key);
+    }
+
+    @Override
+    public int getMouseButton(final long hwnd, final int button) {
+        return GLFW.glfwGetMouseButton(hwnd, button);
+    }
+
+    @Override
+    public void getCursorPos(final long hwnd, final double[] pos) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final long address = stack.nmalloc(8, 2 * 8);
+
+            GLFW.nglfwGetCursorPos(hwnd, address, address + 8);
+
+            pos[0] = MemoryUtil.memGetDouble(address);
+            pos[1] = MemoryUtil.memGetDouble(address + 8);
+        }
+    }
+
+    @Override
+    public void setCursorPos(final long hwnd, final double x, final double y) {
+        GLFW.glfwSetCursorPos(hwnd, x, y);
+    }
+
+    @Override
+    public void setCursor(final long hwnd, final long cursor) {
+        GLFW.glfwSetCursor(hwnd, cursor);
+    }
+
+    @Override
+    public long createStandardCursor(final int shape) {
+        final long cursor = GLFW.glfwCreateStandardCursor(shape);
+
+        if (cursor == MemoryUtil.NULL) {
+            throw new GLFWException("Unable to create standard cursor: " + shape);
+        }
+
+        return cursor;
+    }
+
+    @Override
+    public long createCursor(final int width, final int height, final ByteBuffer rgba, final int xHot, final int yHot) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final GLFWImage image = GLFWImage.mallocStack(stack)
+                    .width(width)
+                    .height(height)
+                    .pixels(rgba);
+            final long cursor = GLFW.glfwCreateCursor(image, xHot, yHot);
+
+            if (cursor == MemoryUtil.NULL) {
+                throw new GLFWException("Unable to create " + width + "x" + height + " cursor!");
+            }
+
+            return cursor;
+        }
+    }
+
+    @Override
+    public void destroyCursor(final long cursor) {
+        GLFW.glfwDestroyCursor(cursor);
+    }
+
+    @Override
+    public void setClipboardString(final long hwnd, final CharSequence value) {
+        GLFW.glfwSetClipboardString(hwnd, value);
+    }
+
+    @Override
+    public String getClipboardString(final long hwnd) {
+        return GLFW.glfwGetClipboardString(hwnd);
+    }
+
+    @Override
+    public ByteBuffer getClipboardUTF8(final long hwnd) {
+        final long address = GLFW.nglfwGetClipboardString(hwnd);
+
+        if (address == MemoryUtil.NULL) {
+            return null;
+        }
+
+        final ByteBuffer utf8 = MemoryUtil.memByteBufferNT1(address);
+
+        // an empty string reads the same as no string, like the headless backend
+        return utf8.hasRemaining() ? utf8 : null;
+    }
+
+    @Override
+    public void setClipboardUTF8(final long hwnd, final ByteBuffer utf8) {
+        GLFW.nglfwSetClipboardString(hwnd, MemoryUtil.memAddress(utf8));
+    }
+
+    @Override
+    public boolean joystickPresent(final int joystick) {
+        return GLFW.glfwJoystickPresent(joystick);
+    }
+
+    @Override
+    public String getJoystickName(final int joystick) {
+        return GLFW.glfwGetJoystickName(joystick);
+    }
+
+    @Override
+    public FloatBuffer getJoystickAxes(final int joystick) {
+        return GLFW.glfwGetJoystickAxes(joystick);
+    }
+
+    @Override
+    public ByteBuffer getJoystickButtons(final int joystick) {
+        return GLFW.glfwGetJoystickButtons(joystick);
+    }
+}
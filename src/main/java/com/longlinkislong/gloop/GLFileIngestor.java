@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A GLFileDropListener that processes dropped files in the background. Each
+ * dropped regular file is memory mapped and passed to a Processor on one of a
+ * bounded number of worker threads. Progress and completion are reported on
+ * the window's GLThread, so the polling thread never touches the files.
+ *
+ * Files are mapped read-only and must be smaller than 2GB. The mapped buffer
+ * is only valid for the duration of the Processor call.
+ *
+ * @author zmichaels
+ * @param <T> the result of processing a single file.
+ * @since 26.10.18
+ */
+public final class GLFileIngestor<T> implements GLFileDropListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLFileIngestor");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * Processes the contents of a single file on a worker thread.
+     *
+     * @param <T> the result type.
+     * @since 26.10.18
+     */
+    @FunctionalInterface
+    public interface Processor<T> {
+
+        T process(Path path, ByteBuffer data) throws Exception;
+    }
+
+    /**
+     * Receives the outcome of each file on the GLThread.
+     *
+     * @param <T> the result type.
+     * @since 26.10.18
+     */
+    @FunctionalInterface
+    public interface ProgressListener<T> {
+
+        /**
+         * @param window the window the files were dropped on.
+         * @param path the processed file.
+         * @param result the result or null if processing failed.
+         * @param error the failure or null if processing succeeded.
+         * @param completed the number of files of the drop completed so far.
+         * @param total the number of files in the drop.
+         */
+        void fileProcessed(GLWindow window, Path path, T result, Throwable error, int completed, int total);
+    }
+
+    /**
+     * Receives the outcome of a whole drop on the GLThread.
+     *
+     * @param <T> the result type.
+     * @since 26.10.18
+     */
+    @FunctionalInterface
+    public interface CompletionListener<T> {
+
+        /**
+         * @param window the window the files were dropped on.
+         * @param results the results of the successful files in drop order.
+         * @param errors the failures by path in drop order.
+         */
+        void filesProcessed(GLWindow window, Map<Path, T> results, Map<Path, Throwable> errors);
+    }
+
+    private final Processor<T> processor;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    private Optional<ProgressListener<T>> onProgress = Optional.empty();
+    private Optional<CompletionListener<T>> onComplete = Optional.empty();
+
+    /**
+     * Constructs a new GLFileIngestor.
+     *
+     * @param parallelism the maximum number of files processed at once.
+     * @param processor the function run on every dropped file.
+     * @since 26.10.18
+     */
+    public GLFileIngestor(final int parallelism, final Processor<T> processor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+
+        this.processor = Objects.requireNonNull(processor, "Processor cannot be null!");
+
+        final int id = NEXT_ID.getAndIncrement();
+        final AtomicInteger threadId = new AtomicInteger();
+
+        this.workers = new ThreadPoolExecutor(
+                parallelism, parallelism,
+                30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> {
+                    final Thread thread = new Thread(task, "GLFileIngestor-" + id + "-" + threadId.getAndIncrement());
+
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // workers only exist while a drop is being processed
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the callback run on the GLThread after each file.
+     *
+     * @param listener the callback. May be null.
+     * @since 26.10.18
+     */
+    public void setOnProgress(final ProgressListener<T> listener) {
+        this.onProgress = Optional.ofNullable(listener);
+    }
+
+    /**
+     * Sets the callback run on the GLThread after every file of a drop
+     * finished.
+     *
+     * @param listener the callback. May be null.
+     * @since 26.10.18
+     */
+    public void setOnComplete(final CompletionListener<T> listener) {
+        this.onComplete = Optional.ofNullable(listener);
+    }
+
+    /**
+     * Retrieves the number of files that are queued or being processed.
+     *
+     * @return the pending file count.
+     * @since 26.10.18
+     */
+    public int getPendingCount() {
+        return this.pending.get();
+    }
+
+    /**
+     * Stops the worker threads. Files that are already queued are still
+     * processed.
+     *
+     * @since 26.10.18
+     */
+    public void shutdown() {
+        this.workers.shutdown();
+    }
+
+    @Override
+    public void filesDropped(final GLWindow window, final List<Path> paths) {
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        final Drop drop = new Drop(window, paths);
+
+        LOGGER.trace(GLOOP_MARKER, "Ingesting {} dropped files on {}", paths.size(), window);
+        this.pending.addAndGet(paths.size());
+
+        for (int i = 0; i < paths.size(); i++) {
+            final int index = i;
+
+            this.workers.execute(() -> drop.process(index));
+        }
+    }
+
+    private static ByteBuffer map(final Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("Not a regular file: " + path);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map: " + path + " (" + size + " bytes)");
+            }
+
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+    }
+
+    /**
+     * The state of a single drop. Results are written by the workers and
+     * read on the GLThread after the hand-off through its executor.
+     */
+    private final class Drop {
+
+        final GLWindow window;
+        final Path[] paths;
+        final Object[] results;
+        final Throwable[] errors;
+        int completed = 0; // GLThread only
+
+        Drop(final GLWindow window, final List<Path> paths) {
+            this.window = window;
+            this.paths = paths.toArray(new Path[paths.size()]);
+            this.results = new Object[this.paths.length];
+            this.errors = new Throwable[this.paths.length];
+        }
+
+        void process(final int index) {
+            final Path path = this.paths[index];
+
+            try {
+                this.results[index] = GLFileIngestor.this.processor.process(path, map(path));
+            } catch (Throwable ex) {
+                LOGGER.debug(GLOOP_MARKER, "Failed to ingest dropped file: {}", path, ex);
+                this.errors[index] = ex;
+            } finally {
+                GLFileIngestor.this.pending.decrementAndGet();
+            }
+
+            if (this.window.isValid()) {
+                this.window.getGLThreadExecutor().execute(() -> this.report(index));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void report(final int index) {
+            final int total = this.paths.length;
+            final int done = ++this.completed;
+
+            GLFileIngestor.this.onProgress.ifPresent(listener -> listener.fileProcessed(
+                    this.window, this.paths[index], (T) this.results[index], this.errors[index], done, total));
+
+            if (done == total) {
+                final Map<Path, T> out = new LinkedHashMap<>();
+                final Map<Path, Throwable> failed = new LinkedHashMap<>();
+
+                for (int i = 0; i < total; i++) {
+                    if (this.errors[i] == null) {
+                        out.put(this.paths[i], (T) this.results[i]);
+                    } else {
+                        failed.put(this.paths[i], this.errors[i]);
+                    }
+                }
+
+                Arrays.fill(this.results, null);
+                GLFileIngestor.this.onComplete.ifPresent(listener -> listener.filesProcessed(
+                        this.window, Collections.unmodifiableMap(out), Collections.unmodifiableMap(failed)));
+            }
+        }
+    }
+}
@@ -0,0 +1,639 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import static org.lwjgl.opengl.GL11.GL_PACK_ALIGNMENT;
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL11.glPixelStorei;
+import static org.lwjgl.opengl.GL11.glReadPixels;
+import static org.lwjgl.opengl.GL15.GL_STREAM_READ;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL15.glUnmapBuffer;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER_BINDING;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.GL_SYNC_FLUSH_COMMANDS_BIT;
+import static org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE;
+import static org.lwjgl.opengl.GL32.GL_TIMEOUT_EXPIRED;
+import static org.lwjgl.opengl.GL32.GL_WAIT_FAILED;
+import static org.lwjgl.opengl.GL32.glClientWaitSync;
+import static org.lwjgl.opengl.GL32.glDeleteSync;
+import static org.lwjgl.opengl.GL32.glFenceSync;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Asynchronous capture of the frames presented by a window. Right before each
+ * buffer swap the back buffer is read into the next pixel buffer object of a
+ * ring and a fence is inserted; the render loop never waits for the copy.
+ * Once a fence has signaled on a later frame the buffer is mapped and handed
+ * to a background writer thread, which passes the pixels to a {@link Sink}.
+ * The buffer returns to the ring after the sink is done with it. If every
+ * buffer is still in flight the frame is dropped instead of stalling.
+ *
+ * <p>
+ * The time the render loop spends on capturing is available from
+ * {@link #getCaptureNanos()} and is logged at debug level, with the average
+ * and the slowest frame, whenever a capture stops.
+ *
+ * <p>
+ * Capturing requires an OpenGL 3.2 context, or OpenGL 3.0 with ARB_sync, and
+ * works with software renderers such as Mesa llvmpipe. Frames whose
+ * framebuffer size differs from the size of the first captured frame are
+ * dropped.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLFrameCapture {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLFrameCapture");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+
+    /**
+     * The number of pixel buffer objects used by default. Set by the system
+     * property com.longlinkislong.gloop.frame_capture.ring_size; defaults to
+     * 3.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_RING_SIZE = Math.max(2, Integer.getInteger("com.longlinkislong.gloop.frame_capture.ring_size", 3));
+
+    // how long stop() waits for the GPU to finish an outstanding readback
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Receives captured frames on the writer thread. Frames arrive in order
+     * and all have the same size.
+     *
+     * @see GLFrameSinks
+     * @since 26.10.18
+     */
+    public interface Sink {
+
+        /**
+         * Called before the first frame.
+         *
+         * @param width the frame width in pixels.
+         * @param height the frame height in pixels.
+         * @throws IOException if the output could not be opened.
+         */
+        default void open(int width, int height) throws IOException {
+        }
+
+        /**
+         * Consumes a frame.
+         *
+         * @param frame the number of the frame since capturing started.
+         * Dropped frames leave gaps.
+         * @param pixels RGBA8 rows from bottom to top starting at index 0.
+         * Only valid during the call and must not be modified.
+         * @param width the frame width in pixels.
+         * @param height the frame height in pixels.
+         * @throws IOException if the frame could not be written. Capturing
+         * stops.
+         */
+        void write(long frame, ByteBuffer pixels, int width, int height) throws IOException;
+
+        /**
+         * Called after the last frame, also if opening or writing failed.
+         *
+         * @throws IOException if the output could not be closed.
+         */
+        default void close() throws IOException {
+        }
+    }
+
+    private static final int FREE = 0;
+    private static final int PENDING = 1;
+    private static final int MAPPED = 2;
+    private static final int WRITTEN = 3;
+
+    private static final class Slot {
+
+        final int buffer;
+        long fence;
+        long frame;
+        ByteBuffer pixels;
+        volatile int state = FREE;
+
+        Slot(final int buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static final Slot END_OF_STREAM = new Slot(0);
+
+    private final GLWindow window;
+    private final LongAdder capturedFrames = new LongAdder();
+    private final LongAdder writtenFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder captureNanos = new LongAdder();
+    private volatile int ringSize = DEFAULT_RING_SIZE;
+    // only replaced on the window's GLThread once started
+    private volatile Session session = null;
+    // stopped sessions whose writer has not exited yet
+    private final Set<Session> draining = ConcurrentHashMap.newKeySet();
+
+    GLFrameCapture(final GLWindow window) {
+        this.window = Objects.requireNonNull(window);
+    }
+
+    /**
+     * A single capture from start to stop. Everything except the writer
+     * thread runs on the window's GLThread.
+     */
+    private final class Session implements Runnable {
+
+        final Sink sink;
+        final Slot[] slots;
+        final ArrayDeque<Slot> free = new ArrayDeque<>();
+        final ArrayDeque<Slot> pending = new ArrayDeque<>();
+        final ArrayDeque<Slot> mapped = new ArrayDeque<>();
+        final BlockingQueue<Slot> writes = new LinkedBlockingQueue<>();
+        final CompletableFuture<Void> drained = new CompletableFuture<>();
+        final CompletableFuture<Void> stopped = new CompletableFuture<>();
+        final int[] size = new int[2];
+        final Thread writer;
+        int width = -1;
+        int height = -1;
+        long frame = 0L;
+        long captureNanos = 0L;
+        long maxCaptureNanos = 0L;
+        volatile boolean isFailed = false;
+        volatile Throwable failure = null;
+
+        Session(final Sink sink, final int ringSize) {
+            this.sink = sink;
+            this.slots = new Slot[ringSize];
+            this.writer = new Thread(this, "GLFrameCapture-" + GLFrameCapture.this.window.window);
+            this.writer.setDaemon(true);
+        }
+
+        void start() {
+            final GLCapabilities caps = GL.getCapabilities();
+
+            if (!(caps.OpenGL32 || (caps.OpenGL30 && caps.GL_ARB_sync))) {
+                throw new GLFWException("GLFrameCapture requires OpenGL 3.2 or ARB_sync!");
+            }
+
+            final GLWindow owner = GLFrameCapture.this.window;
+
+            owner.backend.getFramebufferSize(owner.window, this.size);
+            this.width = this.size[0];
+            this.height = this.size[1];
+
+            final int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+
+            for (int i = 0; i < this.slots.length; i++) {
+                final Slot slot = new Slot(glGenBuffers());
+
+                glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.buffer);
+                glBufferData(GL_PIXEL_PACK_BUFFER, (long) this.width * this.height * 4, GL_STREAM_READ);
+                this.slots[i] = slot;
+                this.free.add(slot);
+            }
+
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+            this.writer.start();
+
+            LOGGER.debug(GLOOP_MARKER, "Started frame capture of {} at {}x{} with {} buffers", owner, this.width, this.height, this.slots.length);
+        }
+
+        /**
+         * Unmaps buffers the writer is done with. The writer finishes them in
+         * the order they were mapped.
+         */
+        void reclaim() {
+            Slot slot;
+
+            while ((slot = this.mapped.peek()) != null && slot.state == WRITTEN) {
+                this.mapped.poll();
+                glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.buffer);
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+                slot.state = FREE;
+                this.free.add(slot);
+            }
+        }
+
+        /**
+         * Maps the buffers whose readback finished and queues them for the
+         * writer, oldest first.
+         */
+        void collect(final boolean block) {
+            Slot slot;
+
+            while ((slot = this.pending.peek()) != null) {
+                final int status = block
+                        ? glClientWaitSync(slot.fence, GL_SYNC_FLUSH_COMMANDS_BIT, DRAIN_TIMEOUT_NANOS)
+                        : glClientWaitSync(slot.fence, 0, 0L);
+
+                if (status == GL_TIMEOUT_EXPIRED && !block) {
+                    return;
+                }
+
+                this.pending.poll();
+                glDeleteSync(slot.fence);
+                slot.fence = 0L;
+
+                if (status == GL_TIMEOUT_EXPIRED || status == GL_WAIT_FAILED) {
+                    LOGGER.warn(GLOOP_MARKER, "Readback of frame {} did not finish; dropped", slot.frame);
+                    GLFrameCapture.this.droppedFrames.increment();
+                    slot.state = FREE;
+                    this.free.add(slot);
+                    continue;
+                }
+
+                glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.buffer);
+                slot.pixels = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0L, (long) this.width * this.height * 4, GL_MAP_READ_BIT, slot.pixels);
+                slot.state = MAPPED;
+                this.mapped.add(slot);
+                this.writes.add(slot);
+            }
+        }
+
+        void capture() {
+            final GLWindow owner = GLFrameCapture.this.window;
+            final long frameId = this.frame++;
+            final int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+
+            this.reclaim();
+            this.collect(false);
+
+            owner.backend.getFramebufferSize(owner.window, this.size);
+
+            final Slot slot = this.free.poll();
+
+            if (slot == null || this.isFailed || this.size[0] != this.width || this.size[1] != this.height) {
+                if (slot != null) {
+                    this.free.addFirst(slot);
+                }
+
+                GLFrameCapture.this.droppedFrames.increment();
+            } else {
+                final int alignment = glGetInteger(GL_PACK_ALIGNMENT);
+
+                glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.buffer);
+                glPixelStorei(GL_PACK_ALIGNMENT, 4);
+                glReadPixels(0, 0, this.width, this.height, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+                glPixelStorei(GL_PACK_ALIGNMENT, alignment);
+
+                slot.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+                slot.frame = frameId;
+                slot.state = PENDING;
+                this.pending.add(slot);
+                GLFrameCapture.this.capturedFrames.increment();
+            }
+
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+        }
+
+        /**
+         * Maps the outstanding readbacks and ends the stream. Returns without
+         * waiting for the writer; the writer hands the buffers back to the
+         * GLThread once the sink is closed.
+         */
+        void finish() {
+            try {
+                this.collect(true);
+            } catch (Throwable ex) {
+                this.failure = ex;
+            } finally {
+                GLFrameCapture.this.draining.add(this);
+                this.writes.add(END_OF_STREAM);
+            }
+
+            if (this.frame > 0L) {
+                LOGGER.debug(GLOOP_MARKER, "Stopped frame capture of {}: {} frames, {} ns per frame on the render loop, {} ns at most",
+                        GLFrameCapture.this.window, this.frame, this.captureNanos / this.frame, this.maxCaptureNanos);
+            }
+        }
+
+        /**
+         * Unmaps and deletes the buffers. Runs on the GLThread after the
+         * writer exited. Nothing is left to release once the window is gone
+         * since the buffers died with its context.
+         */
+        void releaseBuffers() {
+            try {
+                if (GLFrameCapture.this.window.isValid()) {
+                    final int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+
+                    this.reclaim();
+
+                    for (Slot slot : this.slots) {
+                        if (slot != null) {
+                            glDeleteBuffers(slot.buffer);
+                        }
+                    }
+
+                    glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+                }
+
+                if (this.failure == null) {
+                    this.stopped.complete(null);
+                } else {
+                    this.stopped.completeExceptionally(this.failure);
+                }
+            } catch (Throwable ex) {
+                this.stopped.completeExceptionally(ex);
+            }
+        }
+
+        /**
+         * The writer thread.
+         */
+        @Override
+        public void run() {
+            boolean isOpen = false;
+
+            try {
+                while (true) {
+                    final Slot slot = this.writes.take();
+
+                    if (slot == END_OF_STREAM) {
+                        break;
+                    }
+
+                    try {
+                        if (!this.isFailed) {
+                            if (!isOpen) {
+                                isOpen = true;
+                                this.sink.open(this.width, this.height);
+                            }
+
+                            slot.pixels.clear();
+                            this.sink.write(slot.frame, slot.pixels, this.width, this.height);
+                            GLFrameCapture.this.writtenFrames.increment();
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        this.isFailed = true;
+                        LOGGER.error(GLOOP_MARKER, "Frame capture sink failed; no more frames are written", ex);
+                    } finally {
+                        slot.state = WRITTEN;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    this.sink.close();
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.error(GLOOP_MARKER, "Unable to close frame capture sink", ex);
+                }
+
+                GLFrameCapture.this.draining.remove(this);
+                this.drained.complete(null);
+
+                try {
+                    GLFrameCapture.this.window.getGLThreadExecutor().execute(this::releaseBuffers);
+                } catch (RuntimeException ex) {
+                    // the GLThread is gone and the buffers with it
+                    this.stopped.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the number of pixel buffer objects used by the next capture. More
+     * buffers tolerate a slower sink before frames are dropped at the cost
+     * of width * height * 4 bytes of memory each.
+     *
+     * @param ringSize the number of buffers. At least 2.
+     * @throws IllegalArgumentException if the ring size is less than 2.
+     * @since 26.10.18
+     */
+    public void setRingSize(final int ringSize) throws IllegalArgumentException {
+        if (ringSize < 2) {
+            throw new IllegalArgumentException("Ring size must be at least 2!");
+        }
+
+        this.ringSize = ringSize;
+    }
+
+    /**
+     * Retrieves the number of pixel buffer objects used by the next capture.
+     *
+     * @return the ring size.
+     * @since 26.10.18
+     */
+    public int getRingSize() {
+        return this.ringSize;
+    }
+
+    /**
+     * Starts capturing every presented frame into a sink. The buffers are
+     * allocated on the window's GLThread at the current framebuffer size.
+     *
+     * @param sink the sink that receives the frames.
+     * @return a future that completes once the capture is running.
+     * @throws GLFWException if the window has no OpenGL context.
+     * @since 26.10.18
+     */
+    public synchronized CompletableFuture<Void> start(final Sink sink) throws GLFWException {
+        Objects.requireNonNull(sink, "Sink cannot be null!");
+
+        if (!this.window.backend.hasGLContext() || GLWindow.CLIENT_API != GLWindow.ClientAPI.OPENGL) {
+            throw new GLFWException("GLFrameCapture requires an OpenGL context!");
+        }
+
+        final Session next = new Session(sink, this.ringSize);
+        final CompletableFuture<Void> out = new CompletableFuture<>();
+
+        this.window.getGLThreadExecutor().execute(() -> {
+            try {
+                if (this.session != null) {
+                    throw new IllegalStateException("GLFrameCapture is already running!");
+                }
+
+                next.start();
+                this.session = next;
+                out.complete(null);
+            } catch (Throwable ex) {
+                out.completeExceptionally(ex);
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Stops capturing. Frames that were already read back are still passed
+     * to the sink before it is closed. The GLThread does not wait for the
+     * sink; the buffers are released on it once the writer is done.
+     *
+     * @return a future that completes once the sink was closed and the
+     * buffers were released.
+     * @since 26.10.18
+     */
+    public synchronized CompletableFuture<Void> stop() {
+        final CompletableFuture<Void> out = new CompletableFuture<>();
+
+        this.window.getGLThreadExecutor().execute(() -> {
+            final Session current = this.session;
+
+            if (current == null) {
+                out.complete(null);
+            } else {
+                this.session = null;
+                current.finish();
+                current.stopped.whenComplete((ignored, ex) -> {
+                    if (ex == null) {
+                        out.complete(null);
+                    } else {
+                        out.completeExceptionally(ex);
+                    }
+                });
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Checks if frames are being captured.
+     *
+     * @return true between start and stop.
+     * @since 26.10.18
+     */
+    public boolean isRunning() {
+        return this.session != null;
+    }
+
+    /**
+     * Reads back the back buffer if a capture is running. Called by the
+     * window's GLThread right before the buffer swap.
+     */
+    void beforeSwap() {
+        final Session current = this.session;
+
+        if (current != null) {
+            final long start = System.nanoTime();
+
+            current.capture();
+
+            final long elapsed = System.nanoTime() - start;
+
+            this.captureNanos.add(elapsed);
+            current.captureNanos += elapsed;
+            current.maxCaptureNanos = Math.max(current.maxCaptureNanos, elapsed);
+        }
+    }
+
+    /**
+     * Stops a running capture while the window is torn down. Must run on the
+     * window's GLThread with the context current. The mapped buffers die
+     * with the context, so the window must not be destroyed before the
+     * returned future completes.
+     *
+     * @return a future that completes once every writer, including those of
+     * captures stopped earlier, has closed its sink.
+     */
+    CompletableFuture<Void> release() {
+        final Session current = this.session;
+
+        if (current != null) {
+            this.session = null;
+            current.finish();
+        }
+
+        return CompletableFuture.allOf(this.draining.stream()
+                .map(stopping -> stopping.drained)
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * Skips the frames the writers have not started yet so that a window
+     * whose close deadline passed only waits for the frames being written.
+     */
+    void abandon() {
+        this.draining.forEach(stopping -> stopping.isFailed = true);
+    }
+
+    /**
+     * Retrieves the number of frames that were read back.
+     *
+     * @return the captured frame count.
+     * @since 26.10.18
+     */
+    public long getCapturedFrames() {
+        return this.capturedFrames.sum();
+    }
+
+    /**
+     * Retrieves the number of frames that were passed to a sink.
+     *
+     * @return the written frame count.
+     * @since 26.10.18
+     */
+    public long getWrittenFrames() {
+        return this.writtenFrames.sum();
+    }
+
+    /**
+     * Retrieves the number of frames that were skipped because every buffer
+     * was in flight, the framebuffer was resized or the sink failed.
+     *
+     * @return the dropped frame count.
+     * @since 26.10.18
+     */
+    public long getDroppedFrames() {
+        return this.droppedFrames.sum();
+    }
+
+    /**
+     * Retrieves the total time the render loop spent issuing readbacks and
+     * mapping buffers.
+     *
+     * @return the time in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getCaptureNanos() {
+        return this.captureNanos.sum();
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A frame loop that prepares the next frame while the GLThread presents the
+ * previous one. Each frame runs the prepare hook on the loop thread, then
+ * queues the pre-swap hook, the window update and the post-swap hook on the
+ * GLThread without waiting for them. At most
+ * {@link #getMaxFramesInFlight()} frames may be queued or presenting at once;
+ * the loop thread waits for the oldest one once the limit is reached, which
+ * bounds the latency added by pipelining.
+ *
+ * <p>
+ * With a {@link #setTargetFrameRate(double) target frame rate} the loop
+ * paces the start of each frame: it parks until shortly before the frame is
+ * due and spins with {@link GLConcurrency#onSpinWait()} for the rest, which
+ * avoids the oversleep of a plain sleep without burning a core for the whole
+ * frame.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLFrameLoop {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLFrameLoop");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+
+    /**
+     * The frames in flight used by {@link #GLFrameLoop(GLWindow)}. Defined by
+     * the system property com.longlinkislong.gloop.frame_loop.max_in_flight;
+     * defaults to 2.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_MAX_FRAMES_IN_FLIGHT = Math.max(1, Integer.getInteger(
+            "com.longlinkislong.gloop.frame_loop.max_in_flight", 2));
+
+    /**
+     * The target frame rate used by new frame loops. Defined by the system
+     * property com.longlinkislong.gloop.frame_loop.target_fps; defaults to 0,
+     * which disables pacing.
+     *
+     * @since 26.10.18
+     */
+    public static final double DEFAULT_TARGET_FRAME_RATE = Math.max(0.0, Double.parseDouble(
+            System.getProperty("com.longlinkislong.gloop.frame_loop.target_fps", "0")));
+
+    // tryAcquire attempts before blocking; a frame usually retires within a few microseconds of the check
+    private static final int SPIN_LIMIT = 64;
+    // pacing parks until this long before the deadline and spins for the rest; covers typical timer slack
+    private static final long PACING_SPIN_NANOS = Long.getLong("com.longlinkislong.gloop.frame_loop.pacing_spin_us", 1000L) * 1000L;
+
+    /**
+     * A hook that runs once per frame.
+     *
+     * @since 26.10.18
+     */
+    @FunctionalInterface
+    public interface FrameHook {
+
+        /**
+         * Runs the hook.
+         *
+         * @param frame the frame index, starting at 0.
+         * @throws Exception if the frame failed. This stops the loop.
+         * @since 26.10.18
+         */
+        void onFrame(long frame) throws Exception;
+    }
+
+    /**
+     * The time source of the pacing. Tests replace it with a virtual clock.
+     */
+    interface Clock {
+
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void parkNanos(final long nanos) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        void parkNanos(long nanos);
+    }
+
+    private final GLWindow window;
+    private final Clock clock;
+    private final int maxFramesInFlight;
+    private final Semaphore inFlight;
+    private final LongAdder presented = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+    private final LongAdder pacingNanos = new LongAdder();
+    private volatile long framePeriodNanos = 0L;
+    private Optional<FrameHook> onPrepare = Optional.empty();
+    private Optional<FrameHook> onPreSwap = Optional.empty();
+    private Optional<FrameHook> onPostSwap = Optional.empty();
+    private volatile boolean isRunning = false;
+    private volatile Throwable failure = null;
+
+    /**
+     * Constructs a frame loop with {@link #DEFAULT_MAX_FRAMES_IN_FLIGHT}.
+     *
+     * @param window the window to present.
+     * @since 26.10.18
+     */
+    public GLFrameLoop(final GLWindow window) {
+        this(window, DEFAULT_MAX_FRAMES_IN_FLIGHT);
+    }
+
+    /**
+     * Constructs a frame loop.
+     *
+     * @param window the window to present.
+     * @param maxFramesInFlight the number of frames that may be queued or
+     * presenting while the next one is prepared. 1 disables pipelining.
+     * @throws IllegalArgumentException if maxFramesInFlight is less than 1.
+     * @since 26.10.18
+     */
+    public GLFrameLoop(final GLWindow window, final int maxFramesInFlight) {
+        this(window, maxFramesInFlight, Clock.SYSTEM);
+    }
+
+    GLFrameLoop(final GLWindow window, final int maxFramesInFlight, final Clock clock) {
+        if (maxFramesInFlight < 1) {
+            throw new IllegalArgumentException("GLFrameLoop needs at least 1 frame in flight!");
+        }
+
+        this.window = Objects.requireNonNull(window);
+        this.clock = Objects.requireNonNull(clock);
+        this.maxFramesInFlight = maxFramesInFlight;
+        this.inFlight = new Semaphore(maxFramesInFlight);
+        this.setTargetFrameRate(DEFAULT_TARGET_FRAME_RATE);
+    }
+
+    /**
+     * Sets the rate at which frames are started. Takes effect with the next
+     * frame. A loop that falls behind does not try to catch up.
+     *
+     * @param framesPerSecond the target frame rate. 0 disables pacing.
+     * @throws IllegalArgumentException if the rate is negative or not finite.
+     * @since 26.10.18
+     */
+    public void setTargetFrameRate(final double framesPerSecond) throws IllegalArgumentException {
+        if (!(framesPerSecond >= 0.0) || Double.isInfinite(framesPerSecond)) {
+            throw new IllegalArgumentException("Invalid target frame rate: " + framesPerSecond);
+        }
+
+        this.framePeriodNanos = framesPerSecond == 0.0 ? 0L : (long) (1e9 / framesPerSecond);
+    }
+
+    /**
+     * Retrieves the target frame rate.
+     *
+     * @return the frames per second. 0 if pacing is disabled.
+     * @since 26.10.18
+     */
+    public double getTargetFrameRate() {
+        final long period = this.framePeriodNanos;
+
+        return period == 0L ? 0.0 : 1e9 / period;
+    }
+
+    /**
+     * Sets the hook that prepares a frame on the loop thread; for example
+     * simulation and command building. It may overlap with the presentation
+     * of earlier frames.
+     *
+     * @param hook the prepare hook. Null removes it.
+     * @since 26.10.18
+     */
+    public void setOnPrepare(final FrameHook hook) {
+        this.onPrepare = Optional.ofNullable(hook);
+    }
+
+    /**
+     * Sets the hook that runs on the GLThread right before the buffers are
+     * swapped; for example submitting the prepared draw calls.
+     *
+     * @param hook the pre-swap hook. Null removes it.
+     * @since 26.10.18
+     */
+    public void setOnPreSwap(final FrameHook hook) {
+        this.onPreSwap = Optional.ofNullable(hook);
+    }
+
+    /**
+     * Sets the hook that runs on the GLThread after the swap and event poll
+     * of a frame.
+     *
+     * @param hook the post-swap hook. Null removes it.
+     * @since 26.10.18
+     */
+    public void setOnPostSwap(final FrameHook hook) {
+        this.onPostSwap = Optional.ofNullable(hook);
+    }
+
+    /**
+     * Starts the loop on a new daemon thread. The loop runs until
+     * {@link #stop()} is called, the window is closed or a hook throws.
+     *
+     * @return a future that completes once the loop stopped and every queued
+     * frame has been presented. It completes exceptionally if a hook threw.
+     * @throws IllegalStateException if the loop is already running.
+     * @since 26.10.18
+     */
+    public synchronized CompletableFuture<Void> start() throws IllegalStateException {
+        if (this.isRunning) {
+            throw new IllegalStateException("GLFrameLoop is already running!");
+        }
+
+        final CompletableFuture<Void> out = new CompletableFuture<>();
+        final Thread thread = new Thread(() -> this.run(out), "GLFrameLoop-" + this.window.getMetrics().getTitle());
+
+        this.isRunning = true;
+        this.failure = null;
+
+        thread.setDaemon(true);
+        thread.start();
+
+        return out;
+    }
+
+    /**
+     * Asks the loop to stop after the frame that is being prepared.
+     *
+     * @since 26.10.18
+     */
+    public void stop() {
+        this.isRunning = false;
+    }
+
+    /**
+     * Checks if the loop is running.
+     *
+     * @return true if frames are being produced.
+     * @since 26.10.18
+     */
+    public boolean isRunning() {
+        return this.isRunning;
+    }
+
+    private void fail(final Throwable ex) {
+        if (this.failure == null) {
+            this.failure = ex;
+        }
+
+        this.isRunning = false;
+    }
+
+    private void acquireFrame() throws InterruptedException {
+        for (int i = 0; i < SPIN_LIMIT; i++) {
+            if (this.inFlight.tryAcquire()) {
+                return;
+            }
+
+            GLConcurrency.onSpinWait();
+        }
+
+        final long start = this.clock.nanoTime();
+
+        this.inFlight.acquire();
+        this.stallNanos.add(this.clock.nanoTime() - start);
+    }
+
+    /**
+     * Waits until the deadline of the next frame.
+     *
+     * @param deadline the time the frame is due.
+     */
+    private void pace(final long deadline) {
+        final long start = this.clock.nanoTime();
+        long remaining = deadline - start;
+
+        if (remaining <= 0L) {
+            return;
+        }
+
+        while (remaining > PACING_SPIN_NANOS) {
+            this.clock.parkNanos(remaining - PACING_SPIN_NANOS);
+            remaining = deadline - this.clock.nanoTime();
+        }
+
+        while (deadline - this.clock.nanoTime() > 0L) {
+            GLConcurrency.onSpinWait();
+        }
+
+        this.pacingNanos.add(this.clock.nanoTime() - start);
+    }
+
+    private Runnable hook(final Optional<FrameHook> hook, final long frame) {
+        return () -> hook.ifPresent(h -> {
+            try {
+                h.onFrame(frame);
+            } catch (Exception ex) {
+                throw new GLFWException("GLFrameLoop hook failed on frame " + frame, ex);
+            }
+        });
+    }
+
+    private void run(final CompletableFuture<Void> out) {
+        long frame = 0L;
+        long deadline = this.clock.nanoTime();
+
+        try {
+            while (this.isRunning && this.window.isValid()) {
+                final long period = this.framePeriodNanos;
+
+                if (period != 0L) {
+                    this.pace(deadline);
+                    // a late frame moves the schedule instead of bursting to catch up
+                    deadline = Math.max(deadline + period, this.clock.nanoTime());
+                }
+
+                this.acquireFrame();
+
+                final long current = frame++;
+
+                try {
+                    this.hook(this.onPrepare, current).run();
+
+                    if (!this.isRunning || !this.window.isValid()) {
+                        this.inFlight.release();
+                        break;
+                    }
+
+                    this.window.updateAsync(this.hook(this.onPreSwap, current), this.hook(this.onPostSwap, current))
+                            .whenComplete((ignored, ex) -> {
+                                if (ex != null) {
+                                    this.fail(ex);
+                                } else {
+                                    this.presented.increment();
+                                }
+
+                                this.inFlight.release();
+                            });
+                } catch (RuntimeException ex) {
+                    this.inFlight.release();
+                    throw ex;
+                }
+            }
+
+            // drain; every frame in flight holds one permit
+            if (!this.inFlight.tryAcquire(this.maxFramesInFlight, 1, TimeUnit.SECONDS)) {
+                LOGGER.warn(GLOOP_MARKER, "GLFrameLoop stopped with frames still in flight");
+            } else {
+                this.inFlight.release(this.maxFramesInFlight);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.fail(ex);
+        } catch (RuntimeException ex) {
+            this.fail(ex);
+        } finally {
+            this.isRunning = false;
+        }
+
+        final Throwable ex = this.failure;
+
+        if (ex == null) {
+            LOGGER.trace(GLOOP_MARKER, "GLFrameLoop stopped after {} frames", this.getPresentedFrames());
+            out.complete(null);
+        } else {
+            LOGGER.error(GLOOP_MARKER, "GLFrameLoop failed after {} frames", this.getPresentedFrames(), ex);
+            out.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Retrieves the maximum number of frames in flight.
+     *
+     * @return the frame limit.
+     * @since 26.10.18
+     */
+    public int getMaxFramesInFlight() {
+        return this.maxFramesInFlight;
+    }
+
+    /**
+     * Retrieves the number of frames that are queued or presenting.
+     *
+     * @return the frames in flight.
+     * @since 26.10.18
+     */
+    public int getFramesInFlight() {
+        return this.maxFramesInFlight - this.inFlight.availablePermits();
+    }
+
+    /**
+     * Retrieves the number of frames that completed their post-swap hook.
+     *
+     * @return the presented frame count.
+     * @since 26.10.18
+     */
+    public long getPresentedFrames() {
+        return this.presented.sum();
+    }
+
+    /**
+     * Retrieves the time the loop thread spent waiting because the maximum
+     * number of frames was in flight. A high value means the frame rate is
+     * limited by the GLThread rather than by preparation.
+     *
+     * @return the stall time in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getStallNanos() {
+        return this.stallNanos.sum();
+    }
+
+    /**
+     * Retrieves the time the loop thread spent waiting for the target frame
+     * rate.
+     *
+     * @return the pacing time in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getPacingNanos() {
+        return this.pacingNanos.sum();
+    }
+}
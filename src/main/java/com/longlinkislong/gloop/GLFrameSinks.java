@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Standard {@link GLFrameCapture.Sink} implementations. Every sink writes
+ * through memory-mapped files and stores rows top to bottom.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLFrameSinks {
+
+    /**
+     * The magic number at the start of a shared memory segment; "GLFC" in
+     * little endian.
+     *
+     * @since 26.10.18
+     */
+    public static final int SHARED_MEMORY_MAGIC = 0x43464C47;
+
+    /**
+     * The size of the shared memory header in bytes.
+     *
+     * @since 26.10.18
+     */
+    public static final int SHARED_MEMORY_HEADER = 64;
+
+    /**
+     * The size of the header in front of each shared memory slot in bytes.
+     *
+     * @since 26.10.18
+     */
+    public static final int SHARED_MEMORY_SLOT_HEADER = 16;
+
+    // files are mapped in chunks so that long recordings do not exhaust the address space
+    private static final long CHUNK_SIZE = 64L << 20;
+
+    private GLFrameSinks() {
+    }
+
+    /**
+     * Appends bytes to a file through a sliding memory-mapped window.
+     */
+    private static final class MappedFile {
+
+        private final FileChannel channel;
+        private MappedByteBuffer chunk = null;
+        private long chunkStart = 0L;
+        private long size = 0L;
+
+        MappedFile(final Path file) throws IOException {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void remap(final long minimum) throws IOException {
+            this.chunkStart = this.size;
+            this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.chunkStart, Math.max(CHUNK_SIZE, minimum));
+        }
+
+        /**
+         * Reserves bytes at the end of the file.
+         *
+         * @param length the number of bytes.
+         * @return a view of the reserved bytes starting at index 0.
+         */
+        ByteBuffer reserve(final int length) throws IOException {
+            if (this.chunk == null || this.size + length - this.chunkStart > this.chunk.capacity()) {
+                this.remap(length);
+            }
+
+            this.chunk.limit((int) (this.size - this.chunkStart) + length);
+            this.chunk.position((int) (this.size - this.chunkStart));
+            this.size += length;
+
+            return this.chunk.slice();
+        }
+
+        void put(final byte[] data) throws IOException {
+            this.reserve(data.length).put(data);
+        }
+
+        void close() throws IOException {
+            try {
+                this.chunk = null;
+                this.channel.truncate(this.size);
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    private static void copyFlipped(final ByteBuffer pixels, final int width, final int height, final ByteBuffer dst, final int offset) {
+        final int stride = width * 4;
+        final ByteBuffer src = pixels.duplicate();
+
+        dst.position(offset);
+
+        for (int y = height - 1; y >= 0; y--) {
+            src.limit(y * stride + stride).position(y * stride);
+            dst.put(src);
+        }
+    }
+
+    private static int channel(final ByteBuffer pixels, final int a0, final int a1, final int b0, final int b1, final int channel) {
+        return (pixels.get(a0 + channel) & 0xFF)
+                + (pixels.get(a1 + channel) & 0xFF)
+                + (pixels.get(b0 + channel) & 0xFF)
+                + (pixels.get(b1 + channel) & 0xFF);
+    }
+
+    /**
+     * Creates a sink that appends every frame as raw RGBA8 to a single file.
+     * The file holds no header; each frame is width * height * 4 bytes.
+     *
+     * @param file the output file. It is replaced if it exists.
+     * @return the sink.
+     * @since 26.10.18
+     */
+    public static GLFrameCapture.Sink raw(final Path file) {
+        Objects.requireNonNull(file);
+
+        return new GLFrameCapture.Sink() {
+            private MappedFile out;
+
+            @Override
+            public void open(final int width, final int height) throws IOException {
+                this.out = new MappedFile(file);
+            }
+
+            @Override
+            public void write(final long frame, final ByteBuffer pixels, final int width, final int height) throws IOException {
+                copyFlipped(pixels, width, height, this.out.reserve(width * height * 4), 0);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (this.out != null) {
+                    this.out.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a sink that writes a YUV4MPEG2 video with 4:2:0 JPEG chroma.
+     * The RGB to YUV conversion uses full range BT.601 on the writer thread.
+     *
+     * @param file the output file. It is replaced if it exists.
+     * @param framesPerSecond the frame rate stored in the header.
+     * @return the sink.
+     * @throws IllegalArgumentException if the frame rate is not positive.
+     * @since 26.10.18
+     */
+    public static GLFrameCapture.Sink y4m(final Path file, final int framesPerSecond) throws IllegalArgumentException {
+        Objects.requireNonNull(file);
+
+        if (framesPerSecond < 1) {
+            throw new IllegalArgumentException("Frame rate must be positive!");
+        }
+
+        return new GLFrameCapture.Sink() {
+            private final byte[] frameHeader = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+            private MappedFile out;
+
+            @Override
+            public void open(final int width, final int height) throws IOException {
+                this.out = new MappedFile(file);
+                this.out.put(String.format("YUV4MPEG2 W%d H%d F%d:1 Ip A1:1 C420jpeg\n", width, height, framesPerSecond)
+                        .getBytes(StandardCharsets.US_ASCII));
+            }
+
+            @Override
+            public void write(final long frame, final ByteBuffer pixels, final int width, final int height) throws IOException {
+                final int chromaWidth = (width + 1) / 2;
+                final int chromaHeight = (height + 1) / 2;
+                final int lumaSize = width * height;
+                final int chromaSize = chromaWidth * chromaHeight;
+
+                this.out.put(this.frameHeader);
+
+                toYUV420(pixels, width, height, this.out.reserve(lumaSize + 2 * chromaSize), lumaSize, lumaSize + chromaSize);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (this.out != null) {
+                    this.out.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a sink that writes every frame to its own binary PPM (P6)
+     * image. The alpha channel is dropped.
+     *
+     * @param directory the output directory. It is created if needed.
+     * @param prefix the file name prefix; files are named prefix followed by
+     * the six digit frame number and ".ppm".
+     * @return the sink.
+     * @since 26.10.18
+     */
+    public static GLFrameCapture.Sink imageSequence(final Path directory, final String prefix) {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(prefix);
+
+        return new GLFrameCapture.Sink() {
+            private byte[] header;
+
+            @Override
+            public void open(final int width, final int height) throws IOException {
+                Files.createDirectories(directory);
+                this.header = String.format("P6\n%d %d\n255\n", width, height).getBytes(StandardCharsets.US_ASCII);
+            }
+
+            @Override
+            public void write(final long frame, final ByteBuffer pixels, final int width, final int height) throws IOException {
+                final Path file = directory.resolve(String.format("%s%06d.ppm", prefix, frame));
+                final int size = this.header.length + width * height * 3;
+
+                try (FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+                    final MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+                    final int stride = width * 4;
+
+                    out.put(this.header);
+
+                    for (int row = height - 1; row >= 0; row--) {
+                        final int src = row * stride;
+
+                        for (int x = 0; x < width; x++) {
+                            out.put(pixels.get(src + x * 4));
+                            out.put(pixels.get(src + x * 4 + 1));
+                            out.put(pixels.get(src + x * 4 + 2));
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a sink that publishes frames into a memory-mapped file for a
+     * local encoder. Using a file on a tmpfs such as /dev/shm keeps the
+     * frames in shared memory.
+     *
+     * <p>
+     * The segment starts with a {@link #SHARED_MEMORY_HEADER} byte header of
+     * native byte order fields: int magic ({@link #SHARED_MEMORY_MAGIC}), int
+     * width, int height, int slot count, int slot size in bytes, followed at
+     * offset 24 by the long number of the latest complete frame (-1 before
+     * the first). Each slot is a {@link #SHARED_MEMORY_SLOT_HEADER} byte
+     * header holding a long sequence and a long frame number, followed by
+     * width * height * 4 bytes of RGBA rows top to bottom and padding to a
+     * multiple of 8 bytes. Frame n is stored in slot n modulo the slot count.
+     *
+     * <p>
+     * The sequence is odd while the slot is written. The writer publishes the
+     * even sequence and then the latest frame number with release stores.
+     * Readers must pair them with acquire loads: load the sequence with
+     * acquire semantics (for example VarHandle.getAcquire, or
+     * __atomic_load_n with __ATOMIC_ACQUIRE in C), copy the slot, issue a
+     * load fence (VarHandle.loadLoadFence or atomic_thread_fence with
+     * memory_order_acquire), then load the sequence again. The copy is
+     * valid if both loads returned the same even value.
+     *
+     * @param file the segment file. It is replaced if it exists.
+     * @param slots the number of frames kept.
+     * @return the sink.
+     * @throws IllegalArgumentException if slots is not positive.
+     * @since 26.10.18
+     */
+    public static GLFrameCapture.Sink sharedMemory(final Path file, final int slots) throws IllegalArgumentException {
+        Objects.requireNonNull(file);
+
+        if (slots < 1) {
+            throw new IllegalArgumentException("Slot count must be positive!");
+        }
+
+        return new GLFrameCapture.Sink() {
+            private FileChannel channel;
+            private MappedByteBuffer segment;
+            private int slotSize;
+
+            @Override
+            public void open(final int width, final int height) throws IOException {
+                // slots stay 8 byte aligned for the release stores of the sequence
+                this.slotSize = (SHARED_MEMORY_SLOT_HEADER + width * height * 4 + 7) & ~7;
+                this.channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0L, SHARED_MEMORY_HEADER + (long) this.slotSize * slots);
+                this.segment.order(ByteOrder.nativeOrder());
+
+                this.segment.putInt(4, width);
+                this.segment.putInt(8, height);
+                this.segment.putInt(12, slots);
+                this.segment.putInt(16, this.slotSize);
+                this.segment.putLong(24, -1L);
+
+                for (int i = 0; i < slots; i++) {
+                    this.segment.putLong(this.slot(i), 0L);
+                    this.segment.putLong(this.slot(i) + 8, -1L);
+                }
+
+                // readers wait for the magic number
+                this.segment.putInt(0, SHARED_MEMORY_MAGIC);
+            }
+
+            private int slot(final int index) {
+                return SHARED_MEMORY_HEADER + index * this.slotSize;
+            }
+
+            @Override
+            public void write(final long frame, final ByteBuffer pixels, final int width, final int height) throws IOException {
+                final int slot = this.slot((int) Math.floorMod(frame, (long) slots));
+                final long sequence = this.segment.getLong(slot);
+
+                this.segment.putLong(slot, sequence + 1);
+                // the odd sequence must be visible before any pixel changes
+                GLConcurrency.storeStoreFence();
+                this.segment.putLong(slot + 8, frame);
+                copyFlipped(pixels, width, height, this.segment, slot + SHARED_MEMORY_SLOT_HEADER);
+                // release: readers that see the even sequence also see the pixels
+                GLConcurrency.putLongRelease(this.segment, slot, sequence + 2);
+                GLConcurrency.putLongRelease(this.segment, 24, frame);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (this.channel != null) {
+                    this.segment.force();
+                    this.segment = null;
+                    this.channel.close();
+                }
+            }
+        };
+    }
+
+    private static void toYUV420(
+            final ByteBuffer pixels, final int width, final int height,
+            final ByteBuffer out, final int uPlane, final int vPlane) {
+
+        final int stride = width * 4;
+        final int chromaWidth = (width + 1) / 2;
+
+        for (int row = 0; row < height; row++) {
+            // the source is bottom-up
+            final int src = (height - 1 - row) * stride;
+            final int dst = row * width;
+
+            for (int x = 0; x < width; x++) {
+                final int r = pixels.get(src + x * 4) & 0xFF;
+                final int g = pixels.get(src + x * 4 + 1) & 0xFF;
+                final int b = pixels.get(src + x * 4 + 2) & 0xFF;
+
+                out.put(dst + x, (byte) ((77 * r + 150 * g + 29 * b + 128) >> 8));
+            }
+        }
+
+        for (int row = 0; row < height; row += 2) {
+            final int src0 = (height - 1 - row) * stride;
+            final int src1 = row + 1 < height ? src0 - stride : src0;
+            final int dst = (row / 2) * chromaWidth;
+
+            for (int x = 0; x < width; x += 2) {
+                final int a0 = src0 + x * 4;
+                final int a1 = x + 1 < width ? a0 + 4 : a0;
+                final int b0 = src1 + x * 4;
+                final int b1 = x + 1 < width ? b0 + 4 : b0;
+
+                // average the 2x2 block
+                final int r = (channel(pixels, a0, a1, b0, b1, 0) + 2) >> 2;
+                final int g = (channel(pixels, a0, a1, b0, b1, 1) + 2) >> 2;
+                final int b = (channel(pixels, a0, a1, b0, b1, 2) + 2) >> 2;
+
+                final int u = (-43 * r - 85 * g + 128 * b + 32768 + 128) >> 8;
+                final int v = (128 * r - 107 * g - 21 * b + 32768 + 128) >> 8;
+
+                out.put(uPlane + dst + x / 2, (byte) Math.max(0, Math.min(255, u)));
+                out.put(vPlane + dst + x / 2, (byte) Math.max(0, Math.min(255, v)));
+            }
+        }
+    }
+}
@@ -34,8 +34,8 @@ public interface GLFramebufferResizeListener {
     void framebufferResizedActionPerformed(GLWindow window, GLViewport viewport);
 
     default void glfwFramebufferResizeCallback(final long hwnd, final int width, final int height) {
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
-        final GLViewport newport = new GLViewport(window.getGLThread(), 0, 0, width, height);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
+        final GLViewport newport = new GLViewport(window.getRenderThread(), 0, 0, width, height);
 
         this.framebufferResizedActionPerformed(window, newport);
     }
@@ -27,7 +27,6 @@ package com.longlinkislong.gloop;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
-import org.lwjgl.glfw.GLFW;
 
 /**
  * A wrapper object that exposes the GLFW gamepad as an object.
@@ -43,11 +42,12 @@ public class GLGamepad {
     private final GLGamepadState buttons[];
     private final int buttonCount;
     private final int axesCount;
+    private final GLWindowBackend backend = GLFWBootstrap.getBackend();
 
     protected GLGamepad(final int id) {
-        this.name = GLFW.glfwGetJoystickName(this.id = id);
-        final FloatBuffer axesData = GLFW.glfwGetJoystickAxes(this.id);
-        final ByteBuffer buttonData = GLFW.glfwGetJoystickButtons(this.id);
+        this.name = this.backend.getJoystickName(this.id = id);
+        final FloatBuffer axesData = this.backend.getJoystickAxes(this.id);
+        final ByteBuffer buttonData = this.backend.getJoystickButtons(this.id);
 
         axesData.get(this.axes = new float[axesData.limit()]);
         this.buttonCount = buttonData.limit();
@@ -132,9 +132,10 @@ public class GLGamepad {
      * @since 15.11.11
      */
     public final void update() {
-        final FloatBuffer axesData = GLFW.glfwGetJoystickAxes(this.id);
-        final ByteBuffer buttonData = GLFW.glfwGetJoystickButtons(this.id);
+        final FloatBuffer axesData = this.backend.getJoystickAxes(this.id);
+        final ByteBuffer buttonData = this.backend.getJoystickButtons(this.id);
 
+        GLWindowMetrics.recordGamepadPoll();
         axesData.get(this.axes);
         for (int i = 0; i < this.buttonCount; i++) {
             this.buttons[i] = GLGamepadState.valueOf(buttonData.get(i));
@@ -0,0 +1,831 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * A GLWindowBackend that simulates windows, time and input in memory. No
+ * display or OpenGL driver is required, so window lifecycle, event dispatch
+ * and frame pacing can run on machines without a GPU.
+ *
+ * Time only moves when {@link #advanceTime(long)} is called or, if a swap
+ * interval was set with {@link #setSwapTime(long)}, on every buffer swap.
+ * Scripted input is queued and delivered to the window callbacks on the next
+ * {@link #pollEvents()}, in the order it was scripted.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLHeadlessBackend implements GLWindowBackend {
+
+    private static final int MAX_JOYSTICKS = GLFW.GLFW_JOYSTICK_LAST + 1;
+
+    private final AtomicLong nextHandle = new AtomicLong(1L);
+    private final AtomicLong clockNanos = new AtomicLong();
+    private final AtomicLong swapCount = new AtomicLong();
+    private final AtomicLong pollCount = new AtomicLong();
+    private volatile long swapNanos = 0L;
+    private volatile String clipboard = "";
+    private final ThreadLocal<Window> currentContext = new ThreadLocal<>();
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    private final Set<Long> cursors = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    private boolean isWakePending = false; // guarded by events
+    private final Joystick[] joysticks = new Joystick[MAX_JOYSTICKS];
+
+    private static final class Window {
+
+        final String title;
+        volatile int x;
+        volatile int y;
+        volatile int width;
+        volatile int height;
+        volatile int fbWidth;
+        volatile int fbHeight;
+        volatile long monitor;
+        volatile long cursor;
+        volatile boolean visible;
+        volatile boolean shouldClose;
+        volatile double cursorX;
+        volatile double cursorY;
+        volatile Callbacks callbacks;
+        volatile int swapInterval;
+        final byte[] keys = new byte[GLFW.GLFW_KEY_LAST + 1];
+        final byte[] buttons = new byte[GLFW.GLFW_MOUSE_BUTTON_LAST + 1];
+
+        Window(final String title, final int width, final int height, final long monitor) {
+            this.title = title;
+            this.width = this.fbWidth = width;
+            this.height = this.fbHeight = height;
+            this.monitor = monitor;
+        }
+    }
+
+    private static final class Joystick {
+
+        final String name;
+        final FloatBuffer axes;
+        final ByteBuffer buttons;
+
+        Joystick(final String name, final int axesCount, final int buttonCount) {
+            this.name = name;
+            this.axes = FloatBuffer.allocate(axesCount);
+            this.buttons = ByteBuffer.allocate(buttonCount);
+        }
+    }
+
+    @Override
+    public void loadNatives() {
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public boolean hasGLContext() {
+        return false;
+    }
+
+    /**
+     * Moves the virtual clock forward.
+     *
+     * @param nanos the number of nanoseconds to advance.
+     * @since 26.10.18
+     */
+    public void advanceTime(final long nanos) {
+        if (nanos < 0L) {
+            throw new IllegalArgumentException("Time cannot move backwards!");
+        }
+
+        this.clockNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Sets how far the virtual clock advances on every buffer swap. This
+     * simulates waiting for vsync. 0 disables the automatic advance.
+     *
+     * @param nanos the simulated swap time in nanoseconds.
+     * @since 26.10.18
+     */
+    public void setSwapTime(final long nanos) {
+        this.swapNanos = nanos;
+    }
+
+    /**
+     * Retrieves the number of buffer swaps performed across all windows.
+     *
+     * @return the swap count.
+     * @since 26.10.18
+     */
+    public long getSwapCount() {
+        return this.swapCount.get();
+    }
+
+    /**
+     * Retrieves the number of times events were polled.
+     *
+     * @return the poll count.
+     * @since 26.10.18
+     */
+    public long getPollCount() {
+        return this.pollCount.get();
+    }
+
+    @Override
+    public double getTime() {
+        return this.clockNanos.get() / 1e9;
+    }
+
+    @Override
+    public long getTimerValue() {
+        return this.clockNanos.get();
+    }
+
+    @Override
+    public long getTimerFrequency() {
+        return 1_000_000_000L;
+    }
+
+    @Override
+    public void windowHint(final int hint, final int value) {
+    }
+
+    @Override
+    public long createWindow(
+            final int width, final int height,
+            final CharSequence title,
+            final long monitor, final long share) {
+
+        final long hwnd = this.nextHandle.getAndIncrement();
+
+        this.windows.put(hwnd, new Window(title.toString(), width, height, monitor));
+
+        return hwnd;
+    }
+
+    @Override
+    public void destroyWindow(final long hwnd) {
+        this.windows.remove(hwnd);
+    }
+
+    private Window window(final long hwnd) {
+        final Window out = this.windows.get(hwnd);
+
+        if (out == null) {
+            throw new GLFWException("Unknown headless window: " + hwnd);
+        }
+
+        return out;
+    }
+
+    @Override
+    public void setCallbacks(final long hwnd, final Callbacks callbacks) {
+        this.window(hwnd).callbacks = callbacks;
+    }
+
+    @Override
+    public void freeCallbacks(final long hwnd) {
+        final Window w = this.windows.get(hwnd);
+
+        if (w != null) {
+            w.callbacks = null;
+        }
+    }
+
+    @Override
+    public void makeContextCurrent(final long hwnd) {
+        this.currentContext.set(hwnd == 0L ? null : this.windows.get(hwnd));
+    }
+
+    @Override
+    public void createCapabilities(final GLWindow.ClientAPI api) {
+    }
+
+    @Override
+    public void swapInterval(final int interval) {
+        final Window current = this.currentContext.get();
+
+        if (current != null) {
+            current.swapInterval = interval;
+        }
+    }
+
+    /**
+     * Retrieves the swap interval last set while the window's context was
+     * current on the calling thread.
+     *
+     * @param hwnd the window.
+     * @return the swap interval. 0 if it was never set.
+     * @since 26.10.18
+     */
+    public int getSwapInterval(final long hwnd) {
+        return this.window(hwnd).swapInterval;
+    }
+
+    @Override
+    public void swapBuffers(final long hwnd) {
+        this.window(hwnd);
+        this.swapCount.incrementAndGet();
+        this.clockNanos.addAndGet(this.swapNanos);
+    }
+
+    @Override
+    public void pollEvents() {
+        this.pollCount.incrementAndGet();
+
+        Runnable event;
+
+        while ((event = this.events.poll()) != null) {
+            event.run();
+        }
+    }
+
+    @Override
+    public void waitEventsTimeout(final double timeout) {
+        final long deadline = System.nanoTime() + (long) (timeout * 1e9);
+
+        synchronized (this.events) {
+            while (this.events.isEmpty() && !this.isWakePending) {
+                final long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0L) {
+                    break;
+                }
+
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this.events, remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            this.isWakePending = false;
+        }
+
+        this.pollEvents();
+    }
+
+    @Override
+    public void postEmptyEvent() {
+        synchronized (this.events) {
+            this.isWakePending = true;
+            this.events.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean windowShouldClose(final long hwnd) {
+        return this.window(hwnd).shouldClose;
+    }
+
+    @Override
+    public void setWindowShouldClose(final long hwnd, final boolean shouldClose) {
+        this.window(hwnd).shouldClose = shouldClose;
+    }
+
+    @Override
+    public void showWindow(final long hwnd) {
+        this.window(hwnd).visible = true;
+    }
+
+    @Override
+    public void hideWindow(final long hwnd) {
+        this.window(hwnd).visible = false;
+    }
+
+    /**
+     * Checks if a simulated window is visible.
+     *
+     * @param hwnd the window handle.
+     * @return true if the window was shown.
+     * @since 26.10.18
+     */
+    public boolean isVisible(final long hwnd) {
+        return this.window(hwnd).visible;
+    }
+
+    @Override
+    public void setWindowSize(final long hwnd, final int width, final int height) {
+        final Window w = this.window(hwnd);
+
+        w.width = width;
+        w.height = height;
+        this.resizeFramebuffer(hwnd, width, height);
+    }
+
+    @Override
+    public void setWindowPos(final long hwnd, final int x, final int y) {
+        final Window w = this.window(hwnd);
+
+        w.x = x;
+        w.y = y;
+    }
+
+    @Override
+    public void setWindowMonitor(
+            final long hwnd, final long monitor,
+            final int x, final int y,
+            final int width, final int height,
+            final int refreshRate) {
+
+        this.window(hwnd).monitor = monitor;
+        this.setWindowPos(hwnd, x, y);
+        this.setWindowSize(hwnd, width, height);
+    }
+
+    @Override
+    public void getWindowSize(final long hwnd, final int[] size) {
+        final Window w = this.window(hwnd);
+
+        size[0] = w.width;
+        size[1] = w.height;
+    }
+
+    @Override
+    public void getWindowPos(final long hwnd, final int[] pos) {
+        final Window w = this.window(hwnd);
+
+        pos[0] = w.x;
+        pos[1] = w.y;
+    }
+
+    @Override
+    public void getFramebufferSize(final long hwnd, final int[] size) {
+        final Window w = this.window(hwnd);
+
+        size[0] = w.fbWidth;
+        size[1] = w.fbHeight;
+    }
+
+    @Override
+    public void getWindowFrameSize(final long hwnd, final int[] edges) {
+        this.window(hwnd);
+
+        edges[0] = edges[1] = edges[2] = edges[3] = 0;
+    }
+
+    @Override
+    public long getPrimaryMonitor() {
+        return 1L;
+    }
+
+    @Override
+    public long getWindowMonitor(final long hwnd) {
+        return this.window(hwnd).monitor;
+    }
+
+    private void monitor(final long monitor) {
+        // GLFW crashes on handles that are not monitors; fail loudly instead
+        if (monitor != this.getPrimaryMonitor()) {
+            throw new GLFWException("Unknown headless monitor: " + monitor);
+        }
+    }
+
+    @Override
+    public void getVideoMode(final long monitor, final int[] mode) {
+        this.monitor(monitor);
+
+        mode[VIDMODE_WIDTH] = 1920;
+        mode[VIDMODE_HEIGHT] = 1080;
+        mode[VIDMODE_RED_BITS] = 8;
+        mode[VIDMODE_GREEN_BITS] = 8;
+        mode[VIDMODE_BLUE_BITS] = 8;
+        mode[VIDMODE_REFRESH_RATE] = 60;
+    }
+
+    @Override
+    public void getMonitorPhysicalSize(final long monitor, final int[] sizeMM) {
+        this.monitor(monitor);
+
+        // 1920x1080 at 96 DPI
+        sizeMM[0] = 508;
+        sizeMM[1] = 286;
+    }
+
+    @Override
+    public int getKey(final long hwnd, final int key) {
+        final byte[] keys = this.window(hwnd).keys;
+
+        return (key >= 0 && key < keys.length) ? keys[key] : GLFW.GLFW_RELEASE;
+    }
+
+    @Override
+    public int getMouseButton(final long hwnd, final int button) {
+        final byte[] buttons = this.window(hwnd).buttons;
+
+        return (button >= 0 && button < buttons.length) ? buttons[button] : GLFW.GLFW_RELEASE;
+    }
+
+    @Override
+    public void getCursorPos(final long hwnd, final double[] pos) {
+        final Window w = this.window(hwnd);
+
+        pos[0] = w.cursorX;
+        pos[1] = w.cursorY;
+    }
+
+    @Override
+    public void setCursorPos(final long hwnd, final double x, final double y) {
+        final Window w = this.window(hwnd);
+
+        w.cursorX = x;
+        w.cursorY = y;
+    }
+
+    @Override
+    public void setCursor(final long hwnd, final long cursor) {
+        if (cursor != 0L && !this.cursors.contains(cursor)) {
+            throw new GLFWException("Invalid cursor: " + cursor);
+        }
+
+        this.window(hwnd).cursor = cursor;
+    }
+
+    @Override
+    public long createStandardCursor(final int shape) {
+        final long cursor = this.nextHandle.getAndIncrement();
+
+        this.cursors.add(cursor);
+        return cursor;
+    }
+
+    @Override
+    public long createCursor(final int width, final int height, final ByteBuffer rgba, final int xHot, final int yHot) {
+        if (rgba.remaining() < width * height * 4) {
+            throw new GLFWException("Cursor image is smaller than " + width + "x" + height + "!");
+        }
+
+        final long cursor = this.nextHandle.getAndIncrement();
+
+        this.cursors.add(cursor);
+        return cursor;
+    }
+
+    @Override
+    public void destroyCursor(final long cursor) {
+        this.cursors.remove(cursor);
+        this.windows.values().forEach(w -> {
+            if (w.cursor == cursor) {
+                w.cursor = 0L;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the number of cursors that were created and not destroyed.
+     *
+     * @return the live cursor count.
+     * @since 26.10.18
+     */
+    public int getCursorCount() {
+        return this.cursors.size();
+    }
+
+    /**
+     * Retrieves the cursor currently set on a window.
+     *
+     * @param hwnd the window.
+     * @return the cursor handle. 0 for the default cursor.
+     * @since 26.10.18
+     */
+    public long getCursor(final long hwnd) {
+        return this.window(hwnd).cursor;
+    }
+
+    @Override
+    public void setClipboardString(final long hwnd, final CharSequence value) {
+        this.clipboard = value.toString();
+    }
+
+    @Override
+    public String getClipboardString(final long hwnd) {
+        return this.clipboard;
+    }
+
+    @Override
+    public ByteBuffer getClipboardUTF8(final long hwnd) {
+        final byte[] bytes = this.clipboard.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length == 0) {
+            return null;
+        }
+
+        final ByteBuffer out = ByteBuffer.allocateDirect(bytes.length);
+
+        out.put(bytes).flip();
+        return out;
+    }
+
+    @Override
+    public void setClipboardUTF8(final long hwnd, final ByteBuffer utf8) {
+        final ByteBuffer src = utf8.duplicate();
+        int end = src.position();
+
+        while (src.get(end) != 0) {
+            end++;
+        }
+
+        final byte[] bytes = new byte[end - src.position()];
+
+        src.get(bytes);
+        this.clipboard = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean joystickPresent(final int joystick) {
+        synchronized (this.joysticks) {
+            return this.joysticks[joystick] != null;
+        }
+    }
+
+    @Override
+    public String getJoystickName(final int joystick) {
+        synchronized (this.joysticks) {
+            final Joystick js = this.joysticks[joystick];
+
+            return js == null ? null : js.name;
+        }
+    }
+
+    @Override
+    public FloatBuffer getJoystickAxes(final int joystick) {
+        synchronized (this.joysticks) {
+            final Joystick js = this.joysticks[joystick];
+
+            return js == null ? null : (FloatBuffer) js.axes.duplicate().clear();
+        }
+    }
+
+    @Override
+    public ByteBuffer getJoystickButtons(final int joystick) {
+        synchronized (this.joysticks) {
+            final Joystick js = this.joysticks[joystick];
+
+            return js == null ? null : (ByteBuffer) js.buttons.duplicate().clear();
+        }
+    }
+
+    /**
+     * Connects a simulated joystick. All axes start at 0 and all buttons
+     * start released.
+     *
+     * @param joystick the joystick slot.
+     * @param name the joystick name.
+     * @param axesCount the number of axes.
+     * @param buttonCount the number of buttons.
+     * @since 26.10.18
+     */
+    public void connectJoystick(final int joystick, final String name, final int axesCount, final int buttonCount) {
+        synchronized (this.joysticks) {
+            this.joysticks[joystick] = new Joystick(name, axesCount, buttonCount);
+        }
+    }
+
+    /**
+     * Disconnects a simulated joystick.
+     *
+     * @param joystick the joystick slot.
+     * @since 26.10.18
+     */
+    public void disconnectJoystick(final int joystick) {
+        synchronized (this.joysticks) {
+            this.joysticks[joystick] = null;
+        }
+    }
+
+    /**
+     * Sets the value of a simulated joystick axis.
+     *
+     * @param joystick the joystick slot.
+     * @param axis the axis.
+     * @param value the axis value in [-1.0, 1.0].
+     * @since 26.10.18
+     */
+    public void setJoystickAxis(final int joystick, final int axis, final float value) {
+        synchronized (this.joysticks) {
+            this.joysticks[joystick].axes.put(axis, value);
+        }
+    }
+
+    /**
+     * Sets the state of a simulated joystick button.
+     *
+     * @param joystick the joystick slot.
+     * @param button the button.
+     * @param pressed true if the button is pressed.
+     * @since 26.10.18
+     */
+    public void setJoystickButton(final int joystick, final int button, final boolean pressed) {
+        synchronized (this.joysticks) {
+            this.joysticks[joystick].buttons.put(button, (byte) (pressed ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE));
+        }
+    }
+
+    private void script(final long hwnd, final Consumer<Window> stateChange, final Consumer<Callbacks> event) {
+        this.events.offer(() -> {
+            final Window w = this.windows.get(hwnd);
+
+            if (w == null) {
+                return;
+            }
+
+            stateChange.accept(w);
+
+            final Callbacks callbacks = w.callbacks;
+
+            if (callbacks != null) {
+                event.accept(callbacks);
+            }
+        });
+
+        synchronized (this.events) {
+            this.events.notifyAll();
+        }
+    }
+
+    /**
+     * Scripts a key event.
+     *
+     * @param hwnd the window that receives the event.
+     * @param key the GLFW key.
+     * @param scancode the scancode.
+     * @param action GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT.
+     * @param mods the modifier bitfield.
+     * @since 26.10.18
+     */
+    public void scriptKey(final long hwnd, final int key, final int scancode, final int action, final int mods) {
+        this.script(hwnd, w -> {
+            if (key >= 0 && key < w.keys.length) {
+                w.keys[key] = (byte) (action == GLFW.GLFW_RELEASE ? GLFW.GLFW_RELEASE : GLFW.GLFW_PRESS);
+            }
+        }, c -> c.keyCallback(hwnd, key, scancode, action, mods));
+    }
+
+    /**
+     * Scripts a typed character.
+     *
+     * @param hwnd the window that receives the event.
+     * @param codepoint the unicode codepoint.
+     * @since 26.10.18
+     */
+    public void scriptChar(final long hwnd, final int codepoint) {
+        this.script(hwnd, w -> {
+        }, c -> c.charCallback(hwnd, codepoint));
+    }
+
+    /**
+     * Scripts a mouse button event.
+     *
+     * @param hwnd the window that receives the event.
+     * @param button the mouse button.
+     * @param action GLFW_PRESS or GLFW_RELEASE.
+     * @param mods the modifier bitfield.
+     * @since 26.10.18
+     */
+    public void scriptMouseButton(final long hwnd, final int button, final int action, final int mods) {
+        this.script(hwnd, w -> {
+            if (button >= 0 && button < w.buttons.length) {
+                w.buttons[button] = (byte) action;
+            }
+        }, c -> c.mouseButtonCallback(hwnd, button, action, mods));
+    }
+
+    /**
+     * Scripts a cursor movement.
+     *
+     * @param hwnd the window that receives the event.
+     * @param x the new x-location.
+     * @param y the new y-location.
+     * @since 26.10.18
+     */
+    public void scriptCursorPos(final long hwnd, final double x, final double y) {
+        this.script(hwnd, w -> {
+            w.cursorX = x;
+            w.cursorY = y;
+        }, c -> c.cursorPosCallback(hwnd, x, y));
+    }
+
+    /**
+     * Scripts the cursor entering or leaving the window.
+     *
+     * @param hwnd the window that receives the event.
+     * @param entered true if the cursor entered.
+     * @since 26.10.18
+     */
+    public void scriptCursorEnter(final long hwnd, final boolean entered) {
+        this.script(hwnd, w -> {
+        }, c -> c.cursorEnterCallback(hwnd, entered));
+    }
+
+    /**
+     * Scripts a scroll event.
+     *
+     * @param hwnd the window that receives the event.
+     * @param xOffset the horizontal scroll offset.
+     * @param yOffset the vertical scroll offset.
+     * @since 26.10.18
+     */
+    public void scriptScroll(final long hwnd, final double xOffset, final double yOffset) {
+        this.script(hwnd, w -> {
+        }, c -> c.scrollCallback(hwnd, xOffset, yOffset));
+    }
+
+    /**
+     * Scripts a framebuffer resize.
+     *
+     * @param hwnd the window that receives the event.
+     * @param width the new framebuffer width.
+     * @param height the new framebuffer height.
+     * @since 26.10.18
+     */
+    public void resizeFramebuffer(final long hwnd, final int width, final int height) {
+        this.script(hwnd, w -> {
+            w.fbWidth = width;
+            w.fbHeight = height;
+        }, c -> c.framebufferSizeCallback(hwnd, width, height));
+    }
+
+    /**
+     * Scripts the user requesting that the window closes.
+     *
+     * @param hwnd the window that receives the event.
+     * @since 26.10.18
+     */
+    public void scriptClose(final long hwnd) {
+        this.script(hwnd, w -> w.shouldClose = true, c -> c.windowCloseCallback(hwnd));
+    }
+
+    /**
+     * Scripts the window being minimized or restored.
+     *
+     * @param hwnd the window that receives the event.
+     * @param iconified true if the window was minimized.
+     * @since 26.10.18
+     */
+    public void scriptIconify(final long hwnd, final boolean iconified) {
+        this.script(hwnd, w -> {
+        }, c -> c.windowIconifyCallback(hwnd, iconified));
+    }
+
+    /**
+     * Scripts the window contents being damaged and needing a redraw.
+     *
+     * @param hwnd the window that receives the event.
+     * @since 26.10.18
+     */
+    public void scriptRefresh(final long hwnd) {
+        this.script(hwnd, w -> {
+        }, c -> c.windowRefreshCallback(hwnd));
+    }
+
+    /**
+     * Scripts files being dropped onto the window.
+     *
+     * @param hwnd the window that receives the event.
+     * @param paths the dropped paths.
+     * @since 26.10.18
+     */
+    public void scriptDrop(final long hwnd, final String... paths) {
+        final String[] copy = paths.clone();
+
+        this.script(hwnd, w -> {
+        }, c -> c.dropCallback(hwnd, copy));
+    }
+}
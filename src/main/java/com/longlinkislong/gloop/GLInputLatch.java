@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Late-latched input for a window. When enabled, the window samples the
+ * cursor position and a set of watched keys right before each buffer swap and
+ * publishes them to a single slot. Renderers read the slot for final
+ * transforms such as a cursor or camera so that the presented frame uses
+ * input that is up to a frame newer than the input seen by listeners.
+ *
+ * <p>
+ * The slot is a sequence lock over volatile fields: publishing and reading
+ * never block or allocate, and readers retry if they raced with a publish.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLInputLatch {
+
+    /**
+     * The maximum number of watched keys.
+     *
+     * @since 26.10.18
+     */
+    public static final int MAX_KEYS = Long.SIZE;
+
+    /**
+     * A copy of the latched input. Instances are reusable so that reading the
+     * latch does not allocate.
+     *
+     * @since 26.10.18
+     */
+    public static final class State {
+
+        long sequence;
+        long nanoTime;
+        double cursorX;
+        double cursorY;
+        long keyBits;
+        int[] keys = NO_KEYS;
+
+        /**
+         * Retrieves the latch sequence number. It increases with every
+         * latch; 0 means nothing was latched yet.
+         *
+         * @return the sequence number.
+         * @since 26.10.18
+         */
+        public long getSequence() {
+            return this.sequence;
+        }
+
+        /**
+         * Retrieves the time the input was sampled.
+         *
+         * @return the sample time, comparable to System.nanoTime.
+         * @since 26.10.18
+         */
+        public long getNanoTime() {
+            return this.nanoTime;
+        }
+
+        /**
+         * Retrieves the latched cursor x coordinate.
+         *
+         * @return the cursor x coordinate.
+         * @since 26.10.18
+         */
+        public double getCursorX() {
+            return this.cursorX;
+        }
+
+        /**
+         * Retrieves the latched cursor y coordinate.
+         *
+         * @return the cursor y coordinate.
+         * @since 26.10.18
+         */
+        public double getCursorY() {
+            return this.cursorY;
+        }
+
+        /**
+         * Checks if a watched key was pressed or repeating when the input was
+         * latched.
+         *
+         * @param key the GLFW key code.
+         * @return true if the key is watched and was down.
+         * @since 26.10.18
+         */
+        public boolean isKeyDown(final int key) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] == key) {
+                    return (this.keyBits & (1L << i)) != 0L;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static final int[] NO_KEYS = new int[0];
+
+    private final GLWindow window;
+    // only accessed on the GLThread
+    private final double[] cursor = new double[2];
+
+    private volatile boolean isEnabled = false;
+    private volatile boolean isPollBeforeSwap = false;
+    private volatile int[] keys = NO_KEYS;
+    private Optional<Consumer<GLInputLatch>> onLatch = Optional.empty();
+
+    // the slot; odd sequence values mark a publish in progress
+    private volatile long sequence = 0L;
+    private volatile long nanoTime;
+    private volatile double cursorX;
+    private volatile double cursorY;
+    private volatile long keyBits;
+    private volatile int[] latchedKeys = NO_KEYS;
+
+    GLInputLatch(final GLWindow window) {
+        this.window = window;
+    }
+
+    /**
+     * Enables or disables latching before every buffer swap. Disabled by
+     * default.
+     *
+     * @param enabled true to latch before every swap.
+     * @since 26.10.18
+     */
+    public void setEnabled(final boolean enabled) {
+        this.isEnabled = enabled;
+    }
+
+    /**
+     * Checks if input is latched before every buffer swap.
+     *
+     * @return true if latching is enabled.
+     * @since 26.10.18
+     */
+    public boolean isEnabled() {
+        return this.isEnabled;
+    }
+
+    /**
+     * Also processes pending events right before latching. The cursor
+     * position is read from the platform directly, but key states only
+     * change when events are processed, so without this the latched keys are
+     * as old as the previous poll. Listeners then run before the swap instead
+     * of after it.
+     *
+     * @param pollBeforeSwap true to poll events before latching.
+     * @since 26.10.18
+     */
+    public void setPollBeforeSwap(final boolean pollBeforeSwap) {
+        this.isPollBeforeSwap = pollBeforeSwap;
+    }
+
+    /**
+     * Checks if events are processed right before latching.
+     *
+     * @return true if events are polled before the swap.
+     * @since 26.10.18
+     */
+    public boolean isPollBeforeSwap() {
+        return this.isPollBeforeSwap;
+    }
+
+    /**
+     * Sets the keys whose state is latched.
+     *
+     * @param newKeys the GLFW key codes.
+     * @throws IllegalArgumentException if more than {@link #MAX_KEYS} keys
+     * are given.
+     * @since 26.10.18
+     */
+    public void setWatchedKeys(final int... newKeys) throws IllegalArgumentException {
+        if (newKeys.length > MAX_KEYS) {
+            throw new IllegalArgumentException("At most " + MAX_KEYS + " keys can be latched!");
+        }
+
+        this.keys = newKeys.clone();
+    }
+
+    /**
+     * Sets a callback that runs on the GLThread after every latch and before
+     * the swap; for example to upload the final cursor or camera transform.
+     *
+     * @param callback the callback. Null removes it.
+     * @since 26.10.18
+     */
+    public void setOnLatch(final Consumer<GLInputLatch> callback) {
+        this.onLatch = Optional.ofNullable(callback);
+    }
+
+    /**
+     * Samples the input and publishes it. Called by the window before each
+     * swap while enabled; may also be called directly on the GLThread, for
+     * example from a frame loop pre-swap hook.
+     *
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public void latch() throws GLFWException {
+        if (!this.window.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        final GLWindowBackend backend = this.window.backend;
+        final long hwnd = this.window.window;
+        final int[] watched = this.keys;
+        long bits = 0L;
+
+        backend.getCursorPos(hwnd, this.cursor);
+
+        for (int i = 0; i < watched.length; i++) {
+            if (backend.getKey(hwnd, watched[i]) != GLFW.GLFW_RELEASE) {
+                bits |= 1L << i;
+            }
+        }
+
+        final long seq = this.sequence;
+
+        this.sequence = seq + 1;
+        this.nanoTime = System.nanoTime();
+        this.cursorX = this.cursor[0];
+        this.cursorY = this.cursor[1];
+        this.keyBits = bits;
+        this.latchedKeys = watched;
+        this.sequence = seq + 2;
+
+        this.onLatch.ifPresent(callback -> callback.accept(this));
+    }
+
+    /**
+     * Called by the window's update right before the swap.
+     */
+    void beforeSwap() {
+        if (!this.isEnabled) {
+            return;
+        }
+
+        if (this.isPollBeforeSwap) {
+            this.window.backend.pollEvents();
+            this.window.getMetrics().recordPoll();
+        }
+
+        this.latch();
+    }
+
+    /**
+     * Copies the most recently latched input. Never blocks and does not
+     * allocate. May be called from any thread.
+     *
+     * @param out the state to copy into.
+     * @return the output.
+     * @since 26.10.18
+     */
+    public State read(final State out) {
+        Objects.requireNonNull(out);
+
+        while (true) {
+            final long before = this.sequence;
+
+            if ((before & 1L) == 0L) {
+                out.nanoTime = this.nanoTime;
+                out.cursorX = this.cursorX;
+                out.cursorY = this.cursorY;
+                out.keyBits = this.keyBits;
+                // watched key arrays are never modified once published
+                out.keys = this.latchedKeys;
+
+                if (this.sequence == before) {
+                    out.sequence = before / 2;
+                    return out;
+                }
+            }
+
+            GLConcurrency.onSpinWait();
+        }
+    }
+
+    /**
+     * Retrieves the latch sequence number of the most recent latch.
+     *
+     * @return the number of completed latches.
+     * @since 26.10.18
+     */
+    public long getSequence() {
+        return this.sequence / 2;
+    }
+}
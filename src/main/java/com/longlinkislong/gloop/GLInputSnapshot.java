@@ -0,0 +1,674 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * The input state of a single frame in a compact form for lockstep
+ * networking. A snapshot holds a key bitset, a mouse button bitset, the
+ * cursor position in quarter pixels and, for a fixed number of gamepads, a
+ * button bitset and axes quantized to 16 bits.
+ *
+ * <p>
+ * Snapshots form a chain: each one is captured or decoded relative to the
+ * snapshot of the previous frame. {@link #encode(GLInputSnapshot, ByteBuffer)}
+ * writes only what changed since the previous frame using varints, so a frame
+ * without input changes costs 5 bytes. Every snapshot carries a rolling hash
+ * over the whole chain; {@link #decode(GLInputSnapshot, ByteBuffer)} compares
+ * it against the sender's hash so that a lost, reordered or misapplied packet
+ * is reported as a desync instead of silently diverging.
+ *
+ * <p>
+ * Capturing, encoding and decoding do not allocate. The buffers passed in
+ * should be direct buffers that are reused every tick.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLInputSnapshot {
+
+    /**
+     * The number of cursor units per pixel.
+     *
+     * @since 26.10.18
+     */
+    public static final int CURSOR_SUBPIXELS = 4;
+
+    private static final int KEY_COUNT = GLFW.GLFW_KEY_LAST + 1;
+    private static final int KEY_WORDS = (KEY_COUNT + 63) / 64;
+    private static final int MOUSE_BUTTON_COUNT = GLFW.GLFW_MOUSE_BUTTON_LAST + 1;
+    private static final int MAX_GAMEPAD_BUTTONS = 64;
+    private static final float AXIS_SCALE = Short.MAX_VALUE;
+
+    private static final int KEYS_CHANGED = 1;
+    private static final int MOUSE_BUTTONS_CHANGED = 2;
+    private static final int CURSOR_CHANGED = 4;
+    private static final int GAMEPAD_BUTTONS_CHANGED = 8;
+    private static final int AXES_CHANGED = 16;
+
+    private static final long HASH_SEED = 0xCBF29CE484222325L;
+    private static final long HASH_PRIME = 0x100000001B3L;
+
+    private final int gamepadCount;
+    private final int axesPerGamepad;
+
+    private long frame = 0L;
+    private long hash = HASH_SEED;
+    private final long[] keys = new long[KEY_WORDS];
+    private int mouseButtons = 0;
+    private int cursorX = 0;
+    private int cursorY = 0;
+    private final long[] gamepadButtons;
+    private final short[] axes;
+    private final double[] cursorOutput = new double[2];
+
+    /**
+     * Constructs an empty snapshot without gamepad state.
+     *
+     * @since 26.10.18
+     */
+    public GLInputSnapshot() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructs an empty snapshot. Every snapshot in a chain must use the
+     * same gamepad layout.
+     *
+     * @param gamepadCount the number of gamepads recorded. At most 32.
+     * @param axesPerGamepad the number of axes recorded per gamepad.
+     * @throws IllegalArgumentException if a count is negative or there are
+     * more than 32 gamepads.
+     * @since 26.10.18
+     */
+    public GLInputSnapshot(final int gamepadCount, final int axesPerGamepad) throws IllegalArgumentException {
+        if (gamepadCount < 0 || gamepadCount > 32) {
+            throw new IllegalArgumentException("Gamepad count must be in [0, 32]: " + gamepadCount);
+        } else if (axesPerGamepad < 0) {
+            throw new IllegalArgumentException("Axes per gamepad cannot be negative!");
+        }
+
+        this.gamepadCount = gamepadCount;
+        this.axesPerGamepad = axesPerGamepad;
+        this.gamepadButtons = new long[gamepadCount];
+        this.axes = new short[gamepadCount * axesPerGamepad];
+    }
+
+    private void checkLayout(final GLInputSnapshot other) {
+        if (other.gamepadCount != this.gamepadCount || other.axesPerGamepad != this.axesPerGamepad) {
+            throw new IllegalArgumentException("Input snapshots have different gamepad layouts!");
+        }
+    }
+
+    /**
+     * Copies the complete state of another snapshot, including its frame
+     * number and hash.
+     *
+     * @param other the snapshot to copy.
+     * @throws IllegalArgumentException if the gamepad layouts differ.
+     * @since 26.10.18
+     */
+    public void set(final GLInputSnapshot other) throws IllegalArgumentException {
+        this.checkLayout(other);
+
+        this.frame = other.frame;
+        this.hash = other.hash;
+        System.arraycopy(other.keys, 0, this.keys, 0, KEY_WORDS);
+        this.mouseButtons = other.mouseButtons;
+        this.cursorX = other.cursorX;
+        this.cursorY = other.cursorY;
+        System.arraycopy(other.gamepadButtons, 0, this.gamepadButtons, 0, this.gamepadCount);
+        System.arraycopy(other.axes, 0, this.axes, 0, this.axes.length);
+    }
+
+    /**
+     * Resets the snapshot to the start of a chain: frame 0, no input and the
+     * initial hash. The first captured snapshot of a chain is frame 1.
+     *
+     * @since 26.10.18
+     */
+    public void clear() {
+        this.frame = 0L;
+        this.hash = HASH_SEED;
+        Arrays.fill(this.keys, 0L);
+        this.mouseButtons = 0;
+        this.cursorX = 0;
+        this.cursorY = 0;
+        Arrays.fill(this.gamepadButtons, 0L);
+        Arrays.fill(this.axes, (short) 0);
+    }
+
+    /**
+     * Captures the current input state of a window and polls the gamepads.
+     * The frame number is one past the previous snapshot's and the hash is
+     * chained from it. This must run on the thread that polls the window's
+     * events.
+     *
+     * @param window the window to read the keyboard and mouse of.
+     * @param gamepads the gamepads to poll. Gamepads past the snapshot's
+     * gamepad count are ignored; missing ones read as released and centered.
+     * @param previous the snapshot of the previous frame, or null to start a
+     * new chain as if the previous snapshot was empty.
+     * @throws GLFWException if the window is not initialized.
+     * @throws IllegalArgumentException if the gamepad layouts differ.
+     * @since 26.10.18
+     */
+    public void capture(
+            final GLWindow window, final List<GLGamepad> gamepads,
+            final GLInputSnapshot previous) throws GLFWException, IllegalArgumentException {
+
+        Objects.requireNonNull(window);
+
+        if (!window.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        final GLWindowBackend backend = window.backend;
+        final long hwnd = window.window;
+
+        Arrays.fill(this.keys, 0L);
+
+        for (int key = GLFW.GLFW_KEY_SPACE; key < KEY_COUNT; key++) {
+            if (backend.getKey(hwnd, key) != GLFW.GLFW_RELEASE) {
+                this.keys[key >>> 6] |= 1L << key;
+            }
+        }
+
+        int buttons = 0;
+
+        for (int button = 0; button < MOUSE_BUTTON_COUNT; button++) {
+            if (backend.getMouseButton(hwnd, button) != GLFW.GLFW_RELEASE) {
+                buttons |= 1 << button;
+            }
+        }
+
+        this.mouseButtons = buttons;
+
+        final double[] cursor = this.cursorOutput;
+
+        backend.getCursorPos(hwnd, cursor);
+        this.cursorX = (int) Math.round(cursor[0] * CURSOR_SUBPIXELS);
+        this.cursorY = (int) Math.round(cursor[1] * CURSOR_SUBPIXELS);
+
+        Arrays.fill(this.gamepadButtons, 0L);
+        Arrays.fill(this.axes, (short) 0);
+
+        final int padCount = gamepads == null ? 0 : Math.min(gamepads.size(), this.gamepadCount);
+
+        for (int pad = 0; pad < padCount; pad++) {
+            final GLGamepad gamepad = gamepads.get(pad);
+
+            gamepad.update();
+
+            final int buttonCount = Math.min(gamepad.getButtonCount(), MAX_GAMEPAD_BUTTONS);
+            long padButtons = 0L;
+
+            for (int button = 0; button < buttonCount; button++) {
+                if (gamepad.getButtonState(button) == GLGamepadState.PRESSED) {
+                    padButtons |= 1L << button;
+                }
+            }
+
+            this.gamepadButtons[pad] = padButtons;
+
+            final int axesCount = Math.min(gamepad.getAxesCount(), this.axesPerGamepad);
+            final int base = pad * this.axesPerGamepad;
+
+            for (int axis = 0; axis < axesCount; axis++) {
+                final float value = Math.max(-1F, Math.min(1F, gamepad.getAxesState(axis)));
+
+                this.axes[base + axis] = (short) Math.round(value * AXIS_SCALE);
+            }
+        }
+
+        this.chain(previous);
+    }
+
+    private void chain(final GLInputSnapshot previous) {
+        if (previous == null) {
+            this.frame = 1L;
+            this.hash = mix(HASH_SEED, this.contentHash());
+        } else {
+            this.checkLayout(previous);
+            this.frame = previous.frame + 1;
+            this.hash = mix(previous.hash, this.contentHash());
+        }
+    }
+
+    private static long mix(final long hash, final long value) {
+        return (hash ^ value) * HASH_PRIME;
+    }
+
+    private long contentHash() {
+        long out = HASH_SEED;
+
+        for (long word : this.keys) {
+            out = mix(out, word);
+        }
+
+        out = mix(out, this.mouseButtons);
+        out = mix(out, ((long) this.cursorX << 32) | (this.cursorY & 0xFFFFFFFFL));
+
+        for (long word : this.gamepadButtons) {
+            out = mix(out, word);
+        }
+
+        for (short axis : this.axes) {
+            out = mix(out, axis);
+        }
+
+        // finalizer from MurmurHash3 so that single bit changes spread
+        out ^= out >>> 33;
+        out *= 0xFF51AFD7ED558CCDL;
+        out ^= out >>> 33;
+
+        return out;
+    }
+
+    /**
+     * Retrieves the largest number of bytes that
+     * {@link #encode(GLInputSnapshot, ByteBuffer)} can write for this gamepad
+     * layout.
+     *
+     * @return the maximum encoded size in bytes.
+     * @since 26.10.18
+     */
+    public int getMaxEncodedSize() {
+        return 1
+                + 2 + KEY_COUNT * 2
+                + 1
+                + 10
+                + 5 + this.gamepadCount * 10
+                + 3 + this.axes.length * 6
+                + 4;
+    }
+
+    /**
+     * Writes the difference between the previous snapshot and this one. The
+     * receiver reconstructs this snapshot by decoding against its own copy of
+     * the previous snapshot; the frame number is implied by the chain.
+     *
+     * @param previous the snapshot of the previous frame. Use an empty
+     * snapshot for the first frame of a chain.
+     * @param out the buffer to write to, starting at its position.
+     * @throws java.nio.BufferOverflowException if fewer than
+     * {@link #getMaxEncodedSize()} bytes may not fit.
+     * @throws IllegalArgumentException if the gamepad layouts differ.
+     * @since 26.10.18
+     */
+    public void encode(final GLInputSnapshot previous, final ByteBuffer out) throws IllegalArgumentException {
+        this.checkLayout(previous);
+
+        int flags = 0;
+        int toggledKeys = 0;
+
+        for (int i = 0; i < KEY_WORDS; i++) {
+            toggledKeys += Long.bitCount(this.keys[i] ^ previous.keys[i]);
+        }
+
+        if (toggledKeys != 0) {
+            flags |= KEYS_CHANGED;
+        }
+
+        if (this.mouseButtons != previous.mouseButtons) {
+            flags |= MOUSE_BUTTONS_CHANGED;
+        }
+
+        if (this.cursorX != previous.cursorX || this.cursorY != previous.cursorY) {
+            flags |= CURSOR_CHANGED;
+        }
+
+        int changedPads = 0;
+
+        for (int pad = 0; pad < this.gamepadCount; pad++) {
+            if (this.gamepadButtons[pad] != previous.gamepadButtons[pad]) {
+                changedPads |= 1 << pad;
+            }
+        }
+
+        if (changedPads != 0) {
+            flags |= GAMEPAD_BUTTONS_CHANGED;
+        }
+
+        int changedAxes = 0;
+
+        for (int i = 0; i < this.axes.length; i++) {
+            if (this.axes[i] != previous.axes[i]) {
+                changedAxes++;
+            }
+        }
+
+        if (changedAxes != 0) {
+            flags |= AXES_CHANGED;
+        }
+
+        out.put((byte) flags);
+
+        if (toggledKeys != 0) {
+            // toggled key codes in ascending order as gaps
+            putVarInt(out, toggledKeys);
+
+            int last = 0;
+
+            for (int i = 0; i < KEY_WORDS; i++) {
+                long toggled = this.keys[i] ^ previous.keys[i];
+
+                while (toggled != 0L) {
+                    final int key = (i << 6) + Long.numberOfTrailingZeros(toggled);
+
+                    putVarInt(out, key - last);
+                    last = key;
+                    toggled &= toggled - 1;
+                }
+            }
+        }
+
+        if ((flags & MOUSE_BUTTONS_CHANGED) != 0) {
+            out.put((byte) (this.mouseButtons ^ previous.mouseButtons));
+        }
+
+        if ((flags & CURSOR_CHANGED) != 0) {
+            putVarLong(out, zigZag(this.cursorX - (long) previous.cursorX));
+            putVarLong(out, zigZag(this.cursorY - (long) previous.cursorY));
+        }
+
+        if (changedPads != 0) {
+            putVarInt(out, changedPads);
+
+            for (int pad = 0; pad < this.gamepadCount; pad++) {
+                if ((changedPads & (1 << pad)) != 0) {
+                    putVarLong(out, this.gamepadButtons[pad] ^ previous.gamepadButtons[pad]);
+                }
+            }
+        }
+
+        if (changedAxes != 0) {
+            putVarInt(out, changedAxes);
+
+            int last = 0;
+
+            for (int i = 0; i < this.axes.length; i++) {
+                if (this.axes[i] != previous.axes[i]) {
+                    putVarInt(out, i - last);
+                    putVarLong(out, zigZag(this.axes[i] - previous.axes[i]));
+                    last = i;
+                }
+            }
+        }
+
+        final int check = (int) this.hash;
+
+        out.put((byte) check);
+        out.put((byte) (check >>> 8));
+        out.put((byte) (check >>> 16));
+        out.put((byte) (check >>> 24));
+    }
+
+    /**
+     * Reconstructs this snapshot from the previous snapshot and a difference
+     * written by {@link #encode(GLInputSnapshot, ByteBuffer)}. The previous
+     * snapshot may be this snapshot, which advances it in place.
+     *
+     * @param previous the receiver's snapshot of the previous frame.
+     * @param in the buffer to read from, starting at its position.
+     * @return true if the reconstructed hash matches the sender's. False means
+     * the chains have diverged and the snapshot should not be simulated.
+     * @throws java.nio.BufferUnderflowException if the buffer ends early.
+     * @throws IllegalArgumentException if the gamepad layouts differ or the
+     * data is corrupt.
+     * @since 26.10.18
+     */
+    public boolean decode(final GLInputSnapshot previous, final ByteBuffer in) throws IllegalArgumentException {
+        if (previous != this) {
+            this.set(previous);
+        }
+
+        final int flags = in.get() & 0xFF;
+
+        if ((flags & KEYS_CHANGED) != 0) {
+            final int toggledKeys = getVarInt(in);
+            int key = 0;
+
+            for (int i = 0; i < toggledKeys; i++) {
+                key += getVarInt(in);
+
+                if (key < 0 || key >= KEY_COUNT) {
+                    throw new IllegalArgumentException("Corrupt input snapshot: invalid key " + key);
+                }
+
+                this.keys[key >>> 6] ^= 1L << key;
+            }
+        }
+
+        if ((flags & MOUSE_BUTTONS_CHANGED) != 0) {
+            this.mouseButtons ^= in.get() & 0xFF;
+        }
+
+        if ((flags & CURSOR_CHANGED) != 0) {
+            this.cursorX += (int) unZigZag(getVarLong(in));
+            this.cursorY += (int) unZigZag(getVarLong(in));
+        }
+
+        if ((flags & GAMEPAD_BUTTONS_CHANGED) != 0) {
+            final int changedPads = getVarInt(in);
+
+            for (int pad = 0; pad < 32; pad++) {
+                if ((changedPads & (1 << pad)) != 0) {
+                    if (pad >= this.gamepadCount) {
+                        throw new IllegalArgumentException("Corrupt input snapshot: invalid gamepad " + pad);
+                    }
+
+                    this.gamepadButtons[pad] ^= getVarLong(in);
+                }
+            }
+        }
+
+        if ((flags & AXES_CHANGED) != 0) {
+            final int changedAxes = getVarInt(in);
+            int axis = 0;
+
+            for (int i = 0; i < changedAxes; i++) {
+                axis += getVarInt(in);
+
+                if (axis < 0 || axis >= this.axes.length) {
+                    throw new IllegalArgumentException("Corrupt input snapshot: invalid axis " + axis);
+                }
+
+                this.axes[axis] += (short) unZigZag(getVarLong(in));
+            }
+        }
+
+        final int check = (in.get() & 0xFF)
+                | (in.get() & 0xFF) << 8
+                | (in.get() & 0xFF) << 16
+                | (in.get() & 0xFF) << 24;
+
+        this.chain(this);
+
+        return check == (int) this.hash;
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarInt(final ByteBuffer out, final int value) {
+        putVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void putVarLong(final ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.put((byte) value);
+    }
+
+    private static int getVarInt(final ByteBuffer in) {
+        return (int) getVarLong(in);
+    }
+
+    private static long getVarLong(final ByteBuffer in) {
+        long out = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.get();
+
+            out |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) {
+                return out;
+            }
+        }
+
+        throw new IllegalArgumentException("Corrupt input snapshot: varint is too long!");
+    }
+
+    /**
+     * Retrieves the frame number within the chain.
+     *
+     * @return the frame number.
+     * @since 26.10.18
+     */
+    public long getFrame() {
+        return this.frame;
+    }
+
+    /**
+     * Retrieves the rolling hash over this snapshot and every snapshot before
+     * it in the chain. Peers whose hashes differ for the same frame have
+     * diverged.
+     *
+     * @return the rolling hash.
+     * @since 26.10.18
+     */
+    public long getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Retrieves the number of gamepads recorded.
+     *
+     * @return the gamepad count.
+     * @since 26.10.18
+     */
+    public int getGamepadCount() {
+        return this.gamepadCount;
+    }
+
+    /**
+     * Retrieves the number of axes recorded per gamepad.
+     *
+     * @return the axes count.
+     * @since 26.10.18
+     */
+    public int getAxesPerGamepad() {
+        return this.axesPerGamepad;
+    }
+
+    /**
+     * Checks if a key was down.
+     *
+     * @param key the GLFW key code.
+     * @return true if the key was pressed or repeating.
+     * @since 26.10.18
+     */
+    public boolean isKeyDown(final int key) {
+        return key >= 0 && key < KEY_COUNT && (this.keys[key >>> 6] & (1L << key)) != 0L;
+    }
+
+    /**
+     * Checks if a mouse button was down.
+     *
+     * @param button the GLFW mouse button.
+     * @return true if the button was pressed.
+     * @since 26.10.18
+     */
+    public boolean isMouseButtonDown(final int button) {
+        return button >= 0 && button < MOUSE_BUTTON_COUNT && (this.mouseButtons & (1 << button)) != 0;
+    }
+
+    /**
+     * Retrieves the cursor x position rounded to
+     * {@link #CURSOR_SUBPIXELS}.
+     *
+     * @return the x position in pixels.
+     * @since 26.10.18
+     */
+    public double getCursorX() {
+        return this.cursorX / (double) CURSOR_SUBPIXELS;
+    }
+
+    /**
+     * Retrieves the cursor y position rounded to
+     * {@link #CURSOR_SUBPIXELS}.
+     *
+     * @return the y position in pixels.
+     * @since 26.10.18
+     */
+    public double getCursorY() {
+        return this.cursorY / (double) CURSOR_SUBPIXELS;
+    }
+
+    /**
+     * Checks if a gamepad button was pressed.
+     *
+     * @param gamepad the gamepad index within the snapshot.
+     * @param button the button index. Only the first 64 buttons are
+     * recorded.
+     * @return true if the button was pressed.
+     * @since 26.10.18
+     */
+    public boolean isGamepadButtonDown(final int gamepad, final int button) {
+        return button >= 0 && button < MAX_GAMEPAD_BUTTONS && (this.gamepadButtons[gamepad] & (1L << button)) != 0L;
+    }
+
+    /**
+     * Retrieves a quantized gamepad axis.
+     *
+     * @param gamepad the gamepad index within the snapshot.
+     * @param axis the axis index.
+     * @return the axis value in [-1.0, 1.0].
+     * @since 26.10.18
+     */
+    public float getGamepadAxis(final int gamepad, final int axis) {
+        if (axis < 0 || axis >= this.axesPerGamepad) {
+            return 0F;
+        }
+
+        return this.axes[gamepad * this.axesPerGamepad + axis] / AXIS_SCALE;
+    }
+}
@@ -33,6 +33,6 @@ public interface GLKeyCharListener {
     void charTypePerformed(GLWindow window, char charCode);
     
     default void glfwCharCallback(long hwnd, int charCode) {
-        this.charTypePerformed(GLWindow.WINDOWS.get(hwnd), (char) charCode);
+        this.charTypePerformed(GLWindowRegistry.get(hwnd), (char) charCode);
     }
 }
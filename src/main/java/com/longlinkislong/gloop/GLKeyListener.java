@@ -40,7 +40,7 @@ public interface GLKeyListener {
             Set<GLKeyModifier> mods);
 
     default void glfwCallback(long hwnd, int key, int scancode, int action, int mods) {
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
 
         this.keyActionPerformed(
                 window,
@@ -25,12 +25,11 @@
  */
 package com.longlinkislong.gloop;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import org.lwjgl.glfw.GLFW;
+import java.util.concurrent.Executor;
 
 /**
  *
@@ -38,20 +37,87 @@ import org.lwjgl.glfw.GLFW;
  */
 public class GLKeyboard implements GLKeyListener, GLKeyCharListener {
 
-    private final List<GLKeyListener> keyListeners = new ArrayList<>();
-    private final List<GLKeyCharListener> charListeners = new ArrayList<>();
+    /**
+     * The priority used by listeners added without an explicit priority.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private final GLListenerChain<GLKeyListener> keyListeners;
+    private final GLListenerChain<GLKeyCharListener> charListeners;
     private final GLWindow window;
 
     protected GLKeyboard(final GLWindow window) {
         this.window = window;
+        this.keyListeners = new GLListenerChain<>(window::getListenerExecutor);
+        this.charListeners = new GLListenerChain<>(window::getListenerExecutor);
     }
 
     public void addKeyListener(final GLKeyListener listener) {
-        this.keyListeners.add(listener);
+        this.keyListeners.add(listener, DEFAULT_PRIORITY, null);
+    }
+
+    /**
+     * Adds a GLKeyListener with a priority. Listeners with a higher priority
+     * receive events first and may stop propagation with {@link #consume()}.
+     * Listeners of equal priority are invoked in the order they were added.
+     *
+     * @param listener the listener.
+     * @param priority the priority.
+     * @since 26.10.18
+     */
+    public void addKeyListener(final GLKeyListener listener, final int priority) {
+        this.keyListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLKeyListener that runs on an Executor instead of the thread
+     * that polls events. Use {@link GLWindow#getGLThreadExecutor()} to run
+     * the listener on the window's GLThread. Events are delivered to the
+     * listener one at a time and in order. The listener receives the event
+     * unless an inline listener of higher priority consumed it; it cannot
+     * consume events itself.
+     *
+     * @param listener the listener.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @since 26.10.18
+     */
+    public void addKeyListener(final GLKeyListener listener, final int priority, final Executor executor) {
+        this.keyListeners.add(listener, priority, Objects.requireNonNull(executor, "Executor cannot be null!"));
     }
 
     public void addCharListener(final GLKeyCharListener listener) {
-        this.charListeners.add(listener);
+        this.charListeners.add(listener, DEFAULT_PRIORITY, null);
+    }
+
+    /**
+     * Adds a GLKeyCharListener with a priority. Listeners with a higher
+     * priority receive events first and may stop propagation with
+     * {@link #consume()}.
+     *
+     * @param listener the listener.
+     * @param priority the priority.
+     * @since 26.10.18
+     */
+    public void addCharListener(final GLKeyCharListener listener, final int priority) {
+        this.charListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLKeyCharListener that runs on an Executor instead of the thread
+     * that polls events. Events are delivered to the listener one at a time
+     * and in order.
+     *
+     * @param listener the listener.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @see #addKeyListener(GLKeyListener, int, Executor)
+     * @since 26.10.18
+     */
+    public void addCharListener(final GLKeyCharListener listener, final int priority, final Executor executor) {
+        this.charListeners.add(listener, priority, Objects.requireNonNull(executor, "Executor cannot be null!"));
     }
 
     public boolean removeKeyListener(final GLKeyListener listener) {
@@ -63,11 +129,11 @@ public class GLKeyboard implements GLKeyListener, GLKeyCharListener {
     }
 
     public void addAllKeyListeners(final Collection<? extends GLKeyListener> listeners) {
-        this.keyListeners.addAll(listeners);
+        listeners.forEach(this::addKeyListener);
     }
 
     public void addAllCharListeners(final Collection<? extends GLKeyCharListener> listeners) {
-        this.charListeners.addAll(listeners);
+        listeners.forEach(this::addCharListener);
     }
 
     public void removeAllKeyListeners() {
@@ -79,11 +145,34 @@ public class GLKeyboard implements GLKeyListener, GLKeyCharListener {
     }
 
     public List<GLKeyListener> getKeyListeners() {
-        return Collections.unmodifiableList(this.keyListeners);
+        return this.keyListeners.toList();
     }
 
     public List<GLKeyCharListener> getCharListeners() {
-        return Collections.unmodifiableList(this.charListeners);
+        return this.charListeners.toList();
+    }
+
+    /**
+     * Marks the event currently being dispatched as consumed. Listeners with
+     * a lower priority will not receive it. This only has an effect when
+     * called from a listener running on the polling thread, and only on the
+     * event that thread is dispatching.
+     *
+     * @since 26.10.18
+     */
+    public void consume() {
+        GLListenerChain.consume();
+    }
+
+    /**
+     * Checks if the event currently being dispatched on the calling thread
+     * was consumed.
+     *
+     * @return true if a listener called {@link #consume()}.
+     * @since 26.10.18
+     */
+    public boolean isConsumed() {
+        return GLListenerChain.isConsumed();
     }
 
     public GLKeyAction getKey(final int keyId) {
@@ -91,17 +180,21 @@ public class GLKeyboard implements GLKeyListener, GLKeyCharListener {
             throw new GLFWException("Invalid GLWindow!");
         }
 
-        return GLKeyAction.valueOf(GLFW.glfwGetKey(this.window.window, keyId));
+        return GLKeyAction.valueOf(this.window.backend.getKey(this.window.window, keyId));
     }
 
     @Override
     public void keyActionPerformed(GLWindow window, int key, int scancode, GLKeyAction action, Set<GLKeyModifier> mods) {
-        this.keyListeners.forEach(listener -> listener.keyActionPerformed(window, key, scancode, action, mods));        
+        this.keyListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.KEY, true,
+                listener -> listener.keyActionPerformed(window, key, scancode, action, mods));
     }
 
     @Override
     public void charTypePerformed(GLWindow window, char charCode) {
-        this.charListeners.forEach(listener -> listener.charTypePerformed(window, charCode));
+        this.charListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.CHAR, true,
+                listener -> listener.charTypePerformed(window, charCode));
     }
 
 }
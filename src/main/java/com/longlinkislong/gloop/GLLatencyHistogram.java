@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, log-linear histogram of durations in nanoseconds. Values
+ * below 16ns are counted exactly; larger values fall into one of eight
+ * buckets per power of two, giving a relative error of at most 12.5%.
+ * Recording never allocates and reads may happen from any thread.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLLatencyHistogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    GLLatencyHistogram() {
+    }
+
+    private static int bucket(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        final int exp = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+        return LINEAR + (exp - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(final int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+
+        final int exp = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        final int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        final long lower = ((long) (SUB_BUCKETS + sub)) << (exp - SUB_BITS);
+
+        return lower + (1L << (exp - SUB_BITS)) - 1L;
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param nanos the duration in nanoseconds. Negative values count as 0.
+     */
+    void record(final long nanos) {
+        final long value = Math.max(0L, nanos);
+
+        this.counts.incrementAndGet(bucket(value));
+        this.count.incrementAndGet();
+        this.total.addAndGet(value);
+
+        long current;
+
+        while (value < (current = this.min.get()) && !this.min.compareAndSet(current, value)) {
+            // retry
+        }
+
+        while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Retrieves the number of samples.
+     *
+     * @return the sample count.
+     * @since 26.10.18
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Retrieves the smallest sample.
+     *
+     * @return the minimum in nanoseconds. 0 if there are no samples.
+     * @since 26.10.18
+     */
+    public long getMin() {
+        return this.getCount() == 0L ? 0L : this.min.get();
+    }
+
+    /**
+     * Retrieves the largest sample.
+     *
+     * @return the maximum in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Retrieves the mean of all samples.
+     *
+     * @return the mean in nanoseconds. 0 if there are no samples.
+     * @since 26.10.18
+     */
+    public double getMean() {
+        final long samples = this.getCount();
+
+        return samples == 0L ? 0.0 : (double) this.total.get() / samples;
+    }
+
+    /**
+     * Retrieves the value at or below which the given percentage of samples
+     * fall. The result is the upper bound of the bucket holding that sample.
+     *
+     * @param percentile the percentile in the range [0, 100].
+     * @return the percentile in nanoseconds. 0 if there are no samples.
+     * @since 26.10.18
+     */
+    public long getPercentile(final double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+        }
+
+        final long samples = this.getCount();
+
+        if (samples == 0L) {
+            return 0L;
+        }
+
+        final long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * samples));
+        long seen = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+
+            if (seen >= target) {
+                return Math.min(upperBound(i), this.getMax());
+            }
+        }
+
+        return this.getMax();
+    }
+
+    /**
+     * Removes all samples.
+     *
+     * @since 26.10.18
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0L);
+        }
+
+        this.count.set(0L);
+        this.total.set(0L);
+        this.min.set(Long.MAX_VALUE);
+        this.max.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                this.getCount(),
+                this.getPercentile(50.0) / 1e6,
+                this.getPercentile(90.0) / 1e6,
+                this.getPercentile(99.0) / 1e6,
+                this.getMax() / 1e6);
+    }
+}
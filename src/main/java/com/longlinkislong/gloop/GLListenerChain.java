@@ -0,0 +1,278 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A priority ordered list of listeners. Listeners with a higher priority are
+ * invoked first; listeners with equal priority are invoked in the order they
+ * were added. Mutation copies the backing arrays so that dispatch can iterate
+ * a snapshot without locking.
+ *
+ * Each registration may carry an Executor. Such listeners are invoked on the
+ * Executor instead of the polling thread; events are still delivered to them
+ * one at a time and in order. The owner supplies the serial wrapper for each
+ * Executor so that every registration of a window sharing an Executor also
+ * shares one queue.
+ *
+ * Consumption is tracked per dispatch and per thread: {@link #consume()}
+ * only affects the dispatch running on the calling thread, so events
+ * delivered concurrently to different windows or chains cannot consume each
+ * other.
+ *
+ * @author zmichaels
+ * @param <L> the listener type.
+ * @since 26.10.18
+ */
+final class GLListenerChain<L> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLListenerChain");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+    private static final Snapshot EMPTY = new Snapshot(new Object[0], new int[0], new Executor[0]);
+    // the consumed flag of the dispatch running on each thread
+    private static final ThreadLocal<boolean[]> CONSUMED = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private final GLSnapshot<Snapshot> snapshot = new GLSnapshot<>(EMPTY);
+    private final Function<? super Executor, ? extends Executor> serializer;
+
+    /**
+     * Constructs a new empty GLListenerChain.
+     *
+     * @param serializer maps a registration's Executor to the serial Executor
+     * its events are queued on.
+     */
+    GLListenerChain(final Function<? super Executor, ? extends Executor> serializer) {
+        this.serializer = Objects.requireNonNull(serializer, "Serializer cannot be null!");
+    }
+
+    /**
+     * An immutable view of the registrations in dispatch order.
+     */
+    static final class Snapshot {
+
+        final Object[] listeners;
+        final int[] priorities;
+        final Executor[] executors;
+
+        Snapshot(final Object[] listeners, final int[] priorities, final Executor[] executors) {
+            this.listeners = listeners;
+            this.priorities = priorities;
+            this.executors = executors;
+        }
+    }
+
+    /**
+     * Adds a listener after every listener of greater or equal priority.
+     *
+     * @param listener the listener.
+     * @param priority the priority.
+     * @param executor the Executor the listener runs on. null to run on the
+     * polling thread.
+     * @return true
+     */
+    synchronized boolean add(final L listener, final int priority, final Executor executor) {
+        Objects.requireNonNull(listener, "Listener cannot be null!");
+
+        final Snapshot old = this.snapshot.get();
+        final int size = old.listeners.length;
+        int index = 0;
+
+        while (index < size && old.priorities[index] >= priority) {
+            index++;
+        }
+
+        final Object[] newListeners = new Object[size + 1];
+        final int[] newPriorities = new int[size + 1];
+        final Executor[] newExecutors = new Executor[size + 1];
+
+        System.arraycopy(old.listeners, 0, newListeners, 0, index);
+        System.arraycopy(old.priorities, 0, newPriorities, 0, index);
+        System.arraycopy(old.executors, 0, newExecutors, 0, index);
+        newListeners[index] = listener;
+        newPriorities[index] = priority;
+        newExecutors[index] = executor == null ? null : this.serializer.apply(executor);
+        System.arraycopy(old.listeners, index, newListeners, index + 1, size - index);
+        System.arraycopy(old.priorities, index, newPriorities, index + 1, size - index);
+        System.arraycopy(old.executors, index, newExecutors, index + 1, size - index);
+
+        this.snapshot.set(new Snapshot(newListeners, newPriorities, newExecutors));
+        return true;
+    }
+
+    /**
+     * Removes the first registration of a listener.
+     *
+     * @param listener the listener.
+     * @return true if the listener was removed.
+     */
+    synchronized boolean remove(final Object listener) {
+        final Snapshot old = this.snapshot.get();
+        final int size = old.listeners.length;
+
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(old.listeners[i], listener)) {
+                final Object[] newListeners = new Object[size - 1];
+                final int[] newPriorities = new int[size - 1];
+                final Executor[] newExecutors = new Executor[size - 1];
+                final int tail = size - i - 1;
+
+                System.arraycopy(old.listeners, 0, newListeners, 0, i);
+                System.arraycopy(old.priorities, 0, newPriorities, 0, i);
+                System.arraycopy(old.executors, 0, newExecutors, 0, i);
+                System.arraycopy(old.listeners, i + 1, newListeners, i, tail);
+                System.arraycopy(old.priorities, i + 1, newPriorities, i, tail);
+                System.arraycopy(old.executors, i + 1, newExecutors, i, tail);
+
+                this.snapshot.set(new Snapshot(newListeners, newPriorities, newExecutors));
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes every listener.
+     */
+    synchronized void clear() {
+        this.snapshot.set(EMPTY);
+    }
+
+    /**
+     * Retrieves the registrations in dispatch order.
+     *
+     * @return the current snapshot.
+     */
+    Snapshot snapshot() {
+        return this.snapshot.get();
+    }
+
+    /**
+     * Retrieves an unmodifiable copy of the listeners in dispatch order.
+     *
+     * @return the listeners.
+     */
+    @SuppressWarnings("unchecked")
+    List<L> toList() {
+        return Collections.unmodifiableList(new ArrayList<>((List<L>) Arrays.asList(this.snapshot.get().listeners)));
+    }
+
+    /**
+     * Marks the event being dispatched on the calling thread as consumed.
+     * Does nothing outside of a dispatch.
+     */
+    static void consume() {
+        CONSUMED.get()[0] = true;
+    }
+
+    /**
+     * Checks if the event being dispatched on the calling thread was
+     * consumed.
+     *
+     * @return true if an inline listener called {@link #consume()}.
+     */
+    static boolean isConsumed() {
+        return CONSUMED.get()[0];
+    }
+
+    /**
+     * Delivers an event to every listener. Listeners without an Executor are
+     * invoked immediately; if the event is consumable, dispatch stops as soon
+     * as one of them calls {@link #consume()}. Listeners with an Executor
+     * only have the event queued; they cannot consume it.
+     *
+     * @param watchdog the watchdog that times each invocation.
+     * @param type the event type.
+     * @param consumable true if listeners may stop the dispatch.
+     * @param action invokes a single listener.
+     */
+    void dispatch(
+            final GLListenerWatchdog watchdog, final GLEventType type,
+            final boolean consumable, final Consumer<? super L> action) {
+
+        final boolean[] consumed = CONSUMED.get();
+        // a listener may poll events itself; the outer dispatch keeps its own state
+        final boolean outer = consumed[0];
+
+        consumed[0] = false;
+
+        try {
+            this.deliver(watchdog, type, consumable, consumed, action);
+        } finally {
+            consumed[0] = outer;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(
+            final GLListenerWatchdog watchdog, final GLEventType type,
+            final boolean consumable, final boolean[] consumed,
+            final Consumer<? super L> action) {
+
+        final Snapshot current = this.snapshot.get();
+        final int size = current.listeners.length;
+
+        for (int i = 0; i < size; i++) {
+            final L listener = (L) current.listeners[i];
+            final Executor executor = current.executors[i];
+
+            if (executor == null) {
+                final long time = watchdog.start(listener);
+
+                action.accept(listener);
+                watchdog.stop(listener, type, time);
+
+                if (consumable && consumed[0]) {
+                    break;
+                }
+            } else {
+                executor.execute(() -> {
+                    final long time = watchdog.start(listener);
+
+                    try {
+                        action.accept(listener);
+                    } catch (RuntimeException ex) {
+                        LOGGER.error(GLOOP_MARKER, "{} listener {} failed!", type, listener, ex);
+                    } finally {
+                        watchdog.stop(listener, type, time);
+                    }
+                });
+            }
+        }
+    }
+}
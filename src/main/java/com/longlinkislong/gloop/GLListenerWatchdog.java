@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Optional per-listener time accounting for a GLWindow. When enabled, every
+ * listener invocation from GLWindow, GLMouse and GLKeyboard is timed. A
+ * listener that exceeds the per-event budget is reported with a rate limited
+ * warning, and cumulative totals per listener class and event type can be
+ * retrieved with {@link #getTopListeners(int)}.
+ *
+ * The defaults can be set with the system properties
+ * com.longlinkislong.gloop.window.listener_watchdog (false),
+ * com.longlinkislong.gloop.window.listener_budget_us (1000) and
+ * com.longlinkislong.gloop.window.listener_warn_interval_ms (5000).
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLListenerWatchdog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLListenerWatchdog");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+    private static final boolean DEFAULT_ENABLED = Boolean.getBoolean("com.longlinkislong.gloop.window.listener_watchdog");
+    private static final long DEFAULT_BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(
+            Long.getLong("com.longlinkislong.gloop.window.listener_budget_us", 1000L));
+    private static final long DEFAULT_WARN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("com.longlinkislong.gloop.window.listener_warn_interval_ms", 5000L));
+    private static final GLEventType[] EVENT_TYPES = GLEventType.values();
+
+    private final String title;
+    private final ConcurrentHashMap<Class<?>, ListenerStats[]> stats = new ConcurrentHashMap<>();
+    private volatile boolean enabled = DEFAULT_ENABLED;
+    private volatile long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private volatile long warnIntervalNanos = DEFAULT_WARN_INTERVAL_NANOS;
+
+    /**
+     * The accumulated timing of one listener class for one event type.
+     *
+     * @since 26.10.18
+     */
+    public static final class ListenerStats {
+
+        private final Class<?> listenerClass;
+        private final GLEventType eventType;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final LongAdder warnings = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong lastWarning = new AtomicLong(Long.MIN_VALUE);
+
+        ListenerStats(final Class<?> listenerClass, final GLEventType eventType) {
+            this.listenerClass = listenerClass;
+            this.eventType = eventType;
+        }
+
+        /**
+         * Retrieves the listener class.
+         *
+         * @return the listener class.
+         * @since 26.10.18
+         */
+        public Class<?> getListenerClass() {
+            return this.listenerClass;
+        }
+
+        /**
+         * Retrieves the event type.
+         *
+         * @return the event type.
+         * @since 26.10.18
+         */
+        public GLEventType getEventType() {
+            return this.eventType;
+        }
+
+        /**
+         * Retrieves the number of timed invocations.
+         *
+         * @return the invocation count.
+         * @since 26.10.18
+         */
+        public long getCalls() {
+            return this.calls.sum();
+        }
+
+        /**
+         * Retrieves the total time spent in the listener.
+         *
+         * @return the total time in nanoseconds.
+         * @since 26.10.18
+         */
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Retrieves the longest single invocation.
+         *
+         * @return the longest invocation in nanoseconds.
+         * @since 26.10.18
+         */
+        public long getMaxNanos() {
+            return this.maxNanos.get();
+        }
+
+        /**
+         * Retrieves how many invocations exceeded the budget.
+         *
+         * @return the number of over budget invocations.
+         * @since 26.10.18
+         */
+        public long getOverBudgetCount() {
+            return this.overBudget.sum();
+        }
+
+        /**
+         * Retrieves how many over budget invocations were logged. The rest
+         * were suppressed by the warning interval.
+         *
+         * @return the number of logged warnings.
+         */
+        long getWarningCount() {
+            return this.warnings.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%s]: calls=%d total=%.3fms max=%.3fms overBudget=%d",
+                    this.listenerClass.getName(), this.eventType,
+                    this.getCalls(), this.getTotalNanos() / 1e6, this.getMaxNanos() / 1e6,
+                    this.getOverBudgetCount());
+        }
+    }
+
+    GLListenerWatchdog(final String title) {
+        this.title = title;
+    }
+
+    /**
+     * Checks if listener timing is enabled.
+     *
+     * @return true if listeners are timed.
+     * @since 26.10.18
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Enables or disables listener timing.
+     *
+     * @param enabled true to time every listener invocation.
+     * @since 26.10.18
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the time a single listener may spend on a single event before a
+     * warning is logged.
+     *
+     * @param budget the budget.
+     * @param unit the unit of the budget.
+     * @since 26.10.18
+     */
+    public void setBudget(final long budget, final TimeUnit unit) {
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Retrieves the per-event budget.
+     *
+     * @return the budget in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getBudgetNanos() {
+        return this.budgetNanos;
+    }
+
+    /**
+     * Sets the minimum time between two warnings for the same listener class
+     * and event type.
+     *
+     * @param interval the interval.
+     * @param unit the unit of the interval.
+     * @since 26.10.18
+     */
+    public void setWarningInterval(final long interval, final TimeUnit unit) {
+        this.warnIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Starts timing a listener invocation. GLMouse and GLKeyboard are not
+     * timed when invoked by GLWindow since they time their own listeners.
+     *
+     * @param listener the listener about to be invoked.
+     * @return the start time, or 0 if the invocation is not timed.
+     */
+    long start(final Object listener) {
+        if (!this.enabled || listener instanceof GLMouse || listener instanceof GLKeyboard) {
+            return 0L;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Finishes timing a listener invocation started with {@link #start(Object)}.
+     *
+     * @param listener the listener that was invoked.
+     * @param type the event type.
+     * @param start the value returned by start.
+     */
+    void stop(final Object listener, final GLEventType type, final long start) {
+        if (start == 0L) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long elapsed = now - start;
+        final ListenerStats entry = this.stats.computeIfAbsent(listener.getClass(), GLListenerWatchdog::newStats)[type.ordinal()];
+
+        entry.calls.increment();
+        entry.totalNanos.add(elapsed);
+
+        long max;
+        while (elapsed > (max = entry.maxNanos.get()) && !entry.maxNanos.compareAndSet(max, elapsed)) {
+            // retry
+        }
+
+        if (elapsed > this.budgetNanos) {
+            entry.overBudget.increment();
+
+            final long last = entry.lastWarning.get();
+
+            if ((last == Long.MIN_VALUE || now - last >= this.warnIntervalNanos) && entry.lastWarning.compareAndSet(last, now)) {
+                entry.warnings.increment();
+                LOGGER.warn(GLOOP_MARKER, "GLWindow[{}]: {} listener {} took {} us (budget {} us, {} over budget so far)",
+                        this.title, type, listener.getClass().getName(),
+                        TimeUnit.NANOSECONDS.toMicros(elapsed),
+                        TimeUnit.NANOSECONDS.toMicros(this.budgetNanos),
+                        entry.getOverBudgetCount());
+            }
+        }
+    }
+
+    private static ListenerStats[] newStats(final Class<?> listenerClass) {
+        final ListenerStats[] out = new ListenerStats[EVENT_TYPES.length];
+
+        for (int i = 0; i < out.length; i++) {
+            out[i] = new ListenerStats(listenerClass, EVENT_TYPES[i]);
+        }
+
+        return out;
+    }
+
+    /**
+     * Retrieves the listener classes and event types that consumed the most
+     * time.
+     *
+     * @param count the maximum number of entries to return.
+     * @return the entries sorted by total time, largest first.
+     * @since 26.10.18
+     */
+    public List<ListenerStats> getTopListeners(final int count) {
+        final List<ListenerStats> all = new ArrayList<>();
+
+        this.stats.values().forEach(entries -> {
+            for (ListenerStats entry : entries) {
+                if (entry.getCalls() > 0) {
+                    all.add(entry);
+                }
+            }
+        });
+
+        all.sort(Comparator.comparingLong(ListenerStats::getTotalNanos).reversed());
+
+        return Collections.unmodifiableList(all.subList(0, Math.min(count, all.size())));
+    }
+
+    /**
+     * Builds a human readable report of the listeners that consumed the most
+     * time.
+     *
+     * @param count the maximum number of entries to include.
+     * @return the report.
+     * @since 26.10.18
+     */
+    public String getReport(final int count) {
+        final StringBuilder out = new StringBuilder("GLWindow[").append(this.title).append("] top listeners:");
+
+        this.getTopListeners(count).forEach(entry -> out.append(System.lineSeparator()).append("  ").append(entry));
+
+        return out.toString();
+    }
+
+    /**
+     * Clears all accumulated statistics.
+     *
+     * @since 26.10.18
+     */
+    public void reset() {
+        this.stats.clear();
+    }
+}
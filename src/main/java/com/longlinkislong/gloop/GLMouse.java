@@ -25,11 +25,9 @@
  */
 package com.longlinkislong.gloop;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import org.lwjgl.glfw.GLFW;
+import java.util.concurrent.Executor;
 
 /**
  * The mouse associated with a window.
@@ -39,14 +37,29 @@ import org.lwjgl.glfw.GLFW;
  */
 public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener, GLMouseButtonListener, GLMouseScrollListener {
 
+    /**
+     * The priority used by listeners added without an explicit priority.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    // per-thread output for cursor queries
+    private static final ThreadLocal<double[]> POSITION_OUTPUT = ThreadLocal.withInitial(() -> new double[2]);
+
     private final GLWindow window;
-    private final List<GLMouseEnteredListener> mouseEnteredListeners = new ArrayList<>(0);
-    private final List<GLMousePositionListener> mousePositionListeners = new ArrayList<>(0);
-    private final List<GLMouseButtonListener> mouseButtonListeners = new ArrayList<>(0);
-    private final List<GLMouseScrollListener> mouseScrollListeners = new ArrayList<>(0);
+    private final GLCursorHistory history = new GLCursorHistory();
+    private final GLListenerChain<GLMouseEnteredListener> mouseEnteredListeners;
+    private final GLListenerChain<GLMousePositionListener> mousePositionListeners;
+    private final GLListenerChain<GLMouseButtonListener> mouseButtonListeners;
+    private final GLListenerChain<GLMouseScrollListener> mouseScrollListeners;
 
     protected GLMouse(final GLWindow window) {
         this.window = window;
+        this.mouseEnteredListeners = new GLListenerChain<>(window::getListenerExecutor);
+        this.mousePositionListeners = new GLListenerChain<>(window::getListenerExecutor);
+        this.mouseButtonListeners = new GLListenerChain<>(window::getListenerExecutor);
+        this.mouseScrollListeners = new GLListenerChain<>(window::getListenerExecutor);
     }
 
     /**
@@ -64,7 +77,7 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
             throw new GLFWException("Invalid window!");
         }
 
-        GLFW.glfwSetCursorPos(this.window.window, x, y);
+        this.window.backend.setCursorPos(this.window.window, x, y);
     }
 
     @Override
@@ -74,13 +87,9 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
             final GLMouseButtonAction action,
             final Set<GLKeyModifier> modifiers) {
 
-        this.mouseButtonListeners
-                .forEach(
-                        l -> l.mouseButtonActionPerformed(
-                                window,
-                                button,
-                                action,
-                                modifiers));
+        this.mouseButtonListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.BUTTON, true,
+                l -> l.mouseButtonActionPerformed(window, button, action, modifiers));
     }
 
     /**
@@ -91,16 +100,128 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
      * @since 15.06.07
      */
     public GLVec2D getMousePosition() throws GLFWException {
+        final double[] pos = POSITION_OUTPUT.get();
+
+        this.getMousePosition(pos);
+
+        return GLVec2D.create(pos[0], pos[1]);
+    }
+
+    /**
+     * Retrieves the current cursor position without allocating.
+     *
+     * @param pos output of length 2 receiving the x and y coordinates.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public void getMousePosition(final double[] pos) throws GLFWException {
         if (!this.window.isValid()) {
             throw new GLFWException("Invalid GLWindow!");
         }
 
-        final double[] xPos = {0.0};
-        final double[] yPos = {0.0};
+        this.window.backend.getCursorPos(this.window.window, pos);
+    }
 
-        GLFW.glfwGetCursorPos(this.window.window, xPos, yPos);
+    /**
+     * Predicts where the cursor will be at a point in time from the recent
+     * cursor events. Renderers can pass the expected present time of the
+     * frame to draw cursor driven elements where the cursor will be instead
+     * of where it was. Extrapolation is limited to 50ms past the newest
+     * event. This does not allocate and may be called from any thread.
+     *
+     * @param nanoTime the time to predict for, comparable to System.nanoTime.
+     * @param pos output of length 2 receiving the x and y coordinates.
+     * @return false if no cursor events have been received; pos is left
+     * unchanged.
+     * @since 26.10.18
+     */
+    public boolean predictPosition(final long nanoTime, final double[] pos) {
+        return this.history.predict(nanoTime, pos);
+    }
+
+    /**
+     * Predicts where the cursor will be at a point in time. Falls back to the
+     * current cursor position if no cursor events have been received.
+     *
+     * @param nanoTime the time to predict for, comparable to System.nanoTime.
+     * @return the predicted cursor position.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public GLVec2D predictPosition(final long nanoTime) throws GLFWException {
+        final double[] pos = POSITION_OUTPUT.get();
 
-        return GLVec2D.create(xPos[0], yPos[0]);
+        if (!this.predictPosition(nanoTime, pos)) {
+            this.getMousePosition(pos);
+        }
+
+        return GLVec2D.create(pos[0], pos[1]);
+    }
+
+    /**
+     * Selects the model used by {@link #predictPosition(long, double[])}.
+     * Defaults to {@link GLCursorPrediction#VELOCITY}.
+     *
+     * @param mode the prediction model.
+     * @since 26.10.18
+     */
+    public void setPredictionMode(final GLCursorPrediction mode) {
+        this.history.setMode(Objects.requireNonNull(mode));
+    }
+
+    /**
+     * Retrieves the model used by {@link #predictPosition(long, double[])}.
+     *
+     * @return the prediction model.
+     * @since 26.10.18
+     */
+    public GLCursorPrediction getPredictionMode() {
+        return this.history.getMode();
+    }
+
+    /**
+     * Tunes the One-Euro filter. Lower the minimum cutoff to reduce jitter
+     * when the cursor moves slowly; raise beta to reduce lag when it moves
+     * quickly.
+     *
+     * @param minCutoff the minimum cutoff frequency in Hz. Defaults to 1.
+     * @param beta the speed coefficient. Defaults to 0.007.
+     * @param derivativeCutoff the cutoff frequency for the velocity in Hz.
+     * Defaults to 1.
+     * @throws IllegalArgumentException if a cutoff is not positive or beta is
+     * negative.
+     * @since 26.10.18
+     */
+    public void setOneEuroParameters(final double minCutoff, final double beta, final double derivativeCutoff) {
+        if (!(minCutoff > 0.0) || !(derivativeCutoff > 0.0) || !(beta >= 0.0)) {
+            throw new IllegalArgumentException("Invalid One-Euro parameters!");
+        }
+
+        this.history.setOneEuroParameters(minCutoff, beta, derivativeCutoff);
+    }
+
+    /**
+     * Copies the recent cursor events from oldest to newest. At most the last
+     * 64 events are kept.
+     *
+     * @param nanoTimes output receiving the event times, comparable to
+     * System.nanoTime.
+     * @param positions output receiving x and y of each event interleaved.
+     * @return the number of events copied.
+     * @since 26.10.18
+     */
+    public int getCursorHistory(final long[] nanoTimes, final double[] positions) {
+        return this.history.copy(nanoTimes, positions);
+    }
+
+    /**
+     * Forgets the recent cursor events; for example after warping the cursor
+     * with {@link #setMousePosition(double, double)}.
+     *
+     * @since 26.10.18
+     */
+    public void clearCursorHistory() {
+        this.history.clear();
     }
 
     /**
@@ -119,7 +240,7 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
         }
 
         return GLMouseButtonAction.valueOf(
-                GLFW.glfwGetMouseButton(this.window.window, button));
+                this.window.backend.getMouseButton(this.window.window, button));
     }
 
     /**
@@ -130,8 +251,41 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
      * @since 15.06.05
      */
     public boolean addScrollListener(final GLMouseScrollListener listener) {
+        return this.addScrollListener(listener, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds a GLMouseScrollListener with a priority. Listeners with a higher priority
+     * receive events first and may stop propagation with {@link #consume()}.
+     * Listeners of equal priority are invoked in the order they were added.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addScrollListener(final GLMouseScrollListener listener, final int priority) {
+        Objects.requireNonNull(listener, "Listener cannot be null!");
+        return this.mouseScrollListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLMouseScrollListener that runs on an Executor instead of the thread
+     * that polls events. Use {@link GLWindow#getGLThreadExecutor()} to run
+     * the listener on the window's GLThread. Events are delivered to the
+     * listener one at a time and in order. The listener receives the event
+     * unless an inline listener of higher priority consumed it.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addScrollListener(final GLMouseScrollListener listener, final int priority, final Executor executor) {
         Objects.requireNonNull(listener, "Listener cannot be null!");
-        return this.mouseScrollListeners.add(listener);
+        Objects.requireNonNull(executor, "Executor cannot be null!");
+        return this.mouseScrollListeners.add(listener, priority, executor);
     }
 
     /**
@@ -154,8 +308,41 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
      * @since 15.06.07
      */
     public boolean addEnteredListener(final GLMouseEnteredListener listener) {
+        return this.addEnteredListener(listener, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds a GLMouseEnteredListener with a priority. Listeners with a higher priority
+     * receive events first and may stop propagation with {@link #consume()}.
+     * Listeners of equal priority are invoked in the order they were added.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addEnteredListener(final GLMouseEnteredListener listener, final int priority) {
         Objects.requireNonNull(listener, "Listener cannot be null!");
-        return this.mouseEnteredListeners.add(listener);
+        return this.mouseEnteredListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLMouseEnteredListener that runs on an Executor instead of the thread
+     * that polls events. Use {@link GLWindow#getGLThreadExecutor()} to run
+     * the listener on the window's GLThread. Events are delivered to the
+     * listener one at a time and in order. The listener receives the event
+     * unless an inline listener of higher priority consumed it.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addEnteredListener(final GLMouseEnteredListener listener, final int priority, final Executor executor) {
+        Objects.requireNonNull(listener, "Listener cannot be null!");
+        Objects.requireNonNull(executor, "Executor cannot be null!");
+        return this.mouseEnteredListeners.add(listener, priority, executor);
     }
 
     /**
@@ -170,6 +357,29 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
         return this.mouseEnteredListeners.remove(listener);
     }
 
+    /**
+     * Marks the event currently being dispatched as consumed. Listeners with
+     * a lower priority will not receive it. This only has an effect when
+     * called from a listener running on the polling thread, and only on the
+     * event that thread is dispatching.
+     *
+     * @since 26.10.18
+     */
+    public void consume() {
+        GLListenerChain.consume();
+    }
+
+    /**
+     * Checks if the event currently being dispatched on the calling thread
+     * was consumed.
+     *
+     * @return true if a listener called {@link #consume()}.
+     * @since 26.10.18
+     */
+    public boolean isConsumed() {
+        return GLListenerChain.isConsumed();
+    }
+
     /**
      * Removes all attached listeners from the GLMouse object.
      *
@@ -190,8 +400,41 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
      * @since 15.06.07
      */
     public boolean addPositionListener(final GLMousePositionListener listener) {
+        return this.addPositionListener(listener, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds a GLMousePositionListener with a priority. Listeners with a higher priority
+     * receive events first and may stop propagation with {@link #consume()}.
+     * Listeners of equal priority are invoked in the order they were added.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addPositionListener(final GLMousePositionListener listener, final int priority) {
+        Objects.requireNonNull(listener, "Listener cannot be null!");
+        return this.mousePositionListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLMousePositionListener that runs on an Executor instead of the thread
+     * that polls events. Use {@link GLWindow#getGLThreadExecutor()} to run
+     * the listener on the window's GLThread. Events are delivered to the
+     * listener one at a time and in order. The listener receives the event
+     * unless an inline listener of higher priority consumed it.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addPositionListener(final GLMousePositionListener listener, final int priority, final Executor executor) {
         Objects.requireNonNull(listener, "Listener cannot be null!");
-        return this.mousePositionListeners.add(listener);
+        Objects.requireNonNull(executor, "Executor cannot be null!");
+        return this.mousePositionListeners.add(listener, priority, executor);
     }
 
     /**
@@ -214,8 +457,41 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
      * @since 15.06.07
      */
     public boolean addButtonListener(final GLMouseButtonListener listener) {
+        return this.addButtonListener(listener, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds a GLMouseButtonListener with a priority. Listeners with a higher priority
+     * receive events first and may stop propagation with {@link #consume()}.
+     * Listeners of equal priority are invoked in the order they were added.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addButtonListener(final GLMouseButtonListener listener, final int priority) {
+        Objects.requireNonNull(listener, "Listener cannot be null!");
+        return this.mouseButtonListeners.add(listener, priority, null);
+    }
+
+    /**
+     * Adds a GLMouseButtonListener that runs on an Executor instead of the thread
+     * that polls events. Use {@link GLWindow#getGLThreadExecutor()} to run
+     * the listener on the window's GLThread. Events are delivered to the
+     * listener one at a time and in order. The listener receives the event
+     * unless an inline listener of higher priority consumed it.
+     *
+     * @param listener the listener to add.
+     * @param priority the priority.
+     * @param executor the Executor to run the listener on.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addButtonListener(final GLMouseButtonListener listener, final int priority, final Executor executor) {
         Objects.requireNonNull(listener, "Listener cannot be null!");
-        return this.mouseButtonListeners.add(listener);
+        Objects.requireNonNull(executor, "Executor cannot be null!");
+        return this.mouseButtonListeners.add(listener, priority, executor);
     }
 
     /**
@@ -234,22 +510,25 @@ public class GLMouse implements GLMouseEnteredListener, GLMousePositionListener,
     public void mouseEnteredActionPerformed(
             final GLWindow window, final GLMouseEnteredStatus status) {
 
-        this.mouseEnteredListeners
-                .forEach(
-                        l -> l.mouseEnteredActionPerformed(window, status));
+        this.mouseEnteredListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.ENTER, true,
+                l -> l.mouseEnteredActionPerformed(window, status));
     }
 
     @Override
     public void mousePositionActionPerformed(
             final GLWindow window, final double x, final double y) {
 
-        this.mousePositionListeners.forEach(
+        this.history.add(window.getEventNanoTime(), x, y);
+        this.mousePositionListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.CURSOR, true,
                 l -> l.mousePositionActionPerformed(window, x, y));
     }
 
     @Override
     public void mouseScrollActionPerformed(GLWindow window, double xOffset, double yOffset) {
-        this.mouseScrollListeners.forEach(
+        this.mouseScrollListeners.dispatch(
+                this.window.getListenerWatchdog(), GLEventType.SCROLL, true,
                 l -> l.mouseScrollActionPerformed(window, xOffset, yOffset));
     }
 
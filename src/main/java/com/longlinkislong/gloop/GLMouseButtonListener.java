@@ -60,7 +60,7 @@ public interface GLMouseButtonListener {
      * @since 15.06.07
      */
     default void glfwMouseButtonCallback(long hwnd, int button, int action, int mods) {
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
 
         this.mouseButtonActionPerformed(
                 window,
@@ -52,7 +52,7 @@ public interface GLMouseEnteredListener {
      * @since 15.06.07
      */
     default void glfwCursorEnteredCallback(long hwnd, int status) {
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
 
         this.mouseEnteredActionPerformed(window, GLMouseEnteredStatus.valueOf(status));
     }
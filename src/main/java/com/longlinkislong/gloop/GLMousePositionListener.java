@@ -52,7 +52,7 @@ public interface GLMousePositionListener {
      * @since 15.06.07
      */
     default void glfwCursorPosCallback(long hwnd, double x, double y) {
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
 
         this.mousePositionActionPerformed(window, x, y);
     }
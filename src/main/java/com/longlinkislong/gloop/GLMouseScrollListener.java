@@ -39,7 +39,7 @@ public interface GLMouseScrollListener {
             final long hwnd, 
             final double xOffset, final double yOffset) {
         
-        final GLWindow window = GLWindow.WINDOWS.get(hwnd);
+        final GLWindow window = GLWindowRegistry.get(hwnd);
         
         this.mouseScrollActionPerformed(window, xOffset, yOffset);
     }
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Schedules many windows onto a bounded set of render threads. When enabled
+ * with the system property
+ * com.longlinkislong.gloop.window.shared_render_threads=true, each new
+ * GLWindow is assigned to the render thread with the fewest windows instead
+ * of creating its own GLThread. The number of render threads defaults to the
+ * number of available processors and can be set with
+ * com.longlinkislong.gloop.window.render_threads.
+ *
+ * <p>
+ * Every window has its own task queue on its render thread. The render thread
+ * takes one task at a time, visiting the windows with pending work in
+ * round-robin order, and makes the window's context current before running the
+ * task. The switch is skipped if the context is already current.
+ *
+ * <p>
+ * Only one window per render thread, the pacer, presents with
+ * {@link GLWindow#OPENGL_SWAP_INTERVAL}; every other window on the thread
+ * swaps with an interval of 0. The render thread therefore waits for
+ * vertical sync once per round over its windows instead of once per window,
+ * which would divide the refresh rate by the number of windows. The pacer is
+ * handed to another window when it closes or stops presenting, for example
+ * while it idles in on-demand mode.
+ *
+ * <p>
+ * Only tasks issued through GLWindow or its
+ * {@link GLWindow#getGLThreadExecutor()} are scheduled this way. A window on a
+ * shared render thread does not hand out its GLThread:
+ * {@link GLWindow#getGLThread()} fails, since a task submitted to the shared
+ * thread directly would run with whichever context happens to be current.
+ * Listener callbacks such as {@link GLFramebufferResizeListener} run inside
+ * the window's update task and are not affected. The workers of a
+ * {@link GLWorkerPool} are scheduled like windows and run one job per turn.
+ * Worker windows created by {@link GLWindow#newWorkerThread()} still get
+ * their own GLThread because that GLThread is handed out directly.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLRenderScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLRenderScheduler");
+    private static final Marker GLFW_MARKER = MarkerFactory.getMarker("GLFW");
+
+    private static final boolean ENABLED = Boolean.getBoolean("com.longlinkislong.gloop.window.shared_render_threads");
+    private static final int THREAD_COUNT = Math.max(1, Integer.getInteger(
+            "com.longlinkislong.gloop.window.render_threads",
+            Runtime.getRuntime().availableProcessors()));
+    private static final long NO_CONTEXT = -1L;
+    // a pacer that has not presented for this long no longer paces its render thread
+    private static final long PACER_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ThreadLocal<RenderThread> CURRENT_THREAD = new ThreadLocal<>();
+    private static final LongAdder CONTEXT_SWITCHES = new LongAdder();
+    private static final LongAdder SKIPPED_SWITCHES = new LongAdder();
+    private static final List<RenderThread> THREADS = new ArrayList<>(0);
+
+    private GLRenderScheduler() {
+    }
+
+    /**
+     * A render thread shared by several windows.
+     */
+    private static final class RenderThread implements Runnable {
+
+        final int index;
+        final GLThread thread = GLThread.create();
+        final List<Lane> lanes = new CopyOnWriteArrayList<>();
+        // only accessed on the render thread
+        Lane currentLane = null;
+        long currentContext = NO_CONTEXT;
+        int nextLane = 0;
+        Lane pacer = null;
+        long pacerSwapNanos = 0L;
+
+        RenderThread(final int index) {
+            this.index = index;
+        }
+
+        /**
+         * Runs one pending task. Exactly one invocation is submitted per task,
+         * so picking the task of the next window in round-robin order instead
+         * of the one that caused this invocation never loses a task.
+         */
+        @Override
+        public void run() {
+            CURRENT_THREAD.set(this);
+
+            final List<Lane> snapshot = this.lanes;
+            final int count = snapshot.size();
+
+            for (int i = 0; i < count; i++) {
+                final int index = (this.nextLane + i) % count;
+                final Lane lane = snapshot.get(index);
+                final Runnable task = lane.tasks.poll();
+
+                if (task != null) {
+                    this.nextLane = index + 1;
+                    lane.runTask(task, false);
+
+                    if (lane.isReleased && lane.tasks.isEmpty()) {
+                        this.lanes.remove(lane);
+                    }
+
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Makes the window's context current on this thread and swaps the
+         * viewport tracked by the GLThread.
+         */
+        void switchTo(final Lane lane) {
+            final long hwnd = lane.window.window;
+
+            if (this.currentLane == lane && this.currentContext == hwnd) {
+                SKIPPED_SWITCHES.increment();
+                return;
+            }
+
+            if (this.currentLane != null) {
+                this.currentLane.viewport = this.thread.currentViewport;
+            }
+
+            if (hwnd != NO_CONTEXT && hwnd != 0L) {
+                lane.window.backend.makeContextCurrent(hwnd);
+                CONTEXT_SWITCHES.increment();
+                lane.window.getMetrics().recordContextSwitch();
+            }
+
+            this.thread.currentViewport = lane.viewport;
+            this.currentLane = lane;
+            this.currentContext = hwnd;
+        }
+    }
+
+    /**
+     * The task queue of a single window on its render thread.
+     *
+     * @since 26.10.18
+     */
+    static final class Lane {
+
+        final GLWindow window;
+        final RenderThread owner;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        volatile boolean isReleased = false;
+        // only accessed on the render thread
+        GLViewport viewport = null;
+        int swapInterval = 0;
+
+        Lane(final GLWindow window, final RenderThread owner) {
+            this.window = window;
+            this.owner = owner;
+        }
+
+        /**
+         * Retrieves the GLThread that runs the window's tasks.
+         *
+         * @return the shared GLThread.
+         */
+        GLThread getThread() {
+            return this.owner.thread;
+        }
+
+        /**
+         * Checks if the calling thread is the render thread of this window.
+         *
+         * @return true if tasks may run inline.
+         */
+        boolean isCurrentThread() {
+            return CURRENT_THREAD.get() == this.owner;
+        }
+
+        /**
+         * Queues a task for the window.
+         *
+         * @param task the task.
+         * @throws GLFWException if the lane was released.
+         */
+        void execute(final Runnable task) throws GLFWException {
+            Objects.requireNonNull(task);
+
+            // the check and the offer are atomic with release so that no task is left behind
+            synchronized (this) {
+                if (this.isReleased) {
+                    throw new GLFWException("GLWindow has been closed!");
+                }
+
+                this.tasks.offer(task);
+            }
+
+            this.owner.thread.submit(this.owner);
+        }
+
+        /**
+         * Runs a task with the window's context current. Must be called on
+         * the render thread.
+         *
+         * @param task the task.
+         * @param restore true if the task is nested in a task of another
+         * window, whose context is made current again afterwards.
+         */
+        void runTask(final Runnable task, final boolean restore) {
+            final RenderThread rt = this.owner;
+            final Lane previous = rt.currentLane;
+
+            rt.switchTo(this);
+
+            try {
+                task.run();
+            } catch (RuntimeException | Error ex) {
+                if (restore) {
+                    throw ex;
+                }
+
+                LOGGER.error(GLFW_MARKER, "Task for {} failed!", this.window, ex);
+            } finally {
+                // the task may have created or destroyed the window
+                rt.currentContext = this.window.window;
+
+                if (restore && previous != null && previous != this && !previous.isReleased) {
+                    rt.switchTo(previous);
+                }
+            }
+        }
+
+        /**
+         * Sets the swap interval of the window's context right before it
+         * presents. The pacer of the render thread waits for vertical sync;
+         * every other window swaps immediately. Must be called on the render
+         * thread with the window's context current.
+         */
+        void beforeSwap() {
+            final RenderThread rt = this.owner;
+            final long now = System.nanoTime();
+
+            if (rt.pacer != this && (rt.pacer == null || rt.pacer.isReleased || now - rt.pacerSwapNanos > PACER_TIMEOUT_NANOS)) {
+                rt.pacer = this;
+            }
+
+            if (rt.pacer == this) {
+                rt.pacerSwapNanos = now;
+            }
+
+            final int interval = rt.pacer == this ? GLWindow.OPENGL_SWAP_INTERVAL : 0;
+
+            if (interval != this.swapInterval) {
+                LOGGER.trace(GLFW_MARKER, "glfwSwapInterval({}) for {}", interval, this.window);
+                this.window.backend.swapInterval(interval);
+                this.swapInterval = interval;
+            }
+        }
+
+        /**
+         * Detaches the window from its render thread once all of its queued
+         * tasks have run. Later calls to {@link #execute(Runnable)} fail.
+         */
+        void release() {
+            synchronized (this) {
+                this.isReleased = true;
+            }
+
+            if (this.tasks.isEmpty()) {
+                this.owner.lanes.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Checks if windows share a bounded set of render threads.
+     *
+     * @return true if shared render threads are enabled.
+     * @since 26.10.18
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Assigns a window to the render thread with the fewest windows. The
+     * render threads are started on first use.
+     *
+     * @param window the window.
+     * @return the window's task queue.
+     */
+    static Lane assign(final GLWindow window) {
+        synchronized (THREADS) {
+            if (THREADS.isEmpty()) {
+                for (int i = 0; i < THREAD_COUNT; i++) {
+                    THREADS.add(new RenderThread(i));
+                }
+
+                LOGGER.trace(GLFW_MARKER, "Started {} shared render threads", THREAD_COUNT);
+            }
+
+            RenderThread target = THREADS.get(0);
+
+            for (RenderThread rt : THREADS) {
+                if (rt.lanes.size() < target.lanes.size()) {
+                    target = rt;
+                }
+            }
+
+            final Lane lane = new Lane(window, target);
+
+            target.lanes.add(lane);
+
+            return lane;
+        }
+    }
+
+    /**
+     * Retrieves the number of shared render threads.
+     *
+     * @return the render thread count. 0 if shared render threads are not
+     * enabled.
+     * @since 26.10.18
+     */
+    public static int getThreadCount() {
+        return ENABLED ? THREAD_COUNT : 0;
+    }
+
+    /**
+     * Retrieves the number of times a render thread made a different context
+     * current.
+     *
+     * @return the context switch count.
+     * @since 26.10.18
+     */
+    public static long getContextSwitchCount() {
+        return CONTEXT_SWITCHES.sum();
+    }
+
+    /**
+     * Retrieves the number of tasks that ran without a context switch because
+     * the context was already current.
+     *
+     * @return the skipped switch count.
+     * @since 26.10.18
+     */
+    public static long getSkippedSwitchCount() {
+        return SKIPPED_SWITCHES.sum();
+    }
+
+    /**
+     * Builds a human readable list of the render threads with the windows
+     * assigned to each, their context switches and the time spent running
+     * their tasks.
+     *
+     * @return the scheduling report.
+     * @since 26.10.18
+     */
+    public static String getReport() {
+        final StringBuilder out = new StringBuilder(256)
+                .append(String.format("GLRenderScheduler: threads=%d switches=%d skipped=%d",
+                        getThreadCount(), getContextSwitchCount(), getSkippedSwitchCount()));
+
+        synchronized (THREADS) {
+            for (RenderThread rt : THREADS) {
+                out.append(String.format("%n  thread %d: %d windows", rt.index, rt.lanes.size()));
+
+                for (Lane lane : rt.lanes) {
+                    final GLWindowMetrics metrics = lane.window.getMetrics();
+
+                    out.append(String.format("%n    %-24s switches=%d render=%.3f ms",
+                            metrics.getTitle(), metrics.getContextSwitches(), metrics.getRenderNanos() / 1e6));
+                }
+            }
+        }
+
+        return out.toString();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An Executor that runs tasks one at a time, in submission order, on a
+ * delegate Executor. Used to keep listener events ordered when the listener
+ * runs on a thread pool.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class GLSerialExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    GLSerialExecutor(final Executor delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Executor cannot be null!");
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        this.tasks.offer(Objects.requireNonNull(task));
+        this.schedule();
+    }
+
+    private void schedule() {
+        if (this.draining.compareAndSet(false, true)) {
+            try {
+                this.delegate.execute(this::drain);
+            } catch (RuntimeException | Error ex) {
+                // nothing is draining; the next execute tries again with the queued tasks
+                this.draining.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+
+            while ((task = this.tasks.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            this.draining.set(false);
+
+            // a task may have been queued after the last poll but before the flag was cleared
+            if (!this.tasks.isEmpty()) {
+                this.schedule();
+            }
+        }
+    }
+}
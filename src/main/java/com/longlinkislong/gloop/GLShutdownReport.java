@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The outcome of a window teardown started by
+ * {@link GLWindow#closeAsync(long, java.util.concurrent.TimeUnit)}. Every
+ * cleanup task, the worker pool and each worker window has an entry that
+ * records how long it took and whether it finished before the deadline. The
+ * "GLWindow teardown" entry covers the work on the window's thread, from the
+ * start of the teardown until the native window was destroyed.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLShutdownReport {
+
+    /**
+     * The outcome of a single teardown step.
+     *
+     * @since 26.10.18
+     */
+    public enum Status {
+        /**
+         * The step finished before the deadline.
+         */
+        COMPLETED,
+        /**
+         * The step threw an exception before the deadline.
+         */
+        FAILED,
+        /**
+         * The step was still running when the deadline passed, or finished
+         * after it.
+         */
+        OVERRAN,
+        /**
+         * The step had not started when the report was made. This happens
+         * when the deadline passed while the window thread was still busy;
+         * the step runs later.
+         */
+        SKIPPED
+    }
+
+    /**
+     * A single teardown step.
+     *
+     * @since 26.10.18
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final Status status;
+        private final long nanos;
+        private final Throwable failure;
+
+        Entry(final String name, final Status status, final long nanos, final Throwable failure) {
+            this.name = name;
+            this.status = status;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+
+        /**
+         * Retrieves the name of the step.
+         *
+         * @return the name.
+         * @since 26.10.18
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Retrieves the outcome of the step.
+         *
+         * @return the status.
+         * @since 26.10.18
+         */
+        public Status getStatus() {
+            return this.status;
+        }
+
+        /**
+         * Retrieves how long the step ran. For a step that overran and was
+         * still running, this is the time until the report was made.
+         *
+         * @return the time in nanoseconds.
+         * @since 26.10.18
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        /**
+         * Retrieves the exception thrown by a failed step.
+         *
+         * @return the exception, if any.
+         * @since 26.10.18
+         */
+        public Optional<Throwable> getFailure() {
+            return Optional.ofNullable(this.failure);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %.3f ms", this.name, this.status, this.nanos / 1e6);
+        }
+    }
+
+    /**
+     * Times a single teardown step. The step may run on any thread; the
+     * report reads its state once the deadline passed or every step
+     * finished.
+     */
+    static final class Tracker {
+
+        final String name;
+        private volatile long start = 0L;
+        private volatile long end = 0L;
+        private volatile boolean isStarted = false;
+        private volatile boolean isFinished = false;
+        private volatile Throwable failure = null;
+
+        Tracker(final String name) {
+            this.name = name;
+        }
+
+        void begin() {
+            this.start = System.nanoTime();
+            this.isStarted = true;
+        }
+
+        void finish(final Throwable failure) {
+            this.end = System.nanoTime();
+            this.failure = failure;
+            this.isFinished = true;
+        }
+
+        boolean isFinished() {
+            return this.isFinished;
+        }
+
+        void run(final Runnable task) {
+            this.begin();
+
+            try {
+                task.run();
+                this.finish(null);
+            } catch (Throwable ex) {
+                this.finish(ex);
+            }
+        }
+
+        Entry toEntry(final long deadline, final long now) {
+            if (!this.isStarted) {
+                return new Entry(this.name, Status.SKIPPED, 0L, null);
+            } else if (!this.isFinished) {
+                return new Entry(this.name, Status.OVERRAN, now - this.start, null);
+            } else if (this.end - deadline > 0L) {
+                return new Entry(this.name, Status.OVERRAN, this.end - this.start, this.failure);
+            } else if (this.failure != null) {
+                return new Entry(this.name, Status.FAILED, this.end - this.start, this.failure);
+            } else {
+                return new Entry(this.name, Status.COMPLETED, this.end - this.start, null);
+            }
+        }
+    }
+
+    private final List<Entry> entries;
+    private final long totalNanos;
+    private final long timeoutNanos;
+
+    GLShutdownReport(final List<Tracker> trackers, final long start, final long deadline) {
+        final long now = System.nanoTime();
+        final List<Entry> out = new ArrayList<>(trackers.size());
+
+        for (Tracker tracker : trackers) {
+            out.add(tracker.toEntry(deadline, now));
+        }
+
+        this.entries = Collections.unmodifiableList(out);
+        this.totalNanos = now - start;
+        this.timeoutNanos = deadline - start;
+    }
+
+    /**
+     * Retrieves every teardown step in the order they were started.
+     *
+     * @return the unmodifiable list of entries.
+     * @since 26.10.18
+     */
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Retrieves the steps that did not finish before the deadline. Skipped
+     * steps are not included.
+     *
+     * @return the overrunning steps.
+     * @since 26.10.18
+     */
+    public List<Entry> getOverruns() {
+        final List<Entry> out = new ArrayList<>(0);
+
+        for (Entry entry : this.entries) {
+            if (entry.status == Status.OVERRAN) {
+                out.add(entry);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Checks if every step finished before the deadline.
+     *
+     * @return true if no step overran or was skipped.
+     * @since 26.10.18
+     */
+    public boolean isWithinDeadline() {
+        for (Entry entry : this.entries) {
+            if (entry.status == Status.OVERRAN || entry.status == Status.SKIPPED) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Retrieves the time from the start of the teardown until the report was
+     * made.
+     *
+     * @return the time in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getTotalNanos() {
+        return this.totalNanos;
+    }
+
+    /**
+     * Retrieves the deadline that was applied.
+     *
+     * @return the timeout in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getTimeoutNanos() {
+        return this.timeoutNanos;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder(64 + this.entries.size() * 48)
+                .append(String.format("GLWindow teardown: %.3f ms of %.3f ms", this.totalNanos / 1e6, this.timeoutNanos / 1e6));
+
+        for (Entry entry : this.entries) {
+            out.append(String.format("%n  ")).append(entry);
+        }
+
+        return out.toString();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * The cursor shapes provided by the platform.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public enum GLStandardCursor {
+    ARROW(GLFW.GLFW_ARROW_CURSOR),
+    IBEAM(GLFW.GLFW_IBEAM_CURSOR),
+    CROSSHAIR(GLFW.GLFW_CROSSHAIR_CURSOR),
+    HAND(GLFW.GLFW_HAND_CURSOR),
+    HRESIZE(GLFW.GLFW_HRESIZE_CURSOR),
+    VRESIZE(GLFW.GLFW_VRESIZE_CURSOR);
+
+    final int value;
+
+    GLStandardCursor(final int value) {
+        this.value = value;
+    }
+
+    public static GLStandardCursor valueOf(final int value) {
+        for (GLStandardCursor shape : values()) {
+            if (shape.value == value) {
+                return shape;
+            }
+        }
+
+        return null;
+    }
+}
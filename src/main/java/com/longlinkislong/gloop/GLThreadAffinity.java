@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+import org.lwjgl.system.JNI;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.Platform;
+import org.lwjgl.system.linux.DynamicLinkLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * CPU affinity and nice value of the calling thread through sched_setaffinity,
+ * sched_getaffinity, setpriority and getpriority from libc. Only Linux is
+ * supported; on other platforms every call reports failure.
+ *
+ * The JVM ignores Java thread priorities on Linux, so the priority of a
+ * render thread is applied as its nice value instead. Linux keeps a nice
+ * value per thread, and setpriority(PRIO_PROCESS, 0, ...) only changes the
+ * calling thread. Lowering the nice value below its current value needs
+ * CAP_SYS_NICE or a matching RLIMIT_NICE.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class GLThreadAffinity {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLThreadAffinity");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+
+    // sizeof(cpu_set_t) for CPU_SETSIZE = 1024
+    private static final int MASK_BYTES = 128;
+    private static final int CURRENT_THREAD = 0;
+    private static final int PRIO_PROCESS = 0;
+    // nice steps per Java priority step; NORM_PRIORITY maps to nice 0
+    private static final int NICE_PER_PRIORITY = 2;
+
+    private GLThreadAffinity() {
+    }
+
+    private static final class Functions {
+
+        static final long SET_AFFINITY;
+        static final long GET_AFFINITY;
+        static final long SET_PRIORITY;
+        static final long GET_PRIORITY;
+
+        static {
+            long set = MemoryUtil.NULL;
+            long get = MemoryUtil.NULL;
+            long setPriority = MemoryUtil.NULL;
+            long getPriority = MemoryUtil.NULL;
+
+            if (Platform.get() == Platform.LINUX) {
+                try {
+                    final long libc = DynamicLinkLoader.dlopen("libc.so.6", DynamicLinkLoader.RTLD_LAZY);
+
+                    if (libc != MemoryUtil.NULL) {
+                        set = DynamicLinkLoader.dlsym(libc, "sched_setaffinity");
+                        get = DynamicLinkLoader.dlsym(libc, "sched_getaffinity");
+                        setPriority = DynamicLinkLoader.dlsym(libc, "setpriority");
+                        getPriority = DynamicLinkLoader.dlsym(libc, "getpriority");
+                    }
+                } catch (LinkageError ex) {
+                    LOGGER.debug(GLOOP_MARKER, "Unable to load libc; thread affinity is not supported", ex);
+                }
+            }
+
+            SET_AFFINITY = set;
+            GET_AFFINITY = get;
+            SET_PRIORITY = setPriority;
+            GET_PRIORITY = getPriority;
+        }
+    }
+
+    /**
+     * Checks if thread affinity can be changed on this platform.
+     *
+     * @return true if sched_setaffinity is available.
+     */
+    static boolean isSupported() {
+        try {
+            return Functions.SET_AFFINITY != MemoryUtil.NULL && Functions.GET_AFFINITY != MemoryUtil.NULL;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer newMask() {
+        return ByteBuffer.allocateDirect(MASK_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Restricts the calling thread to a set of cores.
+     *
+     * @param cpus the core indices.
+     * @return true if the affinity was changed.
+     */
+    static boolean set(final BitSet cpus) {
+        if (!isSupported() || cpus.isEmpty() || cpus.length() > MASK_BYTES * Byte.SIZE) {
+            return false;
+        }
+
+        final ByteBuffer mask = newMask();
+
+        mask.asLongBuffer().put(cpus.toLongArray());
+
+        return JNI.callPPI(Functions.SET_AFFINITY, CURRENT_THREAD, (long) MASK_BYTES, MemoryUtil.memAddress(mask)) == 0;
+    }
+
+    /**
+     * Retrieves the cores the calling thread may run on.
+     *
+     * @return the core indices. Empty if the affinity is unknown.
+     */
+    static BitSet get() {
+        if (!isSupported()) {
+            return new BitSet(0);
+        }
+
+        final ByteBuffer mask = newMask();
+
+        if (JNI.callPPI(Functions.GET_AFFINITY, CURRENT_THREAD, (long) MASK_BYTES, MemoryUtil.memAddress(mask)) != 0) {
+            return new BitSet(0);
+        }
+
+        final LongBuffer words = mask.asLongBuffer();
+
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Checks if the nice value of a thread can be changed on this platform.
+     *
+     * @return true if setpriority is available.
+     */
+    static boolean isNiceSupported() {
+        try {
+            return Functions.SET_PRIORITY != MemoryUtil.NULL && Functions.GET_PRIORITY != MemoryUtil.NULL;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a Java thread priority to a nice value.
+     *
+     * @param priority the priority from Thread.MIN_PRIORITY to
+     * Thread.MAX_PRIORITY.
+     * @return the nice value; 0 for Thread.NORM_PRIORITY.
+     */
+    static int toNice(final int priority) {
+        return (Thread.NORM_PRIORITY - priority) * NICE_PER_PRIORITY;
+    }
+
+    /**
+     * Converts a nice value to the nearest Java thread priority.
+     *
+     * @param nice the nice value.
+     * @return the priority, clamped to the valid range.
+     */
+    static int toPriority(final int nice) {
+        final int priority = Thread.NORM_PRIORITY - Math.round((float) nice / NICE_PER_PRIORITY);
+
+        return Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, priority));
+    }
+
+    /**
+     * Changes the nice value of the calling thread.
+     *
+     * @param nice the nice value.
+     * @return true if the nice value was changed.
+     */
+    static boolean setNice(final int nice) {
+        if (!isNiceSupported()) {
+            return false;
+        }
+
+        return JNI.callI(Functions.SET_PRIORITY, PRIO_PROCESS, CURRENT_THREAD, nice) == 0;
+    }
+
+    /**
+     * Retrieves the nice value of the calling thread. The calling thread
+     * always exists, so a result of -1 is a nice value and not an error.
+     *
+     * @return the nice value. 0 if it is unknown.
+     */
+    static int getNice() {
+        if (!isNiceSupported()) {
+            return 0;
+        }
+
+        return JNI.callI(Functions.GET_PRIORITY, PRIO_PROCESS, CURRENT_THREAD);
+    }
+}
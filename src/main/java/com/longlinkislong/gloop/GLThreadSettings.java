@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Scheduling settings of a GLWindow's render thread: the Java thread priority
+ * and the set of cores the thread may run on. An empty core set means the
+ * cores the thread could run on before any settings were applied, so it also
+ * undoes earlier pinning. Core sets are only applied on Linux.
+ *
+ * The JVM ignores Java thread priorities on Linux, so there the priority is
+ * also applied as the nice value of the thread. Thread.NORM_PRIORITY is the
+ * nice value the thread started with, so a JVM started under nice keeps its
+ * niceness, and every step above or below it is 2 nice steps. Raising the
+ * priority above the current one requires CAP_SYS_NICE. The applied settings
+ * report the priority that corresponds to the nice value in effect, so a
+ * priority the system refused shows up there.
+ *
+ * A thread is only changed once settings other than Thread.NORM_PRIORITY with
+ * an empty core set are applied to it, and then only in the parts that
+ * differ from the settings applied last.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLThreadSettings {
+
+    /**
+     * The settings used for new windows. Defined by the system properties
+     * com.longlinkislong.gloop.window.thread_priority (default
+     * Thread.NORM_PRIORITY) and com.longlinkislong.gloop.window.thread_affinity
+     * (a core list such as "0-3,6"; default unrestricted).
+     *
+     * @since 26.10.18
+     */
+    public static final GLThreadSettings DEFAULT = new GLThreadSettings(
+            Integer.getInteger("com.longlinkislong.gloop.window.thread_priority", Thread.NORM_PRIORITY),
+            parseCoreList(System.getProperty("com.longlinkislong.gloop.window.thread_affinity", "")));
+
+    private final int priority;
+    private final BitSet affinity;
+
+    /**
+     * Constructs new thread settings.
+     *
+     * @param priority the thread priority.
+     * @param affinity the cores the thread may run on. Empty restores the
+     * cores the thread started with.
+     * @throws IllegalArgumentException if the priority is outside of
+     * Thread.MIN_PRIORITY and Thread.MAX_PRIORITY.
+     * @since 26.10.18
+     */
+    public GLThreadSettings(final int priority, final BitSet affinity) {
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+            throw new IllegalArgumentException("Invalid thread priority: " + priority);
+        }
+
+        this.priority = priority;
+        this.affinity = (BitSet) Objects.requireNonNull(affinity).clone();
+    }
+
+    /**
+     * Parses a Linux style core list such as "0-3,6".
+     *
+     * @param cores the core list.
+     * @return the core indices. Empty if the list is empty.
+     * @throws IllegalArgumentException if the list is malformed.
+     * @since 26.10.18
+     */
+    public static BitSet parseCoreList(final CharSequence cores) {
+        final BitSet out = new BitSet();
+
+        for (String range : cores.toString().split(",")) {
+            final String trimmed = range.trim();
+
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            final int dash = trimmed.indexOf('-');
+
+            try {
+                if (dash < 0) {
+                    out.set(Integer.parseInt(trimmed));
+                } else {
+                    out.set(Integer.parseInt(trimmed.substring(0, dash).trim()),
+                            Integer.parseInt(trimmed.substring(dash + 1).trim()) + 1);
+                }
+            } catch (IndexOutOfBoundsException | NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid core list: " + cores, ex);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Retrieves the thread priority.
+     *
+     * @return the priority.
+     * @since 26.10.18
+     */
+    public int getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Retrieves the cores the thread may run on.
+     *
+     * @return a copy of the core set. Empty if the affinity is unrestricted
+     * or unknown.
+     * @since 26.10.18
+     */
+    public BitSet getAffinity() {
+        return (BitSet) this.affinity.clone();
+    }
+
+    /**
+     * Creates a copy of these settings with a different priority.
+     *
+     * @param newPriority the thread priority.
+     * @return the new settings.
+     * @since 26.10.18
+     */
+    public GLThreadSettings withPriority(final int newPriority) {
+        return new GLThreadSettings(newPriority, this.affinity);
+    }
+
+    /**
+     * Creates a copy of these settings with a different core set.
+     *
+     * @param newAffinity the cores the thread may run on.
+     * @return the new settings.
+     * @since 26.10.18
+     */
+    public GLThreadSettings withAffinity(final BitSet newAffinity) {
+        return new GLThreadSettings(this.priority, newAffinity);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        } else if (other instanceof GLThreadSettings) {
+            final GLThreadSettings o = (GLThreadSettings) other;
+
+            return this.priority == o.priority && this.affinity.equals(o.affinity);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.priority + this.affinity.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "GLThreadSettings: priority=" + this.priority + " affinity=" + this.affinity;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+/**
+ * Converts backend timer ticks (glfwGetTimerValue) to nanoseconds and to the
+ * System.nanoTime time base. The two clocks are correlated once when the
+ * GLTimer is created.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class GLTimer {
+
+    private final GLWindowBackend backend;
+    private final double nanosPerTick;
+    private final long baseTicks;
+    private final long baseNanoTime;
+
+    GLTimer(final GLWindowBackend backend) {
+        this.backend = backend;
+        this.nanosPerTick = 1e9 / backend.getTimerFrequency();
+
+        // bracket the timer read so the correlation error is at most half the read cost
+        final long before = System.nanoTime();
+
+        this.baseTicks = backend.getTimerValue();
+        this.baseNanoTime = before + (System.nanoTime() - before) / 2;
+    }
+
+    long ticks() {
+        return this.backend.getTimerValue();
+    }
+
+    long toNanos(final long ticks) {
+        return (long) (ticks * this.nanosPerTick);
+    }
+
+    long toNanoTime(final long ticks) {
+        return this.baseNanoTime + this.toNanos(ticks - this.baseTicks);
+    }
+}
@@ -26,12 +26,33 @@
 package com.longlinkislong.gloop;
 
 import com.runouw.util.Lazy;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import org.lwjgl.glfw.GLFW;
 import static org.lwjgl.glfw.GLFW.GLFW_ALPHA_BITS;
 import static org.lwjgl.glfw.GLFW.GLFW_BLUE_BITS;
@@ -51,22 +72,8 @@ import static org.lwjgl.glfw.GLFW.GLFW_RED_BITS;
 import static org.lwjgl.glfw.GLFW.GLFW_REFRESH_RATE;
 import static org.lwjgl.glfw.GLFW.GLFW_SAMPLES;
 import static org.lwjgl.glfw.GLFW.GLFW_STENCIL_BITS;
-import static org.lwjgl.glfw.GLFW.glfwWindowHint;
-import org.lwjgl.glfw.GLFWCharCallback;
-import org.lwjgl.glfw.GLFWCursorEnterCallback;
-import org.lwjgl.glfw.GLFWCursorPosCallback;
-import org.lwjgl.glfw.GLFWErrorCallback;
-import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
-import org.lwjgl.glfw.GLFWKeyCallback;
-import org.lwjgl.glfw.GLFWMouseButtonCallback;
-import org.lwjgl.glfw.GLFWScrollCallback;
-import org.lwjgl.glfw.GLFWVidMode;
-import org.lwjgl.glfw.GLFWWindowCloseCallback;
-import org.lwjgl.glfw.GLFWWindowIconifyCallback;
-import org.lwjgl.opengl.GL;
 import static org.lwjgl.opengl.GL11.GL_FALSE;
 import static org.lwjgl.opengl.GL11.GL_TRUE;
-import org.lwjgl.opengles.GLES;
 import static org.lwjgl.system.MemoryUtil.NULL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,13 +113,161 @@ public class GLWindow {
     public static final int OPENGL_STENCIL_BITS;
     public static final int OPENGL_REFRESH_RATE;
 
+    static final String WORKER_TITLE = "WORKER";
+
+    /**
+     * The deadline in milliseconds applied to {@link #close()} and
+     * {@link #closeAsync()}. Set by the system property
+     * com.longlinkislong.gloop.window.close_timeout_ms; defaults to 5000.
+     *
+     * @since 26.10.18
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT = Long.getLong("com.longlinkislong.gloop.window.close_timeout_ms", 5000L);
+
+    // runs cleanup tasks that do not need the OpenGL context; threads only exist while windows are closing
+    private static final ExecutorService CLEANUP_EXECUTOR = new ThreadPoolExecutor(
+            0, Integer.MAX_VALUE,
+            30L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            newDaemonThreadFactory("GLWindow-cleanup"));
+
+    // completes close futures whose teardown missed the deadline
+    private static final ScheduledThreadPoolExecutor CLOSE_TIMER = new ScheduledThreadPoolExecutor(1, newDaemonThreadFactory("GLWindow-close-timer"));
+
+    static {
+        CLOSE_TIMER.setKeepAliveTime(30L, TimeUnit.SECONDS);
+        CLOSE_TIMER.allowCoreThreadTimeOut(true);
+        CLOSE_TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private static ThreadFactory newDaemonThreadFactory(final String name) {
+        final AtomicInteger id = new AtomicInteger();
+
+        return task -> {
+            final Thread thread = new Thread(task, name + "-" + id.getAndIncrement());
+
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     private static final long INVALID_WINDOW_ID = -1L;
     protected volatile long window = INVALID_WINDOW_ID;
     private final int width;
     private final int height;
     private final String title;
     private GLThread thread = null;
+    private final GLRenderScheduler.Lane lane;
+    private volatile GLThreadSettings threadSettings;
+    private volatile GLThreadSettings appliedThreadSettings = null;
+    private volatile Thread glThreadHandle = null;
+
+    // per-thread outputs for native queries so that queries made on the GLThread do not allocate
+    /**
+     * What a render thread looked like before settings were first applied to
+     * it, and the settings applied to it since. Shared render threads serve
+     * several windows, so this is kept per thread and not per window.
+     */
+    private static final class ThreadSettingsState {
+
+        final int originalNice;
+        final BitSet originalAffinity;
+        GLThreadSettings applied = NEUTRAL_THREAD_SETTINGS;
+
+        ThreadSettingsState() {
+            this.originalNice = GLThreadAffinity.getNice();
+            this.originalAffinity = GLThreadAffinity.get();
+        }
+    }
+
+    // the settings of a thread nothing was applied to: inherited priority and cores
+    private static final GLThreadSettings NEUTRAL_THREAD_SETTINGS = new GLThreadSettings(Thread.NORM_PRIORITY, new BitSet(0));
+    private static final ThreadLocal<ThreadSettingsState> THREAD_SETTINGS_STATE = new ThreadLocal<>();
+
+    private static final ThreadLocal<int[]> QUERY_OUTPUT = ThreadLocal.withInitial(() -> new int[GLWindowBackend.VIDMODE_SIZE]);
+
+    @FunctionalInterface
+    private interface NativeQuery {
+
+        void query(GLWindow window, int[] out);
+    }
+
+    private static final NativeQuery WINDOW_SIZE = (w, out) -> w.backend.getWindowSize(w.window, out);
+    private static final NativeQuery WINDOW_POS = (w, out) -> w.backend.getWindowPos(w.window, out);
+    private static final NativeQuery WINDOW_FRAME_SIZE = (w, out) -> w.backend.getWindowFrameSize(w.window, out);
+    private static final NativeQuery FRAMEBUFFER_SIZE = (w, out) -> w.backend.getFramebufferSize(w.window, out);
+
+    /**
+     * A native query that is allocated once per window and writes into the
+     * output of the caller. Calls from other threads take turns on the
+     * instance; they would run one at a time on the GLThread anyway.
+     */
+    private final class NativeCall extends GLQuery<int[]> {
+
+        private final NativeQuery query;
+        private final TrackedQuery<int[]> tracked = new TrackedQuery<>(this);
+        private int[] out;
+
+        NativeCall(final NativeQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public int[] call() throws Exception {
+            if (!GLWindow.this.isValid()) {
+                throw new GLFWException("GLWindow is not valid!");
+            }
+
+            this.query.query(GLWindow.this, this.out);
+            return this.out;
+        }
+
+        void run(final int[] output) {
+            synchronized (this) {
+                this.out = output;
+
+                try {
+                    GLWindow.this.glCall(this.tracked);
+                } finally {
+                    this.out = null;
+                }
+            }
+        }
+    }
+
+    private final NativeCall windowSizeCall = new NativeCall(WINDOW_SIZE);
+    private final NativeCall windowPosCall = new NativeCall(WINDOW_POS);
+    private final NativeCall windowFrameSizeCall = new NativeCall(WINDOW_FRAME_SIZE);
+    private final NativeCall framebufferSizeCall = new NativeCall(FRAMEBUFFER_SIZE);
     private final GLWindow shared;
+    private final boolean isWorker;
+    private final GLWindowMetrics metrics;
+    private final GLListenerWatchdog watchdog;
+    private final GLInputLatch inputLatch = new GLInputLatch(this);
+    private final GLFrameCapture frameCapture = new GLFrameCapture(this);
+    private final GLCursorManager cursorManager = new GLCursorManager(this);
+    private final AtomicLong currentCursor = new AtomicLong(NULL);
+
+    private final GLTimer timer;
+
+    // timer ticks of the event being dispatched and of every event since the last swap; only accessed on the GLThread
+    private static final int MAX_PENDING_EVENTS = 4096;
+    private long eventTicks = 0L;
+    private long[] pendingEventTicks = new long[64];
+    private GLEventType[] pendingEventTypes = new GLEventType[64];
+    private int pendingEvents = 0;
+
+    // latest framebuffer size reported while polling; only accessed on the GLThread
+    private boolean isResizePending = false;
+    private int pendingWidth;
+    private int pendingHeight;
+
+    // on-demand rendering state; isDirty is set by any thread, isWaiting only by the GLThread
+    private static final double ON_DEMAND_TIMEOUT = Long.getLong("com.longlinkislong.gloop.window.on_demand_timeout_ms", 250L) / 1000.0;
+    private volatile boolean isOnDemand = Boolean.getBoolean("com.longlinkislong.gloop.window.on_demand");
+    private volatile boolean isDirty = true;
+    private volatile boolean isWaiting = false;
+    private volatile double onDemandTimeout = ON_DEMAND_TIMEOUT;
 
     protected final List<GLKeyListener> keyListeners = new ArrayList<>(0);
     protected final List<GLMousePositionListener> mousePositionListeners = new ArrayList<>(0);
@@ -120,78 +275,160 @@ public class GLWindow {
     protected final List<GLMouseEnteredListener> mouseEnteredListeners = new ArrayList<>(0);
     protected final List<GLMouseScrollListener> mouseScrollListeners = new ArrayList<>(0);
     protected final List<GLKeyCharListener> charListeners = new ArrayList<>(0);
+    private final Map<Executor, GLSerialExecutor> listenerExecutors = new ConcurrentHashMap<>();
+    private final GLListenerChain<GLFileDropListener> dropListeners = new GLListenerChain<>(this::getListenerExecutor);
 
-    private final Lazy<GLFWCharCallback> charCallback = new Lazy<>(() -> {
-        final GLFWCharCallback callback = GLFWCharCallback.create((hwnd, charCode) -> {
-            this.charListeners.forEach(listener -> listener.glfwCharCallback(hwnd, charCode));
-        });
-        
-        return callback;
-    });
+    final GLWindowBackend backend = GLFWBootstrap.getBackend();
 
-    private final Lazy<GLFWKeyCallback> keyCallback = new Lazy<>(() -> {
-        final GLFWKeyCallback callback = GLFWKeyCallback.create((hwnd, key, scancode, action, mods) -> {
-            keyListeners.forEach(listener -> listener.glfwCallback(hwnd, key, scancode, action, mods));
-        });
+    private final class EventHandler implements GLWindowBackend.Callbacks {
 
-        return callback;
-    });
+        @Override
+        public void keyCallback(long hwnd, int key, int scancode, int action, int mods) {
+            final long start = System.nanoTime();
 
-    private final Lazy<GLFWMouseButtonCallback> mouseButtonCallback = new Lazy<>(() -> {
-        final GLFWMouseButtonCallback callback = GLFWMouseButtonCallback.create((hwnd, button, action, mods) -> {
-            this.mouseButtonListeners.forEach(listener -> listener.glfwMouseButtonCallback(hwnd, button, action, mods));
-        });
+            GLWindow.this.stampEvent(GLEventType.KEY);
 
-        return callback;
-    });
+            for (GLKeyListener listener : GLWindow.this.keyListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
 
-    private final Lazy<GLFWCursorPosCallback> cursorPosCallback = new Lazy<>(() -> {
-        final GLFWCursorPosCallback callback = GLFWCursorPosCallback.create((hwnd, x, y) -> {
-            this.mousePositionListeners.forEach(listener -> listener.glfwCursorPosCallback(hwnd, x, y));
-        });
-        
-        return callback;
-    });
+                listener.glfwCallback(hwnd, key, scancode, action, mods);
+                GLWindow.this.watchdog.stop(listener, GLEventType.KEY, time);
+            }
 
-    private final Lazy<GLFWScrollCallback> scrollCallback = new Lazy<>(() -> {
-        final GLFWScrollCallback callback = GLFWScrollCallback.create((hwnd, x, y) -> {
-            this.mouseScrollListeners.forEach(listener -> listener.glfwScrollCallback(hwnd, x, y));
-        });
+            GLWindow.this.metrics.recordEvent(GLEventType.KEY, System.nanoTime() - start);
+        }
 
-        return callback;
-    });
+        @Override
+        public void charCallback(long hwnd, int codepoint) {
+            final long start = System.nanoTime();
 
-    private final Lazy<GLFWCursorEnterCallback> cursorEnterCallback = new Lazy<>(() -> {
-        final GLFWCursorEnterCallback callback = GLFWCursorEnterCallback.create((hwnd, status) -> {
-            final int iStatus = status ? 1 : 0;
+            GLWindow.this.stampEvent(GLEventType.CHAR);
 
-            this.mouseEnteredListeners.forEach(listener -> listener.glfwCursorEnteredCallback(hwnd, iStatus));
-        });
+            for (GLKeyCharListener listener : GLWindow.this.charListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
 
-        return callback;
-    });
+                listener.glfwCharCallback(hwnd, codepoint);
+                GLWindow.this.watchdog.stop(listener, GLEventType.CHAR, time);
+            }
 
-    private final Lazy<GLFWWindowCloseCallback> windowCloseCallback = new Lazy<>(() -> {
-        final GLFWWindowCloseCallback callback = GLFWWindowCloseCallback.create((hwnd) -> {
-            this.beforeClose.ifPresent(Runnable::run);
-        });
-        
-        return callback;
-    });
+            GLWindow.this.metrics.recordEvent(GLEventType.CHAR, System.nanoTime() - start);
+        }
+
+        @Override
+        public void mouseButtonCallback(long hwnd, int button, int action, int mods) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.BUTTON);
+
+            for (GLMouseButtonListener listener : GLWindow.this.mouseButtonListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
+
+                listener.glfwMouseButtonCallback(hwnd, button, action, mods);
+                GLWindow.this.watchdog.stop(listener, GLEventType.BUTTON, time);
+            }
+
+            GLWindow.this.metrics.recordEvent(GLEventType.BUTTON, System.nanoTime() - start);
+        }
+
+        @Override
+        public void cursorPosCallback(long hwnd, double x, double y) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.CURSOR);
+
+            for (GLMousePositionListener listener : GLWindow.this.mousePositionListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
+
+                listener.glfwCursorPosCallback(hwnd, x, y);
+                GLWindow.this.watchdog.stop(listener, GLEventType.CURSOR, time);
+            }
+
+            GLWindow.this.metrics.recordEvent(GLEventType.CURSOR, System.nanoTime() - start);
+        }
+
+        @Override
+        public void cursorEnterCallback(long hwnd, boolean entered) {
+            final long start = System.nanoTime();
+            final int iStatus = entered ? 1 : 0;
+
+            GLWindow.this.stampEvent(GLEventType.ENTER);
+
+            for (GLMouseEnteredListener listener : GLWindow.this.mouseEnteredListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
+
+                listener.glfwCursorEnteredCallback(hwnd, iStatus);
+                GLWindow.this.watchdog.stop(listener, GLEventType.ENTER, time);
+            }
+
+            GLWindow.this.metrics.recordEvent(GLEventType.ENTER, System.nanoTime() - start);
+        }
+
+        @Override
+        public void scrollCallback(long hwnd, double xOffset, double yOffset) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.SCROLL);
+
+            for (GLMouseScrollListener listener : GLWindow.this.mouseScrollListeners) {
+                final long time = GLWindow.this.watchdog.start(listener);
+
+                listener.glfwScrollCallback(hwnd, xOffset, yOffset);
+                GLWindow.this.watchdog.stop(listener, GLEventType.SCROLL, time);
+            }
+
+            GLWindow.this.metrics.recordEvent(GLEventType.SCROLL, System.nanoTime() - start);
+        }
+
+        @Override
+        public void framebufferSizeCallback(long hwnd, int width, int height) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.RESIZE);
+
+            // coalesced; the listeners only see the last size of each frame
+            GLWindow.this.pendingWidth = width;
+            GLWindow.this.pendingHeight = height;
+            GLWindow.this.isResizePending = true;
+            GLWindow.this.metrics.recordEvent(GLEventType.RESIZE, System.nanoTime() - start);
+        }
+
+        @Override
+        public void windowCloseCallback(long hwnd) {
+            GLWindow.this.beforeClose.ifPresent(Runnable::run);
+        }
+
+        @Override
+        public void windowIconifyCallback(long hwnd, boolean iconified) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.ICONIFY);
 
-    private final Lazy<GLFWWindowIconifyCallback> windowIconifyCallback = new Lazy<>(() -> {
-        final GLFWWindowIconifyCallback callback = GLFWWindowIconifyCallback.create((long hwnd, boolean iconified) -> {
             if (iconified) {
-                this.onMinimize.ifPresent(Runnable::run);
+                GLWindow.this.onMinimize.ifPresent(Runnable::run);
             } else {
-                this.onRestore.ifPresent(Runnable::run);
+                GLWindow.this.onRestore.ifPresent(Runnable::run);
             }
             // TODO: call resize callbacks?
 
-        });
+            GLWindow.this.metrics.recordEvent(GLEventType.ICONIFY, System.nanoTime() - start);
+        }
 
-        return callback;
-    });
+        @Override
+        public void windowRefreshCallback(long hwnd) {
+            GLWindow.this.isDirty = true;
+        }
+
+        @Override
+        public void dropCallback(long hwnd, String[] paths) {
+            final long start = System.nanoTime();
+
+            GLWindow.this.stampEvent(GLEventType.DROP);
+            GLWindow.this.dropListeners.dispatch(
+                    GLWindow.this.watchdog, GLEventType.DROP, false,
+                    listener -> listener.glfwDropCallback(hwnd, paths));
+            GLWindow.this.metrics.recordEvent(GLEventType.DROP, System.nanoTime() - start);
+        }
+    }
 
     /**
      * Tells the window to close or not.
@@ -199,10 +436,9 @@ public class GLWindow {
      * @param shouldClose
      */
     public void setShouldClose(boolean shouldClose) {
-        GLFW.glfwSetWindowShouldClose(window, shouldClose);
+        this.backend.setWindowShouldClose(window, shouldClose);
     }
 
-    private Optional<GLFWFramebufferSizeCallback> resizeCallback = Optional.empty();
     private Optional<Runnable> beforeClose = Optional.empty();
     private Optional<Runnable> onClose = Optional.empty();
     private Optional<Runnable> onMinimize = Optional.empty();
@@ -210,9 +446,27 @@ public class GLWindow {
     private final long monitor;
     private volatile boolean hasInitialized = false;
     private final List<Runnable> cleanupTasks = new ArrayList<>(0);
+    private final List<Runnable> parallelCleanupTasks = new ArrayList<>(0);
+    private final AtomicBoolean isTearingDown = new AtomicBoolean(false);
+    private final CompletableFuture<GLShutdownReport> closeFuture = new CompletableFuture<>();
+    private final Object closeLock = new Object();
+    private final List<GLShutdownReport.Tracker> closeTrackers = new CopyOnWriteArrayList<>();
+    private final GLShutdownReport.Tracker teardownTracker = new GLShutdownReport.Tracker("GLWindow teardown");
+    private boolean isCloseRequested = false;
+    private volatile long closeStartNanos = 0L;
+    private volatile long closeDeadlineNanos = 0L;
 
-    protected static final Map<Long, GLWindow> WINDOWS = new TreeMap<>(Long::compareTo);
-    private static final List<GLGamepad> GAMEPADS;
+    /**
+     * View of the active windows by native handle. This used to be a plain
+     * HashMap; it is now a view of GLWindowRegistry that writes through, so
+     * subclasses that register or unregister handles here keep working.
+     * Iteration sees a snapshot taken when the iterator is created.
+     *
+     * @deprecated windows are tracked by GLWindowRegistry; this view is kept
+     * for compatibility and will be removed. Do not write to it.
+     */
+    @Deprecated
+    protected static final Map<Long, GLWindow> WINDOWS = GLWindowRegistry.asMap();
 
     static {        
         final String glVersion = System.getProperty("com.longlinkislong.gloop.opengl.version", "1.0");
@@ -249,43 +503,17 @@ public class GLWindow {
             default:
                 throw new UnsupportedOperationException("Unsupported client API: " + apiString);
         }
-
-        if (GLFW.glfwInit()) {
-            LOGGER.trace(GLFW_MARKER, "GLFW successfully initialized!");
-        } else {
-            throw new GLFWException("Could not initialize GLFW!");
-        }
-
-        final GLFWErrorCallback errCallback = GLFWErrorCallback.create((error, desc) -> {
-            final String msg = GLFWErrorCallback.getDescription(desc);
-
-            GLFW_LOGGER.error(GLFW_MARKER, "GLFW Error #{}: {}", error, msg);
-        });
-        
-
-        GLFW.glfwSetErrorCallback(errCallback);
-
-        final List<GLGamepad> gamepads = new ArrayList<>(0);
-        for (int i = 0; i < GLFW.GLFW_JOYSTICK_LAST; i++) {
-            if (GLFW.glfwJoystickPresent(i)) {
-                final GLGamepad gamepad = new GLGamepad(i);
-
-                gamepads.add(gamepad);
-                LOGGER.trace(GLFW_MARKER, "Registered gamepad: {}!", gamepad.getName());
-            }
-        }
-
-        GAMEPADS = Collections.unmodifiableList(gamepads);
     }
 
     /**
-     * Retrieves the list of gamepads
+     * Retrieves the list of gamepads. The joystick slots are probed on the
+     * first call.
      *
      * @return the list of gamepads
      * @since 15.06.07
      */
     public static List<GLGamepad> listGamepads() {
-        return Collections.unmodifiableList(GAMEPADS);
+        return GLFWBootstrap.gamepads();
     }
 
     /**
@@ -297,7 +525,7 @@ public class GLWindow {
     public static List<GLWindow> listActiveWindows() {
         final List<GLWindow> windows = new ArrayList<>(1);
 
-        windows.addAll(WINDOWS.values());
+        windows.addAll(GLWindowRegistry.values());
 
         return Collections.unmodifiableList(windows);
     }
@@ -398,17 +626,44 @@ public class GLWindow {
             final CharSequence title,
             final GLWindow shared) {
 
+        this(width, height, title, shared, false, true);
+    }
+
+    private GLWindow(
+            final int width, final int height,
+            final CharSequence title,
+            final GLWindow shared,
+            final boolean isWorker,
+            final boolean mayShareRenderThread) {
+
         this.width = width;
         this.height = height;
         this.title = title.toString();
         this.shared = shared;
-
-        this.thread = GLThread.create();
+        this.isWorker = isWorker;
+        this.metrics = new GLWindowMetrics(this.title);
+        this.watchdog = new GLListenerWatchdog(this.title);
+        // workers run at the settings of the window they were created for
+        this.threadSettings = this.isWorker() ? shared.threadSettings : GLThreadSettings.DEFAULT;
+
+        GLFWBootstrap.initGLFW();
+        this.timer = new GLTimer(this.backend);
+        if (GLRenderScheduler.isEnabled() && mayShareRenderThread) {
+            this.lane = GLRenderScheduler.assign(this);
+            this.thread = this.lane.getThread();
+        } else {
+            this.lane = null;
+            this.thread = GLThread.create();
+        }
 
         LOGGER.trace(GLFW_MARKER, "Constructed GLWindow! [width={}, height={}, title={}, parent={}]", width, height, title, shared != null ? shared.title : "null");
         LOGGER.trace(GLFW_MARKER, "Constructed GLWindow.thread = {}", this.thread);
 
-        this.thread.submitGLTask(new InitTask());
+        if (this.lane != null) {
+            this.lane.execute(new InitTask());
+        } else {
+            this.thread.submitGLTask(new InitTask());
+        }
         this.monitor = NULL;
     }
 
@@ -448,7 +703,7 @@ public class GLWindow {
      * @since 15.06.24
      */
     public GLMouse getMouse() throws GLFWException {
-        return new MouseQuery().glCall(this.getGLThread());
+        return this.glCall(this.mouseQuery);
     }
 
     /**
@@ -468,6 +723,8 @@ public class GLWindow {
         }
     }
 
+    private final TrackedQuery<GLMouse> mouseQuery = new TrackedQuery<>(new MouseQuery());
+
     //private Optional<GLKeyboard> keyboard = Optional.empty();
     private final Lazy<GLKeyboard> keyboard = new Lazy<>(() -> {
         final GLKeyboard kb = new GLKeyboard(this);
@@ -491,7 +748,7 @@ public class GLWindow {
      * @since 15.06.07
      */
     public GLKeyboard getKeyboard() throws GLFWException {
-        return new KeyboardQuery().glCall(this.getGLThread());
+        return this.glCall(this.keyboardQuery);
     }
 
     /**
@@ -512,6 +769,8 @@ public class GLWindow {
 
     }
 
+    private final TrackedQuery<GLKeyboard> keyboardQuery = new TrackedQuery<>(new KeyboardQuery());
+
     /**
      * Sets the clipboard string.
      *
@@ -527,7 +786,7 @@ public class GLWindow {
         }
 
         GLFW_LOGGER.trace(GLFW_MARKER, "glfwSetClipboardString({}, {})", this.window, seq);
-        GLFW.glfwSetClipboardString(this.window, seq);
+        this.backend.setClipboardString(this.window, seq);
     }
 
     /**
@@ -545,7 +804,127 @@ public class GLWindow {
         }
 
         GLFW_LOGGER.trace(GLFW_MARKER, "glfwGetClipboardString({})", this.window);
-        return GLFW.glfwGetClipboardString(this.window);
+        return this.backend.getClipboardString(this.window);
+    }
+
+    /**
+     * Sets the clipboard string on the window's GLThread. The caller does not
+     * wait for the selection owner to respond.
+     *
+     * @param seq the string to set.
+     * @return a future that completes once the clipboard was set.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Void> setClipboardStringAsync(final CharSequence seq) throws GLFWException {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        final String value = seq.toString();
+
+        return this.glAsync(() -> {
+            GLFW_LOGGER.trace(GLFW_MARKER, "glfwSetClipboardString({}, {})", this.window, value);
+            this.backend.setClipboardString(this.window, value);
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves the clipboard string on the window's GLThread. The caller
+     * does not wait for the selection owner to respond.
+     *
+     * @return a future that completes with the clipboard string.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public CompletableFuture<String> getClipboardStringAsync() throws GLFWException {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        return this.glAsync(() -> {
+            GLFW_LOGGER.trace(GLFW_MARKER, "glfwGetClipboardString({})", this.window);
+            return this.backend.getClipboardString(this.window);
+        });
+    }
+
+    /**
+     * Writes UTF-8 encoded bytes to the clipboard on the window's GLThread
+     * without decoding them. If utf8 is a direct buffer whose last byte is 0
+     * it is handed to GLFW as is; otherwise the bytes are copied once into
+     * native memory. The buffer must not be modified until the future
+     * completes.
+     *
+     * @param utf8 the UTF-8 bytes between position and limit.
+     * @return a future that completes once the clipboard was set.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Void> setClipboardUTF8Async(final ByteBuffer utf8) throws GLFWException {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        final ByteBuffer src = utf8.slice();
+
+        return this.glAsync(() -> {
+            final int length = src.remaining();
+
+            GLFW_LOGGER.trace(GLFW_MARKER, "glfwSetClipboardString({}, [{} bytes])", this.window, length);
+
+            if (src.isDirect() && length > 0 && src.get(length - 1) == 0) {
+                this.backend.setClipboardUTF8(this.window, src);
+            } else {
+                final ByteBuffer terminated = ByteBuffer.allocateDirect(length + 1);
+
+                terminated.put(src).put((byte) 0).flip();
+                this.backend.setClipboardUTF8(this.window, terminated);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Reads the clipboard as UTF-8 on the window's GLThread without decoding
+     * it. The allocator is called on the GLThread with the number of bytes
+     * and must return a buffer with at least that many bytes remaining; the
+     * bytes are copied straight from GLFW's buffer into it. The allocator is
+     * not called when the clipboard is empty.
+     *
+     * @param allocator supplies the destination for the given byte count.
+     * @return a future that completes with the destination buffer, its
+     * position and limit surrounding the clipboard bytes. null if the
+     * clipboard holds no string or an empty string, on every backend.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public CompletableFuture<ByteBuffer> getClipboardUTF8Async(final IntFunction<ByteBuffer> allocator) throws GLFWException {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        Objects.requireNonNull(allocator, "Allocator cannot be null!");
+
+        return this.glAsync(() -> {
+            GLFW_LOGGER.trace(GLFW_MARKER, "glfwGetClipboardString({})", this.window);
+
+            final ByteBuffer src = this.backend.getClipboardUTF8(this.window);
+
+            if (src == null || !src.hasRemaining()) {
+                return null;
+            }
+
+            final ByteBuffer dst = allocator.apply(src.remaining());
+            final int start = dst.position();
+
+            dst.put(src);
+            dst.limit(dst.position());
+            dst.position(start);
+
+            return dst;
+        });
     }
 
     /**
@@ -557,17 +936,31 @@ public class GLWindow {
      * @since 15.06.07
      */
     public static double getTime() {
-        return GLFW.glfwGetTime();
+        GLFWBootstrap.initGLFW();
+        return GLFWBootstrap.getBackend().getTime();
     }
 
-    private void setFramebufferResizeCallback(final GLFramebufferResizeListener listener) {
-        final GLFWFramebufferSizeCallback callback
-                = GLFWFramebufferSizeCallback.create(listener::glfwFramebufferResizeCallback);
-
-        GLFW_LOGGER.trace(GLFW_MARKER, "glfwSetFramebufferSizeCallback({}, {})", this.window, callback);
-        GLFW.glfwSetFramebufferSizeCallback(this.window, callback);
+    /**
+     * Retrieves the raw value of the monotonic high resolution timer.
+     *
+     * @return the current timer value in ticks.
+     * @see #getTimerFrequency()
+     * @since 26.10.18
+     */
+    public static long getTimerValue() {
+        GLFWBootstrap.initGLFW();
+        return GLFWBootstrap.getBackend().getTimerValue();
+    }
 
-        this.resizeCallback = Optional.of(callback);
+    /**
+     * Retrieves the frequency of the high resolution timer.
+     *
+     * @return the number of timer ticks per second.
+     * @since 26.10.18
+     */
+    public static long getTimerFrequency() {
+        GLFWBootstrap.initGLFW();
+        return GLFWBootstrap.getBackend().getTimerFrequency();
     }
 
     /**
@@ -578,95 +971,138 @@ public class GLWindow {
      * @since 15.06.07
      */
     public double getDPI() throws GLFWException {
-        return new DPIQuery().glCall(this.getGLThread());
+        if (this.isGLThread()) {
+            if (!this.isValid()) {
+                throw new GLFWException("GLWindow is not valid!");
+            }
+
+            return this.computeDPI(QUERY_OUTPUT.get());
+        }
+
+        return this.dpiCall.run();
     }
 
-    public class DPIQuery extends GLQuery<Double> {
+    /**
+     * Computes the DPI on the GLThread into a field so that the result is not
+     * boxed. Allocated once per window; callers take turns on it.
+     */
+    private final class DPICall extends GLQuery<Void> {
+
+        private final TrackedQuery<Void> tracked = new TrackedQuery<>(this);
+        private double dpi;
 
         @Override
-        public Double call() throws Exception {           
+        public Void call() throws Exception {
             if (!GLWindow.this.isValid()) {
                 throw new GLFWException("GLWindow is not valid!");
             }
 
-            final long m = GLWindow.this.monitor == 0 ? GLFW.glfwGetPrimaryMonitor() : GLWindow.this.monitor;            
-            final long mHandle = GLFW.glfwGetWindowMonitor(m);            
-            final GLFWVidMode mode = GLFW.glfwGetVideoMode(mHandle);
+            this.dpi = GLWindow.this.computeDPI(QUERY_OUTPUT.get());
+            return null;
+        }
+
+        synchronized double run() {
+            GLWindow.this.glCall(this.tracked);
+            return this.dpi;
+        }
+    }
+
+    private final DPICall dpiCall = new DPICall();
+
+    private double computeDPI(final int[] out) {
+        final GLWindowBackend platform = this.backend;
+        // windowed mode windows report the primary monitor
+        final long m = this.monitor == 0 ? platform.getPrimaryMonitor() : this.monitor;
 
-            final int[] widthMM = {0};
-            final int[] heightMM = {0};            
+        platform.getVideoMode(m, out);
 
-            GLFW.glfwGetMonitorPhysicalSize(mHandle, widthMM, heightMM);
+        final int vWidth = out[GLWindowBackend.VIDMODE_WIDTH];
 
-            final int vWidth = mode.width();
-            final double dpi = (vWidth / (widthMM[0] / 25.4 /* mm to in */));            
+        platform.getMonitorPhysicalSize(m, out);
+
+        return (vWidth / (out[GLTools.WIDTH] / 25.4 /* mm to in */));
+    }
+
+    public class DPIQuery extends GLQuery<Double> {
+
+        @Override
+        public Double call() throws Exception {           
+            if (!GLWindow.this.isValid()) {
+                throw new GLFWException("GLWindow is not valid!");
+            }
 
-            return dpi;
+            return GLWindow.this.computeDPI(QUERY_OUTPUT.get());
         }
     }
 
+
     private class InitTask extends GLTask {
 
         @Override
         public void run() {            
+            GLWindow.this.glThreadHandle = Thread.currentThread();
+            GLWindow.this.initThreadSettings(GLWindow.this.threadSettings);
+
+            final long createStart = System.nanoTime();
+
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_VISIBLE, GL_FALSE)");
-            glfwWindowHint(GLFW.GLFW_VISIBLE, GL_FALSE);
+            GLWindow.this.backend.windowHint(GLFW.GLFW_VISIBLE, GL_FALSE);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_RESIZABLE, GL_TRUE)");
-            glfwWindowHint(GLFW.GLFW_RESIZABLE, GL_TRUE);
+            GLWindow.this.backend.windowHint(GLFW.GLFW_RESIZABLE, GL_TRUE);
 
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, {})", VERSION_MAJOR);
-            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, VERSION_MAJOR);
+            GLWindow.this.backend.windowHint(GLFW_CONTEXT_VERSION_MAJOR, VERSION_MAJOR);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, {})", VERSION_MINOR);
-            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, VERSION_MINOR);
+            GLWindow.this.backend.windowHint(GLFW_CONTEXT_VERSION_MINOR, VERSION_MINOR);
 
             if (USE_EGL) {
                 GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_EGL_CONTEXT_API)");
-                glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_EGL_CONTEXT_API);
+                GLWindow.this.backend.windowHint(GLFW_CONTEXT_CREATION_API, GLFW_EGL_CONTEXT_API);
             }
 
             switch (CLIENT_API) {
                 case VULKAN:
                     GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CLIENT_API, GLFW_NO_API)");
-                    glfwWindowHint(GLFW_CLIENT_API, GLFW_NO_API);
+                    GLWindow.this.backend.windowHint(GLFW_CLIENT_API, GLFW_NO_API);
                     break;
                 case OPENGL:
                     GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CLIENT_API, GLFW_OPENGL_API)");
-                    glfwWindowHint(GLFW_CLIENT_API, GLFW_OPENGL_API);
+                    GLWindow.this.backend.windowHint(GLFW_CLIENT_API, GLFW_OPENGL_API);
 
                     if (VERSION_MAJOR == 3) {
                         if (VERSION_MINOR == 2 || VERSION_MINOR == 3) {
                             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE)");
-                            glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+                            GLWindow.this.backend.windowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
                         }
                     } else if (VERSION_MAJOR > 3) {
                         GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE)");
-                        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+                        GLWindow.this.backend.windowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
                     }                    
                     break;
                 case OPENGLES:
                     GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_CLIENT_API, GLFW_OPENGL_ES_API)");
-                    glfwWindowHint(GLFW_CLIENT_API, GLFW_OPENGL_ES_API);
+                    GLWindow.this.backend.windowHint(GLFW_CLIENT_API, GLFW_OPENGL_ES_API);
                     break;
                 default:
                     throw new IllegalStateException("Unsupported client API: " + CLIENT_API);
             }
 
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_SAMPLES, {})", OPENGL_SAMPLES);
-            glfwWindowHint(GLFW_SAMPLES, OPENGL_SAMPLES);
+            GLWindow.this.backend.windowHint(GLFW_SAMPLES, OPENGL_SAMPLES);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_RED_BITS, {})", OPENGL_RED_BITS);
-            glfwWindowHint(GLFW_RED_BITS, OPENGL_RED_BITS);
+            GLWindow.this.backend.windowHint(GLFW_RED_BITS, OPENGL_RED_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_BLUE_BITS, {})", OPENGL_BLUE_BITS);
-            glfwWindowHint(GLFW_BLUE_BITS, OPENGL_BLUE_BITS);
+            GLWindow.this.backend.windowHint(GLFW_BLUE_BITS, OPENGL_BLUE_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_GREEN_BITS, {})", OPENGL_GREEN_BITS);
-            glfwWindowHint(GLFW_GREEN_BITS, OPENGL_GREEN_BITS);
+            GLWindow.this.backend.windowHint(GLFW_GREEN_BITS, OPENGL_GREEN_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_ALPHA_BITS, {})", OPENGL_ALPHA_BITS);
-            glfwWindowHint(GLFW_ALPHA_BITS, OPENGL_ALPHA_BITS);
+            GLWindow.this.backend.windowHint(GLFW_ALPHA_BITS, OPENGL_ALPHA_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_DEPTH_BITS, {})", OPENGL_DEPTH_BITS);
-            glfwWindowHint(GLFW_DEPTH_BITS, OPENGL_DEPTH_BITS);
+            GLWindow.this.backend.windowHint(GLFW_DEPTH_BITS, OPENGL_DEPTH_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_STENCIL_BITS, {})", OPENGL_STENCIL_BITS);
-            glfwWindowHint(GLFW_STENCIL_BITS, OPENGL_STENCIL_BITS);
+            GLWindow.this.backend.windowHint(GLFW_STENCIL_BITS, OPENGL_STENCIL_BITS);
             GLFW_LOGGER.trace(GLFW_MARKER, "glfwWindowHint(GLFW_REFRESH_RATE, {})", OPENGL_REFRESH_RATE);
-            glfwWindowHint(GLFW_REFRESH_RATE, OPENGL_REFRESH_RATE);
+            GLWindow.this.backend.windowHint(GLFW_REFRESH_RATE, OPENGL_REFRESH_RATE);
 
             final long sharedContextHandle = shared != null ? shared.window : NULL;
 
@@ -676,7 +1112,7 @@ public class GLWindow {
                     GLWindow.this.monitor,
                     sharedContextHandle);
 
-            GLWindow.this.window = GLFW.glfwCreateWindow(
+            GLWindow.this.window = GLWindow.this.backend.createWindow(
                     GLWindow.this.width, GLWindow.this.height,
                     GLWindow.this.title,
                     GLWindow.this.monitor,
@@ -685,41 +1121,49 @@ public class GLWindow {
             if (GLWindow.this.window == NULL) {
                 throw new GLFWException("Failed to create the GLFW window!");
             }
+
+            // worker windows are created on demand and would skew the startup stages
+            final boolean isStartup = !GLWindow.this.isWorker();
+
+            if (isStartup) {
+                GLFWBootstrap.record(GLFWBootstrap.Stage.WINDOW_CREATION, System.nanoTime() - createStart);
+            }
             
-            GLFW.glfwMakeContextCurrent(GLWindow.this.window);
+            GLWindow.this.backend.makeContextCurrent(GLWindow.this.window);
 
-            switch (CLIENT_API) {
-                case OPENGL:
-                    GL.createCapabilities();
-                    break;
-                case OPENGLES:
-                    GLES.createCapabilities();
-                    break;
+            final long capsStart = System.nanoTime();
+
+            GLWindow.this.backend.createCapabilities(CLIENT_API);
 
+            if (isStartup) {
+                GLFWBootstrap.record(GLFWBootstrap.Stage.CREATE_CAPABILITIES, System.nanoTime() - capsStart);
+
+                if (LOGGER.isDebugEnabled() && GLFWBootstrap.claimStartupReport()) {
+                    LOGGER.debug(GLOOP_MARKER, GLFWBootstrap.getStartupReport());
+                }
             }
 
-            GLFW_LOGGER.trace(GLFW_MARKER, "glfwSwapInterval({})", OPENGL_SWAP_INTERVAL);
-            GLFW.glfwSwapInterval(OPENGL_SWAP_INTERVAL);
+            // on a shared render thread only the pacer waits for vsync; see Lane.beforeSwap
+            final int swapInterval = GLWindow.this.lane == null ? OPENGL_SWAP_INTERVAL : 0;
+
+            GLFW_LOGGER.trace(GLFW_MARKER, "glfwSwapInterval({})", swapInterval);
+            GLWindow.this.backend.swapInterval(swapInterval);
 
-            final int[] fbWidth = {0};
-            final int[] fbHeight = {0};
+            final int[] fbSize = QUERY_OUTPUT.get();
             
-            GLFW.glfwGetFramebufferSize(GLWindow.this.window, fbWidth, fbHeight);
+            GLWindow.this.backend.getFramebufferSize(GLWindow.this.window, fbSize);
 
-            GLWindow.this.thread.currentViewport = new GLViewport(0, 0, fbWidth[0], fbHeight[0]);
-            GLWindow.this.handler.register();
+            GLWindow.this.thread.currentViewport = new GLViewport(0, 0, fbSize[GLTools.WIDTH], fbSize[GLTools.HEIGHT]);
 
-            WINDOWS.put(GLWindow.this.window, GLWindow.this);
+            GLWindowRegistry.put(GLWindow.this.window, GLWindow.this);
             GLWindow.this.hasInitialized = true;
 
-            GLFW.glfwSetKeyCallback(GLWindow.this.window, GLWindow.this.keyCallback.get());
-            GLFW.glfwSetMouseButtonCallback(GLWindow.this.window, GLWindow.this.mouseButtonCallback.get());
-            GLFW.glfwSetCursorEnterCallback(GLWindow.this.window, GLWindow.this.cursorEnterCallback.get());
-            GLFW.glfwSetCursorPosCallback(GLWindow.this.window, GLWindow.this.cursorPosCallback.get());
-            GLFW.glfwSetScrollCallback(GLWindow.this.window, GLWindow.this.scrollCallback.get());
-            GLFW.glfwSetCharCallback(GLWindow.this.window, GLWindow.this.charCallback.get());
-            GLFW.glfwSetWindowCloseCallback(GLWindow.this.window, GLWindow.this.windowCloseCallback.get());
-            GLFW.glfwSetWindowIconifyCallback(GLWindow.this.window, GLWindow.this.windowIconifyCallback.get());
+            if (!GLWindow.this.isWorker()) {
+                GLWindow.this.metrics.register();
+            }
+
+            GLFW_LOGGER.trace(GLFW_MARKER, "Registering callbacks for GLWindow[{}]", GLWindow.this.window);
+            GLWindow.this.backend.setCallbacks(GLWindow.this.window, new EventHandler());
         }
     }
 
@@ -730,10 +1174,14 @@ public class GLWindow {
      * @since 16.08.31
      */
     public static int getPrimaryMonitorWidth() {
-        final long primary = GLFW.glfwGetPrimaryMonitor();
-        final GLFWVidMode mode = GLFW.glfwGetVideoMode(primary);
+        GLFWBootstrap.initGLFW();
+
+        final GLWindowBackend platform = GLFWBootstrap.getBackend();
+        final int[] mode = QUERY_OUTPUT.get();
+
+        platform.getVideoMode(platform.getPrimaryMonitor(), mode);
 
-        return mode.width();
+        return mode[GLWindowBackend.VIDMODE_WIDTH];
     }
 
     /**
@@ -743,10 +1191,14 @@ public class GLWindow {
      * @since 16.08.31
      */
     public static int getPrimaryMonitorHeight() {
-        final long primary = GLFW.glfwGetPrimaryMonitor();
-        final GLFWVidMode mode = GLFW.glfwGetVideoMode(primary);
+        GLFWBootstrap.initGLFW();
 
-        return mode.height();
+        final GLWindowBackend platform = GLFWBootstrap.getBackend();
+        final int[] mode = QUERY_OUTPUT.get();
+
+        platform.getVideoMode(platform.getPrimaryMonitor(), mode);
+
+        return mode[GLWindowBackend.VIDMODE_HEIGHT];
     }
 
     /**
@@ -758,7 +1210,7 @@ public class GLWindow {
      * @since 16.08.31
      */
     public void setFullscreen(final boolean fullscreen) {
-        new SetFullscreenTask(fullscreen, GLFW.GLFW_DONT_CARE, GLFW.GLFW_DONT_CARE).glRun(this.getGLThread());
+        this.glRun(new SetFullscreenTask(fullscreen, GLFW.GLFW_DONT_CARE, GLFW.GLFW_DONT_CARE));
     }
 
     /**
@@ -774,7 +1226,7 @@ public class GLWindow {
             final boolean fullscreen,
             final int preferredWidth, final int preferredHeight) {
 
-        new SetFullscreenTask(fullscreen, preferredWidth, preferredHeight).glRun(this.getGLThread());
+        this.glRun(new SetFullscreenTask(fullscreen, preferredWidth, preferredHeight));
     }
 
     private final List<Runnable> onContextLost = new ArrayList<>(0);
@@ -813,19 +1265,21 @@ public class GLWindow {
 
         @Override
         public void run() {            
-            final long monitor = isFullscreen ? GLFW.glfwGetPrimaryMonitor() : NULL;
+            final GLWindowBackend platform = GLWindow.this.backend;
+            final long monitor = isFullscreen ? platform.getPrimaryMonitor() : NULL;
 
             if (monitor != NULL) {
-                final GLFWVidMode mode = GLFW.glfwGetVideoMode(monitor);
+                final int[] mode = QUERY_OUTPUT.get();
 
-                glfwWindowHint(GLFW_RED_BITS, mode.redBits());
-                glfwWindowHint(GLFW_BLUE_BITS, mode.blueBits());
-                glfwWindowHint(GLFW_GREEN_BITS, mode.greenBits());
-                glfwWindowHint(GLFW_REFRESH_RATE, mode.refreshRate());
+                platform.getVideoMode(monitor, mode);
+                platform.windowHint(GLFW_RED_BITS, mode[GLWindowBackend.VIDMODE_RED_BITS]);
+                platform.windowHint(GLFW_BLUE_BITS, mode[GLWindowBackend.VIDMODE_BLUE_BITS]);
+                platform.windowHint(GLFW_GREEN_BITS, mode[GLWindowBackend.VIDMODE_GREEN_BITS]);
+                platform.windowHint(GLFW_REFRESH_RATE, mode[GLWindowBackend.VIDMODE_REFRESH_RATE]);
 
-                GLFW.glfwSetWindowMonitor(window, monitor, 0, 0, this.preferredWidth, this.preferredHeight, mode.refreshRate());
+                platform.setWindowMonitor(window, monitor, 0, 0, this.preferredWidth, this.preferredHeight, mode[GLWindowBackend.VIDMODE_REFRESH_RATE]);
             } else {
-                GLFW.glfwSetWindowMonitor(window, monitor, 0, 0, this.preferredWidth, this.preferredHeight, GLFW.GLFW_DONT_CARE);
+                platform.setWindowMonitor(window, monitor, 0, 0, this.preferredWidth, this.preferredHeight, GLFW.GLFW_DONT_CARE);
             }
         }
 
@@ -849,7 +1303,7 @@ public class GLWindow {
      * @since 15.06.24
      */
     public void setVisible(final boolean isVisible) {
-        new SetWindowVisibilityTask(isVisible).glRun(this.getGLThread());
+        this.glRun(new SetWindowVisibilityTask(isVisible));
     }
 
     /**
@@ -879,9 +1333,9 @@ public class GLWindow {
             }
 
             if (this.visibility) {                
-                GLFW.glfwShowWindow(GLWindow.this.window);
+                GLWindow.this.backend.showWindow(GLWindow.this.window);
             } else {                
-                GLFW.glfwHideWindow(GLWindow.this.window);
+                GLWindow.this.backend.hideWindow(GLWindow.this.window);
             }            
         }
     }
@@ -896,7 +1350,7 @@ public class GLWindow {
      * @since 15.06.07
      */
     public void setSize(final int width, final int height) throws GLFWException {
-        new SetWindowSizeTask(width, height).glRun(this.getGLThread());
+        this.glRun(new SetWindowSizeTask(width, height));
     }
 
     /**
@@ -905,7 +1359,7 @@ public class GLWindow {
      * @param y the y coordinate of the window
      */
     public void setPosition(final int x, final int y){
-        new SetWindowPositionTask(x, y).glRun(this.getGLThread());
+        this.glRun(new SetWindowPositionTask(x, y));
     }
 
     public class SetWindowSizeTask extends GLTask {
@@ -929,7 +1383,7 @@ public class GLWindow {
                 throw new GLFWException("GLWindow is not valid!");
             }
             
-            GLFW.glfwSetWindowSize(GLWindow.this.window, this.width, this.height);
+            GLWindow.this.backend.setWindowSize(GLWindow.this.window, this.width, this.height);
         }
 
     }
@@ -950,7 +1404,7 @@ public class GLWindow {
                 throw new GLFWException("GLWindow is not valid!");
             }
             
-            GLFW.glfwSetWindowPos(GLWindow.this.window, this.x, this.y);
+            GLWindow.this.backend.setWindowPos(GLWindow.this.window, this.x, this.y);
         }
 
     }
@@ -963,9 +1417,7 @@ public class GLWindow {
      * @since 15.06.07
      */
     public final int getFramebufferWidth() throws GLFWException {
-        final GLQuery<int[]> sizeQuery = new FramebufferSizeQuery();
-
-        return sizeQuery.glCall(this.getGLThread())[GLTools.WIDTH];
+        return this.queryInt(this.framebufferSizeCall, GLTools.WIDTH);
     }
 
     /**
@@ -976,9 +1428,18 @@ public class GLWindow {
      * @since 15.06.07
      */
     public final int getFramebufferHeight() throws GLFWException {
-        final GLQuery<int[]> sizeQuery = new FramebufferSizeQuery();
+        return this.queryInt(this.framebufferSizeCall, GLTools.HEIGHT);
+    }
 
-        return sizeQuery.glCall(this.getGLThread())[GLTools.HEIGHT];
+    /**
+     * Retrieves the size of the back buffer without allocating.
+     *
+     * @param size output of length 2 receiving the width and height.
+     * @throws GLFWException if the window is not initialized.
+     * @since 26.10.18
+     */
+    public final void getFramebufferSize(final int[] size) throws GLFWException {
+        this.query(this.framebufferSizeCall, size);
     }
 
     /**
@@ -988,32 +1449,62 @@ public class GLWindow {
      */
     public class FramebufferSizeQuery extends GLQuery<int[]> {
 
+        private final int[] out;
+
+        /**
+         * Constructs a query that returns a new array on every call.
+         */
+        public FramebufferSizeQuery() {
+            this.out = null;
+        }
+
+        /**
+         * Constructs a query that writes into an output array instead of
+         * allocating one on every call.
+         *
+         * @param out output of length 2 receiving the width and height.
+         * @since 26.10.18
+         */
+        public FramebufferSizeQuery(final int[] out) {
+            this.out = Objects.requireNonNull(out);
+        }
+
         @Override
         public int[] call() throws Exception {
             if (!GLWindow.this.isValid()) {
                 throw new GLFWException("GLWindow is not valid!");
             }
 
-            final int[] width = {0};
-            final int[] height = {0};
-            
-            GLFW.glfwGetFramebufferSize(GLWindow.this.window, width, height);
+            final int[] size = this.out == null ? new int[2] : this.out;
 
-            final int[] size = new int[]{width[0], height[0]};
+            FRAMEBUFFER_SIZE.query(GLWindow.this, size);
 
             return size;
         }
-
     }
 
     /**
-     * Sets the window's cursor.
+     * Sets the window's cursor. Nothing is submitted to the GLThread if the
+     * cursor is already set.
      *
      * @param cursorId the GLFW cursor id.
      * @since 15.10.30
      */
     public final void setCursor(final long cursorId) {
-        new SetCursorTask(cursorId).glRun(this.getGLThread());
+        if (this.currentCursor.getAndSet(cursorId) != cursorId) {
+            this.glRun(new SetCursorTask(cursorId));
+        }
+    }
+
+    /**
+     * Retrieves the cursor manager of this window. Cursors created by the
+     * manager are destroyed when the window is cleaned up.
+     *
+     * @return the cursor manager.
+     * @since 26.10.18
+     */
+    public GLCursorManager getCursorManager() {
+        return this.cursorManager;
     }
 
     /**
@@ -1031,7 +1522,7 @@ public class GLWindow {
 
         @Override
         public void run() {            
-            GLFW.glfwSetCursor(GLWindow.this.window, this.cursorId);
+            GLWindow.this.backend.setCursor(GLWindow.this.window, this.cursorId);
         }
 
     }
@@ -1044,7 +1535,7 @@ public class GLWindow {
      * @since 15.06.07
      */
     public int getX() throws GLFWException {
-        return new WindowPositionQuery().glCall(this.getGLThread())[GLTools.X];
+        return this.queryInt(this.windowPosCall, GLTools.X);
     }
 
     /**
@@ -1055,7 +1546,20 @@ public class GLWindow {
      * @since 15.06.07
      */
     public int getY() throws GLFWException {
-        return new WindowPositionQuery().glCall(this.getGLThread())[GLTools.Y];
+        return this.queryInt(this.windowPosCall, GLTools.Y);
+    }
+
+    /**
+     * Retrieves the position of the top-left of the window without
+     * allocating.
+     *
+     * @param pos output of length 2 receiving the x and y coordinates in
+     * screen space.
+     * @throws GLFWException if the window has not been initialized.
+     * @since 26.10.18
+     */
+    public void getPosition(final int[] pos) throws GLFWException {
+        this.query(this.windowPosCall, pos);
     }
 
     /**
@@ -1065,37 +1569,72 @@ public class GLWindow {
      */
     public class WindowPositionQuery extends GLQuery<int[]> {
 
+        private final int[] out;
+
+        /**
+         * Constructs a query that returns a new array on every call.
+         */
+        public WindowPositionQuery() {
+            this.out = null;
+        }
+
+        /**
+         * Constructs a query that writes into an output array instead of
+         * allocating one on every call.
+         *
+         * @param out output of length 2 receiving the x and y coordinates.
+         * @since 26.10.18
+         */
+        public WindowPositionQuery(final int[] out) {
+            this.out = Objects.requireNonNull(out);
+        }
+
         @Override
         public int[] call() throws Exception {
             if (!GLWindow.this.isValid()) {
                 throw new GLFWException("GLWindow is not valid!");
             }
 
-            final int[] x = {0};
-            final int[] y = {0};
-            
-            GLFW.glfwGetWindowPos(GLWindow.this.window, x, y);
+            final int[] pos = this.out == null ? new int[2] : this.out;
 
-            return new int[]{x[0], y[0]};
+            WINDOW_POS.query(GLWindow.this, pos);
+
+            return pos;
         }
     }
 
     public class WindowFrameSizeQuery extends GLQuery<int[]> {
 
+        private final int[] out;
+
+        /**
+         * Constructs a query that returns a new array on every call.
+         */
+        public WindowFrameSizeQuery() {
+            this.out = null;
+        }
+
+        /**
+         * Constructs a query that writes into an output array instead of
+         * allocating one on every call.
+         *
+         * @param out output of length 4 receiving the left, top, right and
+         * bottom edges.
+         * @since 26.10.18
+         */
+        public WindowFrameSizeQuery(final int[] out) {
+            this.out = Objects.requireNonNull(out);
+        }
+
         @Override
         public int[] call() throws Exception {
             if (!GLWindow.this.isValid()) {
                 throw new GLFWException("GLWindow is not valid!");
             }
 
-            final int[] l = {0};
-            final int[] t = {0};
-            final int[] r = {0};
-            final int[] b = {0};
-            
-            GLFW.glfwGetWindowFrameSize(GLWindow.this.window, l, t, r, b);
+            final int[] size = this.out == null ? new int[4] : this.out;
 
-            final int[] size = new int[]{l[0], t[0], r[0], b[0]};
+            WINDOW_FRAME_SIZE.query(GLWindow.this, size);
 
             return size;
         }
@@ -1109,23 +1648,35 @@ public class GLWindow {
      * @since 15.06.05
      */
     public int getWidth() {
-        return new WindowSizeQuery().glCall(this.getGLThread())[GLTools.WIDTH];
+        return this.queryInt(this.windowSizeCall, GLTools.WIDTH);
     }
 
     public int getWindowFrameLeft() {
-        return new WindowFrameSizeQuery().glCall(this.getGLThread())[0];
+        return this.queryInt(this.windowFrameSizeCall, 0);
     }
 
     public int getWindowFrameTop() {
-        return new WindowFrameSizeQuery().glCall(this.getGLThread())[1];
+        return this.queryInt(this.windowFrameSizeCall, 1);
     }
 
     public int getWindowFrameRight() {
-        return new WindowFrameSizeQuery().glCall(this.getGLThread())[2];
+        return this.queryInt(this.windowFrameSizeCall, 2);
     }
 
     public int getWindowFrameBottom() {
-        return new WindowFrameSizeQuery().glCall(this.getGLThread())[3];
+        return this.queryInt(this.windowFrameSizeCall, 3);
+    }
+
+    /**
+     * Retrieves the size of the window frame without allocating.
+     *
+     * @param edges output of length 4 receiving the left, top, right and
+     * bottom edges.
+     * @throws GLFWException if the window has not been initialized.
+     * @since 26.10.18
+     */
+    public void getWindowFrameSize(final int[] edges) throws GLFWException {
+        this.query(this.windowFrameSizeCall, edges);
     }
 
     /**
@@ -1136,7 +1687,60 @@ public class GLWindow {
      * @since 15.06.05
      */
     public int getHeight() throws GLFWException {
-        return new WindowSizeQuery().glCall(this.getGLThread())[GLTools.HEIGHT];
+        return this.queryInt(this.windowSizeCall, GLTools.HEIGHT);
+    }
+
+    /**
+     * Retrieves the size of the window without allocating.
+     *
+     * @param size output of length 2 receiving the width and height.
+     * @throws GLFWException if the window has not been initialized.
+     * @since 26.10.18
+     */
+    public void getSize(final int[] size) throws GLFWException {
+        this.query(this.windowSizeCall, size);
+    }
+
+    /**
+     * Retrieves the serial Executor used for listeners registered on the
+     * delegate. Every listener chain of the window shares one serial Executor
+     * per delegate, so events queued for listeners on the same Executor are
+     * delivered in order relative to each other.
+     */
+    GLSerialExecutor getListenerExecutor(final Executor delegate) {
+        return this.listenerExecutors.computeIfAbsent(delegate, GLSerialExecutor::new);
+    }
+
+    /**
+     * Checks if the caller is running on the window's GLThread.
+     */
+    boolean isGLThread() {
+        return Thread.currentThread() == this.glThreadHandle;
+    }
+
+    /**
+     * Runs a native query into a caller supplied output. Queries made on the
+     * GLThread run inline and do not allocate; others are forwarded to the
+     * GLThread and block until it wrote the output.
+     */
+    private void query(final NativeCall call, final int[] out) {
+        if (this.isGLThread()) {
+            if (!this.isValid()) {
+                throw new GLFWException("GLWindow is not valid!");
+            }
+
+            call.query.query(this, out);
+        } else {
+            call.run(out);
+        }
+    }
+
+    private int queryInt(final NativeCall call, final int index) {
+        final int[] out = QUERY_OUTPUT.get();
+
+        this.query(call, out);
+
+        return out[index];
     }
 
     /**
@@ -1146,35 +1750,479 @@ public class GLWindow {
      */
     public class WindowSizeQuery extends GLQuery<int[]> {
 
+        private final int[] out;
+
+        /**
+         * Constructs a query that returns a new array on every call.
+         */
+        public WindowSizeQuery() {
+            this.out = null;
+        }
+
+        /**
+         * Constructs a query that writes into an output array instead of
+         * allocating one on every call.
+         *
+         * @param out output of length 2 receiving the width and height.
+         * @since 26.10.18
+         */
+        public WindowSizeQuery(final int[] out) {
+            this.out = Objects.requireNonNull(out);
+        }
+
         @Override
         public int[] call() throws Exception {
             if (!GLWindow.this.isValid()) {
                 throw new GLFWException("GLWindow is not valid!");
             }
 
-            final int[] w = {0};
-            final int[] h = {0};
+            final int[] size = this.out == null ? new int[2] : this.out;
 
-            GLFW.glfwGetWindowSize(GLWindow.this.window, w, h);
-
-            final int[] size = new int[]{w[0], h[0]};
+            WINDOW_SIZE.query(GLWindow.this, size);
 
             return size;
         }
+    }
+
+    /**
+     * Applies the initial thread settings of the window. A shared render
+     * thread may already carry settings chosen for another window; the
+     * default settings do not override them.
+     */
+    private void initThreadSettings(final GLThreadSettings settings) {
+        if (settings.equals(GLThreadSettings.DEFAULT) && THREAD_SETTINGS_STATE.get() != null) {
+            this.appliedThreadSettings = this.observeThreadSettings(THREAD_SETTINGS_STATE.get());
+        } else {
+            this.applyThreadSettings(settings);
+        }
+    }
+
+    /**
+     * Applies thread settings to the calling thread and records the settings
+     * the thread actually ended up with. Only the parts that differ from what
+     * was last applied to the thread are changed, so a thread that keeps the
+     * inherited priority and cores is never touched.
+     */
+    private GLThreadSettings applyThreadSettings(final GLThreadSettings settings) {
+        final Thread current = Thread.currentThread();
+        ThreadSettingsState state = THREAD_SETTINGS_STATE.get();
+        final GLThreadSettings last = state == null ? NEUTRAL_THREAD_SETTINGS : state.applied;
+
+        if (!settings.equals(last) && state == null) {
+            state = new ThreadSettingsState();
+            THREAD_SETTINGS_STATE.set(state);
+        }
+
+        if (settings.getPriority() != last.getPriority()) {
+            current.setPriority(settings.getPriority());
+
+            if (GLThreadAffinity.isNiceSupported()) {
+                // the JVM ignores Java priorities on Linux; the nice value is what the scheduler uses
+                final int nice = Math.max(-20, Math.min(19, state.originalNice + GLThreadAffinity.toNice(settings.getPriority())));
+
+                if (!GLThreadAffinity.setNice(nice)) {
+                    LOGGER.warn(GLOOP_MARKER, "Unable to set the nice value of GLWindow[{}] to {}; lowering it requires CAP_SYS_NICE", this.title, nice);
+                }
+            }
+        }
+
+        final BitSet affinity = settings.getAffinity();
+
+        if (!affinity.equals(last.getAffinity())) {
+            // an empty core set undoes earlier pinning
+            final BitSet cores = affinity.isEmpty() ? state.originalAffinity : affinity;
+
+            if (!cores.isEmpty() && !GLThreadAffinity.set(cores)) {
+                LOGGER.warn(GLOOP_MARKER, "Unable to set the affinity of GLWindow[{}] to {}", this.title, cores);
+            }
+        }
+
+        if (state != null) {
+            state.applied = settings;
+        }
+
+        final GLThreadSettings applied = this.observeThreadSettings(state);
+
+        LOGGER.trace(GLOOP_MARKER, "GLWindow[{}] thread {}: {}", this.title, current.getName(), applied);
+
+        this.appliedThreadSettings = applied;
+        return applied;
+    }
+
+    private GLThreadSettings observeThreadSettings(final ThreadSettingsState state) {
+        final int priority;
+
+        if (GLThreadAffinity.isNiceSupported()) {
+            // priorities are relative to the nice value the thread started with
+            priority = state == null
+                    ? Thread.NORM_PRIORITY
+                    : GLThreadAffinity.toPriority(GLThreadAffinity.getNice() - state.originalNice);
+        } else {
+            priority = Thread.currentThread().getPriority();
+        }
+
+        return new GLThreadSettings(priority, GLThreadAffinity.get());
+    }
+
+    /**
+     * Changes the priority and CPU affinity of the window's GLThread. Worker
+     * threads created by {@link #newWorkerThread()} and
+     * {@link #getWorkerPool()} follow the settings of the window. If
+     * {@link GLRenderScheduler#isEnabled() shared render threads} are enabled
+     * the settings apply to every window on the same thread.
+     *
+     * @param settings the new settings.
+     * @return a future that completes with the settings that were observed on
+     * the thread after applying them.
+     * @since 26.10.18
+     */
+    public CompletableFuture<GLThreadSettings> setThreadSettings(final GLThreadSettings settings) {
+        this.threadSettings = Objects.requireNonNull(settings);
+        this.workerThreads.forEach(worker -> worker.setThreadSettings(settings));
+        this.workerPool.ifInitialized(pool -> pool.setThreadSettings(settings));
+
+        return this.glAsync(() -> this.applyThreadSettings(settings));
+    }
+
+    /**
+     * Retrieves the requested settings of the window's GLThread.
+     *
+     * @return the requested thread settings.
+     * @since 26.10.18
+     */
+    public GLThreadSettings getThreadSettings() {
+        return this.threadSettings;
+    }
+
+    /**
+     * Retrieves the priority and affinity that were observed on the window's
+     * GLThread after the settings were last applied. The affinity is empty if
+     * it cannot be read on this platform. On Linux the priority is derived
+     * from the nice value of the thread, so it differs from the requested
+     * priority if the nice value could not be changed.
+     *
+     * @return the applied settings. Empty if the window is not initialized.
+     * @since 26.10.18
+     */
+    public Optional<GLThreadSettings> getAppliedThreadSettings() {
+        return Optional.ofNullable(this.appliedThreadSettings);
+    }
+
+    private boolean isWorker() {
+        return this.isWorker;
+    }
+
+    /**
+     * Constructs a hidden window that exists only to provide a GLThread with
+     * a context shared with the parent. Workers take the thread settings of
+     * the parent and are not registered with JMX.
+     *
+     * @param parent the window to share the context with.
+     * @param mayShareRenderThread true if the worker only receives tasks
+     * through its GLWindow, so it can be scheduled onto a shared render
+     * thread. Workers whose GLThread is handed out must own it.
+     * @return the worker window.
+     */
+    static GLWindow newWorker(final GLWindow parent, final boolean mayShareRenderThread) {
+        return new GLWindow(0, 0, WORKER_TITLE, Objects.requireNonNull(parent, "Parent cannot be null!"), true, mayShareRenderThread);
+    }
+
+    /**
+     * Checks if the window is scheduled onto a shared render thread.
+     *
+     * @return true if the window's tasks share their thread with other
+     * windows.
+     */
+    boolean isOnSharedRenderThread() {
+        return this.lane != null;
+    }
+
+    /**
+     * Retrieves the event and frame statistics for this window.
+     *
+     * @return the window metrics.
+     * @since 26.10.18
+     */
+    public GLWindowMetrics getMetrics() {
+        return this.metrics;
+    }
 
+    /**
+     * Retrieves the per-listener time accounting for this window. Timing is
+     * disabled unless enabled on the watchdog or by the system property
+     * com.longlinkislong.gloop.window.listener_watchdog.
+     *
+     * @return the listener watchdog.
+     * @since 26.10.18
+     */
+    public GLListenerWatchdog getListenerWatchdog() {
+        return this.watchdog;
     }
 
     /**
-     * Retrieves the thread owned by the GLWindow.
+     * Retrieves the late-latched input of this window. Latching is disabled
+     * until {@link GLInputLatch#setEnabled(boolean)} is called.
+     *
+     * @return the input latch.
+     * @since 26.10.18
+     */
+    public GLInputLatch getInputLatch() {
+        return this.inputLatch;
+    }
+
+    /**
+     * Retrieves the frame capture of this window. Nothing is captured until
+     * {@link GLFrameCapture#start(GLFrameCapture.Sink)} is called.
+     *
+     * @return the frame capture.
+     * @since 26.10.18
+     */
+    public GLFrameCapture getFrameCapture() {
+        return this.frameCapture;
+    }
+
+    /**
+     * A GLTask that records the queue depth and render time of another task.
+     * The wrappers for the fixed operations are allocated once per window.
+     */
+    private final class TrackedTask extends GLTask {
+
+        private final GLTask task;
+
+        TrackedTask(final GLTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            final GLWindowMetrics stats = GLWindow.this.metrics;
+            final long start = System.nanoTime();
+
+            stats.taskStarted();
+
+            try {
+                this.task.run();
+            } finally {
+                stats.recordRenderTime(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * A GLQuery that records the queue depth and render time of another
+     * query. The wrappers for the fixed operations are allocated once per
+     * window.
+     */
+    private final class TrackedQuery<T> extends GLQuery<T> {
+
+        private final GLQuery<T> query;
+
+        TrackedQuery(final GLQuery<T> query) {
+            this.query = query;
+        }
+
+        @Override
+        public T call() throws Exception {
+            final GLWindowMetrics stats = GLWindow.this.metrics;
+            final long start = System.nanoTime();
+
+            stats.taskStarted();
+
+            try {
+                return this.query.call();
+            } finally {
+                stats.recordRenderTime(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Runs a task on the window's GLThread and tracks it in the queue depth
+     * and render time metrics.
+     */
+    private void glRun(final GLTask task) {
+        this.glRun(new TrackedTask(task));
+    }
+
+    private void glRun(final TrackedTask tracked) {
+        this.metrics.taskQueued();
+        this.wake();
+
+        if (this.lane == null) {
+            tracked.glRun(this.thread);
+        } else if (this.lane.isCurrentThread()) {
+            this.lane.runTask(tracked, true);
+        } else {
+            this.submitQueued(tracked);
+        }
+    }
+
+    /**
+     * Runs a query on the window's GLThread and tracks it in the queue depth
+     * and render time metrics.
+     */
+    <T> T glCall(final GLQuery<T> query) {
+        return this.glCall(new TrackedQuery<>(query));
+    }
+
+    private <T> T glCall(final TrackedQuery<T> tracked) {
+        this.metrics.taskQueued();
+        this.wake();
+
+        if (this.lane == null) {
+            return tracked.glCall(this.thread);
+        }
+
+        final CompletableFuture<T> out = new CompletableFuture<>();
+        final Runnable job = () -> {
+            try {
+                out.complete(tracked.call());
+            } catch (Throwable ex) {
+                out.completeExceptionally(ex);
+            }
+        };
+
+        if (this.lane.isCurrentThread()) {
+            this.lane.runTask(job, true);
+        } else {
+            this.submitQueued(job);
+        }
+
+        try {
+            return out.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GLFWException("Interrupted while waiting for GLWindow[" + this.title + "]!", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            } else {
+                throw new GLFWException("GLQuery failed on GLWindow[" + this.title + "]!", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Queues a job on the window's GLThread, or on its shared render thread
+     * with the window's context current.
+     */
+    private void submit(final Runnable job) {
+        if (this.lane == null) {
+            this.thread.submit(job);
+        } else {
+            this.lane.execute(job);
+        }
+    }
+
+    /**
+     * Queues a job that was already counted in the queue depth. A rejected
+     * job is taken off the count again; otherwise the phantom task would keep
+     * on-demand updates from ever waiting.
+     */
+    private void submitQueued(final Runnable job) {
+        try {
+            this.submit(job);
+        } catch (RuntimeException ex) {
+            this.metrics.taskRejected();
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs an action on the window's GLThread without waiting for it and
+     * tracks it in the queue depth metric.
+     */
+    private <T> CompletableFuture<T> glAsync(final Supplier<T> action) {
+        final GLWindowMetrics stats = this.metrics;
+        final CompletableFuture<T> out = new CompletableFuture<>();
+
+        stats.taskQueued();
+        this.wake();
+
+        this.submitQueued(() -> {
+            stats.taskStarted();
+
+            try {
+                out.complete(action.get());
+            } catch (Throwable ex) {
+                out.completeExceptionally(ex);
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Retrieves the thread owned by the GLWindow. A window on a
+     * {@link GLRenderScheduler shared render thread} does not own a GLThread:
+     * tasks submitted to the shared thread directly would run with whichever
+     * context happens to be current, so this method fails instead. Use
+     * {@link #getGLThreadExecutor()}, which switches to the window's context
+     * first.
+     *
+     * Tasks submitted to the thread directly are not seen by the window. In
+     * {@link #setOnDemand(boolean) on-demand} mode they wait behind an idle
+     * update for up to com.longlinkislong.gloop.window.on_demand_timeout_ms
+     * (250 ms by default). {@link #getGLThreadExecutor()} wakes the update
+     * instead.
      *
      * @return the thread owned by the window.
+     * @throws GLFWException if the window is on a shared render thread.
      * @since 15.06.05
      */
-    public GLThread getGLThread() {
+    public GLThread getGLThread() throws GLFWException {
+        if (this.lane != null) {
+            throw new GLFWException("GLWindow[" + this.title + "] is on a shared render thread; use getGLThreadExecutor()!");
+        }
+
         return this.thread;
     }
 
+    /**
+     * Retrieves the GLThread that runs the window's tasks, which may be
+     * shared with other windows. Only for code that runs inside the window's
+     * own tasks, where the window's context is current.
+     *
+     * @return the window's GLThread.
+     */
+    GLThread getRenderThread() {
+        return this.thread;
+    }
+
+    private final Executor glThreadExecutor = this::execute;
+
+    /**
+     * Queues a job on the window's GLThread and tracks it in the queue depth
+     * metric.
+     */
+    private void execute(final Runnable job) {
+        final GLWindowMetrics stats = this.metrics;
+
+        stats.taskQueued();
+        this.wake();
+
+        this.submitQueued(() -> {
+            stats.taskStarted();
+            job.run();
+        });
+    }
+
+    /**
+     * Retrieves an Executor that runs tasks on the window's GLThread in
+     * submission order. Listeners registered with this Executor run alongside
+     * rendering instead of on the thread that polls events. Tasks are counted
+     * in the queue depth, so an on-demand update waiting for the window to
+     * be invalidated returns to run them right away.
+     *
+     * @return the GLThread executor.
+     * @since 26.10.18
+     */
+    public Executor getGLThreadExecutor() {
+        return this.glThreadExecutor;
+    }
+
     private final UpdateTask updateTask = new UpdateTask();
+    private final TrackedTask trackedUpdateTask = new TrackedTask(this.updateTask);
 
     /**
      * Executes an update task on the default thread.
@@ -1187,7 +2235,32 @@ public class GLWindow {
             throw new GLFWException("Invalid GLWindow!");
         }
         
-        this.updateTask.glRun(this.getGLThread());
+        this.glRun(this.trackedUpdateTask);
+    }
+
+    /**
+     * Queues an update between two hooks without waiting for it. The
+     * post-swap hook is skipped if the update closed the window.
+     *
+     * @param preSwap runs on the GLThread before the buffers are swapped.
+     * @param postSwap runs on the GLThread after the swap and event poll.
+     * @return a future that completes after the post-swap hook.
+     */
+    CompletableFuture<Void> updateAsync(final Runnable preSwap, final Runnable postSwap) {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        return this.glAsync(() -> {
+            preSwap.run();
+            this.updateTask.run();
+
+            if (this.isValid()) {
+                postSwap.run();
+            }
+
+            return null;
+        });
     }
 
     /**
@@ -1201,22 +2274,251 @@ public class GLWindow {
 
         @Override
         public void run() {            
-            if (GLFW.glfwWindowShouldClose(GLWindow.this.window)) {
+            final GLWindowMetrics stats = GLWindow.this.metrics;
+
+            if (GLWindow.this.isIdleOnSharedRenderThread()) {
+                // a shared render thread cannot wait for this window; skip the frame instead
+                GLWindow.this.backend.pollEvents();
+                stats.recordPoll();
+                return;
+            }
+
+            stats.recordFrame();
+
+            if (GLWindow.this.backend.windowShouldClose(GLWindow.this.window)) {
                 GLWindow.this.cleanup();
             } else {                
-                GLFW.glfwSwapBuffers(GLWindow.this.window);                
-                GLFW.glfwPollEvents();                
+                GLWindow.this.inputLatch.beforeSwap();
+                GLWindow.this.frameCapture.beforeSwap();
+
+                if (GLWindow.this.lane != null) {
+                    GLWindow.this.lane.beforeSwap();
+                }
+
+                GLWindow.this.backend.swapBuffers(GLWindow.this.window);                
+                stats.recordSwap();
+                GLWindow.this.recordPresentLatency();
+
+                if (GLWindow.this.isOnDemand) {
+                    GLWindow.this.isDirty = false;
+                    GLWindow.this.backend.pollEvents();
+                    stats.recordPoll();
+
+                    if (GLWindow.this.lane == null) {
+                        GLWindow.this.waitUntilDirty();
+                    }
+                } else {
+                    GLWindow.this.backend.pollEvents();
+                    stats.recordPoll();
+                }
+
+                GLWindow.this.applyPendingResize();
             }            
         }
     }
 
     /**
-     * Closes the window.
+     * Checks if an update on a shared render thread has nothing to present:
+     * on-demand mode is on and nothing invalidated the window since the last
+     * frame.
+     */
+    private boolean isIdleOnSharedRenderThread() {
+        return this.lane != null && this.isOnDemand && !this.isDirty && !this.isResizePending
+                && !this.backend.windowShouldClose(this.window);
+    }
+
+    /**
+     * Blocks in the event loop until the window is invalidated, an event
+     * arrives, another task is queued for the GLThread or on-demand mode is
+     * turned off.
+     */
+    private void waitUntilDirty() {
+        final GLWindowMetrics stats = this.metrics;
+
+        this.isWaiting = true;
+
+        try {
+            // isWaiting is published before the checks so that a concurrent wake() is never lost
+            while (this.isOnDemand && !this.isDirty && !this.isResizePending
+                    && stats.getQueueDepth() == 0
+                    && !this.backend.windowShouldClose(this.window)) {
+
+                this.backend.waitEventsTimeout(this.onDemandTimeout);
+                stats.recordPoll();
+            }
+        } finally {
+            this.isWaiting = false;
+        }
+    }
+
+    /**
+     * Interrupts the GLThread if it is blocked waiting for the window to be
+     * invalidated.
+     */
+    private void wake() {
+        if (this.isWaiting) {
+            this.backend.postEmptyEvent();
+        }
+    }
+
+    /**
+     * Enables or disables on-demand rendering. While enabled, an update only
+     * returns after the window was invalidated by {@link #invalidate()},
+     * input, a resize, a refresh request from the window system or another
+     * task queued on the GLThread. The GLThread sleeps in the event loop
+     * otherwise. Defaults to the system property
+     * com.longlinkislong.gloop.window.on_demand. Updates never block on a
+     * {@link GLRenderScheduler shared render thread}; there an update only
+     * polls events and skips the frame until the window is invalidated, so
+     * the other windows on the thread keep running.
+     *
+     * @param onDemand true to only produce frames when something changed.
+     * @since 26.10.18
+     */
+    public void setOnDemand(final boolean onDemand) {
+        this.isOnDemand = onDemand;
+
+        if (!onDemand) {
+            this.wake();
+        }
+    }
+
+    /**
+     * Changes how long an idle on-demand update sleeps before it checks for
+     * directly submitted tasks. Defaults to the system property
+     * com.longlinkislong.gloop.window.on_demand_timeout_ms.
+     *
+     * @param millis the timeout in milliseconds.
+     */
+    void setOnDemandTimeout(final long millis) {
+        this.onDemandTimeout = millis / 1000.0;
+        this.wake();
+    }
+
+    /**
+     * Checks if on-demand rendering is enabled.
+     *
+     * @return true if frames are only produced after an invalidation.
+     * @since 26.10.18
+     */
+    public boolean isOnDemand() {
+        return this.isOnDemand;
+    }
+
+    /**
+     * Marks the window contents as stale so that the next update produces a
+     * frame. May be called from any thread. This has no effect unless
+     * on-demand rendering is enabled.
+     *
+     * @since 26.10.18
+     */
+    public void invalidate() {
+        this.isDirty = true;
+        this.wake();
+    }
+
+    /**
+     * Timestamps the event about to be dispatched and queues it for the
+     * input-to-present latency measurement.
+     */
+    private void stampEvent(final GLEventType type) {
+        final long ticks = this.timer.ticks();
+        final int index = this.pendingEvents;
+
+        this.eventTicks = ticks;
+        this.isDirty = true;
+
+        if (index == this.pendingEventTicks.length) {
+            if (index == MAX_PENDING_EVENTS) {
+                // nothing has been presented for a long time; the oldest events already dominate
+                return;
+            }
+
+            this.pendingEventTicks = Arrays.copyOf(this.pendingEventTicks, index * 2);
+            this.pendingEventTypes = Arrays.copyOf(this.pendingEventTypes, index * 2);
+        }
+
+        this.pendingEventTicks[index] = ticks;
+        this.pendingEventTypes[index] = type;
+        this.pendingEvents = index + 1;
+    }
+
+    /**
+     * Records the time from each event since the previous swap until the swap
+     * that just completed.
+     */
+    private void recordPresentLatency() {
+        final int count = this.pendingEvents;
+
+        if (count == 0) {
+            return;
+        }
+
+        final long now = this.timer.ticks();
+
+        for (int i = 0; i < count; i++) {
+            this.metrics.recordLatency(this.pendingEventTypes[i], this.timer.toNanos(now - this.pendingEventTicks[i]));
+            this.pendingEventTypes[i] = null;
+        }
+
+        this.pendingEvents = 0;
+    }
+
+    /**
+     * Retrieves the timestamp of the event currently being dispatched in
+     * timer ticks, as returned by {@link #getTimerValue()}. This is only
+     * meaningful inside a listener running on the polling thread.
      *
+     * @return the event timestamp in ticks.
+     * @since 26.10.18
+     */
+    public long getEventTimerValue() {
+        return this.eventTicks;
+    }
+
+    /**
+     * Retrieves the timestamp of the event currently being dispatched in the
+     * System.nanoTime time base. This is only meaningful inside a listener
+     * running on the polling thread.
+     *
+     * @return the event timestamp comparable to System.nanoTime.
+     * @since 26.10.18
+     */
+    public long getEventNanoTime() {
+        return this.timer.toNanoTime(this.eventTicks);
+    }
+
+    /**
+     * Delivers the last framebuffer size reported since the previous frame.
+     * If the viewport stack is not empty the resize is deferred to a later
+     * frame instead of replacing a pushed viewport.
+     */
+    private void applyPendingResize() {
+        if (!this.isResizePending) {
+            return;
+        }
+
+        if (!this.thread.viewportStack.isEmpty()) {
+            LOGGER.trace(GLFW_MARKER, "Deferred resize of GLWindow[{}]; viewport stack is not empty", this.title);
+            return;
+        }
+
+        final long start = System.nanoTime();
+
+        this.isResizePending = false;
+        this.handler.glfwFramebufferResizeCallback(this.window, this.pendingWidth, this.pendingHeight);
+        this.metrics.recordResizeApplied(System.nanoTime() - start);
+    }
+
+    /**
+     * Closes the window. The teardown runs on the next update and is bounded
+     * by {@link #DEFAULT_CLOSE_TIMEOUT}.
+     *
+     * @see #closeAsync(long, java.util.concurrent.TimeUnit)
      * @since 15.07.01
      */
     public void close() {
-        new CloseTask().glRun(this.getGLThread());
+        this.glRun(this.closeTask);
     }
 
     /**
@@ -1232,35 +2534,230 @@ public class GLWindow {
                 throw new GLFWException("GLWindow is not valid!");
             }
             
-            GLFW.glfwSetWindowShouldClose(GLWindow.this.window, true);
+            GLWindow.this.backend.setWindowShouldClose(GLWindow.this.window, true);
+        }
+    }
+
+    private final TrackedTask closeTask = new TrackedTask(new CloseTask());
+
+    /**
+     * Closes the window and tears it down without waiting for the update
+     * loop. Cleanup tasks added with {@link #appendToParallelCleanup(Runnable)}
+     * and the worker windows are closed in parallel while the tasks added
+     * with {@link #appendToCleanup(Runnable)} run on the window's thread.
+     * The deadline starts when this method is called. Once it passes the
+     * window stops waiting for the parallel steps, which are reported as
+     * overrun if they are still running.
+     *
+     * The tasks added with {@link #appendToCleanup(Runnable)} run one after
+     * another on the window's thread and cannot be interrupted, so the
+     * deadline does not bound them. They always run, also once the deadline
+     * has passed, and are reported as overrun if they finish after it. A serial task that blocks, or a window
+     * thread that is busy with other work, keeps the teardown running past
+     * the deadline. The returned future does not wait for it: it completes at
+     * the deadline with a report in which the unfinished steps, including the
+     * "GLWindow teardown" step that destroys the native window, are not
+     * within the deadline. The teardown then continues in the background.
+     *
+     * @param timeout the deadline for the teardown.
+     * @param unit the unit of the timeout.
+     * @return a future that completes with the report once the native window
+     * was destroyed or the deadline passed, whichever comes first. Later calls
+     * return the same future and do not change the deadline.
+     * @since 26.10.18
+     */
+    public CompletableFuture<GLShutdownReport> closeAsync(final long timeout, final TimeUnit unit) {
+        if (!this.requestClose(unit.toNanos(timeout))) {
+            return this.closeFuture;
+        }
+
+        if (this.lane != null && this.lane.isCurrentThread()) {
+            // a shared render thread would only reach a queued cleanup after the caller returned
+            this.cleanup();
+        } else {
+            this.execute(this::cleanup);
+        }
+
+        return this.closeFuture;
+    }
+
+    /**
+     * Closes the window with the {@link #DEFAULT_CLOSE_TIMEOUT} deadline.
+     *
+     * @return a future that completes with the teardown report.
+     * @see #closeAsync(long, java.util.concurrent.TimeUnit)
+     * @since 26.10.18
+     */
+    public CompletableFuture<GLShutdownReport> closeAsync() {
+        return this.closeAsync(DEFAULT_CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the close deadline and arms the timer that completes the close
+     * future if the teardown overruns it. Only the first request counts.
+     *
+     * @return true if this call started the deadline.
+     */
+    private boolean requestClose(final long timeoutNanos) {
+        final long timeout = Math.max(0L, timeoutNanos);
+
+        synchronized (this.closeLock) {
+            if (this.isCloseRequested) {
+                return false;
+            }
+
+            this.isCloseRequested = true;
+            this.closeStartNanos = System.nanoTime();
+            this.closeDeadlineNanos = this.closeStartNanos + timeout;
+            this.closeTrackers.add(this.teardownTracker);
+        }
+
+        final ScheduledFuture<?> timer = CLOSE_TIMER.schedule(this::closeTimedOut, timeout, TimeUnit.NANOSECONDS);
+
+        this.closeFuture.whenComplete((report, ex) -> timer.cancel(false));
+        return true;
+    }
+
+    private void closeTimedOut() {
+        final GLShutdownReport report = new GLShutdownReport(this.closeTrackers, this.closeStartNanos, this.closeDeadlineNanos);
+
+        if (this.closeFuture.complete(report)) {
+            LOGGER.warn(GLOOP_MARKER, "GLWindow[{}] missed its close deadline; the teardown continues in the background.\n{}", this.title, report);
         }
     }
 
-    private void cleanup() {        
-        this.cleanupTasks.forEach(Runnable::run);
+    private void closeWorker(final GLWindow worker, final long deadline, final List<CompletableFuture<?>> pending) {
+        final GLShutdownReport.Tracker tracker = new GLShutdownReport.Tracker(worker.toString());
+
+        this.closeTrackers.add(tracker);
+
+        if (worker.lane != null && worker.lane.isCurrentThread()) {
+            // same render thread; there is nothing to run in parallel with
+            tracker.run(() -> worker.closeAsync(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+        } else {
+            tracker.begin();
+            pending.add(worker.closeAsync(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    .whenComplete((report, ex) -> tracker.finish(ex)));
+        }
+    }
+
+    void cleanup() {
+        if (!this.isTearingDown.compareAndSet(false, true)) {
+            return;
+        }
+
+        // updates that are already queued see the window as closing
+        this.backend.setWindowShouldClose(this.window, true);
+
+        // a close requested through close() starts its deadline here
+        this.requestClose(TimeUnit.MILLISECONDS.toNanos(DEFAULT_CLOSE_TIMEOUT));
+        this.teardownTracker.begin();
+
+        final long deadline = this.closeDeadlineNanos;
+        final List<GLShutdownReport.Tracker> trackers = this.closeTrackers;
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+
+        // independent steps are started first so that they overlap the context-bound tasks
+        this.workerPool.ifInitialized(pool -> {
+            for (GLWindow worker : pool.beginShutdown()) {
+                this.closeWorker(worker, deadline, pending);
+            }
+        });
+
+        this.workerThreads.forEach(worker -> this.closeWorker(worker, deadline, pending));
+        this.workerThreads.clear();
+
+        for (Runnable task : this.parallelCleanupTasks) {
+            final GLShutdownReport.Tracker tracker = new GLShutdownReport.Tracker(task.toString());
+
+            trackers.add(tracker);
+            pending.add(CompletableFuture.runAsync(() -> tracker.run(task), CLEANUP_EXECUTOR));
+        }
+
+        this.parallelCleanupTasks.clear();
+
+        final CompletableFuture<Void> captureDrained = this.frameCapture.release();
+
+        if (!captureDrained.isDone()) {
+            final GLShutdownReport.Tracker capture = new GLShutdownReport.Tracker("GLFrameCapture");
+
+            trackers.add(capture);
+            capture.begin();
+            pending.add(captureDrained.whenComplete((ignored, ex) -> capture.finish(ex)));
+        }
+
+        for (Runnable task : this.cleanupTasks) {
+            final GLShutdownReport.Tracker tracker = new GLShutdownReport.Tracker(task.toString());
+
+            trackers.add(tracker);
+            // always run; skipping would leak the GL objects and native resources the task frees
+            tracker.run(task);
+        }
+
         this.cleanupTasks.clear();
-        this.workerThreads.forEach(GLWindow::close);
-        this.cursorEnterCallback.ifInitialized(GLFWCursorEnterCallback::free);
-        this.cursorPosCallback.ifInitialized(GLFWCursorPosCallback::free);
-        this.keyCallback.ifInitialized(GLFWKeyCallback::free);
-        this.charCallback.ifInitialized(GLFWCharCallback::free);
-        this.mouseButtonCallback.ifInitialized(GLFWMouseButtonCallback::free);
-        this.scrollCallback.ifInitialized(GLFWScrollCallback::free);
-        this.resizeCallback.ifPresent(GLFWFramebufferSizeCallback::free);
-        this.windowCloseCallback.ifInitialized(GLFWWindowCloseCallback::free);
-        this.windowIconifyCallback.ifInitialized(GLFWWindowIconifyCallback::free);
+
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                    .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // reported as overruns
+        } catch (ExecutionException ex) {
+            // failures are recorded by the trackers
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!captureDrained.isDone()) {
+            // the sink still reads mapped buffers that die with the context
+            LOGGER.warn(GLOOP_MARKER, "GLWindow[{}] is waiting for its frame capture sink; unwritten frames are dropped.", this.title);
+            this.frameCapture.abandon();
+            captureDrained.join();
+        }
+
+        this.backend.freeCallbacks(this.window);
+        this.cursorManager.destroy();
+        this.metrics.unregister();
         
         this.onClose.ifPresent(Runnable::run);
 
         // stop everything
-        this.thread.submit(() -> {            
-            GLFW.glfwDestroyWindow(this.window);
+        this.submit(() -> {
+            Throwable failure = null;
+
+            try {
+                this.backend.destroyWindow(this.window);
+
+                GLWindowRegistry.remove(this.window);
+                this.window = GLWindow.INVALID_WINDOW_ID;
+            } catch (RuntimeException ex) {
+                failure = ex;
+            }
+
+            this.teardownTracker.finish(failure);
+
+            final GLShutdownReport report = new GLShutdownReport(trackers, this.closeStartNanos, deadline);
+
+            for (GLShutdownReport.Entry entry : report.getEntries()) {
+                if (entry.getStatus() == GLShutdownReport.Status.FAILED) {
+                    LOGGER.error(GLOOP_MARKER, "Cleanup task {} failed!", entry.getName(), entry.getFailure().get());
+                }
+            }
 
-            WINDOWS.remove(this.window);            
-            this.window = GLWindow.INVALID_WINDOW_ID;
+            if (!this.closeFuture.complete(report)) {
+                LOGGER.warn(GLOOP_MARKER, "GLWindow[{}] finished closing after its deadline.\n{}", this.title, report);
+            } else if (report.isWithinDeadline()) {
+                LOGGER.trace(GLOOP_MARKER, "{}", report);
+            } else {
+                LOGGER.warn(GLOOP_MARKER, "{}", report);
+            }
         });
         
-        this.thread.shutdown();
+        if (this.lane != null) {
+            // the render thread is shared; only this window's queue goes away
+            this.lane.release();
+        } else {
+            this.thread.shutdown();
+        }
     }
 
     private final List<GLWindow> workerThreads = new ArrayList<>(0);
@@ -1278,13 +2775,35 @@ public class GLWindow {
             throw new GLFWException("Invalid GLWindow!");
         }
         
-        final GLWindow dummy = new GLWindow(0, 0, "WORKER", this);        
+        // the caller submits to the worker's GLThread directly, so it must not be shared
+        final GLWindow dummy = GLWindow.newWorker(this, false);
 
         this.workerThreads.add(dummy);
 
         return dummy.getGLThread();
     }
 
+    private final Lazy<GLWorkerPool> workerPool = new Lazy<>(() -> new GLWorkerPool(this, GLWorkerPool.DEFAULT_SIZE));
+
+    /**
+     * Retrieves the pool of shared-context worker threads owned by this
+     * window. The pool is created on the first call with
+     * {@link GLWorkerPool#DEFAULT_SIZE} workers and is shutdown when the window
+     * is cleaned up. Prefer this over {@link #newWorkerThread()} for repeated
+     * background uploads since the worker contexts are reused.
+     *
+     * @return the worker pool.
+     * @throws GLFWException if the window is invalid.
+     * @since 26.10.18
+     */
+    public synchronized GLWorkerPool getWorkerPool() throws GLFWException {
+        if (!this.isValid()) {
+            throw new GLFWException("Invalid GLWindow!");
+        }
+
+        return this.workerPool.get();
+    }
+
     @Override
     public String toString() {
         return "GLWindow: " + this.window;
@@ -1300,6 +2819,18 @@ public class GLWindow {
         this.cleanupTasks.add(task);
     }
 
+    /**
+     * Appends a task that runs on a background thread while the window is
+     * closing, in parallel with the other cleanup. The task must not need
+     * the OpenGL context or depend on any other cleanup task.
+     *
+     * @param task the task to append.
+     * @since 26.10.18
+     */
+    public void appendToParallelCleanup(final Runnable task) {
+        this.parallelCleanupTasks.add(Objects.requireNonNull(task));
+    }
+
     /**
      * Attempts to remove a task from the cleanup queue.
      *
@@ -1308,7 +2839,7 @@ public class GLWindow {
      * @since 15.06.30
      */
     public boolean removeFromCleanup(final Runnable task) {        
-        return this.cleanupTasks.remove(task);
+        return this.cleanupTasks.remove(task) | this.parallelCleanupTasks.remove(task);
     }
 
     /**
@@ -1318,6 +2849,7 @@ public class GLWindow {
      */
     public void clearCleanup() {        
         this.cleanupTasks.clear();
+        this.parallelCleanupTasks.clear();
     }
 
     private final WindowHandler handler = new WindowHandler();
@@ -1344,6 +2876,30 @@ public class GLWindow {
         return this.handler.resizeListeners.remove(listener);
     }
 
+    /**
+     * Adds a listener for files dropped onto the window. The listener runs on
+     * the thread that polls events; use a GLFileIngestor to read the files in
+     * the background.
+     *
+     * @param listener the listener.
+     * @return true if the listener was added.
+     * @since 26.10.18
+     */
+    public boolean addFileDropListener(final GLFileDropListener listener) {
+        return this.dropListeners.add(listener, 0, null);
+    }
+
+    /**
+     * Removes a file drop listener.
+     *
+     * @param listener the listener.
+     * @return true if the listener was removed.
+     * @since 26.10.18
+     */
+    public boolean removeFileDropListener(final GLFileDropListener listener) {
+        return this.dropListeners.remove(listener);
+    }
+
     /**
      * Removes all window listeners from the window.
      *
@@ -1351,6 +2907,7 @@ public class GLWindow {
      */
     public void clearWindowListeners() {
         this.handler.resizeListeners.clear();
+        this.dropListeners.clear();
     }
 
     private class WindowHandler implements GLFramebufferResizeListener {
@@ -1359,19 +2916,16 @@ public class GLWindow {
 
         @Override
         public void framebufferResizedActionPerformed(GLWindow window, GLViewport view) {
-            if (!window.getGLThread().viewportStack.isEmpty()) {
-                throw new GLFWException("Viewport stack is not empty on Window Resize event!");
+            if (GLWindow.this.backend.hasGLContext()) {
+                view.applyViewport();
             }
 
-            view.applyViewport();
-
             this.resizeListeners.forEach((listener) -> {
+                final long time = GLWindow.this.watchdog.start(listener);
+
                 listener.framebufferResizedActionPerformed(window, view);
+                GLWindow.this.watchdog.stop(listener, GLEventType.RESIZE, time);
             });
         }
-
-        void register() {
-            GLWindow.this.setFramebufferResizeCallback(this);
-        }
     }
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * The platform layer used by GLWindow, GLMouse, GLKeyboard and GLGamepad. The
+ * default implementation forwards to GLFW through LWJGL. Handles and constants
+ * follow GLFW conventions so that implementations are interchangeable.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public interface GLWindowBackend {
+
+    /**
+     * Index of the width in the output of {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_WIDTH = 0;
+    /**
+     * Index of the height in the output of {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_HEIGHT = 1;
+    /**
+     * Index of the red bits in the output of
+     * {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_RED_BITS = 2;
+    /**
+     * Index of the green bits in the output of
+     * {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_GREEN_BITS = 3;
+    /**
+     * Index of the blue bits in the output of
+     * {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_BLUE_BITS = 4;
+    /**
+     * Index of the refresh rate in the output of
+     * {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_REFRESH_RATE = 5;
+    /**
+     * Required length of the output of {@link #getVideoMode(long, int[])}.
+     */
+    int VIDMODE_SIZE = 6;
+
+    /**
+     * Receiver for the per-window events produced while polling. Each method
+     * mirrors the GLFW callback of the same name.
+     *
+     * @since 26.10.18
+     */
+    interface Callbacks {
+
+        void keyCallback(long hwnd, int key, int scancode, int action, int mods);
+
+        void charCallback(long hwnd, int codepoint);
+
+        void mouseButtonCallback(long hwnd, int button, int action, int mods);
+
+        void cursorPosCallback(long hwnd, double x, double y);
+
+        void cursorEnterCallback(long hwnd, boolean entered);
+
+        void scrollCallback(long hwnd, double xOffset, double yOffset);
+
+        void framebufferSizeCallback(long hwnd, int width, int height);
+
+        void windowCloseCallback(long hwnd);
+
+        void windowIconifyCallback(long hwnd, boolean iconified);
+
+        void windowRefreshCallback(long hwnd);
+
+        void dropCallback(long hwnd, String[] paths);
+    }
+
+    /**
+     * Loads any native libraries required by the backend.
+     */
+    void loadNatives();
+
+    /**
+     * Initializes the backend. Called once before any other method except
+     * {@link #loadNatives()}.
+     *
+     * @throws GLFWException if the backend could not be initialized.
+     */
+    void initialize() throws GLFWException;
+
+    /**
+     * Checks if windows created by this backend own a real OpenGL context.
+     *
+     * @return true if GL calls can be made once a context is current.
+     */
+    boolean hasGLContext();
+
+    double getTime();
+
+    long getTimerValue();
+
+    long getTimerFrequency();
+
+    void windowHint(int hint, int value);
+
+    long createWindow(int width, int height, CharSequence title, long monitor, long share);
+
+    void destroyWindow(long hwnd);
+
+    void setCallbacks(long hwnd, Callbacks callbacks);
+
+    void freeCallbacks(long hwnd);
+
+    void makeContextCurrent(long hwnd);
+
+    void createCapabilities(GLWindow.ClientAPI api);
+
+    void swapInterval(int interval);
+
+    void swapBuffers(long hwnd);
+
+    void pollEvents();
+
+    /**
+     * Blocks until at least one event is available or the timeout elapsed,
+     * then processes all available events.
+     *
+     * @param timeout the maximum time to wait in seconds.
+     */
+    void waitEventsTimeout(double timeout);
+
+    /**
+     * Wakes a thread blocked in {@link #waitEventsTimeout(double)}. May be
+     * called from any thread.
+     */
+    void postEmptyEvent();
+
+    boolean windowShouldClose(long hwnd);
+
+    void setWindowShouldClose(long hwnd, boolean shouldClose);
+
+    void showWindow(long hwnd);
+
+    void hideWindow(long hwnd);
+
+    void setWindowSize(long hwnd, int width, int height);
+
+    void setWindowPos(long hwnd, int x, int y);
+
+    void setWindowMonitor(long hwnd, long monitor, int x, int y, int width, int height, int refreshRate);
+
+    /**
+     * @param hwnd the window.
+     * @param size output of length 2 receiving width and height.
+     */
+    void getWindowSize(long hwnd, int[] size);
+
+    /**
+     * @param hwnd the window.
+     * @param pos output of length 2 receiving x and y.
+     */
+    void getWindowPos(long hwnd, int[] pos);
+
+    /**
+     * @param hwnd the window.
+     * @param size output of length 2 receiving width and height.
+     */
+    void getFramebufferSize(long hwnd, int[] size);
+
+    /**
+     * @param hwnd the window.
+     * @param edges output of length 4 receiving left, top, right and bottom.
+     */
+    void getWindowFrameSize(long hwnd, int[] edges);
+
+    long getPrimaryMonitor();
+
+    long getWindowMonitor(long hwnd);
+
+    /**
+     * @param monitor the monitor.
+     * @param mode output of length {@link #VIDMODE_SIZE}.
+     */
+    void getVideoMode(long monitor, int[] mode);
+
+    /**
+     * @param monitor the monitor.
+     * @param sizeMM output of length 2 receiving width and height in
+     * millimeters.
+     */
+    void getMonitorPhysicalSize(long monitor, int[] sizeMM);
+
+    int getKey(long hwnd, int key);
+
+    int getMouseButton(long hwnd, int button);
+
+    /**
+     * @param hwnd the window.
+     * @param pos output of length 2 receiving x and y.
+     */
+    void getCursorPos(long hwnd, double[] pos);
+
+    void setCursorPos(long hwnd, double x, double y);
+
+    void setCursor(long hwnd, long cursor);
+
+    /**
+     * @param shape one of the GLFW standard cursor shapes.
+     * @return the new cursor handle.
+     */
+    long createStandardCursor(int shape);
+
+    /**
+     * @param width the image width in pixels.
+     * @param height the image height in pixels.
+     * @param rgba tightly packed, non-premultiplied RGBA pixels in a direct
+     * buffer.
+     * @param xHot the x coordinate of the hotspot.
+     * @param yHot the y coordinate of the hotspot.
+     * @return the new cursor handle.
+     */
+    long createCursor(int width, int height, ByteBuffer rgba, int xHot, int yHot);
+
+    void destroyCursor(long cursor);
+
+    void setClipboardString(long hwnd, CharSequence value);
+
+    String getClipboardString(long hwnd);
+
+    /**
+     * Reads the clipboard as UTF-8 without decoding it.
+     *
+     * @param hwnd the window.
+     * @return the bytes excluding the NUL terminator, or null if the
+     * clipboard holds no string or an empty string. Never a zero-length
+     * buffer. Only valid until the next clipboard call.
+     */
+    ByteBuffer getClipboardUTF8(long hwnd);
+
+    /**
+     * Writes UTF-8 to the clipboard without encoding it.
+     *
+     * @param hwnd the window.
+     * @param utf8 a direct buffer holding NUL terminated UTF-8 starting at
+     * its position.
+     */
+    void setClipboardUTF8(long hwnd, ByteBuffer utf8);
+
+    boolean joystickPresent(int joystick);
+
+    String getJoystickName(int joystick);
+
+    /**
+     * @param joystick the joystick slot.
+     * @return the axes state. Only valid until the next call.
+     */
+    FloatBuffer getJoystickAxes(int joystick);
+
+    /**
+     * @param joystick the joystick slot.
+     * @return the button state. Only valid until the next call.
+     */
+    ByteBuffer getJoystickButtons(int joystick);
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Event and frame counters for a single GLWindow. Every counter is a
+ * LongAdder so that recording from the poll thread does not contend with
+ * readers. When JMX registration is enabled (the default), each window
+ * exposes its metrics as
+ * com.longlinkislong.gloop:type=GLWindow,name=&lt;title&gt;,id=&lt;n&gt;.
+ * Registration can be disabled with the system property
+ * com.longlinkislong.gloop.window.jmx=false.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLWindowMetrics implements GLWindowMetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLWindowMetrics");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+    private static final boolean REGISTER_JMX = Boolean.parseBoolean(System.getProperty("com.longlinkislong.gloop.window.jmx", "true"));
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static final LongAdder GAMEPAD_POLLS = new LongAdder();
+    private static final GLEventType[] EVENT_TYPES = GLEventType.values();
+
+    private final String title;
+    private final LongAdder[] events = new LongAdder[EVENT_TYPES.length];
+    private final LongAdder[] dispatchNanos = new LongAdder[EVENT_TYPES.length];
+    private final GLLatencyHistogram[] latency = new GLLatencyHistogram[EVENT_TYPES.length];
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder swaps = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder queueDepth = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder contextSwitches = new LongAdder();
+    private ObjectName objectName = null;
+
+    GLWindowMetrics(final String title) {
+        this.title = title;
+
+        for (int i = 0; i < EVENT_TYPES.length; i++) {
+            this.events[i] = new LongAdder();
+            this.dispatchNanos[i] = new LongAdder();
+            this.latency[i] = new GLLatencyHistogram();
+        }
+    }
+
+    static void recordGamepadPoll() {
+        GAMEPAD_POLLS.increment();
+    }
+
+    void recordEvent(final GLEventType type, final long nanos) {
+        this.events[type.ordinal()].increment();
+        this.dispatchNanos[type.ordinal()].add(nanos);
+    }
+
+    void recordLatency(final GLEventType type, final long nanos) {
+        this.latency[type.ordinal()].record(nanos);
+    }
+
+    void recordFrame() {
+        this.frames.increment();
+    }
+
+    void recordSwap() {
+        this.swaps.increment();
+    }
+
+    void recordPoll() {
+        this.polls.increment();
+    }
+
+    /**
+     * Records a coalesced resize that was delivered to the resize listeners.
+     * The framebuffer callbacks themselves are counted as RESIZE events.
+     */
+    void recordResizeApplied(final long nanos) {
+        this.resizes.increment();
+        this.dispatchNanos[GLEventType.RESIZE.ordinal()].add(nanos);
+    }
+
+    void taskQueued() {
+        this.queueDepth.increment();
+    }
+
+    void taskStarted() {
+        this.queueDepth.decrement();
+    }
+
+    void taskRejected() {
+        this.queueDepth.decrement();
+    }
+
+    void recordRenderTime(final long nanos) {
+        this.renderNanos.add(nanos);
+    }
+
+    void recordContextSwitch() {
+        this.contextSwitches.increment();
+    }
+
+    synchronized void register() {
+        if (!REGISTER_JMX || this.objectName != null) {
+            return;
+        }
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName("com.longlinkislong.gloop:type=GLWindow,name="
+                    + ObjectName.quote(this.title)
+                    + ",id=" + NEXT_ID.getAndIncrement());
+
+            server.registerMBean(this, name);
+            this.objectName = name;
+        } catch (JMException ex) {
+            LOGGER.warn(GLOOP_MARKER, "Unable to register GLWindowMetrics for {}", this.title, ex);
+        }
+    }
+
+    synchronized void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException ex) {
+            LOGGER.warn(GLOOP_MARKER, "Unable to unregister GLWindowMetrics for {}", this.title, ex);
+        } finally {
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * Retrieves the number of dispatched events of a type.
+     *
+     * @param type the event type.
+     * @return the event count.
+     * @since 26.10.18
+     */
+    public long getEventCount(final GLEventType type) {
+        return this.events[type.ordinal()].sum();
+    }
+
+    /**
+     * Retrieves the time spent in listeners for an event type.
+     *
+     * @param type the event type.
+     * @return the dispatch time in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getDispatchNanos(final GLEventType type) {
+        return this.dispatchNanos[type.ordinal()].sum();
+    }
+
+    /**
+     * Retrieves the input-to-present latency of an event type: the time from
+     * the event timestamp until the next buffer swap completed.
+     *
+     * @param type the event type.
+     * @return the latency histogram.
+     * @since 26.10.18
+     */
+    public GLLatencyHistogram getInputLatency(final GLEventType type) {
+        return this.latency[type.ordinal()];
+    }
+
+    private Map<String, Long> latencyPercentile(final double percentile) {
+        final Map<String, Long> out = new LinkedHashMap<>();
+
+        for (GLEventType type : EVENT_TYPES) {
+            out.put(type.name(), this.latency[type.ordinal()].getPercentile(percentile));
+        }
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public Map<String, Long> getInputLatencyP50Nanos() {
+        return this.latencyPercentile(50.0);
+    }
+
+    @Override
+    public Map<String, Long> getInputLatencyP99Nanos() {
+        return this.latencyPercentile(99.0);
+    }
+
+    @Override
+    public Map<String, Long> getInputLatencyMaxNanos() {
+        final Map<String, Long> out = new LinkedHashMap<>();
+
+        for (GLEventType type : EVENT_TYPES) {
+            out.put(type.name(), this.latency[type.ordinal()].getMax());
+        }
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public String getTitle() {
+        return this.title;
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        final Map<String, Long> out = new LinkedHashMap<>();
+
+        for (GLEventType type : EVENT_TYPES) {
+            out.put(type.name(), this.getEventCount(type));
+        }
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public Map<String, Long> getDispatchNanos() {
+        final Map<String, Long> out = new LinkedHashMap<>();
+
+        for (GLEventType type : EVENT_TYPES) {
+            out.put(type.name(), this.getDispatchNanos(type));
+        }
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public long getTotalEvents() {
+        long total = 0L;
+
+        for (LongAdder counter : this.events) {
+            total += counter.sum();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getTotalDispatchNanos() {
+        long total = 0L;
+
+        for (LongAdder counter : this.dispatchNanos) {
+            total += counter.sum();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getFrames() {
+        return this.frames.sum();
+    }
+
+    @Override
+    public long getSwaps() {
+        return this.swaps.sum();
+    }
+
+    @Override
+    public long getPolls() {
+        return this.polls.sum();
+    }
+
+    @Override
+    public long getAppliedResizes() {
+        return this.resizes.sum();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return Math.max(0L, this.queueDepth.sum());
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return this.renderNanos.sum();
+    }
+
+    @Override
+    public long getContextSwitches() {
+        return this.contextSwitches.sum();
+    }
+
+    @Override
+    public long getGamepadPolls() {
+        return GAMEPAD_POLLS.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "GLWindowMetrics[" + this.title + "]: events=" + this.getEventCounts()
+                + " frames=" + this.getFrames()
+                + " swaps=" + this.getSwaps()
+                + " polls=" + this.getPolls()
+                + " appliedResizes=" + this.getAppliedResizes()
+                + " queueDepth=" + this.getQueueDepth()
+                + " renderNanos=" + this.getRenderNanos()
+                + " contextSwitches=" + this.getContextSwitches();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Map;
+
+/**
+ * The management interface for per-window event and frame statistics. All
+ * values are totals since the window was created.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public interface GLWindowMetricsMXBean {
+
+    /**
+     * Retrieves the title of the window.
+     *
+     * @return the title.
+     * @since 26.10.18
+     */
+    String getTitle();
+
+    /**
+     * Retrieves the number of dispatched events per event type.
+     *
+     * @return the event counts keyed by GLEventType name.
+     * @since 26.10.18
+     */
+    Map<String, Long> getEventCounts();
+
+    /**
+     * Retrieves the time spent in listeners per event type.
+     *
+     * @return the dispatch time in nanoseconds keyed by GLEventType name.
+     * @since 26.10.18
+     */
+    Map<String, Long> getDispatchNanos();
+
+    /**
+     * Retrieves the total number of dispatched events.
+     *
+     * @return the event count.
+     * @since 26.10.18
+     */
+    long getTotalEvents();
+
+    /**
+     * Retrieves the median input-to-present latency of each event type.
+     *
+     * @return the median latency in nanoseconds by event type.
+     * @since 26.10.18
+     */
+    Map<String, Long> getInputLatencyP50Nanos();
+
+    /**
+     * Retrieves the 99th percentile input-to-present latency of each event
+     * type.
+     *
+     * @return the 99th percentile latency in nanoseconds by event type.
+     * @since 26.10.18
+     */
+    Map<String, Long> getInputLatencyP99Nanos();
+
+    /**
+     * Retrieves the largest input-to-present latency of each event type.
+     *
+     * @return the maximum latency in nanoseconds by event type.
+     * @since 26.10.18
+     */
+    Map<String, Long> getInputLatencyMaxNanos();
+
+    /**
+     * Retrieves the total time spent in listeners.
+     *
+     * @return the dispatch time in nanoseconds.
+     * @since 26.10.18
+     */
+    long getTotalDispatchNanos();
+
+    /**
+     * Retrieves the number of times the window was updated.
+     *
+     * @return the frame count.
+     * @since 26.10.18
+     */
+    long getFrames();
+
+    /**
+     * Retrieves the number of buffer swaps.
+     *
+     * @return the swap count.
+     * @since 26.10.18
+     */
+    long getSwaps();
+
+    /**
+     * Retrieves the number of event polls.
+     *
+     * @return the poll count.
+     * @since 26.10.18
+     */
+    long getPolls();
+
+    /**
+     * Retrieves the number of resizes delivered to resize listeners. Resize
+     * events are coalesced to at most one per frame, so this is usually much
+     * lower than the RESIZE event count.
+     *
+     * @return the applied resize count.
+     * @since 26.10.18
+     */
+    long getAppliedResizes();
+
+    /**
+     * Retrieves the number of tasks issued by the window that are waiting to
+     * run on its GLThread.
+     *
+     * @return the queue depth.
+     * @since 26.10.18
+     */
+    long getQueueDepth();
+
+    /**
+     * Retrieves the time spent running tasks issued by the window on its
+     * GLThread.
+     *
+     * @return the render time in nanoseconds.
+     * @since 26.10.18
+     */
+    long getRenderNanos();
+
+    /**
+     * Retrieves the number of times a shared render thread made the window's
+     * context current. Always 0 unless
+     * {@link GLRenderScheduler#isEnabled() shared render threads} are enabled.
+     *
+     * @return the context switch count.
+     * @since 26.10.18
+     */
+    long getContextSwitches();
+
+    /**
+     * Retrieves the number of gamepad polls across all gamepads.
+     *
+     * @return the gamepad poll count.
+     * @since 26.10.18
+     */
+    long getGamepadPolls();
+}
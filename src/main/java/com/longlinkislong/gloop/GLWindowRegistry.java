@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps native window handles to GLWindow objects. Every event callback looks
+ * up its window here, so lookups are lock free and do not box the handle.
+ * The table is an immutable open addressing hash table that is copied on
+ * every registration and published through a GLSnapshot.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+final class GLWindowRegistry {
+
+    private static final class Table {
+
+        final long[] handles;
+        final GLWindow[] windows;
+
+        Table(final int capacity) {
+            this.handles = new long[capacity];
+            this.windows = new GLWindow[capacity];
+        }
+    }
+
+    private static final GLSnapshot<Table> TABLE = new GLSnapshot<>(new Table(8));
+
+    private GLWindowRegistry() {
+    }
+
+    private static int slot(final long hwnd, final int mask) {
+        final long h = hwnd * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Looks up the window that owns a handle.
+     *
+     * @param hwnd the native handle.
+     * @return the window or null if the handle is not registered.
+     */
+    static GLWindow get(final long hwnd) {
+        final Table table = TABLE.get();
+        final int mask = table.handles.length - 1;
+
+        for (int i = slot(hwnd, mask);; i = (i + 1) & mask) {
+            final long handle = table.handles[i];
+
+            if (handle == hwnd) {
+                return table.windows[i];
+            } else if (handle == 0L) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Registers a window under its native handle.
+     *
+     * @param hwnd the native handle. Must not be 0.
+     * @param window the window.
+     */
+    static synchronized void put(final long hwnd, final GLWindow window) {
+        if (hwnd == 0L) {
+            throw new IllegalArgumentException("Window handle cannot be NULL!");
+        }
+
+        final Map<Long, GLWindow> entries = entries(TABLE.get());
+
+        entries.put(hwnd, window);
+        TABLE.set(build(entries));
+    }
+
+    /**
+     * Unregisters a native handle.
+     *
+     * @param hwnd the native handle.
+     */
+    static synchronized void remove(final long hwnd) {
+        final Map<Long, GLWindow> entries = entries(TABLE.get());
+
+        if (entries.remove(hwnd) != null) {
+            TABLE.set(build(entries));
+        }
+    }
+
+    /**
+     * Retrieves every registered window.
+     *
+     * @return a copy of the registered windows.
+     */
+    static List<GLWindow> values() {
+        return new ArrayList<>(entries(TABLE.get()).values());
+    }
+
+    /**
+     * Retrieves a write-through Map view of the registry. Reads see the
+     * current table; put, remove and iterator removal register or unregister
+     * the handle. This backs the deprecated GLWindow.WINDOWS field, which
+     * subclasses could modify when it was a plain HashMap.
+     *
+     * @return the registry as a Map.
+     */
+    static Map<Long, GLWindow> asMap() {
+        return new AbstractMap<Long, GLWindow>() {
+            @Override
+            public GLWindow get(final Object key) {
+                return key instanceof Long ? GLWindowRegistry.get((Long) key) : null;
+            }
+
+            @Override
+            public boolean containsKey(final Object key) {
+                return this.get(key) != null;
+            }
+
+            @Override
+            public GLWindow put(final Long key, final GLWindow value) {
+                synchronized (GLWindowRegistry.class) {
+                    final GLWindow old = GLWindowRegistry.get(key);
+
+                    GLWindowRegistry.put(key, value);
+                    return old;
+                }
+            }
+
+            @Override
+            public GLWindow remove(final Object key) {
+                if (!(key instanceof Long)) {
+                    return null;
+                }
+
+                synchronized (GLWindowRegistry.class) {
+                    final GLWindow old = GLWindowRegistry.get((Long) key);
+
+                    GLWindowRegistry.remove((Long) key);
+                    return old;
+                }
+            }
+
+            @Override
+            public Set<Map.Entry<Long, GLWindow>> entrySet() {
+                return new AbstractSet<Map.Entry<Long, GLWindow>>() {
+                    @Override
+                    public Iterator<Map.Entry<Long, GLWindow>> iterator() {
+                        // iterates a snapshot; removal unregisters the last returned handle
+                        final Iterator<Map.Entry<Long, GLWindow>> snapshot = Collections.unmodifiableMap(entries(TABLE.get())).entrySet().iterator();
+
+                        return new Iterator<Map.Entry<Long, GLWindow>>() {
+                            private Long last;
+
+                            @Override
+                            public boolean hasNext() {
+                                return snapshot.hasNext();
+                            }
+
+                            @Override
+                            public Map.Entry<Long, GLWindow> next() {
+                                final Map.Entry<Long, GLWindow> out = snapshot.next();
+
+                                this.last = out.getKey();
+                                return out;
+                            }
+
+                            @Override
+                            public void remove() {
+                                if (this.last == null) {
+                                    throw new IllegalStateException();
+                                }
+
+                                GLWindowRegistry.remove(this.last);
+                                this.last = null;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return entries(TABLE.get()).size();
+                    }
+                };
+            }
+        };
+    }
+
+    private static Map<Long, GLWindow> entries(final Table table) {
+        final Map<Long, GLWindow> out = new LinkedHashMap<>();
+
+        for (int i = 0; i < table.handles.length; i++) {
+            if (table.handles[i] != 0L) {
+                out.put(table.handles[i], table.windows[i]);
+            }
+        }
+
+        return out;
+    }
+
+    private static Table build(final Map<Long, GLWindow> entries) {
+        int capacity = 8;
+
+        // keep the load factor at or below 0.5 so probe sequences stay short
+        while (capacity < entries.size() * 2) {
+            capacity <<= 1;
+        }
+
+        final Table out = new Table(capacity);
+        final int mask = capacity - 1;
+
+        entries.forEach((hwnd, window) -> {
+            int i = slot(hwnd, mask);
+
+            while (out.handles[i] != 0L) {
+                i = (i + 1) & mask;
+            }
+
+            out.handles[i] = hwnd;
+            out.windows[i] = window;
+        });
+
+        return out;
+    }
+}
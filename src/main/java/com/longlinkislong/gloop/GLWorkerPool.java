@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A bounded pool of pre-warmed worker threads that share an OpenGL context
+ * with a GLWindow. Each worker owns a hidden window and a GLThread that are
+ * created once and reused for every task. Tasks are placed on a per-worker
+ * deque and every submit also wakes an idle worker, which steals from the
+ * tail of the busy workers' deques. A worker blocked on a long job therefore
+ * does not hold up the jobs queued behind it. Submitted tasks run in
+ * submission order; tasks submitted from a worker run next on that worker.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLWorkerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("GLWorkerPool");
+    private static final Marker GLOOP_MARKER = MarkerFactory.getMarker("GLOOP");
+
+    /**
+     * The number of workers used when the pool is created by
+     * {@link GLWindow#getWorkerPool()}. Defaults to the number of available
+     * processors.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_SIZE = Math.max(1, Integer.getInteger(
+            "com.longlinkislong.gloop.worker_pool.size",
+            Runtime.getRuntime().availableProcessors()));
+
+    private static final ThreadLocal<Worker> CURRENT_WORKER = new ThreadLocal<>();
+
+    private final GLWindow parent;
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder stolen = new LongAdder();
+    private volatile boolean isShutdown = false;
+
+    private final class Worker implements Runnable {
+
+        final int index;
+        final GLWindow window;
+        final ConcurrentLinkedDeque<Runnable> jobs = new ConcurrentLinkedDeque<>();
+        // true while a run is queued on or running on the worker's GLThread
+        final AtomicBoolean isAwake = new AtomicBoolean(false);
+
+        Worker(final int index) {
+            this.index = index;
+            // jobs reach the worker through its executor, so it may share a render thread
+            this.window = GLWindow.newWorker(GLWorkerPool.this.parent, true);
+        }
+
+        /**
+         * Queues a run on the worker's GLThread unless one is already pending.
+         *
+         * @return true if the worker was idle.
+         */
+        boolean wake() {
+            if (this.isAwake.compareAndSet(false, true)) {
+                this.window.getGLThreadExecutor().execute(this);
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Runs jobs from the own deque, then stolen jobs, until every deque
+         * is empty. Work submitted after the last check wakes the worker
+         * again. A worker on a shared render thread runs a single job and
+         * queues itself again so that the other windows on the thread get
+         * their turn.
+         */
+        @Override
+        public void run() {
+            final boolean isShared = this.window.isOnSharedRenderThread();
+
+            CURRENT_WORKER.set(this);
+
+            try {
+                Runnable job;
+
+                while ((job = this.next()) != null) {
+                    try {
+                        job.run();
+                    } finally {
+                        GLWorkerPool.this.executed.increment();
+                    }
+
+                    if (isShared) {
+                        break;
+                    }
+                }
+            } finally {
+                CURRENT_WORKER.remove();
+                this.isAwake.set(false);
+            }
+
+            // a submit may have found this worker awake just before it went idle
+            if (GLWorkerPool.this.hasPendingJobs()) {
+                this.wake();
+            }
+        }
+
+        /**
+         * Runs every job left on the own deque. This is queued on each worker
+         * when the pool shuts down, ahead of the worker's cleanup, so a job
+         * accepted before the shutdown runs even if its wake came too late.
+         */
+        void drain() {
+            CURRENT_WORKER.set(this);
+
+            try {
+                Runnable job;
+
+                while ((job = this.jobs.pollFirst()) != null) {
+                    try {
+                        job.run();
+                    } finally {
+                        GLWorkerPool.this.executed.increment();
+                    }
+                }
+            } finally {
+                CURRENT_WORKER.remove();
+            }
+        }
+
+        private Runnable next() {
+            final Runnable job = this.jobs.pollFirst();
+
+            return job != null ? job : GLWorkerPool.this.steal(this.index);
+        }
+    }
+
+    GLWorkerPool(final GLWindow parent, final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("GLWorkerPool size must be at least 1!");
+        }
+
+        this.parent = Objects.requireNonNull(parent);
+        this.workers = new Worker[size];
+
+        for (int i = 0; i < size; i++) {
+            this.workers[i] = new Worker(i);
+        }
+
+        LOGGER.trace(GLOOP_MARKER, "Constructed GLWorkerPool! [parent={}, size={}]", parent, size);
+    }
+
+    private Runnable steal(final int thief) {
+        final int count = this.workers.length;
+
+        for (int i = 1; i < count; i++) {
+            final Runnable job = this.workers[(thief + i) % count].jobs.pollLast();
+
+            if (job != null) {
+                this.stolen.increment();
+                return job;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean hasPendingJobs() {
+        for (Worker worker : this.workers) {
+            if (!worker.jobs.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void schedule(final Runnable action) {
+        if (this.isShutdown) {
+            throw new GLFWException("GLWorkerPool has been shutdown!");
+        }
+
+        final Worker current = CURRENT_WORKER.get();
+
+        if (current != null && this.workers[current.index] == current) {
+            // jobs forked by a worker stay local and run next, while their data is still warm
+            current.jobs.offerFirst(action);
+            this.wakeAfterSchedule(current);
+        } else {
+            final Worker target = this.workers[Math.floorMod(this.nextWorker.getAndIncrement(), this.workers.length)];
+
+            // external jobs run in submission order; thieves take the newest from the tail
+            target.jobs.offerLast(action);
+
+            // a shutdown that began after the check above may have drained the deque already
+            if (this.isShutdown && target.jobs.removeLastOccurrence(action)) {
+                throw new GLFWException("GLWorkerPool has been shutdown!");
+            }
+
+            this.wakeAfterSchedule(target);
+        }
+    }
+
+    private void wakeAfterSchedule(final Worker target) {
+        target.wake();
+
+        // wake one idle worker so that it can steal if the target is busy
+        final int count = this.workers.length;
+
+        for (int i = 1; i < count; i++) {
+            if (this.workers[(target.index + i) % count].wake()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Submits a GLTask to run on one of the pooled worker threads.
+     *
+     * @param task the task to run.
+     * @return a future that completes once the task has run.
+     * @throws GLFWException if the pool has been shutdown.
+     * @since 26.10.18
+     */
+    public CompletableFuture<Void> submit(final GLTask task) throws GLFWException {
+        Objects.requireNonNull(task, "Task cannot be null!");
+
+        final CompletableFuture<Void> out = new CompletableFuture<>();
+
+        this.schedule(() -> {
+            try {
+                task.run();
+                out.complete(null);
+            } catch (Throwable ex) {
+                out.completeExceptionally(ex);
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Submits a GLQuery to run on one of the pooled worker threads.
+     *
+     * @param <T> the return type of the query.
+     * @param query the query to run.
+     * @return a future that completes with the result of the query.
+     * @throws GLFWException if the pool has been shutdown.
+     * @since 26.10.18
+     */
+    public <T> CompletableFuture<T> submit(final GLQuery<T> query) throws GLFWException {
+        Objects.requireNonNull(query, "Query cannot be null!");
+
+        final CompletableFuture<T> out = new CompletableFuture<>();
+
+        this.schedule(() -> {
+            try {
+                out.complete(query.call());
+            } catch (Throwable ex) {
+                out.completeExceptionally(ex);
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Retrieves the number of workers in the pool.
+     *
+     * @return the worker count.
+     * @since 26.10.18
+     */
+    public int getSize() {
+        return this.workers.length;
+    }
+
+    /**
+     * Retrieves the number of jobs that have been executed.
+     *
+     * @return the executed job count.
+     * @since 26.10.18
+     */
+    public long getExecutedCount() {
+        return this.executed.sum();
+    }
+
+    /**
+     * Retrieves the number of jobs that were stolen by an idle worker.
+     *
+     * @return the stolen job count.
+     * @since 26.10.18
+     */
+    public long getStolenCount() {
+        return this.stolen.sum();
+    }
+
+    /**
+     * Applies thread settings to every worker thread.
+     *
+     * @param settings the thread settings.
+     */
+    void setThreadSettings(final GLThreadSettings settings) {
+        for (Worker worker : this.workers) {
+            worker.window.setThreadSettings(settings);
+        }
+    }
+
+    /**
+     * Checks if the pool has been shutdown.
+     *
+     * @return true if no more tasks are accepted.
+     * @since 26.10.18
+     */
+    public boolean isShutdown() {
+        return this.isShutdown;
+    }
+
+    /**
+     * Stops accepting tasks and closes every worker window. Jobs that were
+     * already submitted still run before the worker threads stop.
+     *
+     * @since 26.10.18
+     */
+    public void shutdown() {
+        for (GLWindow window : this.beginShutdown()) {
+            window.getGLThreadExecutor().execute(window::cleanup);
+        }
+    }
+
+    /**
+     * Stops accepting tasks without closing the worker windows. The caller is
+     * responsible for closing them.
+     *
+     * @return the worker windows, or an empty array if the pool was already
+     * shutdown.
+     */
+    GLWindow[] beginShutdown() {
+        synchronized (this) {
+            if (this.isShutdown) {
+                return new GLWindow[0];
+            }
+
+            this.isShutdown = true;
+        }
+
+        final GLWindow[] out = new GLWindow[this.workers.length];
+
+        for (int i = 0; i < out.length; i++) {
+            final Worker worker = this.workers[i];
+
+            // queued ahead of the cleanup so that accepted jobs still run
+            worker.window.getGLThreadExecutor().execute(worker::drain);
+            out[i] = worker.window;
+        }
+
+        LOGGER.trace(GLOOP_MARKER, "GLWorkerPool[parent={}] shutdown after {} jobs ({} stolen)", this.parent, this.getExecutedCount(), this.getStolenCount());
+
+        return out;
+    }
+}
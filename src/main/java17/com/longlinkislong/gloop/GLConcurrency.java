@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency primitives that differ between Java versions. The library is
+ * built as a multi-release JAR; the JVM selects the newest implementation of
+ * this class that it supports.
+ *
+ * This is the Java 17 implementation. Spin waits use Thread.onSpinWait,
+ * listener executors use daemon platform threads and buffer stores are
+ * ordered by VarHandle release stores and fences.
+ *
+ * @author zmichaels
+ * @since 26.10.18
+ */
+public final class GLConcurrency {
+
+    private static final VarHandle BIG_ENDIAN_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LITTLE_ENDIAN_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private GLConcurrency() {
+    }
+
+    /**
+     * Stores a long into a buffer after every earlier store, so a reader that
+     * loads the long with acquire semantics also sees the earlier stores.
+     *
+     * @param buffer the buffer. Its byte order is used.
+     * @param index the byte index; a multiple of 8 from the buffer address.
+     * @param value the value.
+     */
+    static void putLongRelease(final ByteBuffer buffer, final int index, final long value) {
+        final VarHandle longs = buffer.order() == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN_LONGS : LITTLE_ENDIAN_LONGS;
+
+        longs.setRelease(buffer, index, value);
+    }
+
+    /**
+     * Orders every earlier store before every later store.
+     */
+    static void storeStoreFence() {
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Retrieves the Java version this implementation was compiled for.
+     *
+     * @return 8, 17 or 21.
+     * @since 26.10.18
+     */
+    public static int getImplementationVersion() {
+        return 17;
+    }
+
+    /**
+     * Hints that the caller is busy waiting.
+     *
+     * @since 26.10.18
+     */
+    public static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+
+    /**
+     * Creates an ExecutorService suitable for listeners registered with an
+     * Executor. Each listener registration still receives its events in
+     * order.
+     *
+     * @param name the prefix for the thread names.
+     * @return the new ExecutorService.
+     * @since 26.10.18
+     */
+    public static ExecutorService newListenerExecutor(final String name) {
+        final AtomicInteger id = new AtomicInteger();
+
+        return Executors.newCachedThreadPool(task -> {
+            final Thread thread = new Thread(task, name + "-" + id.getAndIncrement());
+
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A single published reference to immutable state. Writers replace the whole
+ * value; readers see either the old or the new value and everything written
+ * before it was published.
+ *
+ * This is the Java 17 implementation. Reads use acquire and writes use
+ * release access, which avoids the full fence of a volatile store.
+ *
+ * @author zmichaels
+ * @param <T> the type of the published value.
+ * @since 26.10.18
+ */
+final class GLSnapshot<T> {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(GLSnapshot.class, "value", Object.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object value;
+
+    GLSnapshot(final T initial) {
+        VALUE.setRelease(this, initial);
+    }
+
+    /**
+     * Reads the current value with acquire semantics.
+     *
+     * @return the current value.
+     */
+    @SuppressWarnings("unchecked")
+    T get() {
+        return (T) VALUE.getAcquire(this);
+    }
+
+    /**
+     * Publishes a new value with release semantics.
+     *
+     * @param newValue the new value.
+     */
+    void set(final T newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    /**
+     * Publishes a new value if the current value is the expected one.
+     *
+     * @param expect the expected value.
+     * @param update the new value.
+     * @return true if the value was replaced.
+     */
+    boolean compareAndSet(final T expect, final T update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for event latching in GLActionMap on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLActionMapTest {
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    private GLActionMap actions;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLActionMapTest");
+
+        backend = (GLHeadlessBackend) window.backend;
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Before
+    public void createActions() {
+        this.actions = new GLActionMap(window, 3);
+    }
+
+    @After
+    public void clearActions() {
+        this.actions.clearBindings();
+    }
+
+    @Test
+    public void keyTapBetweenUpdatesIsNotLost() {
+        this.actions.bindKey(0, GLFW.GLFW_KEY_SPACE);
+        this.actions.update();
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_SPACE, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_SPACE, 0, GLFW.GLFW_RELEASE, 0);
+        backend.pollEvents();
+        this.actions.update();
+
+        assertTrue(this.actions.isActive(0));
+        assertTrue(this.actions.wasPressed(0));
+
+        this.actions.update();
+
+        assertFalse(this.actions.isActive(0));
+        assertTrue(this.actions.wasReleased(0));
+    }
+
+    @Test
+    public void mouseClickBetweenUpdatesIsNotLost() {
+        this.actions.bindMouseButton(1, GLFW.GLFW_MOUSE_BUTTON_LEFT, 1F);
+        this.actions.update();
+
+        backend.scriptMouseButton(window.window, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, 0);
+        backend.scriptMouseButton(window.window, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_RELEASE, 0);
+        backend.pollEvents();
+        this.actions.update();
+
+        assertTrue(this.actions.wasPressed(1));
+        assertEquals(1F, this.actions.getValue(1), 0F);
+    }
+
+    @Test
+    public void scrollingIsNotLostToConcurrentUpdates() throws Exception {
+        final int events = 20000;
+
+        this.actions.bindScroll(2, true, 1F);
+
+        final Thread poller = new Thread(() -> {
+            for (int i = 0; i < events; i++) {
+                backend.scriptScroll(window.window, 0.0, 1.0);
+                backend.pollEvents();
+            }
+        });
+        double total = 0.0;
+
+        poller.start();
+
+        while (poller.isAlive()) {
+            this.actions.update();
+            total += this.actions.getValue(2);
+        }
+
+        poller.join();
+        this.actions.update();
+        total += this.actions.getValue(2);
+
+        assertEquals(events, total, 0.0);
+    }
+}
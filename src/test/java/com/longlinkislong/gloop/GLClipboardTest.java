@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the UTF-8 clipboard calls of GLWindow on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLClipboardTest {
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLClipboardTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void emptyClipboardReadsAsNull() throws Exception {
+        final AtomicInteger allocations = new AtomicInteger();
+
+        window.setClipboardStringAsync("").get(5, TimeUnit.SECONDS);
+
+        final ByteBuffer read = window.getClipboardUTF8Async(size -> {
+            allocations.incrementAndGet();
+            return ByteBuffer.allocate(size);
+        }).get(5, TimeUnit.SECONDS);
+
+        assertNull(read);
+        assertEquals(0, allocations.get());
+    }
+
+    @Test
+    public void utf8RoundTrip() throws Exception {
+        final byte[] text = "gl\u00f6\u00f6p".getBytes(StandardCharsets.UTF_8);
+
+        window.setClipboardUTF8Async(ByteBuffer.wrap(text)).get(5, TimeUnit.SECONDS);
+
+        final ByteBuffer read = window.getClipboardUTF8Async(size -> {
+            final ByteBuffer out = ByteBuffer.allocate(size + 4);
+
+            out.position(4);
+            return out;
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, read.position());
+        assertEquals(ByteBuffer.wrap(text), read);
+        assertEquals("gl\u00f6\u00f6p", window.getClipboardStringAsync().get(5, TimeUnit.SECONDS));
+    }
+}
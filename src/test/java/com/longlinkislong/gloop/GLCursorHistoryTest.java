@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the extrapolation and clamping of GLCursorHistory.
+ *
+ * @author zmichaels
+ */
+public class GLCursorHistoryTest {
+
+    private static final long MILLIS = 1_000_000L;
+    // an arbitrary System.nanoTime origin
+    private static final long START = 123_456_789_000L;
+
+    private GLCursorHistory history;
+    private final double[] out = new double[2];
+
+    @Before
+    public void createHistory() {
+        this.history = new GLCursorHistory();
+    }
+
+    /**
+     * Moves the cursor by (dx, dy) pixels per millisecond, sampling every 8
+     * ms, and returns the time of the last sample.
+     */
+    private long move(final long from, final int samples, final double x, final double y, final double dx, final double dy) {
+        long time = from;
+
+        for (int i = 0; i < samples; i++) {
+            time = from + i * 8 * MILLIS;
+            this.history.add(time, x + dx * 8 * i, y + dy * 8 * i);
+        }
+
+        return time;
+    }
+
+    @Test
+    public void noSamplesNoPrediction() {
+        assertFalse(this.history.predict(START, this.out));
+    }
+
+    @Test
+    public void velocityExtrapolatesTheNewestSample() {
+        final long last = this.move(START, 5, 100.0, 50.0, 1.0, -0.5);
+
+        assertTrue(this.history.predict(last + 10 * MILLIS, this.out));
+        assertEquals(100.0 + 32.0 + 10.0, this.out[0], 1e-6);
+        assertEquals(50.0 - 16.0 - 5.0, this.out[1], 1e-6);
+    }
+
+    @Test
+    public void velocityOnlyUsesRecentSamples() {
+        // moving right, then 40 ms later moving down
+        final long turn = this.move(START, 10, 0.0, 0.0, 1.0, 0.0);
+        final long last = this.move(turn + 8 * MILLIS, 6, 72.0, 0.0, 0.0, 1.0);
+
+        assertTrue(this.history.predict(last + 10 * MILLIS, this.out));
+        assertEquals(72.0, this.out[0], 1e-6);
+        assertEquals(40.0 + 10.0, this.out[1], 1e-6);
+    }
+
+    @Test
+    public void horizonIsClampedToFiftyMilliseconds() {
+        final long last = this.move(START, 5, 0.0, 0.0, 1.0, 0.0);
+
+        this.history.predict(last + 50 * MILLIS, this.out);
+        assertEquals(32.0 + 50.0, this.out[0], 1e-6);
+
+        // beyond the horizon the cursor is assumed to have stopped
+        this.history.predict(last + 51 * MILLIS, this.out);
+        assertEquals(32.0, this.out[0], 1e-6);
+    }
+
+    @Test
+    public void pastTimesPredictTheNewestSample() {
+        final long last = this.move(START, 5, 0.0, 0.0, 1.0, 1.0);
+
+        this.history.predict(last - 20 * MILLIS, this.out);
+
+        assertEquals(32.0, this.out[0], 1e-6);
+        assertEquals(32.0, this.out[1], 1e-6);
+    }
+
+    @Test
+    public void oneEuroFollowsASteadyMovement() {
+        this.history.setMode(GLCursorPrediction.ONE_EURO);
+        this.history.setOneEuroParameters(1.0, 0.007, 1.0);
+
+        final long last = this.move(START, 150, 0.0, 0.0, 1.0, 0.0);
+        final double lastX = 149 * 8.0;
+
+        this.history.predict(last, this.out);
+
+        final double lag = lastX - this.out[0];
+
+        // the filtered position trails the cursor but not by more than a few samples
+        assertTrue("lag " + lag, lag > 0.0 && lag < 4 * 8.0);
+
+        this.history.predict(last + 10 * MILLIS, this.out);
+
+        // the filtered velocity has converged on 1 px/ms
+        assertEquals(lastX - lag + 10.0, this.out[0], 0.1);
+        assertEquals(0.0, this.out[1], 1e-9);
+    }
+
+    @Test
+    public void oneEuroSmoothsJitter() {
+        final GLCursorHistory raw = new GLCursorHistory();
+
+        this.history.setMode(GLCursorPrediction.ONE_EURO);
+
+        for (int i = 0; i < 40; i++) {
+            // a resting cursor with a +-1 px sensor jitter
+            final double x = 100.0 + (i % 2 == 0 ? 1.0 : -1.0);
+
+            this.history.add(START + i * 8 * MILLIS, x, 100.0);
+            raw.add(START + i * 8 * MILLIS, x, 100.0);
+        }
+
+        final long at = START + 39 * 8 * MILLIS + 16 * MILLIS;
+        final double[] velocity = new double[2];
+
+        this.history.predict(at, this.out);
+        raw.predict(at, velocity);
+
+        assertTrue(Math.abs(this.out[0] - 100.0) < Math.abs(velocity[0] - 100.0));
+        assertTrue(Math.abs(this.out[0] - 100.0) < 1.0);
+    }
+
+    @Test
+    public void historyKeepsTheNewestSamples() {
+        final int samples = GLCursorHistory.CAPACITY + 10;
+        final long[] times = new long[samples];
+        final double[] positions = new double[2 * samples];
+
+        this.move(START, samples, 0.0, 0.0, 1.0, 0.0);
+
+        final int copied = this.history.copy(times, positions);
+
+        assertEquals(GLCursorHistory.CAPACITY, copied);
+        assertEquals(START + 10 * 8 * MILLIS, times[0]);
+        assertEquals(START + (samples - 1) * 8 * MILLIS, times[copied - 1]);
+        assertEquals((samples - 1) * 8.0, positions[2 * (copied - 1)], 0.0);
+
+        this.history.clear();
+        assertFalse(this.history.predict(START, this.out));
+    }
+}
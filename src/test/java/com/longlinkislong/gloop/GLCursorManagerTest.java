@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the image cursor cache of GLCursorManager on the headless
+ * backend.
+ *
+ * @author zmichaels
+ */
+public class GLCursorManagerTest {
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLCursorManagerTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void failedLoadsAreEvicted() throws Exception {
+        final GLCursorManager cursors = window.getCursorManager();
+        final CompletableFuture<Long> failed = cursors.loadImageCursor(
+                "broken", () -> new ByteArrayInputStream(new byte[]{1, 2, 3}), 0, 0);
+
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("Loading garbage should fail");
+        } catch (ExecutionException expected) {
+            // the bytes are not an image
+        }
+
+        assertNull(cursors.getImageCursor("broken"));
+
+        final CompletableFuture<Long> retried = cursors.createImageCursor(
+                "broken", new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB), 0, 0);
+
+        assertNotSame(failed, retried);
+        assertTrue(retried.get(5, TimeUnit.SECONDS) != 0L);
+    }
+
+    @Test
+    public void loadedCursorsAreCached() throws Exception {
+        final GLCursorManager cursors = window.getCursorManager();
+        final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        final CompletableFuture<Long> first = cursors.createImageCursor("cached", image, 0, 0);
+
+        first.get(5, TimeUnit.SECONDS);
+
+        assertSame(first, cursors.createImageCursor("cached", image, 0, 0));
+        assertSame(first, cursors.getImageCursor("cached"));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for event timestamps and the input-to-present latency of GLWindow,
+ * measured against the virtual clock of the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLEventLatencyTest {
+
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(3);
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLEventLatencyTest");
+        backend = GLTestWindows.backend();
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    private static void update() throws Exception {
+        window.update();
+        GLTestWindows.flush(window);
+    }
+
+    @Test
+    public void listenersSeeTheTimeOfTheirEvent() throws Exception {
+        final AtomicLong stamp = new AtomicLong(-1L);
+        final GLKeyListener listener = (source, key, scancode, action, mods) -> stamp.set(source.getEventTimerValue());
+
+        window.getKeyboard().addKeyListener(listener);
+
+        try {
+            backend.advanceTime(FRAME_NANOS);
+
+            final long expected = backend.getTimerValue();
+
+            backend.scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+            update();
+
+            assertEquals(expected, stamp.get());
+        } finally {
+            window.getKeyboard().removeKeyListener(listener);
+        }
+    }
+
+    @Test
+    public void latencyRunsUntilTheNextSwap() throws Exception {
+        final GLLatencyHistogram keys = window.getMetrics().getInputLatency(GLEventType.KEY);
+        final GLLatencyHistogram scrolls = window.getMetrics().getInputLatency(GLEventType.SCROLL);
+
+        update();
+        keys.reset();
+        scrolls.reset();
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_B, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_B, 0, GLFW.GLFW_RELEASE, 0);
+        backend.scriptScroll(window.window, 0.0, 1.0);
+        update();
+
+        // the events were polled after this frame's swap; they are presented by the next one
+        assertEquals(0L, keys.getCount());
+
+        backend.advanceTime(FRAME_NANOS);
+        update();
+
+        assertEquals(2L, keys.getCount());
+        assertEquals(FRAME_NANOS, keys.getMin());
+        assertEquals(FRAME_NANOS, keys.getMax());
+        assertEquals(1L, scrolls.getCount());
+        assertEquals(FRAME_NANOS, scrolls.getMax());
+
+        backend.advanceTime(FRAME_NANOS);
+        update();
+
+        assertEquals(2L, keys.getCount());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for progress and completion reporting of GLFileIngestor with files
+ * dropped on a headless window.
+ *
+ * @author zmichaels
+ */
+public class GLFileIngestorTest {
+
+    private static GLWindow window;
+
+    private Path directory;
+    private GLFileIngestor<String> ingestor;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLFileIngestorTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Before
+    public void createDirectory() throws IOException {
+        this.directory = Files.createTempDirectory("GLFileIngestorTest");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        if (this.ingestor != null) {
+            window.removeFileDropListener(this.ingestor);
+            this.ingestor.shutdown();
+        }
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(this.directory);
+    }
+
+    private Path write(final String name, final String contents) throws IOException {
+        return Files.write(this.directory.resolve(name), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(final Path path, final ByteBuffer data) {
+        final byte[] bytes = new byte[data.remaining()];
+
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<Path, String> drop(final Path... paths) throws Exception {
+        final CompletableFuture<Map<Path, String>> done = new CompletableFuture<>();
+        final String[] names = new String[paths.length];
+
+        for (int i = 0; i < paths.length; i++) {
+            names[i] = paths[i].toString();
+        }
+
+        this.ingestor.setOnComplete((source, results, errors) -> done.complete(results));
+        window.addFileDropListener(this.ingestor);
+        GLTestWindows.backend().scriptDrop(window.window, names);
+        window.update();
+
+        return done.get(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void progressCountsUpOnTheGLThread() throws Exception {
+        final List<Integer> completed = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> onGLThread = Collections.synchronizedList(new ArrayList<>());
+        final Thread glThread = CompletableFuture.supplyAsync(Thread::currentThread, window.getGLThreadExecutor())
+                .get(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        this.ingestor = new GLFileIngestor<>(2, GLFileIngestorTest::decode);
+        this.ingestor.setOnProgress((source, path, result, error, done, total) -> {
+            completed.add(done);
+            onGLThread.add(total == 3 && Thread.currentThread() == glThread);
+        });
+
+        final Map<Path, String> results = this.drop(
+                this.write("a.txt", "alpha"),
+                this.write("b.txt", "beta"),
+                this.write("c.txt", "gamma"));
+
+        assertEquals(Arrays.asList(1, 2, 3), completed);
+        assertEquals(Arrays.asList(true, true, true), onGLThread);
+        assertEquals(Arrays.asList("alpha", "beta", "gamma"), new ArrayList<>(results.values()));
+        assertEquals(0, this.ingestor.getPendingCount());
+    }
+
+    @Test
+    public void resultsKeepTheDropOrder() throws Exception {
+        final CountDownLatch othersDone = new CountDownLatch(2);
+        final List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        final Path first = this.write("first.txt", "1");
+
+        this.ingestor = new GLFileIngestor<>(3, (path, data) -> {
+            if (path.equals(first)) {
+                // the first file of the drop finishes last
+                othersDone.await(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } else {
+                othersDone.countDown();
+            }
+
+            return decode(path, data);
+        });
+        this.ingestor.setOnProgress((source, path, result, error, done, total) -> finished.add(result));
+
+        final Map<Path, String> results = this.drop(first, this.write("second.txt", "2"), this.write("third.txt", "3"));
+
+        assertEquals("1", finished.get(2));
+        assertEquals(Arrays.asList("1", "2", "3"), new ArrayList<>(results.values()));
+    }
+
+    @Test
+    public void failuresAreReportedByPath() throws Exception {
+        final CompletableFuture<Map<Path, Throwable>> failures = new CompletableFuture<>();
+        final CompletableFuture<Map<Path, String>> successes = new CompletableFuture<>();
+        final List<String> progress = Collections.synchronizedList(new ArrayList<>());
+        final Path good = this.write("good.txt", "ok");
+        final Path missing = this.directory.resolve("missing.txt");
+
+        this.ingestor = new GLFileIngestor<>(1, GLFileIngestorTest::decode);
+        this.ingestor.setOnProgress((source, path, result, error, done, total) -> progress.add(
+                path.getFileName() + "=" + result + "/" + (error == null ? null : error.getClass().getSimpleName())));
+        this.ingestor.setOnComplete((source, results, errors) -> {
+            successes.complete(results);
+            failures.complete(errors);
+        });
+
+        window.addFileDropListener(this.ingestor);
+        GLTestWindows.backend().scriptDrop(window.window, good.toString(), missing.toString());
+        window.update();
+
+        final Map<Path, Throwable> errors = failures.get(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(Collections.singletonMap(good, "ok"), successes.get());
+        assertEquals(Collections.singleton(missing), errors.keySet());
+        assertTrue(errors.get(missing) instanceof IOException);
+        assertEquals(Arrays.asList("good.txt=ok/null", "missing.txt=null/IOException"), progress);
+    }
+}
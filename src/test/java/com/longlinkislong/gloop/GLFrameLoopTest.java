@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for GLFrameLoop pipelining and pacing on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLFrameLoopTest {
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLFrameLoopTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    /**
+     * A clock that only moves when it is read or parked, so the pacing can be
+     * checked without depending on the scheduler of the test machine.
+     */
+    private static final class VirtualClock implements GLFrameLoop.Clock {
+
+        // every read costs a microsecond so that spin waits make progress
+        static final long READ_NANOS = 1_000L;
+
+        final AtomicLong now = new AtomicLong();
+
+        @Override
+        public long nanoTime() {
+            return this.now.addAndGet(READ_NANOS);
+        }
+
+        @Override
+        public void parkNanos(final long nanos) {
+            this.now.addAndGet(nanos);
+        }
+    }
+
+    @Test
+    public void pacingStartsFramesOnTheirDeadlines() throws Exception {
+        final VirtualClock clock = new VirtualClock();
+        final GLFrameLoop loop = new GLFrameLoop(window, 2, clock);
+        final List<Long> starts = new ArrayList<>();
+        final int frames = 10;
+
+        loop.setTargetFrameRate(50.0);
+        assertEquals(50.0, loop.getTargetFrameRate(), 0.01);
+
+        loop.setOnPrepare(frame -> {
+            starts.add(clock.now.get());
+
+            if (frame == frames) {
+                loop.stop();
+            }
+        });
+
+        loop.start().get(5, TimeUnit.SECONDS);
+
+        final long period = 20_000_000L;
+        // the reads between the deadline and the prepare hook
+        final long slack = 20 * VirtualClock.READ_NANOS;
+
+        assertEquals(frames + 1, starts.size());
+
+        for (int i = 1; i < starts.size(); i++) {
+            final long gap = starts.get(i) - starts.get(i - 1);
+
+            assertTrue("frame " + i + " started after " + gap + " ns", Math.abs(gap - period) <= slack);
+        }
+
+        // every frame after the first waited for almost a whole period
+        assertTrue(loop.getPacingNanos() <= frames * period);
+        assertTrue(loop.getPacingNanos() >= frames * (period - slack));
+    }
+
+    @Test
+    public void framesInFlightAreBounded() throws Exception {
+        final GLFrameLoop loop = new GLFrameLoop(window, 2);
+        final int[] maxInFlight = new int[1];
+
+        loop.setOnPreSwap(frame -> Thread.sleep(2));
+        loop.setOnPrepare(frame -> maxInFlight[0] = Math.max(maxInFlight[0], loop.getFramesInFlight()));
+
+        final CompletableFuture<Void> done = loop.start();
+
+        Thread.sleep(200);
+        loop.stop();
+        done.get(5, TimeUnit.SECONDS);
+
+        assertTrue(loop.getPresentedFrames() > 0L);
+        assertTrue("in flight " + maxInFlight[0], maxInFlight[0] <= 2);
+    }
+
+    @Test
+    public void failingHookStopsTheLoop() throws Exception {
+        final GLFrameLoop loop = new GLFrameLoop(window);
+
+        loop.setOnPostSwap(frame -> {
+            if (frame == 3) {
+                throw new Exception("expected");
+            }
+        });
+
+        try {
+            loop.start().get(5, TimeUnit.SECONDS);
+            fail("the loop did not fail");
+        } catch (ExecutionException ex) {
+            assertTrue(!loop.isRunning());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the layout of the shared memory frame sink.
+ *
+ * @author zmichaels
+ */
+public class GLFrameSinksTest {
+
+    @Test
+    public void sharedMemorySlotsStayAlignedAndPublishFrames() throws Exception {
+        final Path file = Files.createTempFile("GLFrameSinksTest", ".shm");
+        // an odd pixel count would leave every other slot misaligned without padding
+        final int width = 3;
+        final int height = 3;
+        final ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * 4);
+
+        for (int i = 0; i < pixels.capacity(); i++) {
+            pixels.put(i, (byte) i);
+        }
+
+        try {
+            final GLFrameCapture.Sink sink = GLFrameSinks.sharedMemory(file, 2);
+
+            sink.open(width, height);
+
+            for (long frame = 0; frame < 3; frame++) {
+                sink.write(frame, pixels, width, height);
+            }
+
+            sink.close();
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+
+                segment.order(ByteOrder.nativeOrder());
+
+                final int slotSize = segment.getInt(16);
+                final int slot0 = GLFrameSinks.SHARED_MEMORY_HEADER;
+                final int slot1 = slot0 + slotSize;
+
+                assertEquals(GLFrameSinks.SHARED_MEMORY_MAGIC, segment.getInt(0));
+                assertEquals(0, slotSize % 8);
+                assertEquals(2L, segment.getLong(24));
+
+                // slot 0 held frames 0 and 2, slot 1 frame 1; every write leaves an even sequence
+                assertEquals(4L, segment.getLong(slot0));
+                assertEquals(2L, segment.getLong(slot0 + 8));
+                assertEquals(2L, segment.getLong(slot1));
+                assertEquals(1L, segment.getLong(slot1 + 8));
+
+                // the rows are stored top to bottom
+                final int lastRow = (height - 1) * width * 4;
+
+                assertEquals(pixels.get(lastRow), segment.get(slot0 + GLFrameSinks.SHARED_MEMORY_SLOT_HEADER));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the virtual clock, scripted input and simulated joysticks of
+ * GLHeadlessBackend. Each test drives its own backend through the
+ * GLWindowBackend calls that GLWindow makes.
+ *
+ * @author zmichaels
+ */
+public class GLHeadlessBackendTest {
+
+    private static final int PAD = 3;
+
+    private GLHeadlessBackend backend;
+    private long hwnd;
+    private List<String> events;
+
+    private final class RecordingCallbacks implements GLWindowBackend.Callbacks {
+
+        @Override
+        public void keyCallback(final long hwnd, final int key, final int scancode, final int action, final int mods) {
+            events.add("key " + key + " " + action);
+        }
+
+        @Override
+        public void charCallback(final long hwnd, final int codepoint) {
+            events.add("char " + (char) codepoint);
+        }
+
+        @Override
+        public void mouseButtonCallback(final long hwnd, final int button, final int action, final int mods) {
+            events.add("button " + button + " " + action);
+        }
+
+        @Override
+        public void cursorPosCallback(final long hwnd, final double x, final double y) {
+            events.add("cursor " + x + " " + y);
+        }
+
+        @Override
+        public void cursorEnterCallback(final long hwnd, final boolean entered) {
+            events.add("enter " + entered);
+        }
+
+        @Override
+        public void scrollCallback(final long hwnd, final double xOffset, final double yOffset) {
+            events.add("scroll " + xOffset + " " + yOffset);
+        }
+
+        @Override
+        public void framebufferSizeCallback(final long hwnd, final int width, final int height) {
+            events.add("resize " + width + "x" + height);
+        }
+
+        @Override
+        public void windowCloseCallback(final long hwnd) {
+            events.add("close");
+        }
+
+        @Override
+        public void windowIconifyCallback(final long hwnd, final boolean iconified) {
+            events.add("iconify " + iconified);
+        }
+
+        @Override
+        public void windowRefreshCallback(final long hwnd) {
+            events.add("refresh");
+        }
+
+        @Override
+        public void dropCallback(final long hwnd, final String[] paths) {
+            events.add("drop " + Arrays.toString(paths));
+        }
+    }
+
+    @Before
+    public void createWindow() {
+        this.backend = new GLHeadlessBackend();
+        this.backend.initialize();
+        this.hwnd = this.backend.createWindow(64, 64, "GLHeadlessBackendTest", 0L, 0L);
+        this.events = new ArrayList<>();
+        this.backend.setCallbacks(this.hwnd, new RecordingCallbacks());
+    }
+
+    @Test
+    public void clockOnlyMovesWhenAdvanced() {
+        final long start = this.backend.getTimerValue();
+
+        this.backend.swapBuffers(this.hwnd);
+        this.backend.pollEvents();
+        assertEquals(start, this.backend.getTimerValue());
+
+        this.backend.advanceTime(1_500_000_000L);
+        assertEquals(start + 1_500_000_000L, this.backend.getTimerValue());
+        assertEquals(1.5, this.backend.getTime(), 1e-9);
+        assertEquals(1_000_000_000L, this.backend.getTimerFrequency());
+    }
+
+    @Test
+    public void swapsAdvanceTheClockBySwapTime() {
+        this.backend.setSwapTime(16_000_000L);
+
+        final long start = this.backend.getTimerValue();
+
+        for (int i = 0; i < 3; i++) {
+            this.backend.swapBuffers(this.hwnd);
+        }
+
+        assertEquals(start + 48_000_000L, this.backend.getTimerValue());
+        assertEquals(3L, this.backend.getSwapCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void clockCannotMoveBackwards() {
+        this.backend.advanceTime(-1L);
+    }
+
+    @Test
+    public void scriptedInputIsDeliveredInOrderOnPoll() {
+        this.backend.scriptCursorEnter(this.hwnd, true);
+        this.backend.scriptCursorPos(this.hwnd, 1.5, 2.5);
+        this.backend.scriptKey(this.hwnd, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+        this.backend.scriptChar(this.hwnd, 'a');
+        this.backend.scriptMouseButton(this.hwnd, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, 0);
+        this.backend.scriptScroll(this.hwnd, 0.0, -1.0);
+        this.backend.resizeFramebuffer(this.hwnd, 32, 16);
+        this.backend.scriptDrop(this.hwnd, "a.txt", "b.txt");
+        this.backend.scriptRefresh(this.hwnd);
+        this.backend.scriptIconify(this.hwnd, true);
+        this.backend.scriptClose(this.hwnd);
+
+        assertTrue(this.events.isEmpty());
+
+        this.backend.pollEvents();
+
+        assertEquals(Arrays.asList(
+                "enter true",
+                "cursor 1.5 2.5",
+                "key " + GLFW.GLFW_KEY_A + " " + GLFW.GLFW_PRESS,
+                "char a",
+                "button " + GLFW.GLFW_MOUSE_BUTTON_LEFT + " " + GLFW.GLFW_PRESS,
+                "scroll 0.0 -1.0",
+                "resize 32x16",
+                "drop [a.txt, b.txt]",
+                "refresh",
+                "iconify true",
+                "close"), this.events);
+    }
+
+    @Test
+    public void scriptedInputUpdatesTheWindowState() {
+        final double[] cursor = new double[2];
+        final int[] framebuffer = new int[2];
+
+        this.backend.scriptKey(this.hwnd, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        this.backend.scriptMouseButton(this.hwnd, GLFW.GLFW_MOUSE_BUTTON_RIGHT, GLFW.GLFW_PRESS, 0);
+        this.backend.scriptCursorPos(this.hwnd, 10.0, 20.0);
+        this.backend.resizeFramebuffer(this.hwnd, 128, 96);
+        this.backend.scriptClose(this.hwnd);
+
+        assertEquals(GLFW.GLFW_RELEASE, this.backend.getKey(this.hwnd, GLFW.GLFW_KEY_W));
+
+        this.backend.pollEvents();
+        this.backend.getCursorPos(this.hwnd, cursor);
+        this.backend.getFramebufferSize(this.hwnd, framebuffer);
+
+        assertEquals(GLFW.GLFW_PRESS, this.backend.getKey(this.hwnd, GLFW.GLFW_KEY_W));
+        assertEquals(GLFW.GLFW_PRESS, this.backend.getMouseButton(this.hwnd, GLFW.GLFW_MOUSE_BUTTON_RIGHT));
+        assertEquals(10.0, cursor[0], 0.0);
+        assertEquals(20.0, cursor[1], 0.0);
+        assertEquals(128, framebuffer[0]);
+        assertEquals(96, framebuffer[1]);
+        assertTrue(this.backend.windowShouldClose(this.hwnd));
+
+        this.backend.scriptKey(this.hwnd, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_REPEAT, 0);
+        this.backend.pollEvents();
+        assertEquals(GLFW.GLFW_PRESS, this.backend.getKey(this.hwnd, GLFW.GLFW_KEY_W));
+
+        this.backend.scriptKey(this.hwnd, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_RELEASE, 0);
+        this.backend.pollEvents();
+        assertEquals(GLFW.GLFW_RELEASE, this.backend.getKey(this.hwnd, GLFW.GLFW_KEY_W));
+    }
+
+    @Test
+    public void inputScriptedForDestroyedWindowsIsDropped() {
+        this.backend.scriptKey(this.hwnd, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+        this.backend.destroyWindow(this.hwnd);
+        this.backend.pollEvents();
+
+        assertEquals(Collections.emptyList(), this.events);
+    }
+
+    @Test
+    public void waitEventsReturnsOnScriptedInput() throws InterruptedException {
+        final Thread scripter = new Thread(() -> this.backend.scriptChar(this.hwnd, 'x'));
+
+        scripter.start();
+        this.backend.waitEventsTimeout(GLTestWindows.TIMEOUT_SECONDS);
+        scripter.join();
+
+        assertEquals(Collections.singletonList("char x"), this.events);
+    }
+
+    @Test
+    public void waitEventsReturnsOnEmptyEvent() {
+        final long start = System.nanoTime();
+
+        this.backend.postEmptyEvent();
+        this.backend.waitEventsTimeout(GLTestWindows.TIMEOUT_SECONDS);
+
+        assertTrue(System.nanoTime() - start < GLTestWindows.TIMEOUT_SECONDS * 1_000_000_000L);
+        assertTrue(this.events.isEmpty());
+        assertEquals(1L, this.backend.getPollCount());
+    }
+
+    @Test
+    public void joysticksReportTheirSimulatedState() {
+        assertFalse(this.backend.joystickPresent(PAD));
+        assertNull(this.backend.getJoystickAxes(PAD));
+
+        this.backend.connectJoystick(PAD, "GLHeadlessBackendTest", 2, 3);
+        this.backend.setJoystickAxis(PAD, 1, -0.5f);
+        this.backend.setJoystickButton(PAD, 2, true);
+
+        assertTrue(this.backend.joystickPresent(PAD));
+        assertEquals("GLHeadlessBackendTest", this.backend.getJoystickName(PAD));
+        assertEquals(2, this.backend.getJoystickAxes(PAD).remaining());
+        assertEquals(-0.5f, this.backend.getJoystickAxes(PAD).get(1), 0.0f);
+        assertEquals(3, this.backend.getJoystickButtons(PAD).remaining());
+        assertEquals(GLFW.GLFW_PRESS, this.backend.getJoystickButtons(PAD).get(2));
+        assertEquals(GLFW.GLFW_RELEASE, this.backend.getJoystickButtons(PAD).get(0));
+
+        this.backend.disconnectJoystick(PAD);
+
+        assertFalse(this.backend.joystickPresent(PAD));
+        assertNull(this.backend.getJoystickName(PAD));
+        assertNull(this.backend.getJoystickButtons(PAD));
+    }
+
+    @Test
+    public void gamepadsPollTheSimulatedJoystick() {
+        final GLHeadlessBackend shared = GLTestWindows.backend();
+
+        shared.connectJoystick(PAD, "GLHeadlessBackendTest", 2, 2);
+
+        try {
+            final GLGamepad pad = new GLGamepad(PAD);
+
+            assertEquals(GLGamepadState.RELEASED, pad.getButtonState(1));
+            assertEquals(0.0f, pad.getAxesState(0), 0.0f);
+
+            shared.setJoystickButton(PAD, 1, true);
+            shared.setJoystickAxis(PAD, 0, 0.75f);
+            pad.update();
+
+            assertEquals(GLGamepadState.PRESSED, pad.getButtonState(1));
+            assertEquals(0.75f, pad.getAxesState(0), 0.0f);
+        } finally {
+            shared.disconnectJoystick(PAD);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for latching input before the swap and for consistent reads of the
+ * latched slot while it is being republished.
+ *
+ * @author zmichaels
+ */
+public class GLInputLatchTest {
+
+    private static final int LATCHES = 200_000;
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLInputLatchTest");
+        backend = GLTestWindows.backend();
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @After
+    public void disableLatch() throws Exception {
+        final GLInputLatch latch = window.getInputLatch();
+
+        latch.setEnabled(false);
+        latch.setPollBeforeSwap(false);
+        latch.setWatchedKeys();
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_RELEASE, 0);
+        update();
+    }
+
+    private static void update() throws Exception {
+        window.update();
+        GLTestWindows.flush(window);
+    }
+
+    @Test
+    public void updatesLatchTheInputBeforeTheSwap() throws Exception {
+        final GLInputLatch latch = window.getInputLatch();
+        final GLInputLatch.State state = new GLInputLatch.State();
+        final long sequence = latch.getSequence();
+
+        latch.setWatchedKeys(GLFW.GLFW_KEY_W, GLFW.GLFW_KEY_S);
+        latch.setEnabled(true);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptCursorPos(window.window, 12.0, 34.0);
+
+        // the events are polled after the swap, so the first latch misses them
+        update();
+        latch.read(state);
+
+        assertEquals(sequence + 1, state.getSequence());
+        assertFalse(state.isKeyDown(GLFW.GLFW_KEY_W));
+
+        update();
+        latch.read(state);
+
+        assertEquals(sequence + 2, state.getSequence());
+        assertTrue(state.isKeyDown(GLFW.GLFW_KEY_W));
+        assertFalse(state.isKeyDown(GLFW.GLFW_KEY_S));
+        assertFalse(state.isKeyDown(GLFW.GLFW_KEY_A));
+        assertEquals(12.0, state.getCursorX(), 0.0);
+        assertEquals(34.0, state.getCursorY(), 0.0);
+    }
+
+    @Test
+    public void pollingBeforeTheSwapLatchesTheNewestEvents() throws Exception {
+        final GLInputLatch latch = window.getInputLatch();
+        final GLInputLatch.State state = new GLInputLatch.State();
+
+        latch.setWatchedKeys(GLFW.GLFW_KEY_W);
+        latch.setPollBeforeSwap(true);
+        latch.setEnabled(true);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        update();
+
+        assertTrue(latch.read(state).isKeyDown(GLFW.GLFW_KEY_W));
+    }
+
+    @Test
+    public void disabledLatchDoesNotPublish() throws Exception {
+        final GLInputLatch latch = window.getInputLatch();
+        final long sequence = latch.getSequence();
+
+        update();
+
+        assertEquals(sequence, latch.getSequence());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atMostSixtyFourKeysAreWatched() {
+        window.getInputLatch().setWatchedKeys(new int[GLInputLatch.MAX_KEYS + 1]);
+    }
+
+    @Test
+    public void readsNeverSeeAHalfPublishedLatch() throws Exception {
+        final GLInputLatch latch = window.getInputLatch();
+        final long first = latch.getSequence() + 1;
+        // every latch publishes x == y == its own sequence number
+        final CompletableFuture<Void> publisher = CompletableFuture.runAsync(() -> {
+            for (long i = first; i < first + LATCHES; i++) {
+                backend.setCursorPos(window.window, i, i);
+                latch.latch();
+            }
+        }, window.getGLThreadExecutor());
+        final GLInputLatch.State state = new GLInputLatch.State();
+        long reads = 0L;
+        long previous = 0L;
+
+        while (!publisher.isDone()) {
+            latch.read(state);
+            reads++;
+
+            if (state.getSequence() >= first) {
+                assertEquals(state.getSequence(), state.getCursorX(), 0.0);
+                assertEquals(state.getCursorX(), state.getCursorY(), 0.0);
+            }
+
+            assertTrue(state.getSequence() >= previous);
+            previous = state.getSequence();
+        }
+
+        publisher.get(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(first + LATCHES - 1, latch.read(state).getSequence());
+        assertTrue(reads > 0L);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the GLInputSnapshot codec using input scripted on the headless
+ * backend.
+ *
+ * @author zmichaels
+ */
+public class GLInputSnapshotTest {
+
+    private static final int PAD = 0;
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    private List<GLGamepad> pads;
+    private GLInputSnapshot sent;
+    private GLInputSnapshot sentPrevious;
+    private GLInputSnapshot received;
+    private ByteBuffer packet;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLInputSnapshotTest");
+
+        backend = (GLHeadlessBackend) window.backend;
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Before
+    public void createChain() {
+        backend.connectJoystick(PAD, "GLInputSnapshotTest", 4, 6);
+        this.pads = Collections.singletonList(new GLGamepad(PAD));
+        this.sent = new GLInputSnapshot(1, 2);
+        this.sentPrevious = new GLInputSnapshot(1, 2);
+        this.received = new GLInputSnapshot(1, 2);
+        this.packet = ByteBuffer.allocate(this.sent.getMaxEncodedSize());
+    }
+
+    @After
+    public void releaseInput() {
+        for (int key = GLFW.GLFW_KEY_SPACE; key <= GLFW.GLFW_KEY_LAST; key++) {
+            backend.scriptKey(window.window, key, 0, GLFW.GLFW_RELEASE, 0);
+        }
+
+        backend.scriptMouseButton(window.window, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_RELEASE, 0);
+        backend.scriptCursorPos(window.window, 0.0, 0.0);
+        backend.pollEvents();
+        backend.disconnectJoystick(PAD);
+    }
+
+    /**
+     * Captures the next sender frame and encodes it against the previous one.
+     */
+    private ByteBuffer send() {
+        backend.pollEvents();
+        this.sent.capture(window, this.pads, this.sent.getFrame() == 0L ? null : this.sentPrevious);
+        this.packet.clear();
+        this.sent.encode(this.sentPrevious, this.packet);
+        this.packet.flip();
+        this.sentPrevious.set(this.sent);
+
+        return this.packet;
+    }
+
+    private static void assertSameState(final GLInputSnapshot expected, final GLInputSnapshot actual) {
+        assertEquals(expected.getFrame(), actual.getFrame());
+        assertEquals(expected.getHash(), actual.getHash());
+
+        for (int key = 0; key <= GLFW.GLFW_KEY_LAST; key++) {
+            assertEquals("key " + key, expected.isKeyDown(key), actual.isKeyDown(key));
+        }
+
+        for (int button = 0; button <= GLFW.GLFW_MOUSE_BUTTON_LAST; button++) {
+            assertEquals(expected.isMouseButtonDown(button), actual.isMouseButtonDown(button));
+        }
+
+        assertEquals(expected.getCursorX(), actual.getCursorX(), 0.0);
+        assertEquals(expected.getCursorY(), actual.getCursorY(), 0.0);
+
+        for (int button = 0; button < 64; button++) {
+            assertEquals(expected.isGamepadButtonDown(PAD, button), actual.isGamepadButtonDown(PAD, button));
+        }
+
+        for (int axis = 0; axis < expected.getAxesPerGamepad(); axis++) {
+            assertEquals(expected.getGamepadAxis(PAD, axis), actual.getGamepadAxis(PAD, axis), 0F);
+        }
+    }
+
+    @Test
+    public void decodeReproducesTheSenderChain() {
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_LAST, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptCursorPos(window.window, 10.25, 3.5);
+        backend.setJoystickAxis(PAD, 1, -0.5F);
+        backend.setJoystickButton(PAD, 5, true);
+
+        assertTrue(this.received.decode(this.received, this.send()));
+        assertEquals(1L, this.received.getFrame());
+        assertTrue(this.received.isKeyDown(GLFW.GLFW_KEY_W));
+        assertEquals(10.25, this.received.getCursorX(), 0.0);
+        assertTrue(this.received.isGamepadButtonDown(PAD, 5));
+        assertSameState(this.sent, this.received);
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_RELEASE, 0);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptMouseButton(window.window, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, 0);
+        backend.scriptCursorPos(window.window, 2.0, 30.75);
+        backend.setJoystickAxis(PAD, 0, 1F);
+        backend.setJoystickAxis(PAD, 1, 0F);
+        backend.setJoystickButton(PAD, 5, false);
+
+        assertTrue(this.received.decode(this.received, this.send()));
+        assertSameState(this.sent, this.received);
+
+        final ByteBuffer idle = this.send();
+
+        assertEquals(5, idle.remaining());
+        assertTrue(this.received.decode(this.received, idle));
+        assertEquals(3L, this.received.getFrame());
+        assertSameState(this.sent, this.received);
+    }
+
+    @Test
+    public void decodeIntoAnotherSnapshotKeepsThePrevious() {
+        final GLInputSnapshot next = new GLInputSnapshot(1, 2);
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_SPACE, 0, GLFW.GLFW_PRESS, 0);
+        assertTrue(this.received.decode(this.received, this.send()));
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_SPACE, 0, GLFW.GLFW_RELEASE, 0);
+        assertTrue(next.decode(this.received, this.send()));
+
+        assertSameState(this.sent, next);
+        assertTrue(this.received.isKeyDown(GLFW.GLFW_KEY_SPACE));
+        assertEquals(1L, this.received.getFrame());
+    }
+
+    @Test
+    public void everyKeyFitsTheMaximumSize() {
+        for (int key = GLFW.GLFW_KEY_SPACE; key <= GLFW.GLFW_KEY_LAST; key++) {
+            backend.scriptKey(window.window, key, 0, GLFW.GLFW_PRESS, 0);
+        }
+
+        backend.scriptMouseButton(window.window, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, 0);
+        backend.scriptCursorPos(window.window, -100000.0, 100000.0);
+        backend.setJoystickAxis(PAD, 0, -1F);
+        backend.setJoystickAxis(PAD, 1, 1F);
+
+        for (int button = 0; button < 6; button++) {
+            backend.setJoystickButton(PAD, button, true);
+        }
+
+        assertTrue(this.received.decode(this.received, this.send()));
+        assertSameState(this.sent, this.received);
+    }
+
+    @Test
+    public void lostPacketIsReportedAsDesync() {
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        assertTrue(this.received.decode(this.received, this.send()));
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+        this.send();
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_D, 0, GLFW.GLFW_PRESS, 0);
+        assertFalse(this.received.decode(this.received, this.send()));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the buckets and statistics of GLLatencyHistogram.
+ *
+ * @author zmichaels
+ */
+public class GLLatencyHistogramTest {
+
+    // far above every value under test, so the median lands in the first sample's bucket
+    private static final long OUTLIER = 1L << 60;
+
+    private static long bucketUpperBound(final long value) {
+        final GLLatencyHistogram histogram = new GLLatencyHistogram();
+
+        histogram.record(value);
+        histogram.record(OUTLIER);
+
+        return histogram.getPercentile(50.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0L; value < 16L; value++) {
+            assertEquals(value, bucketUpperBound(value));
+        }
+    }
+
+    @Test
+    public void bucketsAreWithinAnEighthOfTheValue() {
+        for (long value = 16L; value < OUTLIER / 2; value += value / 7 + 1) {
+            final long upper = bucketUpperBound(value);
+
+            assertTrue(value + " -> " + upper, upper >= value);
+            assertTrue(value + " -> " + upper, upper - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void bucketBoundariesArePowersOfTwoSplitInEight() {
+        // 512..1023 is split into eight buckets of 64 and 1024..2047 into eight of 128
+        assertEquals(959L, bucketUpperBound(959L));
+        assertEquals(1023L, bucketUpperBound(960L));
+        assertEquals(1023L, bucketUpperBound(1023L));
+        assertEquals(1151L, bucketUpperBound(1024L));
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMaximum() {
+        final GLLatencyHistogram histogram = new GLLatencyHistogram();
+
+        histogram.record(1000L);
+
+        assertEquals(1000L, histogram.getPercentile(50.0));
+        assertEquals(1000L, histogram.getPercentile(100.0));
+    }
+
+    @Test
+    public void percentilesFollowTheSampleRanks() {
+        final GLLatencyHistogram histogram = new GLLatencyHistogram();
+
+        for (long value = 1L; value <= 100L; value++) {
+            histogram.record(value * 1_000L);
+        }
+
+        final long p50 = histogram.getPercentile(50.0);
+        final long p99 = histogram.getPercentile(99.0);
+
+        assertTrue("p50 " + p50, p50 >= 50_000L && p50 <= 50_000L * 9 / 8);
+        assertTrue("p99 " + p99, p99 >= 99_000L && p99 <= 100_000L);
+        // the lowest percentile is the upper bound of the smallest sample's bucket
+        assertEquals(1_023L, histogram.getPercentile(0.0));
+    }
+
+    @Test
+    public void statisticsTrackEverySample() {
+        final GLLatencyHistogram histogram = new GLLatencyHistogram();
+
+        assertEquals(0L, histogram.getMin());
+        assertEquals(0L, histogram.getPercentile(50.0));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+
+        histogram.record(10L);
+        histogram.record(30L);
+        histogram.record(-5L);
+
+        assertEquals(3L, histogram.getCount());
+        assertEquals(0L, histogram.getMin());
+        assertEquals(30L, histogram.getMax());
+        assertEquals(40.0 / 3.0, histogram.getMean(), 1e-9);
+
+        histogram.reset();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMin());
+        assertEquals(0L, histogram.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentilesAboveOneHundredAreRejected() {
+        new GLLatencyHistogram().getPercentile(100.5);
+    }
+}
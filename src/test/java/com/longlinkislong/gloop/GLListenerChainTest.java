@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for listener ordering and executor sharing of GLListenerChain.
+ *
+ * @author zmichaels
+ */
+public class GLListenerChainTest {
+
+    private static final int EVENTS = 1000;
+
+    private static GLWindow window;
+    private static ExecutorService pool;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLListenerChainTest");
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void higherPrioritiesRunFirst() {
+        final GLListenerChain<Consumer<List<String>>> chain = new GLListenerChain<>(window::getListenerExecutor);
+        final List<String> order = new ArrayList<>();
+
+        chain.add(out -> out.add("low"), -1, null);
+        chain.add(out -> out.add("first"), 1, null);
+        chain.add(out -> out.add("second"), 1, null);
+        chain.dispatch(window.getListenerWatchdog(), GLEventType.KEY, true, listener -> listener.accept(order));
+
+        assertEquals(Arrays.asList("first", "second", "low"), order);
+    }
+
+    @Test
+    public void consumedEventsStopPropagation() {
+        final GLListenerChain<Runnable> chain = new GLListenerChain<>(window::getListenerExecutor);
+        final List<String> order = new ArrayList<>();
+
+        chain.add(() -> {
+            order.add("consumer");
+            GLListenerChain.consume();
+        }, 1, null);
+        chain.add(() -> order.add("skipped"), 0, null);
+        chain.dispatch(window.getListenerWatchdog(), GLEventType.KEY, true, Runnable::run);
+
+        assertEquals(Collections.singletonList("consumer"), order);
+        assertFalse(GLListenerChain.isConsumed());
+    }
+
+    @Test
+    public void consumingOnOneThreadDoesNotAffectAnother() throws Exception {
+        final GLListenerChain<Runnable> chain = new GLListenerChain<>(window::getListenerExecutor);
+        final CountDownLatch bothInside = new CountDownLatch(2);
+        final AtomicInteger reachedLast = new AtomicInteger();
+        final ThreadLocal<Boolean> consumes = ThreadLocal.withInitial(() -> false);
+
+        chain.add(() -> {
+            bothInside.countDown();
+
+            try {
+                bothInside.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (consumes.get()) {
+                GLListenerChain.consume();
+            }
+        }, 1, null);
+        chain.add(reachedLast::incrementAndGet, 0, null);
+
+        final Thread consumer = new Thread(() -> {
+            consumes.set(true);
+            chain.dispatch(window.getListenerWatchdog(), GLEventType.KEY, true, Runnable::run);
+        });
+
+        consumer.start();
+        chain.dispatch(window.getListenerWatchdog(), GLEventType.KEY, true, Runnable::run);
+        consumer.join();
+
+        assertEquals(1, reachedLast.get());
+    }
+
+    @Test
+    public void unconsumableEventsReachEveryListener() {
+        final GLListenerChain<Runnable> chain = new GLListenerChain<>(window::getListenerExecutor);
+        final List<String> order = new ArrayList<>();
+
+        chain.add(() -> {
+            order.add("first");
+            GLListenerChain.consume();
+        }, 1, null);
+        chain.add(() -> order.add("second"), 0, null);
+        chain.dispatch(window.getListenerWatchdog(), GLEventType.DROP, false, Runnable::run);
+
+        assertEquals(Arrays.asList("first", "second"), order);
+    }
+
+    @Test
+    public void registrationsShareOneSerialExecutorPerDelegate() {
+        assertSame(window.getListenerExecutor(pool), window.getListenerExecutor(pool));
+    }
+
+    @Test
+    public void chainsOnTheSameExecutorStayOrdered() throws Exception {
+        final GLListenerChain<Consumer<Integer>> keys = new GLListenerChain<>(window::getListenerExecutor);
+        final GLListenerChain<Consumer<Integer>> buttons = new GLListenerChain<>(window::getListenerExecutor);
+        final List<Integer> order = new ArrayList<>(EVENTS);
+        final CountDownLatch done = new CountDownLatch(EVENTS);
+        final Consumer<Integer> record = id -> {
+            // unsynchronized on purpose; both chains must share one queue
+            order.add(id);
+            done.countDown();
+        };
+
+        keys.add(record, 0, pool);
+        buttons.add(record, 0, pool);
+
+        for (int i = 0; i < EVENTS; i++) {
+            final int id = i;
+            final GLListenerChain<Consumer<Integer>> chain = (i & 1) == 0 ? keys : buttons;
+
+            chain.dispatch(window.getListenerWatchdog(), GLEventType.KEY, true, listener -> listener.accept(id));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < EVENTS; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+}
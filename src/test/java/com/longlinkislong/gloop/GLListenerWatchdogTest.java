@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the listener budget, warning rate limit and time accounting of
+ * GLListenerWatchdog.
+ *
+ * @author zmichaels
+ */
+public class GLListenerWatchdogTest {
+
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private static GLWindow window;
+
+    private GLListenerWatchdog watchdog;
+
+    private static final class SlowListener {
+    }
+
+    private static final class FastListener {
+    }
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLListenerWatchdogTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Before
+    public void createWatchdog() {
+        this.watchdog = new GLListenerWatchdog("GLListenerWatchdogTest");
+        this.watchdog.setEnabled(true);
+        this.watchdog.setBudget(1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an invocation that started the given number of nanoseconds ago.
+     */
+    private void invoke(final Object listener, final long nanosAgo) {
+        this.watchdog.stop(listener, GLEventType.KEY, System.nanoTime() - nanosAgo);
+    }
+
+    private GLListenerWatchdog.ListenerStats stats(final Class<?> listenerClass) {
+        for (GLListenerWatchdog.ListenerStats entry : this.watchdog.getTopListeners(Integer.MAX_VALUE)) {
+            if (entry.getListenerClass() == listenerClass) {
+                return entry;
+            }
+        }
+
+        throw new AssertionError("No statistics for " + listenerClass.getName());
+    }
+
+    @Test
+    public void onlyInvocationsOverTheBudgetAreCounted() {
+        final SlowListener listener = new SlowListener();
+
+        this.invoke(listener, SLOW_NANOS);
+        this.invoke(listener, 0L);
+        this.invoke(listener, SLOW_NANOS);
+
+        final GLListenerWatchdog.ListenerStats entry = this.stats(SlowListener.class);
+
+        assertEquals(3L, entry.getCalls());
+        assertEquals(2L, entry.getOverBudgetCount());
+        assertTrue(entry.getMaxNanos() >= SLOW_NANOS);
+        assertTrue(entry.getTotalNanos() >= 2 * SLOW_NANOS);
+    }
+
+    @Test
+    public void warningsAreRateLimitedPerListener() {
+        final SlowListener slow = new SlowListener();
+        final FastListener fast = new FastListener();
+
+        this.watchdog.setWarningInterval(1, TimeUnit.HOURS);
+
+        for (int i = 0; i < 5; i++) {
+            this.invoke(slow, SLOW_NANOS);
+        }
+
+        this.invoke(fast, SLOW_NANOS);
+
+        assertEquals(5L, this.stats(SlowListener.class).getOverBudgetCount());
+        assertEquals(1L, this.stats(SlowListener.class).getWarningCount());
+        assertEquals(1L, this.stats(FastListener.class).getWarningCount());
+    }
+
+    @Test
+    public void everyOverBudgetCallWarnsWithoutAnInterval() {
+        final SlowListener listener = new SlowListener();
+
+        this.watchdog.setWarningInterval(0, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            this.invoke(listener, SLOW_NANOS);
+        }
+
+        assertEquals(3L, this.stats(SlowListener.class).getWarningCount());
+    }
+
+    @Test
+    public void topListenersAreSortedByTotalTime() {
+        this.invoke(new FastListener(), 0L);
+        this.invoke(new SlowListener(), SLOW_NANOS);
+
+        final List<GLListenerWatchdog.ListenerStats> top = this.watchdog.getTopListeners(1);
+
+        assertEquals(1, top.size());
+        assertSame(SlowListener.class, top.get(0).getListenerClass());
+
+        this.watchdog.reset();
+        assertTrue(this.watchdog.getTopListeners(10).isEmpty());
+    }
+
+    @Test
+    public void disabledWatchdogDoesNotTime() {
+        this.watchdog.setEnabled(false);
+
+        assertEquals(0L, this.watchdog.start(new SlowListener()));
+        this.watchdog.stop(new SlowListener(), GLEventType.KEY, 0L);
+        assertTrue(this.watchdog.getTopListeners(10).isEmpty());
+    }
+
+    @Test
+    public void windowListenersAreTimedByTheirOwnClass() throws Exception {
+        final GLListenerWatchdog windowWatchdog = window.getListenerWatchdog();
+        final GLKeyListener listener = (source, key, scancode, action, mods) -> {
+        };
+
+        windowWatchdog.reset();
+        windowWatchdog.setEnabled(true);
+        window.getKeyboard().addKeyListener(listener);
+
+        try {
+            ((GLHeadlessBackend) window.backend).scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+            window.update();
+            GLTestWindows.flush(window);
+
+            final List<GLListenerWatchdog.ListenerStats> top = windowWatchdog.getTopListeners(10);
+
+            assertEquals(1, top.size());
+            assertSame(listener.getClass(), top.get(0).getListenerClass());
+            assertEquals(GLEventType.KEY, top.get(0).getEventType());
+            assertEquals(1L, top.get(0).getCalls());
+        } finally {
+            window.getKeyboard().removeKeyListener(listener);
+            windowWatchdog.setEnabled(false);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the window lanes of GLRenderScheduler on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLRenderSchedulerTest {
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        // the mode is chosen once per JVM; the testSharedRenderThreads task runs this class
+        assertTrue("needs -Dcom.longlinkislong.gloop.window.shared_render_threads=true", GLRenderScheduler.isEnabled());
+        window = GLTestWindows.create("GLRenderSchedulerTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void laneRunsTasksOnItsRenderThread() throws Exception {
+        final GLRenderScheduler.Lane lane = GLRenderScheduler.assign(window);
+        final CompletableFuture<Boolean> onThread = new CompletableFuture<>();
+
+        try {
+            lane.execute(() -> onThread.complete(lane.isCurrentThread()));
+
+            assertTrue(onThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            lane.release();
+        }
+    }
+
+    @Test
+    public void queuedTasksRunBeforeARelease() throws Exception {
+        final GLRenderScheduler.Lane lane = GLRenderScheduler.assign(window);
+        final CompletableFuture<Void> blocker = new CompletableFuture<>();
+        final CompletableFuture<Integer> queued = new CompletableFuture<>();
+
+        lane.execute(() -> blocker.join());
+        lane.execute(() -> queued.complete(42));
+        lane.release();
+        blocker.complete(null);
+
+        assertEquals(Integer.valueOf(42), queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = GLFWException.class)
+    public void releasedLaneRejectsTasks() {
+        final GLRenderScheduler.Lane lane = GLRenderScheduler.assign(window);
+
+        lane.release();
+        lane.execute(() -> {
+        });
+    }
+
+    @Test
+    public void onlyOneWindowPerRenderThreadWaitsForVsync() throws Exception {
+        final GLHeadlessBackend backend = (GLHeadlessBackend) window.backend;
+        final GLWindow other = GLTestWindows.create("GLRenderSchedulerTest-other");
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                window.update();
+                other.update();
+            }
+
+            // updates on a shared render thread are queued; wait for them
+            GLTestWindows.flush(window);
+            GLTestWindows.flush(other);
+
+            final int interval = GLWindow.OPENGL_SWAP_INTERVAL;
+            final GLWindow pacer = backend.getSwapInterval(window.window) == interval ? window : other;
+            final GLWindow follower = pacer == window ? other : window;
+
+            assertEquals(interval, backend.getSwapInterval(pacer.window));
+            assertEquals(0, backend.getSwapInterval(follower.window));
+
+            // a pacer that stops presenting hands the vsync wait to a window that still does
+            Thread.sleep(200);
+            follower.update();
+            GLTestWindows.flush(follower);
+            pacer.update();
+            GLTestWindows.flush(pacer);
+
+            assertEquals(interval, backend.getSwapInterval(follower.window));
+            assertEquals(0, backend.getSwapInterval(pacer.window));
+        } finally {
+            GLTestWindows.close(other);
+        }
+    }
+
+    @Test(expected = GLFWException.class)
+    public void sharedGLThreadIsNotHandedOut() {
+        window.getGLThread();
+    }
+
+    @Test
+    public void pooledWorkersShareTheRenderThread() throws Exception {
+        final Thread renderThread = CompletableFuture.supplyAsync(Thread::currentThread, window.getGLThreadExecutor())
+                .get(5, TimeUnit.SECONDS);
+        final Thread workerThread = window.getWorkerPool().submit(new GLQuery<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                return Thread.currentThread();
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        // a single render thread is configured, so the worker has to share it
+        assertSame(renderThread, workerThread);
+    }
+
+    @Test
+    public void newWindowsKeepTheSettingsOfTheirRenderThread() throws Exception {
+        final GLThreadSettings lowered = GLThreadSettings.DEFAULT.withPriority(Thread.NORM_PRIORITY - 2);
+
+        window.setThreadSettings(lowered).get(5, TimeUnit.SECONDS);
+
+        final GLWindow other = GLTestWindows.create("GLRenderSchedulerTest-settings");
+
+        try {
+            GLTestWindows.flush(other);
+
+            final int priority = CompletableFuture.supplyAsync(() -> Thread.currentThread().getPriority(), window.getGLThreadExecutor())
+                    .get(5, TimeUnit.SECONDS);
+
+            // the default settings of the new window do not reset the shared thread
+            assertEquals(lowered.getPriority(), priority);
+            assertEquals(lowered.getPriority(), other.getAppliedThreadSettings().get().getPriority());
+
+            // the default settings applied explicitly restore the thread
+            assertEquals(Thread.NORM_PRIORITY, window.setThreadSettings(GLThreadSettings.DEFAULT).get(5, TimeUnit.SECONDS).getPriority());
+        } finally {
+            window.setThreadSettings(GLThreadSettings.DEFAULT);
+            GLTestWindows.close(other);
+        }
+    }
+
+    @Test
+    public void onDemandWindowsSkipFramesUntilInvalidated() throws Exception {
+        final GLHeadlessBackend backend = (GLHeadlessBackend) window.backend;
+
+        window.setOnDemand(true);
+
+        try {
+            // the first update presents whatever invalidated the window before
+            window.update();
+            GLTestWindows.flush(window);
+
+            final long swaps = backend.getSwapCount();
+
+            for (int i = 0; i < 3; i++) {
+                window.update();
+            }
+
+            GLTestWindows.flush(window);
+            assertEquals(swaps, backend.getSwapCount());
+
+            window.invalidate();
+            window.update();
+            GLTestWindows.flush(window);
+            assertEquals(swaps + 1, backend.getSwapCount());
+        } finally {
+            window.setOnDemand(false);
+        }
+    }
+}
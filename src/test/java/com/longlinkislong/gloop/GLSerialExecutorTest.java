@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the ordering guarantees of GLSerialExecutor.
+ *
+ * @author zmichaels
+ */
+public class GLSerialExecutorTest {
+
+    private static final int TASKS = 10000;
+
+    private ExecutorService pool;
+
+    @Before
+    public void createPool() {
+        this.pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void shutdownPool() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void tasksRunInSubmissionOrder() throws Exception {
+        final GLSerialExecutor serial = new GLSerialExecutor(this.pool);
+        final List<Integer> order = new ArrayList<>(TASKS);
+        final CountDownLatch done = new CountDownLatch(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            final int id = i;
+
+            serial.execute(() -> {
+                // unsynchronized on purpose; the executor must not overlap tasks
+                order.add(id);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < TASKS; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void tasksNeverOverlap() throws Exception {
+        final GLSerialExecutor serial = new GLSerialExecutor(this.pool);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(TASKS);
+        final Thread[] producers = new Thread[4];
+
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < TASKS / producers.length; i++) {
+                    serial.execute(() -> {
+                        if (running.incrementAndGet() != 1) {
+                            overlaps.incrementAndGet();
+                        }
+
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+            producers[p].start();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void failingTaskDoesNotStallTheQueue() throws Exception {
+        final GLSerialExecutor serial = new GLSerialExecutor(this.pool);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        serial.execute(() -> {
+            throw new IllegalStateException("expected");
+        });
+        serial.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectedDrainDoesNotStallTheQueue() throws Exception {
+        final AtomicInteger rejections = new AtomicInteger(1);
+        final GLSerialExecutor serial = new GLSerialExecutor(task -> {
+            if (rejections.getAndDecrement() > 0) {
+                throw new RejectedExecutionException("expected");
+            }
+
+            this.pool.execute(task);
+        });
+        final CountDownLatch done = new CountDownLatch(2);
+
+        try {
+            serial.execute(done::countDown);
+            fail("rejection was not reported");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        // the rejected task is still queued and runs with the next one
+        serial.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the deadline of GLWindow.closeAsync on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLShutdownReportTest {
+
+    private static GLShutdownReport.Entry entry(final GLShutdownReport report, final String name) {
+        for (GLShutdownReport.Entry entry : report.getEntries()) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+
+        throw new AssertionError("No entry named " + name + " in " + report);
+    }
+
+    @Test
+    public void teardownWithinTheDeadlineDestroysTheWindow() throws Exception {
+        final GLWindow window = GLTestWindows.create("teardownWithinTheDeadline");
+
+        window.appendToCleanup(() -> {
+        });
+        window.appendToParallelCleanup(() -> {
+        });
+
+        final GLShutdownReport report = window.closeAsync(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+
+        assertTrue(report.toString(), report.isWithinDeadline());
+        assertEquals(GLShutdownReport.Status.COMPLETED, entry(report, "GLWindow teardown").getStatus());
+        assertFalse(window.isValid());
+    }
+
+    @Test
+    public void overrunningParallelTaskIsReported() throws Exception {
+        final GLWindow window = GLTestWindows.create("overrunningParallelTask");
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable stuck = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "stuck";
+            }
+        };
+
+        window.appendToParallelCleanup(stuck);
+
+        try {
+            final GLShutdownReport report = window.closeAsync(100, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+            assertFalse(report.isWithinDeadline());
+            assertEquals(GLShutdownReport.Status.OVERRAN, entry(report, "stuck").getStatus());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void deadlineStartsWhenCloseIsRequested() throws Exception {
+        final GLWindow window = GLTestWindows.create("deadlineStartsWhenCloseIsRequested");
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+
+        // the window thread is busy, so the teardown cannot even start
+        window.getGLThreadExecutor().execute(() -> {
+            blocked.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        try {
+            final long start = System.nanoTime();
+            final GLShutdownReport report = window.closeAsync(100, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("closeAsync took " + elapsed + " ms", elapsed < 2000L);
+            assertFalse(report.isWithinDeadline());
+            assertEquals(GLShutdownReport.Status.SKIPPED, entry(report, "GLWindow teardown").getStatus());
+        } finally {
+            release.countDown();
+        }
+
+        // the teardown still finishes in the background
+        final long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (window.isValid() && System.nanoTime() < giveUp) {
+            Thread.sleep(1);
+        }
+
+        assertFalse(window.isValid());
+    }
+
+    @Test
+    public void blockingSerialTaskDoesNotHoldTheFuture() throws Exception {
+        final GLWindow window = GLTestWindows.create("blockingSerialTask");
+        final CountDownLatch release = new CountDownLatch(1);
+
+        window.appendToCleanup(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            final GLShutdownReport report = window.closeAsync(100, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+            assertFalse(report.isWithinDeadline());
+            assertEquals(GLShutdownReport.Status.OVERRAN, entry(report, "GLWindow teardown").getStatus());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void serialTasksStillRunAfterTheDeadline() throws Exception {
+        final GLWindow window = GLTestWindows.create("serialTasksStillRunAfterTheDeadline");
+        final AtomicBoolean ranLate = new AtomicBoolean();
+
+        window.appendToCleanup(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        window.appendToCleanup(() -> ranLate.set(true));
+
+        final GLShutdownReport report = window.closeAsync(50, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+        assertFalse(report.isWithinDeadline());
+
+        final long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (window.isValid() && System.nanoTime() < giveUp) {
+            Thread.sleep(1);
+        }
+
+        assertFalse(window.isValid());
+        assertTrue("a cleanup task after the deadline was skipped", ranLate.get());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for GLSnapshot.
+ *
+ * @author zmichaels
+ */
+public class GLSnapshotTest {
+
+    private static final class Count {
+
+        final int value;
+
+        Count(final int value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void setPublishesTheNewValue() {
+        final Count first = new Count(1);
+        final Count second = new Count(2);
+        final GLSnapshot<Count> snapshot = new GLSnapshot<>(first);
+
+        assertSame(first, snapshot.get());
+
+        snapshot.set(second);
+
+        assertSame(second, snapshot.get());
+    }
+
+    @Test
+    public void compareAndSetComparesIdentity() {
+        final Count current = new Count(1);
+        final GLSnapshot<Count> snapshot = new GLSnapshot<>(current);
+
+        assertFalse(snapshot.compareAndSet(new Count(1), new Count(2)));
+        assertSame(current, snapshot.get());
+
+        final Count next = new Count(2);
+
+        assertTrue(snapshot.compareAndSet(current, next));
+        assertSame(next, snapshot.get());
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws Exception {
+        final int threads = 4;
+        final int increments = 10000;
+        final GLSnapshot<Count> snapshot = new GLSnapshot<>(new Count(0));
+        final List<Thread> writers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            final Thread writer = new Thread(() -> {
+                for (int j = 0; j < increments; j++) {
+                    Count current;
+
+                    do {
+                        current = snapshot.get();
+                    } while (!snapshot.compareAndSet(current, new Count(current.value + 1)));
+                }
+            });
+
+            writers.add(writer);
+            writer.start();
+        }
+
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(threads * increments, snapshot.get().value);
+    }
+}
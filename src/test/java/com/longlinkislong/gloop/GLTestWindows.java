@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates and closes the windows used by the tests. Every window is created
+ * on the headless backend, so no display or GPU is needed and the tests do
+ * not depend on system properties.
+ *
+ * @author zmichaels
+ */
+final class GLTestWindows {
+
+    /**
+     * How long a window may take to initialize, close or run a queued task.
+     */
+    static final long TIMEOUT_SECONDS = 5L;
+
+    static {
+        try {
+            GLFWBootstrap.setBackend(new GLHeadlessBackend());
+        } catch (GLFWException ex) {
+            // an earlier test class in this JVM already initialized the backend
+        }
+
+        if (!(GLFWBootstrap.getBackend() instanceof GLHeadlessBackend)) {
+            throw new IllegalStateException("Tests need the headless backend; found " + GLFWBootstrap.getBackend());
+        }
+    }
+
+    private GLTestWindows() {
+    }
+
+    /**
+     * Retrieves the headless backend shared by every test window.
+     *
+     * @return the backend.
+     */
+    static GLHeadlessBackend backend() {
+        return (GLHeadlessBackend) GLFWBootstrap.getBackend();
+    }
+
+    /**
+     * Creates a 64x64 window and waits until it is initialized.
+     *
+     * @param title the window title.
+     * @return the window.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    static GLWindow create(final String title) throws InterruptedException {
+        final GLWindow window = new GLWindow(64, 64, title);
+        final long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+        while (!window.isValid()) {
+            if (System.nanoTime() - giveUp > 0L) {
+                throw new AssertionError("GLWindow[" + title + "] was not initialized within " + TIMEOUT_SECONDS + " s");
+            }
+
+            Thread.sleep(1);
+        }
+
+        return window;
+    }
+
+    /**
+     * Closes a window and waits for the teardown.
+     *
+     * @param window the window.
+     * @throws Exception if the teardown failed or timed out.
+     */
+    static void close(final GLWindow window) throws Exception {
+        window.closeAsync().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits until every task queued on the window's GLThread before the call
+     * has run. Updates on a shared render thread are queued, not run in
+     * place.
+     *
+     * @param window the window.
+     * @throws Exception if the GLThread did not catch up in time.
+     */
+    static void flush(final GLWindow window) throws Exception {
+        CompletableFuture.runAsync(() -> {
+        }, window.getGLThreadExecutor()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
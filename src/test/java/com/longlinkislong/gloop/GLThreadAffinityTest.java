@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the mapping between Java thread priorities and nice values.
+ *
+ * @author zmichaels
+ */
+public class GLThreadAffinityTest {
+
+    @Test
+    public void normalPriorityIsNiceZero() {
+        assertEquals(0, GLThreadAffinity.toNice(Thread.NORM_PRIORITY));
+        assertEquals(Thread.NORM_PRIORITY, GLThreadAffinity.toPriority(0));
+    }
+
+    @Test
+    public void higherPrioritiesAreLowerNiceValues() {
+        for (int priority = Thread.MIN_PRIORITY; priority < Thread.MAX_PRIORITY; priority++) {
+            assertTrue(GLThreadAffinity.toNice(priority + 1) < GLThreadAffinity.toNice(priority));
+        }
+    }
+
+    @Test
+    public void prioritiesRoundTrip() {
+        for (int priority = Thread.MIN_PRIORITY; priority <= Thread.MAX_PRIORITY; priority++) {
+            final int nice = GLThreadAffinity.toNice(priority);
+
+            assertTrue(nice >= -20 && nice <= 19);
+            assertEquals(priority, GLThreadAffinity.toPriority(nice));
+        }
+    }
+
+    @Test
+    public void niceValuesOutsideThePriorityRangeAreClamped() {
+        assertEquals(Thread.MAX_PRIORITY, GLThreadAffinity.toPriority(-20));
+        assertEquals(Thread.MIN_PRIORITY, GLThreadAffinity.toPriority(19));
+    }
+}
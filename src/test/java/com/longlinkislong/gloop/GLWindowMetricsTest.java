@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the event and frame counters of GLWindowMetrics on the headless
+ * backend.
+ *
+ * @author zmichaels
+ */
+public class GLWindowMetricsTest {
+
+    private static final int PAD = 2;
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWindowMetricsTest");
+        backend = GLTestWindows.backend();
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    private static void update(final GLWindow target) throws Exception {
+        target.update();
+        GLTestWindows.flush(target);
+    }
+
+    private static Set<ObjectName> registered(final String title) throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        return server.queryNames(new ObjectName("com.longlinkislong.gloop:type=GLWindow,name="
+                + ObjectName.quote(title) + ",*"), null);
+    }
+
+    @Test
+    public void updatesCountFramesSwapsAndPolls() throws Exception {
+        final GLWindowMetrics metrics = window.getMetrics();
+        final long frames = metrics.getFrames();
+        final long swaps = metrics.getSwaps();
+        final long polls = metrics.getPolls();
+        final long renderNanos = metrics.getRenderNanos();
+
+        for (int i = 0; i < 3; i++) {
+            update(window);
+        }
+
+        assertEquals(frames + 3, metrics.getFrames());
+        assertEquals(swaps + 3, metrics.getSwaps());
+        assertEquals(polls + 3, metrics.getPolls());
+        assertTrue(metrics.getRenderNanos() > renderNanos);
+        assertEquals(0L, metrics.getQueueDepth());
+    }
+
+    @Test
+    public void dispatchedEventsAreCountedByType() throws Exception {
+        final GLWindowMetrics metrics = window.getMetrics();
+        final long keys = metrics.getEventCount(GLEventType.KEY);
+        final long scrolls = metrics.getEventCount(GLEventType.SCROLL);
+        final long total = metrics.getTotalEvents();
+
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_PRESS, 0);
+        backend.scriptKey(window.window, GLFW.GLFW_KEY_A, 0, GLFW.GLFW_RELEASE, 0);
+        backend.scriptScroll(window.window, 0.0, 1.0);
+        update(window);
+
+        assertEquals(keys + 2, metrics.getEventCount(GLEventType.KEY));
+        assertEquals(scrolls + 1, metrics.getEventCount(GLEventType.SCROLL));
+        assertEquals(total + 3, metrics.getTotalEvents());
+        assertEquals(keys + 2, (long) metrics.getEventCounts().get(GLEventType.KEY.name()));
+        assertTrue(metrics.getTotalDispatchNanos() >= metrics.getDispatchNanos(GLEventType.KEY));
+    }
+
+    @Test
+    public void queuedTasksLeaveTheQueueDepth() throws Exception {
+        final GLWindowMetrics metrics = window.getMetrics();
+        final int tasks = 10;
+
+        for (int i = 0; i < tasks; i++) {
+            window.getGLThreadExecutor().execute(() -> {
+            });
+        }
+
+        GLTestWindows.flush(window);
+
+        assertEquals(0L, metrics.getQueueDepth());
+    }
+
+    @Test
+    public void gamepadPollsAreCounted() {
+        backend.connectJoystick(PAD, "GLWindowMetricsTest", 1, 1);
+
+        try {
+            final GLGamepad pad = new GLGamepad(PAD);
+            final long polls = window.getMetrics().getGamepadPolls();
+
+            pad.update();
+            pad.update();
+
+            assertEquals(polls + 2, window.getMetrics().getGamepadPolls());
+        } finally {
+            backend.disconnectJoystick(PAD);
+        }
+    }
+
+    @Test
+    public void metricsAreRegisteredWhileTheWindowIsOpen() throws Exception {
+        final GLWindow registeredWindow = GLTestWindows.create("GLWindowMetricsTest-jmx");
+
+        try {
+            final Set<ObjectName> names = registered("GLWindowMetricsTest-jmx");
+
+            assertEquals(1, names.size());
+            assertEquals("GLWindowMetricsTest-jmx", ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(names.iterator().next(), "Title"));
+        } finally {
+            GLTestWindows.close(registeredWindow);
+        }
+
+        assertTrue(registered("GLWindowMetricsTest-jmx").isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for waking on-demand updates on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLWindowOnDemandTest {
+
+    private static GLWindow window;
+    private static Thread updater;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWindowOnDemandTest");
+        // long enough that a missed wake fails the test
+        window.setOnDemandTimeout(5000L);
+
+        window.setOnDemand(true);
+        updater = new Thread(() -> {
+            try {
+                while (window.isValid()) {
+                    window.update();
+                }
+            } catch (RuntimeException ex) {
+                // the window was closed while an update was queued
+            }
+        }, "GLWindowOnDemandTest-updater");
+        updater.setDaemon(true);
+        updater.start();
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void executorTasksWakeAnIdleUpdate() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            // give the updater time to fall asleep
+            Thread.sleep(20);
+
+            final CompletableFuture<Boolean> ran = new CompletableFuture<>();
+
+            window.getGLThreadExecutor().execute(() -> ran.complete(true));
+
+            assertTrue(ran.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void queueDepthReturnsToZero() throws Exception {
+        final CompletableFuture<Void> ran = new CompletableFuture<>();
+
+        window.getGLThreadExecutor().execute(() -> ran.complete(null));
+        ran.get(1, TimeUnit.SECONDS);
+
+        final long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        while (window.getMetrics().getQueueDepth() != 0 && System.nanoTime() < giveUp) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(0L, window.getMetrics().getQueueDepth());
+    }
+}
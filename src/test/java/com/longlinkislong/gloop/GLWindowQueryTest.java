@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the native queries of GLWindow on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLWindowQueryTest {
+
+    private static final int QUERIES = 10_000;
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWindowQueryTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void dpiIsTheDpiOfTheMonitor() {
+        // the headless monitor is 1920 pixels and 508 mm wide
+        assertEquals(96.0, window.getDPI(), 0.01);
+    }
+
+    @Test
+    public void queriesOnTheGLThreadDoNotAllocate() throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final int[] size = new int[2];
+        final int[] edges = new int[4];
+        final Runnable queries = () -> {
+            for (int i = 0; i < QUERIES; i++) {
+                window.getWidth();
+                window.getHeight();
+                window.getX();
+                window.getY();
+                window.getFramebufferWidth();
+                window.getSize(size);
+                window.getPosition(size);
+                window.getFramebufferSize(size);
+                window.getWindowFrameSize(edges);
+                window.getDPI();
+            }
+        };
+
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+
+        final long allocated = CompletableFuture.supplyAsync(() -> {
+            final long threadId = Thread.currentThread().getId();
+
+            threads.setThreadAllocatedMemoryEnabled(true);
+            // the first round initializes the thread-local outputs
+            queries.run();
+
+            final long before = threads.getThreadAllocatedBytes(threadId);
+
+            queries.run();
+
+            return threads.getThreadAllocatedBytes(threadId) - before;
+        }, window.getGLThreadExecutor()).get(GLTestWindows.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // far less than a single array or boxed Double per query round
+        assertTrue("allocated " + allocated + " bytes", allocated < QUERIES);
+    }
+}
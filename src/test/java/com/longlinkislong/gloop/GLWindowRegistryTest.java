@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the open addressing table of GLWindowRegistry. Synthetic handles
+ * are registered for a window created on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLWindowRegistryTest {
+
+    private static GLWindow window;
+
+    private final List<Long> handles = new ArrayList<>();
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWindowRegistryTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @After
+    public void unregisterHandles() {
+        this.handles.forEach(GLWindowRegistry::remove);
+    }
+
+    private void register(final long hwnd) {
+        this.handles.add(hwnd);
+        GLWindowRegistry.put(hwnd, window);
+    }
+
+    private static long handle(final int i) {
+        // sequential, far apart and negative handles probe different parts of the table
+        switch (i % 3) {
+            case 0:
+                return 0x1000L + i;
+            case 1:
+                return (long) i << 32;
+            default:
+                return -i;
+        }
+    }
+
+    @Test
+    public void windowIsRegisteredUnderItsHandle() {
+        assertSame(window, GLWindowRegistry.get(window.window));
+        assertTrue(GLWindowRegistry.values().contains(window));
+        assertTrue(GLWindowRegistry.asMap().containsKey(window.window));
+    }
+
+    @Test
+    public void tableGrowsWithoutLosingEntries() {
+        final int count = 1000;
+
+        for (int i = 1; i <= count; i++) {
+            this.register(handle(i));
+        }
+
+        for (int i = 1; i <= count; i++) {
+            assertSame(window, GLWindowRegistry.get(handle(i)));
+        }
+
+        assertSame(window, GLWindowRegistry.get(window.window));
+        assertNull(GLWindowRegistry.get(handle(count + 1)));
+        assertEquals(count + 1, GLWindowRegistry.asMap().size());
+    }
+
+    @Test
+    public void removalKeepsProbeSequencesIntact() {
+        final int count = 200;
+
+        for (int i = 1; i <= count; i++) {
+            this.register(handle(i));
+        }
+
+        for (int i = 1; i <= count; i += 2) {
+            GLWindowRegistry.remove(handle(i));
+        }
+
+        for (int i = 1; i <= count; i++) {
+            if (i % 2 == 0) {
+                assertSame(window, GLWindowRegistry.get(handle(i)));
+            } else {
+                assertNull(GLWindowRegistry.get(handle(i)));
+            }
+        }
+
+        assertFalse(GLWindowRegistry.asMap().containsKey(handle(1)));
+        assertNull(GLWindowRegistry.asMap().get("not a handle"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedWindowsMapWritesThrough() {
+        this.handles.add(handle(1));
+
+        assertNull(GLWindow.WINDOWS.put(handle(1), window));
+        assertSame(window, GLWindowRegistry.get(handle(1)));
+        assertSame(window, GLWindow.WINDOWS.remove(handle(1)));
+        assertNull(GLWindowRegistry.get(handle(1)));
+
+        this.register(handle(2));
+        GLWindow.WINDOWS.entrySet().removeIf(entry -> entry.getKey() == handle(2));
+        assertNull(GLWindowRegistry.get(handle(2)));
+        assertSame(window, GLWindowRegistry.get(window.window));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullHandleIsRejected() {
+        GLWindowRegistry.put(0L, window);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the coalescing of framebuffer resizes into one resize listener
+ * call per frame on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLWindowResizeTest {
+
+    private static GLWindow window;
+    private static GLHeadlessBackend backend;
+
+    private final List<String> sizes = Collections.synchronizedList(new ArrayList<>());
+    // records the framebuffer size the window had when the listener ran
+    private final GLFramebufferResizeListener listener = (source, viewport) -> {
+        final int[] size = new int[2];
+
+        backend.getFramebufferSize(source.window, size);
+        this.sizes.add(size[0] + "x" + size[1]);
+    };
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWindowResizeTest");
+        backend = GLTestWindows.backend();
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Before
+    public void addListener() throws Exception {
+        window.addWindowResizeListener(this.listener);
+        // deliver anything left over from earlier tests before counting
+        update();
+        this.sizes.clear();
+    }
+
+    @After
+    public void removeListener() {
+        window.removeWindowResizeListener(this.listener);
+    }
+
+    private static void update() throws Exception {
+        window.update();
+        GLTestWindows.flush(window);
+    }
+
+    @Test
+    public void resizesWithinAFrameAreDeliveredOnce() throws Exception {
+        final GLWindowMetrics metrics = window.getMetrics();
+        final long events = metrics.getEventCount(GLEventType.RESIZE);
+        final long applied = metrics.getAppliedResizes();
+
+        backend.resizeFramebuffer(window.window, 100, 80);
+        backend.resizeFramebuffer(window.window, 120, 90);
+        backend.resizeFramebuffer(window.window, 140, 100);
+        update();
+
+        assertEquals(Collections.singletonList("140x100"), this.sizes);
+        assertEquals(events + 3, metrics.getEventCount(GLEventType.RESIZE));
+        assertEquals(applied + 1, metrics.getAppliedResizes());
+    }
+
+    @Test
+    public void eachFrameDeliversItsOwnResize() throws Exception {
+        backend.resizeFramebuffer(window.window, 200, 150);
+        update();
+        backend.resizeFramebuffer(window.window, 64, 64);
+        update();
+
+        assertEquals(Arrays.asList("200x150", "64x64"), this.sizes);
+    }
+
+    @Test
+    public void framesWithoutResizesDoNotNotify() throws Exception {
+        final long applied = window.getMetrics().getAppliedResizes();
+
+        update();
+        update();
+
+        assertEquals(Collections.emptyList(), this.sizes);
+        assertEquals(applied, window.getMetrics().getAppliedResizes());
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the work stealing of GLWorkerPool on the headless backend.
+ *
+ * @author zmichaels
+ */
+public class GLWorkerPoolTest {
+
+    private static GLWindow window;
+
+    @BeforeClass
+    public static void createWindow() throws Exception {
+        window = GLTestWindows.create("GLWorkerPoolTest");
+    }
+
+    @AfterClass
+    public static void destroyWindow() throws Exception {
+        GLTestWindows.close(window);
+    }
+
+    @Test
+    public void jobsQueuedBehindABlockedWorkerAreStolen() throws Exception {
+        final GLWorkerPool pool = new GLWorkerPool(window, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+
+        try {
+            final CompletableFuture<Void> blocker = pool.submit(new GLTask() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            // round-robin puts every other job on the blocked worker
+            final List<CompletableFuture<Void>> jobs = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                jobs.add(pool.submit(new GLTask() {
+                    @Override
+                    public void run() {
+                    }
+                }));
+            }
+
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[jobs.size()])).get(5, TimeUnit.SECONDS);
+
+            assertTrue("blocked job finished early", !blocker.isDone());
+            assertTrue("no job was stolen", pool.getStolenCount() > 0);
+
+            release.countDown();
+            blocker.get(5, TimeUnit.SECONDS);
+            assertEquals(9, pool.getExecutedCount());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void queriesReturnTheirResult() throws Exception {
+        final GLWorkerPool pool = new GLWorkerPool(window, 3);
+
+        try {
+            final List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+            for (int i = 0; i < 50; i++) {
+                final int value = i;
+
+                results.add(pool.submit(new GLQuery<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return value * 2;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < 50; i++) {
+                assertEquals(Integer.valueOf(i * 2), results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Void> block(final GLWorkerPool pool, final CountDownLatch release) throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CompletableFuture<Void> out = pool.submit(new GLTask() {
+            @Override
+            public void run() {
+                blocked.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        return out;
+    }
+
+    private static List<CompletableFuture<Void>> record(final GLWorkerPool pool, final List<Integer> order, final int count) {
+        final List<CompletableFuture<Void>> out = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            final int value = i;
+
+            out.add(pool.submit(new GLTask() {
+                @Override
+                public void run() {
+                    order.add(value);
+                }
+            }));
+        }
+
+        return out;
+    }
+
+    @Test
+    public void externalJobsRunInSubmissionOrder() throws Exception {
+        final GLWorkerPool pool = new GLWorkerPool(window, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            block(pool, release);
+
+            final List<CompletableFuture<Void>> jobs = record(pool, order, 5);
+
+            release.countDown();
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[jobs.size()])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void jobsAcceptedBeforeShutdownStillRun() throws Exception {
+        final GLWorkerPool pool = new GLWorkerPool(window, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            block(pool, release);
+
+            final List<CompletableFuture<Void>> jobs = record(pool, order, 5);
+
+            pool.shutdown();
+
+            try {
+                record(pool, order, 1);
+                fail("job accepted after shutdown");
+            } catch (GLFWException expected) {
+            }
+
+            release.countDown();
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[jobs.size()])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(5, order.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void workerWindowsAreNotCountedAsStartup() throws Exception {
+        final long windows = GLFWBootstrap.getStageCount(GLFWBootstrap.Stage.WINDOW_CREATION);
+        final GLWorkerPool pool = new GLWorkerPool(window, 2);
+
+        try {
+            pool.submit(new GLTask() {
+                @Override
+                public void run() {
+                }
+            }).get(5, TimeUnit.SECONDS);
+
+            assertEquals(windows, GLFWBootstrap.getStageCount(GLFWBootstrap.Stage.WINDOW_CREATION));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}